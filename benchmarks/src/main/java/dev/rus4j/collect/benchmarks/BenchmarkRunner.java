@@ -0,0 +1,41 @@
+package dev.rus4j.collect.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count with the GC profiler attached
+ * and writes a JSON result file per run, e.g. {@code jmh-result-t4.json}.
+ *
+ * <p>Arguments: an optional benchmark regexp followed by thread counts, for example
+ * {@code ListBenchmark 1 2 4 8}. Defaults to all benchmarks on 1, 2 and 4 threads.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        final int[] threads = {1, 2, 4};
+        final int[] requested = new int[Math.max(0, args.length - 1)];
+        for (int i = 1; i < args.length; i++) {
+            requested[i - 1] = Integer.parseInt(args[i]);
+        }
+        for (int count : requested.length > 0 ? requested : threads) {
+            final Options options = new OptionsBuilder()
+                .include(include)
+                .exclude(BenchmarkRunner.class.getSimpleName())
+                .threads(count)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-t" + count + ".json")
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
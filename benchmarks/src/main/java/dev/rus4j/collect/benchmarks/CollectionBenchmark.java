@@ -0,0 +1,94 @@
+package dev.rus4j.collect.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TriggerCollection} against a bare {@link HashSet}.
+ * State is per thread, so running with several threads measures how the wrappers scale
+ * when every thread works with its own collection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CollectionBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    @Param({"RAW", "NONE", "NOOP", "ALLOCATING", "METRICS"})
+    Triggers triggers;
+
+    private Set<Integer> backing;
+    private Collection<Integer> collection;
+    private List<Integer> chunk;
+    private Integer value;
+
+    @Setup
+    public void setUp() {
+        backing = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            backing.add(i);
+        }
+        collection = triggers.wrap(backing);
+        chunk = List.of(-1, -2, -3, -4, -5, -6, -7, -8);
+        value = -1;
+    }
+
+    @Benchmark
+    public boolean add() {
+        final boolean result = collection.add(value);
+        backing.remove(value);
+        return result;
+    }
+
+    @Benchmark
+    public boolean addAll() {
+        final boolean result = collection.addAll(chunk);
+        backing.removeAll(chunk);
+        return result;
+    }
+
+    @Benchmark
+    public boolean remove() {
+        backing.add(value);
+        return collection.remove(value);
+    }
+
+    @Benchmark
+    public boolean removeAll() {
+        backing.addAll(chunk);
+        return collection.removeAll(chunk);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer i : collection) {
+            blackhole.consume(i);
+        }
+    }
+
+    @Benchmark
+    public int size() {
+        return collection.size();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.rus4j.collect.benchmarks;
+
+import dev.rus4j.collect.ConcurrentTriggerCollection;
+import dev.rus4j.collect.TriggerCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One collection shared by all the threads, every thread adds and removes random elements
+ * with an {@code allowAdd} check that has to be atomic with the addition.
+ * Run it with several thread counts, e.g. {@code BenchmarkRunner ConcurrentCollectionBenchmark 1 2 4 8},
+ * to see how the variants scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ConcurrentCollectionBenchmark {
+    private static final int KEYS = 1 << 16;
+
+    /**
+     * How the collection is made thread-safe.
+     */
+    public enum Variant {
+        /**
+         * {@code TriggerCollection} over a {@link HashSet}, every call in one {@code synchronized} block.
+         */
+        SYNCHRONIZED,
+        /**
+         * {@code ConcurrentTriggerCollection} with the default number of locks.
+         */
+        STRIPED,
+        /**
+         * {@code ConcurrentTriggerCollection} with a single lock.
+         */
+        SINGLE_LOCK,
+        /**
+         * {@code ConcurrentTriggerCollection} with {@code after} triggers only, no lock is taken.
+         */
+        LOCK_FREE
+    }
+
+    @Param({"SYNCHRONIZED", "STRIPED", "SINGLE_LOCK", "LOCK_FREE"})
+    Variant variant;
+
+    private Collection<Integer> collection;
+
+    @Setup
+    public void setUp() {
+        switch (variant) {
+            case SYNCHRONIZED:
+                final Set<Integer> set = new HashSet<>();
+                collection = TriggerCollection.from(set).allowAdd(e -> !set.contains(e)).build();
+                break;
+            case STRIPED:
+                collection = concurrent().build();
+                break;
+            case SINGLE_LOCK:
+                collection = concurrent().stripes(1).build();
+                break;
+            default:
+                collection = ConcurrentTriggerCollection.concurrent(ConcurrentHashMap.<Integer>newKeySet())
+                    .afterAdd((e, r) -> {})
+                    .afterRemove((e, r) -> {})
+                    .build();
+        }
+        for (int i = 0; i < KEYS; i += 2) {
+            collection.add(i);
+        }
+    }
+
+    private static ConcurrentTriggerCollection.ConcurrentTriggerCollectionBuilder<Integer> concurrent() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        return ConcurrentTriggerCollection.concurrent(set)
+            .allowAdd(e -> !set.contains(e))
+            .afterAdd((e, r) -> {})
+            .afterRemove((e, r) -> {});
+    }
+
+    @Benchmark
+    public boolean addRemove() {
+        final Integer value = ThreadLocalRandom.current().nextInt(KEYS);
+        if (variant == Variant.SYNCHRONIZED) {
+            synchronized (collection) {
+                return collection.add(value) || collection.remove(value);
+            }
+        }
+        return collection.add(value) || collection.remove(value);
+    }
+}
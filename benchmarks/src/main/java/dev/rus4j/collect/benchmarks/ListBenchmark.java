@@ -0,0 +1,97 @@
+package dev.rus4j.collect.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TriggerList} against a bare {@link ArrayList}.
+ * State is per thread, so running with several threads measures how the wrappers scale
+ * when every thread works with its own list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ListBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    @Param({"RAW", "NONE", "NOOP", "ALLOCATING", "METRICS"})
+    Triggers triggers;
+
+    private List<Integer> backing;
+    private List<Integer> list;
+    private List<Integer> chunk;
+    private Integer value;
+
+    @Setup
+    public void setUp() {
+        backing = new ArrayList<>(size + 16);
+        for (int i = 0; i < size; i++) {
+            backing.add(i);
+        }
+        list = triggers.wrap(backing);
+        chunk = List.of(-1, -2, -3, -4, -5, -6, -7, -8);
+        value = size / 2;
+    }
+
+    @Benchmark
+    public boolean add() {
+        final boolean result = list.add(value);
+        backing.remove(backing.size() - 1);
+        return result;
+    }
+
+    @Benchmark
+    public boolean addAll() {
+        final boolean result = list.addAll(chunk);
+        backing.subList(size, backing.size()).clear();
+        return result;
+    }
+
+    @Benchmark
+    public boolean remove() {
+        backing.add(-1);
+        return list.remove(Integer.valueOf(-1));
+    }
+
+    @Benchmark
+    public boolean removeAll() {
+        backing.addAll(chunk);
+        return list.removeAll(chunk);
+    }
+
+    @Benchmark
+    public Integer get() {
+        return list.get(size >> 1);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer i : list) {
+            blackhole.consume(i);
+        }
+    }
+
+    @Benchmark
+    public int size() {
+        return list.size();
+    }
+}
@@ -0,0 +1,90 @@
+package dev.rus4j.collect.benchmarks;
+
+import dev.rus4j.collect.TriggerList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and snapshot reads of a {@code TriggerList} created with {@code TriggerList.versioned()}
+ * against a {@code TriggerList} over a {@link CopyOnWriteArrayList}, the usual way to iterate
+ * a list without locks while it is modified.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SnapshotListBenchmark {
+
+    /**
+     * How the list supports snapshots.
+     */
+    public enum Variant {
+        /**
+         * {@code TriggerList.versioned()}, {@code snapshot()} shares the current version.
+         */
+        VERSIONED,
+        /**
+         * {@code TriggerList} over a {@link CopyOnWriteArrayList}, the list itself is the snapshot.
+         */
+        COPY_ON_WRITE
+    }
+
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    @Param({"VERSIONED", "COPY_ON_WRITE"})
+    Variant variant;
+
+    private TriggerList<Integer> list;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        final TriggerList.TriggerListBuilder<Integer> builder = variant == Variant.VERSIONED
+            ? TriggerList.versioned()
+            : TriggerList.from(new CopyOnWriteArrayList<>());
+        list = builder.afterAdd((e, result) -> { }).build();
+        final Integer[] elements = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = i;
+        }
+        list.addAll(List.of(elements));
+    }
+
+    @Benchmark
+    public Integer set() {
+        index = (index + 1) % size;
+        return list.set(index, index);
+    }
+
+    @Benchmark
+    public boolean addRemoveLast() {
+        final boolean result = list.add(-1);
+        list.remove(size);
+        return result;
+    }
+
+    @Benchmark
+    public void snapshotIterate(Blackhole blackhole) {
+        final List<Integer> snapshot = variant == Variant.VERSIONED ? list.snapshot() : list;
+        for (int i = 0; i < 100; i++) {
+            blackhole.consume(snapshot.get(i));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.rus4j.collect.benchmarks;
+
+import dev.rus4j.collect.TriggerList;
+import dev.rus4j.collect.TriggerTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapping a new small list with the same triggers: a builder per list against a {@link TriggerTemplate}
+ * compiled once. Run with {@code -prof gc} to compare the allocation per wrapped list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+    private TriggerTemplate<Integer, TriggerList<Integer>> template;
+
+    @Setup
+    public void setUp() {
+        template = triggers(TriggerList.from(List.of())).compile();
+    }
+
+    @Benchmark
+    public TriggerList<Integer> build() {
+        final TriggerList<Integer> list = triggers(TriggerList.from(new ArrayList<>())).build();
+        list.add(1);
+        return list;
+    }
+
+    @Benchmark
+    public TriggerList<Integer> apply() {
+        final TriggerList<Integer> list = template.apply(new ArrayList<>());
+        list.add(1);
+        return list;
+    }
+
+    private static TriggerList.TriggerListBuilder<Integer> triggers(TriggerList.TriggerListBuilder<Integer> builder) {
+        return builder
+            .allowAdd(e -> e != null)
+            .beforeAdd(e -> { })
+            .afterAdd((e, result) -> { })
+            .allowRemove(e -> e != null)
+            .afterRemove((e, result) -> { })
+            .afterSet((e, index) -> { });
+    }
+}
@@ -0,0 +1,107 @@
+package dev.rus4j.collect.benchmarks;
+
+import dev.rus4j.collect.TriggerCollection;
+import dev.rus4j.collect.TriggerList;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Trigger configurations the benchmarks are run with.
+ */
+public enum Triggers {
+    /**
+     * Bare backing collection without any wrapper, the baseline.
+     */
+    RAW,
+    /**
+     * Trigger wrapper without any trigger registered.
+     */
+    NONE,
+    /**
+     * Every trigger registered with a callback that does nothing.
+     */
+    NOOP,
+    /**
+     * Every trigger registered with a callback that allocates.
+     */
+    ALLOCATING,
+    /**
+     * No-op triggers with metrics collection enabled, the cost of the instrumentation.
+     */
+    METRICS;
+
+    /**
+     * Last event published by the allocating callbacks, keeps the allocation from being eliminated.
+     */
+    static volatile Object sink;
+
+    <E> Collection<E> wrap(Collection<E> backing) {
+        switch (this) {
+            case RAW:
+                return backing;
+            case NONE:
+                return TriggerCollection.from(backing).build();
+            case NOOP:
+                return TriggerCollection.from(backing)
+                    .allowAdd(e -> true).beforeAdd(e -> {}).afterAdd((e, r) -> {})
+                    .allowRemove(e -> true).beforeRemove(e -> {}).afterRemove((e, r) -> {})
+                    .allowAddAll(c -> true).beforeAddAll(c -> {}).afterAddAll((c, r) -> {})
+                    .allowRemoveAll(c -> true).beforeRemoveAll(c -> {}).afterRemoveAll((c, r) -> {})
+                    .build();
+            case METRICS:
+                return TriggerCollection.from(backing)
+                    .allowAdd(e -> true).beforeAdd(e -> {}).afterAdd((e, r) -> {})
+                    .allowRemove(e -> true).beforeRemove(e -> {}).afterRemove((e, r) -> {})
+                    .allowAddAll(c -> true).beforeAddAll(c -> {}).afterAddAll((c, r) -> {})
+                    .allowRemoveAll(c -> true).beforeRemoveAll(c -> {}).afterRemoveAll((c, r) -> {})
+                    .metrics()
+                    .build();
+            case ALLOCATING:
+                return TriggerCollection.from(backing)
+                    .beforeAdd(e -> sink = new Object[]{e}).afterAdd((e, r) -> sink = new Object[]{e, r})
+                    .beforeRemove(e -> sink = new Object[]{e}).afterRemove((e, r) -> sink = new Object[]{e, r})
+                    .beforeAddAll(c -> sink = new Object[]{c}).afterAddAll((c, r) -> sink = new Object[]{c, r})
+                    .beforeRemoveAll(c -> sink = new Object[]{c}).afterRemoveAll((c, r) -> sink = new Object[]{c, r})
+                    .build();
+            default:
+                throw new IllegalStateException("Unknown triggers: " + this);
+        }
+    }
+
+    <E> List<E> wrap(List<E> backing) {
+        switch (this) {
+            case RAW:
+                return backing;
+            case NONE:
+                return TriggerList.from(backing).build();
+            case NOOP:
+                return TriggerList.from(backing)
+                    .allowAdd(e -> true).beforeAdd(e -> {}).afterAdd((e, r) -> {})
+                    .allowRemove(e -> true).beforeRemove(e -> {}).afterRemove((e, r) -> {})
+                    .allowAddAll(c -> true).beforeAddAll(c -> {}).afterAddAll((c, r) -> {})
+                    .allowRemoveAll(c -> true).beforeRemoveAll(c -> {}).afterRemoveAll((c, r) -> {})
+                    .beforeGet(i -> {}).afterGet((i, e) -> {})
+                    .build();
+            case METRICS:
+                return TriggerList.from(backing)
+                    .allowAdd(e -> true).beforeAdd(e -> {}).afterAdd((e, r) -> {})
+                    .allowRemove(e -> true).beforeRemove(e -> {}).afterRemove((e, r) -> {})
+                    .allowAddAll(c -> true).beforeAddAll(c -> {}).afterAddAll((c, r) -> {})
+                    .allowRemoveAll(c -> true).beforeRemoveAll(c -> {}).afterRemoveAll((c, r) -> {})
+                    .beforeGet(i -> {}).afterGet((i, e) -> {})
+                    .metrics()
+                    .build();
+            case ALLOCATING:
+                return TriggerList.from(backing)
+                    .beforeAdd(e -> sink = new Object[]{e}).afterAdd((e, r) -> sink = new Object[]{e, r})
+                    .beforeRemove(e -> sink = new Object[]{e}).afterRemove((e, r) -> sink = new Object[]{e, r})
+                    .beforeAddAll(c -> sink = new Object[]{c}).afterAddAll((c, r) -> sink = new Object[]{c, r})
+                    .beforeRemoveAll(c -> sink = new Object[]{c}).afterRemoveAll((c, r) -> sink = new Object[]{c, r})
+                    .beforeGet(i -> sink = new Object[]{i}).afterGet((i, e) -> sink = new Object[]{i, e})
+                    .build();
+            default:
+                throw new IllegalStateException("Unknown triggers: " + this);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package dev.rus4j.collect;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Declares an aggregate of a collection, similar to a {@link java.util.stream.Collector}, that is updated
+ * on every modification instead of being recomputed. Register it with
+ * {@link TriggerCollection.TriggerCollectionBuilder#aggregate(String, Aggregation)} and read it with
+ * {@link TriggerCollection#aggregate(String)}.
+ *
+ * <p>The value of an aggregate is published after every added or removed element and can be read
+ * from any thread without locking. An aggregation only describes the aggregate,
+ * so the same instance can be registered on any number of collections.
+ *
+ * @param <E> type of the elements
+ * @param <R> type of the value
+ */
+public final class Aggregation<E, R> {
+    private final Supplier<Aggregator<E, R>> factory;
+
+    private Aggregation(Supplier<Aggregator<E, R>> factory) {
+        this.factory = factory;
+    }
+
+    Aggregator<E, R> newAggregator() {
+        return factory.get();
+    }
+
+    /**
+     * Counts the elements.
+     * @param <E> type of the elements
+     * @return aggregation
+     */
+    public static <E> Aggregation<E, Long> counting() {
+        return summingLong(e -> 1L);
+    }
+
+    /**
+     * Sums a long property of the elements, {@code 0} for an empty collection.
+     * @param mapper function that returns the property
+     * @param <E>    type of the elements
+     * @return aggregation
+     */
+    public static <E> Aggregation<E, Long> summingLong(ToLongFunction<? super E> mapper) {
+        return new Aggregation<>(() -> new LongSum<>(mapper));
+    }
+
+    /**
+     * Sums a double property of the elements with compensated summation, {@code 0} for an empty collection.
+     * @param mapper function that returns the property
+     * @param <E>    type of the elements
+     * @return aggregation
+     */
+    public static <E> Aggregation<E, Double> summingDouble(ToDoubleFunction<? super E> mapper) {
+        return new Aggregation<>(() -> new DoubleSum<>(mapper, false));
+    }
+
+    /**
+     * Averages a double property of the elements, {@code 0} for an empty collection.
+     * @param mapper function that returns the property
+     * @param <E>    type of the elements
+     * @return aggregation
+     */
+    public static <E> Aggregation<E, Double> averagingDouble(ToDoubleFunction<? super E> mapper) {
+        return new Aggregation<>(() -> new DoubleSum<>(mapper, true));
+    }
+
+    /**
+     * Keeps the least element. The elements are kept ordered, so removing the least one
+     * takes O(log n) to find the next one.
+     * @param comparator order of the elements
+     * @param <E>        type of the elements
+     * @return aggregation, empty for an empty collection
+     */
+    public static <E> Aggregation<E, Optional<E>> minBy(Comparator<? super E> comparator) {
+        return new Aggregation<>(() -> new Extreme<>(comparator, true));
+    }
+
+    /**
+     * Keeps the greatest element. The elements are kept ordered, so removing the greatest one
+     * takes O(log n) to find the next one.
+     * @param comparator order of the elements
+     * @param <E>        type of the elements
+     * @return aggregation, empty for an empty collection
+     */
+    public static <E> Aggregation<E, Optional<E>> maxBy(Comparator<? super E> comparator) {
+        return new Aggregation<>(() -> new Extreme<>(comparator, false));
+    }
+
+    /**
+     * Groups the elements by a key and aggregates every group with {@code downstream}.
+     * The value is a read-only view: {@link Map#get(Object)} takes constant time and a group
+     * disappears when its last element is removed.
+     * @param classifier function that returns the key of an element
+     * @param downstream aggregation of a group
+     * @param <E>        type of the elements
+     * @param <K>        type of the key
+     * @param <R>        type of the value of a group
+     * @return aggregation
+     */
+    public static <E, K, R> Aggregation<E, Map<K, R>> groupingBy(
+        Function<? super E, ? extends K> classifier,
+        Aggregation<? super E, R> downstream
+    ) {
+        return new Aggregation<>(() -> new Grouping<>(classifier, downstream));
+    }
+
+    /**
+     * State of an aggregate of one collection. Elements are reported by the thread that modifies
+     * the collection, the value is read by any thread.
+     */
+    interface Aggregator<E, R> {
+        void added(E e);
+
+        void removed(E e);
+
+        R get();
+    }
+
+    private static final class LongSum<E> implements Aggregator<E, Long> {
+        private final ToLongFunction<? super E> mapper;
+        private volatile long sum;
+
+        LongSum(ToLongFunction<? super E> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void added(E e) {
+            sum += mapper.applyAsLong(e);
+        }
+
+        @Override
+        public void removed(E e) {
+            sum -= mapper.applyAsLong(e);
+        }
+
+        @Override
+        public Long get() {
+            return sum;
+        }
+    }
+
+    /**
+     * Kahan summation, so adding and removing many elements does not accumulate rounding errors.
+     */
+    private static final class DoubleSum<E> implements Aggregator<E, Double> {
+        private final ToDoubleFunction<? super E> mapper;
+        private final boolean average;
+        private double sum;
+        private double compensation;
+        private long count;
+        private volatile double value;
+
+        DoubleSum(ToDoubleFunction<? super E> mapper, boolean average) {
+            this.mapper = mapper;
+            this.average = average;
+        }
+
+        @Override
+        public void added(E e) {
+            count++;
+            add(mapper.applyAsDouble(e));
+        }
+
+        @Override
+        public void removed(E e) {
+            count--;
+            add(-mapper.applyAsDouble(e));
+        }
+
+        private void add(double x) {
+            final double y = x - compensation;
+            final double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+            if (!average) {
+                value = sum;
+            } else {
+                value = count == 0 ? 0 : sum / count;
+            }
+        }
+
+        @Override
+        public Double get() {
+            return value;
+        }
+    }
+
+    /**
+     * Keeps the elements in a tree, an element equal to others by the comparator shares their entry.
+     */
+    private static final class Extreme<E> implements Aggregator<E, Optional<E>> {
+        private final TreeMap<E, List<E>> elements;
+        private final boolean min;
+        private volatile E value;
+
+        Extreme(Comparator<? super E> comparator, boolean min) {
+            this.elements = new TreeMap<>(comparator);
+            this.min = min;
+        }
+
+        @Override
+        public void added(E e) {
+            elements.computeIfAbsent(e, key -> new ArrayList<>(1)).add(e);
+            publish();
+        }
+
+        @Override
+        public void removed(E e) {
+            final List<E> equal = elements.get(e);
+            if (equal == null || !equal.remove(e)) return;
+            if (equal.isEmpty()) elements.remove(e);
+            publish();
+        }
+
+        private void publish() {
+            final Map.Entry<E, List<E>> entry = min ? elements.firstEntry() : elements.lastEntry();
+            value = entry == null ? null : entry.getValue().get(0);
+        }
+
+        @Override
+        public Optional<E> get() {
+            return Optional.ofNullable(value);
+        }
+    }
+
+    private static final class Grouping<E, K, R> implements Aggregator<E, Map<K, R>> {
+        private final Function<? super E, ? extends K> classifier;
+        private final Aggregation<? super E, R> downstream;
+        private final ConcurrentHashMap<K, Group<E, R>> groups = new ConcurrentHashMap<>();
+        private final Map<K, R> view = new GroupView<>(groups);
+
+        Grouping(Function<? super E, ? extends K> classifier, Aggregation<? super E, R> downstream) {
+            this.classifier = classifier;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void added(E e) {
+            final K key = classifier.apply(e);
+            Group<E, R> group = groups.get(key);
+            if (group == null) {
+                group = new Group<>(downstream.newAggregator());
+                group.added(e);
+                groups.put(key, group);
+            } else {
+                group.added(e);
+            }
+        }
+
+        @Override
+        public void removed(E e) {
+            final K key = classifier.apply(e);
+            final Group<E, R> group = groups.get(key);
+            if (group == null) return;
+            group.removed(e);
+            if (group.size == 0) groups.remove(key);
+        }
+
+        @Override
+        public Map<K, R> get() {
+            return view;
+        }
+    }
+
+    private static final class Group<E, R> {
+        private final Aggregator<? super E, R> aggregator;
+        private int size;
+
+        Group(Aggregator<? super E, R> aggregator) {
+            this.aggregator = aggregator;
+        }
+
+        void added(E e) {
+            size++;
+            aggregator.added(e);
+        }
+
+        void removed(E e) {
+            size--;
+            aggregator.removed(e);
+        }
+
+        R value() {
+            return aggregator.get();
+        }
+    }
+
+    private static final class GroupView<K, R> extends AbstractMap<K, R> {
+        private final ConcurrentHashMap<K, ? extends Group<?, R>> groups;
+
+        GroupView(ConcurrentHashMap<K, ? extends Group<?, R>> groups) {
+            this.groups = groups;
+        }
+
+        @Override
+        public R get(Object key) {
+            final Group<?, R> group = groups.get(key);
+            return group == null ? null : group.value();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return groups.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return groups.size();
+        }
+
+        @Override
+        public Set<Entry<K, R>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, R>> iterator() {
+                    final Iterator<? extends Entry<K, ? extends Group<?, R>>> iterator = groups.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, R> next() {
+                            final Entry<K, ? extends Group<?, R>> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return groups.size();
+                }
+            };
+        }
+    }
+}
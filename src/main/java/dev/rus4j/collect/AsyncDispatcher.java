@@ -0,0 +1,191 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the {@code after} triggers of one collection on an {@link Executor}.
+ * Events are put into a bounded {@link MpscQueue} and delivered by at most one task at a time,
+ * so the triggers see the events in the order the collection was modified. A trigger that modifies its collection
+ * or flushes it runs on the delivering thread: the events it would wait for are delivered inline instead.
+ */
+final class AsyncDispatcher {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long PARK_NANOS = 10_000;
+
+    private final MpscQueue<Runnable> queue;
+    private final Executor executor;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicInteger waitingCallers = new AtomicInteger();
+
+    /**
+     * Thread delivering the events while {@link #draining} is set, only ever compared with the current thread.
+     */
+    private volatile Thread owner;
+    private volatile boolean closed;
+
+    AsyncDispatcher(Executor executor, int capacity, OverflowPolicy overflowPolicy) {
+        this.queue = new MpscQueue<>(capacity);
+        this.executor = executor;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Executor used when the builder is not given one: virtual threads when the runtime has them,
+     * otherwise a shared pool of daemon threads.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    <T> Consumer<T> wrap(Consumer<T> trigger) {
+        if (trigger == null) return null;
+        return t -> dispatch(() -> trigger.accept(t));
+    }
+
+    <T, U> BiConsumer<T, U> wrap(BiConsumer<T, U> trigger) {
+        if (trigger == null) return null;
+        return (t, u) -> dispatch(() -> trigger.accept(t, u));
+    }
+
+    void dispatch(Runnable event) {
+        if (closed) {
+            run(event);
+            return;
+        }
+        if (!queue.offer(event)) {
+            if (overflowPolicy == OverflowPolicy.DROP) return;
+            if (owner == Thread.currentThread()) {
+                drainQueue(false);
+                run(event);
+                return;
+            }
+            if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                runOnCaller(event);
+                return;
+            }
+            do {
+                LockSupport.parkNanos(PARK_NANOS);
+            } while (!queue.offer(event));
+        }
+        schedule();
+    }
+
+    /**
+     * Waits until every queued event is delivered, helping to deliver them when no task is doing it.
+     * Called by a trigger on the delivering thread, it delivers the queued events itself.
+     */
+    void flush() {
+        if (owner == Thread.currentThread()) {
+            drainQueue(false);
+            return;
+        }
+        while (!queue.isEmpty() || draining.get()) {
+            if (draining.compareAndSet(false, true)) {
+                owner = Thread.currentThread();
+                drainQueue(false);
+                release();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Delivers the queued events; the events that come after that are delivered on the mutating thread.
+     */
+    void close() {
+        closed = true;
+        flush();
+    }
+
+    /**
+     * Takes the delivery over from the executor task once it finishes the current event,
+     * then delivers the queued events and the new one on the mutating thread.
+     */
+    private void runOnCaller(Runnable event) {
+        waitingCallers.incrementAndGet();
+        while (!draining.compareAndSet(false, true)) {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        waitingCallers.decrementAndGet();
+        owner = Thread.currentThread();
+        drainQueue(false);
+        run(event);
+        release();
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            owner = Thread.currentThread();
+            drainQueue(false);
+            release();
+        }
+    }
+
+    private void drain() {
+        owner = Thread.currentThread();
+        drainQueue(true);
+        release();
+    }
+
+    private void release() {
+        owner = null;
+        draining.set(false);
+        if (waitingCallers.get() == 0 && !queue.isEmpty()) schedule();
+    }
+
+    /**
+     * Runs the queued events, the executor task stops early when a mutating thread waits to take over.
+     */
+    private void drainQueue(boolean yieldToCallers) {
+        Runnable event;
+        while ((!yieldToCallers || waitingCallers.get() == 0) && (event = queue.poll()) != null) {
+            run(event);
+        }
+    }
+
+    /**
+     * Runs the event and reports its failure to the uncaught exception handler of the current thread.
+     */
+    static void run(Runnable event) {
+        try {
+            event.run();
+        } catch (RuntimeException e) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                final AtomicInteger counter = new AtomicInteger();
+                return Executors.newCachedThreadPool(task -> {
+                    final Thread thread = new Thread(task, "trigger-async-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package dev.rus4j.collect;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Compiles the triggers registered for one event into a single callable object.
+ * An event without triggers compiles to {@code null}, so the collection can skip it with one
+ * null check, a single trigger is used as is and several triggers are called from an array.
+ */
+final class Chains {
+
+    private Chains() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Consumer<T> consumers(List<? extends Consumer<T>> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new ConsumerChain<>(consumers.toArray(new Consumer[0]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T, U> BiConsumer<T, U> biConsumers(List<? extends BiConsumer<T, U>> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new BiConsumerChain<>(consumers.toArray(new BiConsumer[0]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ObjIntConsumer<T> objIntConsumers(List<ObjIntConsumer<T>> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new ObjIntConsumerChain<>(consumers.toArray(new ObjIntConsumer[0]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Predicate<T> predicates(List<? extends Predicate<T>> predicates) {
+        switch (predicates.size()) {
+            case 0:
+                return null;
+            case 1:
+                return predicates.get(0);
+            default:
+                return new PredicateChain<>(predicates.toArray(new Predicate[0]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T, U> BiPredicate<T, U> biPredicates(List<BiPredicate<T, U>> predicates) {
+        switch (predicates.size()) {
+            case 0:
+                return null;
+            case 1:
+                return predicates.get(0);
+            default:
+                return new BiPredicateChain<>(predicates.toArray(new BiPredicate[0]));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PutConsumer<K, V> putConsumers(List<PutConsumer<K, V>> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new PutConsumerChain<>(consumers.toArray(new PutConsumer[0]));
+        }
+    }
+
+    static IntConsumer intConsumers(List<IntConsumer> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new IntConsumerChain(consumers.toArray(new IntConsumer[0]));
+        }
+    }
+
+    static IndexedIntConsumer indexedIntConsumers(List<IndexedIntConsumer> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new IndexedIntConsumerChain(consumers.toArray(new IndexedIntConsumer[0]));
+        }
+    }
+
+    static IntPredicate intPredicates(List<IntPredicate> predicates) {
+        switch (predicates.size()) {
+            case 0:
+                return null;
+            case 1:
+                return predicates.get(0);
+            default:
+                return new IntPredicateChain(predicates.toArray(new IntPredicate[0]));
+        }
+    }
+
+    static LongConsumer longConsumers(List<LongConsumer> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new LongConsumerChain(consumers.toArray(new LongConsumer[0]));
+        }
+    }
+
+    static IndexedLongConsumer indexedLongConsumers(List<IndexedLongConsumer> consumers) {
+        switch (consumers.size()) {
+            case 0:
+                return null;
+            case 1:
+                return consumers.get(0);
+            default:
+                return new IndexedLongConsumerChain(consumers.toArray(new IndexedLongConsumer[0]));
+        }
+    }
+
+    static LongPredicate longPredicates(List<LongPredicate> predicates) {
+        switch (predicates.size()) {
+            case 0:
+                return null;
+            case 1:
+                return predicates.get(0);
+            default:
+                return new LongPredicateChain(predicates.toArray(new LongPredicate[0]));
+        }
+    }
+
+    private static final class ConsumerChain<T> implements Consumer<T> {
+        private final Consumer<T>[] consumers;
+
+        ConsumerChain(Consumer<T>[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(T t) {
+            for (Consumer<T> consumer : consumers) {
+                consumer.accept(t);
+            }
+        }
+    }
+
+    private static final class BiConsumerChain<T, U> implements BiConsumer<T, U> {
+        private final BiConsumer<T, U>[] consumers;
+
+        BiConsumerChain(BiConsumer<T, U>[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(T t, U u) {
+            for (BiConsumer<T, U> consumer : consumers) {
+                consumer.accept(t, u);
+            }
+        }
+    }
+
+    private static final class ObjIntConsumerChain<T> implements ObjIntConsumer<T> {
+        private final ObjIntConsumer<T>[] consumers;
+
+        ObjIntConsumerChain(ObjIntConsumer<T>[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(T t, int value) {
+            for (ObjIntConsumer<T> consumer : consumers) {
+                consumer.accept(t, value);
+            }
+        }
+    }
+
+    /**
+     * Passes only if every predicate passes, stops at the first one that fails.
+     */
+    private static final class PredicateChain<T> implements Predicate<T> {
+        private final Predicate<T>[] predicates;
+
+        PredicateChain(Predicate<T>[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(T t) {
+            for (Predicate<T> predicate : predicates) {
+                if (!predicate.test(t)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class BiPredicateChain<T, U> implements BiPredicate<T, U> {
+        private final BiPredicate<T, U>[] predicates;
+
+        BiPredicateChain(BiPredicate<T, U>[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(T t, U u) {
+            for (BiPredicate<T, U> predicate : predicates) {
+                if (!predicate.test(t, u)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class PutConsumerChain<K, V> implements PutConsumer<K, V> {
+        private final PutConsumer<K, V>[] consumers;
+
+        PutConsumerChain(PutConsumer<K, V>[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(K key, V previous, V value) {
+            for (PutConsumer<K, V> consumer : consumers) {
+                consumer.accept(key, previous, value);
+            }
+        }
+    }
+
+    private static final class IntConsumerChain implements IntConsumer {
+        private final IntConsumer[] consumers;
+
+        IntConsumerChain(IntConsumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(int value) {
+            for (IntConsumer consumer : consumers) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    private static final class IndexedIntConsumerChain implements IndexedIntConsumer {
+        private final IndexedIntConsumer[] consumers;
+
+        IndexedIntConsumerChain(IndexedIntConsumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(int index, int value) {
+            for (IndexedIntConsumer consumer : consumers) {
+                consumer.accept(index, value);
+            }
+        }
+    }
+
+    private static final class IntPredicateChain implements IntPredicate {
+        private final IntPredicate[] predicates;
+
+        IntPredicateChain(IntPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(int value) {
+            for (IntPredicate predicate : predicates) {
+                if (!predicate.test(value)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class LongConsumerChain implements LongConsumer {
+        private final LongConsumer[] consumers;
+
+        LongConsumerChain(LongConsumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(long value) {
+            for (LongConsumer consumer : consumers) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    private static final class IndexedLongConsumerChain implements IndexedLongConsumer {
+        private final IndexedLongConsumer[] consumers;
+
+        IndexedLongConsumerChain(IndexedLongConsumer[] consumers) {
+            this.consumers = consumers;
+        }
+
+        @Override
+        public void accept(int index, long value) {
+            for (IndexedLongConsumer consumer : consumers) {
+                consumer.accept(index, value);
+            }
+        }
+    }
+
+    private static final class LongPredicateChain implements LongPredicate {
+        private final LongPredicate[] predicates;
+
+        LongPredicateChain(LongPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        public boolean test(long value) {
+            for (LongPredicate predicate : predicates) {
+                if (!predicate.test(value)) return false;
+            }
+            return true;
+        }
+    }
+}
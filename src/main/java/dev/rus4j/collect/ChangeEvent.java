@@ -0,0 +1,113 @@
+package dev.rus4j.collect;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Modification of a trigger collection published by {@link TriggerCollection#changes()}.
+ * An event is created only for a modification that changed the collection.
+ *
+ * @param <E> type of the elements
+ */
+public final class ChangeEvent<E> {
+
+    /**
+     * Kind of the modification.
+     */
+    public enum Type {
+        /**
+         * One element was added, see {@link #added()}.
+         */
+        ADDED,
+        /**
+         * One element was removed, see {@link #removed()}.
+         */
+        REMOVED,
+        /**
+         * The element at {@link #index()} was replaced: {@link #removed()} has the previous element
+         * and {@link #added()} the new one.
+         */
+        SET,
+        /**
+         * All the elements were removed at once by {@link java.util.Collection#clear()}, see {@link #removed()}.
+         */
+        CLEARED,
+        /**
+         * A bulk operation added or removed several elements. {@link java.util.List#replaceAll} has both
+         * the replaced and the new elements. A {@code clear()} of a view, of a concurrent collection or
+         * filtered by {@code allowRemoveEach}, {@code allowRemove} or {@code beforeRemove} is a batch as well.
+         */
+        BATCH
+    }
+
+    private final Type type;
+    private final int index;
+    private final List<E> added;
+    private final List<E> removed;
+
+    private ChangeEvent(Type type, int index, List<E> added, List<E> removed) {
+        this.type = type;
+        this.index = index;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    static <E> ChangeEvent<E> addition(E e) {
+        return new ChangeEvent<>(Type.ADDED, -1, Collections.singletonList(e), List.of());
+    }
+
+    static <E> ChangeEvent<E> removal(E e) {
+        return new ChangeEvent<>(Type.REMOVED, -1, List.of(), Collections.singletonList(e));
+    }
+
+    static <E> ChangeEvent<E> set(int index, E previous, E e) {
+        return new ChangeEvent<>(Type.SET, index, Collections.singletonList(e), Collections.singletonList(previous));
+    }
+
+    static <E> ChangeEvent<E> cleared(List<E> removed) {
+        return new ChangeEvent<>(Type.CLEARED, -1, List.of(), Collections.unmodifiableList(removed));
+    }
+
+    static <E> ChangeEvent<E> batch(List<E> added, List<E> removed) {
+        return new ChangeEvent<>(
+            Type.BATCH, -1, Collections.unmodifiableList(added), Collections.unmodifiableList(removed)
+        );
+    }
+
+    /**
+     * Kind of the modification.
+     * @return type of the event
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * Index of the replaced element of a {@link Type#SET} event.
+     * @return index, {@code -1} for the other events
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Elements added to the collection, in the order they were added.
+     * @return unmodifiable list, empty if nothing was added
+     */
+    public List<E> added() {
+        return added;
+    }
+
+    /**
+     * Elements removed from the collection, in the order they were removed.
+     * @return unmodifiable list, empty if nothing was removed
+     */
+    public List<E> removed() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return type + (index < 0 ? "" : " at " + index) + " added " + added + " removed " + removed;
+    }
+}
@@ -0,0 +1,49 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Publishes the {@link ChangeEvent}s of one collection to its subscribers. Every subscriber has its own bounded
+ * buffer and gets the events on the executor only as fast as it requests them, so a slow subscriber
+ * neither delays the others nor runs on the mutating thread. A full buffer is handled by the
+ * {@link OverflowPolicy}: the mutating thread waits or the event is discarded for that subscriber.
+ * Nothing is created for an event while there are no subscribers.
+ */
+final class ChangePublisher<E> implements Flow.Publisher<ChangeEvent<E>> {
+    private final SubmissionPublisher<ChangeEvent<E>> publisher;
+    private final boolean block;
+
+    ChangePublisher(Executor executor, int bufferCapacity, OverflowPolicy overflowPolicy) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+        this.block = overflowPolicy == OverflowPolicy.BLOCK;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent<E>> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Checked before an event is created, so a collection without subscribers does not allocate events.
+     */
+    boolean active() {
+        return publisher.hasSubscribers() && !publisher.isClosed();
+    }
+
+    void publish(ChangeEvent<E> event) {
+        if (block) {
+            publisher.submit(event);
+        } else {
+            publisher.offer(event, null);
+        }
+    }
+
+    /**
+     * Completes the subscribers once they have received the buffered events, later modifications are not published.
+     */
+    void close() {
+        publisher.close();
+    }
+}
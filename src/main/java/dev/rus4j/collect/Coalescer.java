@@ -0,0 +1,159 @@
+package dev.rus4j.collect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Merges the added and removed elements of one collection into micro-batches for the batch triggers.
+ * A batch is delivered when it reaches the maximum size, when the maximum delay has passed since its first
+ * element, on {@link #flush()}, or before a batch of the other kind is started, so additions and removals
+ * are still delivered in the order they happened.
+ *
+ * <p>The buffer is swapped under the lock of the coalescer and the triggers run outside it, by one thread
+ * at a time, so a slow trigger does not block the threads that keep modifying the collection. The timer thread
+ * only hands an expired batch over to the executor of the collection and never runs a trigger itself.
+ */
+final class Coalescer<E> {
+    private static final long PARK_NANOS = 10_000;
+
+    private final Consumer<List<E>> added;
+    private final Consumer<List<E>> removed;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Executor executor;
+
+    /**
+     * Batches taken from the buffer in order, waiting for the thread that delivers them.
+     */
+    private final Queue<Batch<E>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+
+    /**
+     * Thread delivering the batches while {@link #delivering} is set, only ever compared with the current thread.
+     */
+    private volatile Thread owner;
+
+    private List<E> buffer = new ArrayList<>();
+    private boolean bufferedAdditions;
+    private ScheduledFuture<?> timer;
+
+    Coalescer(Consumer<List<E>> added, Consumer<List<E>> removed, int maxBatchSize, long maxDelayNanos,
+              Executor executor) {
+        this.added = added;
+        this.removed = removed;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.executor = executor;
+    }
+
+    void added(List<E> elements) {
+        synchronized (this) {
+            append(true, elements);
+        }
+        deliver();
+    }
+
+    void removed(List<E> elements) {
+        synchronized (this) {
+            append(false, elements);
+        }
+        deliver();
+    }
+
+    /**
+     * Delivers the buffered elements and waits for the batches another thread is delivering.
+     * Called by a trigger, it delivers the remaining batches itself.
+     */
+    void flush() {
+        synchronized (this) {
+            take();
+        }
+        if (owner == Thread.currentThread()) {
+            deliverPending();
+            return;
+        }
+        while (!pending.isEmpty() || delivering.get()) {
+            if (!deliver()) LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    private void append(boolean additions, List<E> elements) {
+        if (bufferedAdditions != additions) take();
+        bufferedAdditions = additions;
+        buffer.addAll(elements);
+        if (buffer.size() >= maxBatchSize) {
+            take();
+        } else if (timer == null && maxDelayNanos > 0) {
+            timer = TriggerTimer.INSTANCE.schedule(
+                () -> AsyncDispatcher.run(() -> executor.execute(this::expire)), maxDelayNanos, TimeUnit.NANOSECONDS
+            );
+        }
+    }
+
+    /**
+     * Delivers the batch whose delay has passed on the executor.
+     */
+    private void expire() {
+        synchronized (this) {
+            take();
+        }
+        deliver();
+    }
+
+    /**
+     * Moves the buffered elements to the pending batches, must be called holding the lock of the coalescer.
+     */
+    private void take() {
+        if (buffer.isEmpty()) return;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        pending.add(new Batch<>(bufferedAdditions, buffer));
+        buffer = new ArrayList<>();
+    }
+
+    /**
+     * Delivers the pending batches unless another thread is delivering them already.
+     * @return {@code true} if this thread has delivered batches
+     */
+    private boolean deliver() {
+        boolean delivered = false;
+        while (!pending.isEmpty() && delivering.compareAndSet(false, true)) {
+            owner = Thread.currentThread();
+            try {
+                deliverPending();
+            } finally {
+                owner = null;
+                delivering.set(false);
+            }
+            delivered = true;
+        }
+        return delivered;
+    }
+
+    private void deliverPending() {
+        Batch<E> batch;
+        while ((batch = pending.poll()) != null) {
+            (batch.additions ? added : removed).accept(batch.elements);
+        }
+    }
+
+    private static final class Batch<E> {
+        final boolean additions;
+        final List<E> elements;
+
+        Batch(boolean additions, List<E> elements) {
+            this.additions = additions;
+            this.elements = elements;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD;
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD_ALL;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE_ALL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Trigger collection that can be modified by many threads at once. The backing collection must be thread-safe
+ * itself, e.g. {@link ConcurrentHashMap#newKeySet()} or {@link ConcurrentLinkedQueue}; reads go straight to it.
+ *
+ * <p>Modifications of one element are atomic: the {@code allow} and {@code before} triggers, the call of the backing
+ * collection and the update of the indexes and the aggregates run while holding a lock picked by the hash code
+ * of the element, so no other thread can add or remove an equal element in between. The {@code after}
+ * and batch triggers run after the lock is released, as do the {@code allowAddAll}, {@code beforeAddAll},
+ * {@code allowRemoveAll} and {@code beforeRemoveAll} triggers that see the whole input of a bulk operation.
+ * Bulk additions and bulk removals from a set take the locks element by element, so they are not atomic as a whole.
+ * Bulk removals from other collections, such as queues and lists, make a single pass of {@code removeIf} holding
+ * all the locks, as does {@link #batch(java.util.function.Consumer)} with its operations. The operations of
+ * a batch are checked when they are made, outside the locks, and the {@code allowAdd} and {@code allowRemove}
+ * triggers check all of them again under the locks before the first one is applied, so they see the collection
+ * the batch is applied to. An operation that is not allowed any more is skipped although its {@code before}
+ * trigger has already run.
+ *
+ * <p>Modifications of different elements mostly take different locks and scale with the number of threads.
+ * A predicate that looks at the rest of the collection, e.g. its size, is only atomic with
+ * {@link ConcurrentTriggerCollectionBuilder#stripes(int)} set to {@code 1}. Indexes, aggregates and the journal
+ * are always maintained under a single lock. Without {@code allow} and {@code before} triggers, indexes, aggregates
+ * and a journal no lock is taken at all and modifications are as concurrent as the backing collection.
+ *
+ * @param <E> type of the elements
+ */
+public class ConcurrentTriggerCollection<E> extends TriggerCollection<E> {
+    private final Collection<E> backedCollection;
+    private final Triggers<E> triggers;
+    private final ReentrantLock[] locks;
+
+    /**
+     * Indexes, aggregates and the journal see the modifications one at a time in the order they were made.
+     */
+    private final boolean serial;
+
+    /**
+     * Single element modifications skip the locks if there is nothing to check or to update.
+     */
+    private final boolean atomic;
+
+    /**
+     * Single element removals take the lock if a bulk removal that holds all the locks reports the elements
+     * it removes: {@code removeIf} of a queue or a list does not tell whether another thread has removed
+     * the element first.
+     */
+    private final boolean lockedRemovals;
+
+    private ConcurrentTriggerCollection(Collection<E> backedCollection, Triggers<E> triggers, int stripes) {
+        super(backedCollection, triggers);
+        this.backedCollection = backing();
+        this.triggers = triggers;
+        this.serial = isMaterialized() || isJournaled();
+        this.locks = new ReentrantLock[serial ? 1 : stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.atomic = serial || Triggers.any(
+            triggers.allowAdd, triggers.beforeAdd, triggers.allowRemove, triggers.beforeRemove
+        );
+        this.lockedRemovals = atomic || !(backedCollection instanceof Set) && collectsRemoved();
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to a concurrent collection.
+     * Use {@link ConcurrentTriggerCollectionBuilder#build()} to build trigger collection.
+     *
+     * @param backedCollection original thread-safe collection
+     * @param <E>              type of original collection
+     * @return                 {@link ConcurrentTriggerCollectionBuilder} to add triggers
+     */
+    public static <E> ConcurrentTriggerCollectionBuilder<E> concurrent(Collection<E> backedCollection) {
+        return new ConcurrentTriggerCollectionBuilder<>(backedCollection);
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!atomic) return super.add(e);
+        final ReentrantLock lock = lock(e);
+        final boolean result;
+        lock.lock();
+        try {
+            if (!beforeAdd(e)) return false;
+            final long start = startBacking();
+            result = backedCollection.add(e);
+            endBacking(ADD, start);
+            if (result) materializeAdded(e);
+        } finally {
+            lock.unlock();
+        }
+        fireAfterAdd(e, result);
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        if (!lockedRemovals) return super.remove(o);
+        final ReentrantLock lock = lock(o);
+        final boolean result;
+        lock.lock();
+        try {
+            if (!beforeRemove((E) o)) return false;
+            final long start = startBacking();
+            final E removed = removeEqual((E) o);
+            endBacking(REMOVE, start);
+            result = removed != none();
+            if (result) materializeRemoved(removed);
+        } finally {
+            lock.unlock();
+        }
+        fireAfterRemove((E) o, result);
+        return result;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        final Triggers<E> t = triggers;
+        if (t.allowAddEach == null && !t.elementAddTriggers && !serial) return super.addAll(c);
+        if (t.allowAddAll != null && !t.allowAddAll.test(c)) return false;
+        if (t.beforeAddAll != null) t.beforeAddAll.accept(c);
+        final long start = startBacking();
+        final List<E> added = new ArrayList<>(c.size());
+        for (E e : c) {
+            if (addLocked(e, t.allowAddEach)) added.add(e);
+        }
+        endBacking(ADD_ALL, start);
+        final boolean result = !added.isEmpty();
+        if (result) addedEach(added);
+        if (t.afterAddAll != null) t.afterAddAll.accept(c, result);
+        return result;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        final Triggers<E> t = triggers;
+        if (!removesEach()) return super.removeAll(c);
+        if (t.allowRemoveAll != null && !t.allowRemoveAll.test(c)) return false;
+        if (t.beforeRemoveAll != null) t.beforeRemoveAll.accept(c);
+        final long start = startBacking();
+        final boolean result = removeEach(c::contains);
+        endBacking(REMOVE_ALL, start);
+        if (t.afterRemoveAll != null) t.afterRemoveAll.accept(c, result);
+        return result;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        if (!removesEach()) return super.removeIf(filter);
+        final long start = startBacking();
+        final boolean result = removeEach(filter);
+        endBacking(REMOVE_ALL, start);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        if (!removesEach()) {
+            super.clear();
+        } else {
+            removeIf(e -> true);
+        }
+    }
+
+    /**
+     * Checks the operations of the batch again and applies the allowed ones while holding all the locks,
+     * so no atomic modification of another thread is made between the checks and the application or in the
+     * middle of it. The {@code after} triggers run after the locks are released.
+     */
+    @Override
+    List<Change<E>> apply(List<Change<E>> changes) {
+        lockAll();
+        try {
+            final List<Change<E>> allowed = new ArrayList<>(changes.size());
+            for (Change<E> change : changes) {
+                final Predicate<E> allow = change.add ? triggers.allowAdd : triggers.allowRemove;
+                if (allow == null || allow.test(change.element)) allowed.add(change);
+            }
+            return super.apply(allowed);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<E> iterator = backedCollection.iterator();
+        return triggers.removeTriggers || serial ? new ConcurrentIterator(iterator) : iterator;
+    }
+
+    /**
+     * Takes the lock of the indexes, so the index is not modified while it is read.
+     *
+     * @return copy of the elements with the key, an empty list if there are none
+     */
+    @Override
+    public List<E> lookup(String index, Object key) {
+        locks[0].lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(super.lookup(index, key)));
+        } finally {
+            locks[0].unlock();
+        }
+    }
+
+    /**
+     * Takes the lock of the indexes, so the index is not modified while it is measured.
+     */
+    @Override
+    public long indexMemory(String index) {
+        locks[0].lock();
+        try {
+            return super.indexMemory(index);
+        } finally {
+            locks[0].unlock();
+        }
+    }
+
+    private ReentrantLock lock(Object e) {
+        final int h = Objects.hashCode(e);
+        return locks[(h ^ h >>> 16) & (locks.length - 1)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Bulk removals go element by element only if the elements are filtered or somebody needs them,
+     * the same as in {@link TriggerCollection}.
+     */
+    private boolean removesEach() {
+        return serial || triggers.allowRemoveEach != null || triggers.collectRemoved || triggers.elementRemoveTriggers;
+    }
+
+    private boolean addLocked(E e, Predicate<E> each) {
+        final ReentrantLock lock = lock(e);
+        lock.lock();
+        try {
+            if (each != null && !each.test(e) || !beforeAdd(e)) return false;
+            if (!backedCollection.add(e)) return false;
+            materializeAdded(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the matching elements, an element counts as removed only if this thread removed it,
+     * so an element removed concurrently by another thread is never reported twice. A set removes them one by one
+     * by hash; other collections remove the very instances they visit in one pass of {@code removeIf}.
+     */
+    private boolean removeEach(Predicate<? super E> filter) {
+        final Predicate<E> each = triggers.allowRemoveEach;
+        final List<E> removed = new ArrayList<>();
+        if (backedCollection instanceof Set) {
+            for (E e : backedCollection) {
+                if (filter.test(e) && removeLocked(e, each)) removed.add(e);
+            }
+        } else {
+            lockAll();
+            try {
+                backedCollection.removeIf(e -> {
+                    if (!filter.test(e) || each != null && !each.test(e) || !beforeRemove(e)) return false;
+                    removed.add(e);
+                    return true;
+                });
+                removed.forEach(this::materializeRemoved);
+            } finally {
+                unlockAll();
+            }
+        }
+        final boolean result = !removed.isEmpty();
+        if (result) removedEach(removed);
+        return result;
+    }
+
+    private boolean removeLocked(E e, Predicate<E> each) {
+        final ReentrantLock lock = lock(e);
+        lock.lock();
+        try {
+            if (each != null && !each.test(e) || !beforeRemove(e)) return false;
+            if (!backedCollection.remove(e)) return false;
+            materializeRemoved(e);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fires the remove triggers for {@link Iterator#remove()} under the lock of the element.
+     */
+    private final class ConcurrentIterator implements Iterator<E> {
+        private final Iterator<E> iterator;
+        private E last;
+
+        ConcurrentIterator(Iterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            return last = iterator.next();
+        }
+
+        /**
+         * Removes the element through the collection: the iterator of a concurrent collection silently does
+         * nothing if another thread has removed the element already, the collection tells.
+         */
+        @Override
+        public void remove() {
+            final E e = last;
+            final ReentrantLock lock = lock(e);
+            final boolean removed;
+            lock.lock();
+            try {
+                if (!beforeRemove(e)) return;
+                removed = backedCollection.remove(e);
+                if (removed) materializeRemoved(e);
+            } finally {
+                lock.unlock();
+            }
+            fireAfterRemove(e, removed);
+        }
+    }
+
+    /**
+     * Collects triggers for a concurrent collection, the same as {@link TriggerCollectionBuilder},
+     * and the number of locks.
+     */
+    public static class ConcurrentTriggerCollectionBuilder<E>
+        extends TriggerCollectionBuilder<E, ConcurrentTriggerCollectionBuilder<E>> {
+
+        private final Collection<E> backedCollection;
+        private int stripes = stripesFor(4 * Runtime.getRuntime().availableProcessors());
+
+        private ConcurrentTriggerCollectionBuilder(Collection<E> backedCollection) {
+            super(backedCollection);
+            this.backedCollection = backedCollection;
+        }
+
+        @Override
+        protected ConcurrentTriggerCollectionBuilder<E> self() {
+            return this;
+        }
+
+        /**
+         * Sets the number of locks the elements are spread over, rounded up to a power of two.
+         * Defaults to four locks per processor. With a single lock every modification is atomic
+         * with respect to the whole collection.
+         * @param stripes number of locks
+         * @return builder
+         */
+        public ConcurrentTriggerCollectionBuilder<E> stripes(int stripes) {
+            if (stripes < 1 || stripes > 1 << 16) throw new IllegalArgumentException("Stripes must be in [1, 65536]");
+            this.stripes = stripesFor(stripes);
+            return this;
+        }
+
+        private static int stripesFor(int stripes) {
+            return Math.max(1, Integer.highestOneBit(stripes - 1) << 1);
+        }
+
+        /**
+         * Creates a concurrent collection with the triggers.
+         * @return concurrent trigger collection
+         */
+        @Override
+        public ConcurrentTriggerCollection<E> build() {
+            return new ConcurrentTriggerCollection<>(backedCollection, new Triggers<>(this), stripes);
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps thread-safe collections,
+         * every collection gets its own locks.
+         * @return template creating concurrent trigger collections
+         * @throws IllegalStateException if a journal is declared
+         */
+        @Override
+        public TriggerTemplate<E, ConcurrentTriggerCollection<E>> compile() {
+            final Triggers<E> triggers = TriggerTemplate.shared(new Triggers<>(this));
+            final int lockCount = stripes;
+            return new TriggerTemplate<>(
+                Collection.class,
+                triggers,
+                backing -> new ConcurrentTriggerCollection<>(backing, triggers, lockCount)
+            );
+        }
+    }
+}
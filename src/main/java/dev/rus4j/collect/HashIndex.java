@@ -0,0 +1,157 @@
+package dev.rus4j.collect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Hash index of a collection by a key of its elements. A key maps to the element itself
+ * and only keys shared by several elements get a {@link Bucket}, so an index that is unique in practice
+ * costs one map entry per element. The index relies on the key of an element not changing
+ * while the element is in the collection and on equal elements having equal keys.
+ */
+final class HashIndex<E> {
+    private static final int MAP_BYTES = 48;
+    private static final int NODE_BYTES = 32;
+    private static final int LIST_BYTES = 24;
+    private static final int ARRAY_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    final String name;
+    private final Function<? super E, ?> keyExtractor;
+    private final boolean unique;
+    private final Collection<E> elements;
+    private Map<Object, Object> map;
+
+    HashIndex(String name, Function<? super E, ?> keyExtractor, boolean unique, boolean lazy, Collection<E> elements) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.unique = unique;
+        this.elements = elements;
+        if (!lazy) build();
+    }
+
+    boolean isUnique() {
+        return unique;
+    }
+
+    private Map<Object, Object> map() {
+        if (map == null) build();
+        return map;
+    }
+
+    private void build() {
+        map = new HashMap<>();
+        for (E e : elements) {
+            if (unique && map.containsKey(keyExtractor.apply(e))) {
+                map = null;
+                throw new IllegalStateException("Duplicate key " + keyExtractor.apply(e) + " in unique index " + name);
+            }
+            added(e);
+        }
+    }
+
+    /**
+     * Checks that a unique index has no element with the key of {@code e} other than {@code replaced}.
+     */
+    boolean admits(E e, E replaced) {
+        final Object current = map().get(keyExtractor.apply(e));
+        return current == null || replaced != null && current.equals(replaced);
+    }
+
+    @SuppressWarnings("unchecked")
+    void added(E e) {
+        if (map == null) return;
+        final Object key = keyExtractor.apply(e);
+        final Object current = map.putIfAbsent(key, e);
+        if (current == null || unique) return;
+        if (current instanceof Bucket) {
+            ((Bucket<E>) current).add(e);
+        } else {
+            final Bucket<E> bucket = new Bucket<>();
+            bucket.add((E) current);
+            bucket.add(e);
+            map.put(key, bucket);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void removed(E e) {
+        if (map == null) return;
+        final Object key = keyExtractor.apply(e);
+        final Object current = map.get(key);
+        if (current instanceof Bucket) {
+            final Bucket<E> bucket = (Bucket<E>) current;
+            bucket.remove(e);
+            if (bucket.size() == 1) map.put(key, bucket.get(0));
+        } else if (Objects.equals(current, e)) {
+            map.remove(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    List<E> lookup(Object key) {
+        final Object current = map().get(key);
+        if (current == null) return Collections.emptyList();
+        if (current instanceof Bucket) return Collections.unmodifiableList((Bucket<E>) current);
+        return Collections.singletonList((E) current);
+    }
+
+    /**
+     * Estimates the heap taken by the index itself, assuming compressed references.
+     * Keys and elements are shared with the collection and are not counted.
+     */
+    long memory() {
+        if (map == null) return 0;
+        long bytes = MAP_BYTES + ARRAY_BYTES + (long) REFERENCE_BYTES * tableSize(map.size())
+            + (long) NODE_BYTES * map.size();
+        for (Object value : map.values()) {
+            if (value instanceof Bucket) {
+                bytes += LIST_BYTES + ARRAY_BYTES + (long) REFERENCE_BYTES * ((Bucket<?>) value).size();
+            }
+        }
+        return bytes;
+    }
+
+    private static int tableSize(int size) {
+        final int buckets = (int) (size / 0.75f) + 1;
+        return buckets <= 16 ? 16 : Integer.highestOneBit(buckets - 1) << 1;
+    }
+
+    /**
+     * Elements sharing a key. A private type, so it can never be confused with an element.
+     */
+    private static final class Bucket<E> extends ArrayList<E> {
+        private static final long serialVersionUID = 1L;
+
+        Bucket() {
+            super(2);
+        }
+    }
+
+    /**
+     * Index declared on a builder, every built collection creates its own {@link HashIndex} from it.
+     */
+    static final class Definition<E> {
+        final String name;
+        private final Function<? super E, ?> keyExtractor;
+        private final boolean unique;
+        private final boolean lazy;
+
+        Definition(String name, Function<? super E, ?> keyExtractor, boolean unique, boolean lazy) {
+            this.name = name;
+            this.keyExtractor = keyExtractor;
+            this.unique = unique;
+            this.lazy = lazy;
+        }
+
+        HashIndex<E> newIndex(Collection<E> elements) {
+            return new HashIndex<>(name, keyExtractor, unique, lazy, elements);
+        }
+    }
+}
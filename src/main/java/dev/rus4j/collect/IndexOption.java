@@ -0,0 +1,21 @@
+package dev.rus4j.collect;
+
+import java.util.function.Function;
+
+/**
+ * Options of an index added with {@link TriggerCollection.TriggerCollectionBuilder#index(String, Function,
+ * IndexOption...)}.
+ */
+public enum IndexOption {
+    /**
+     * At most one element per key. An element whose key is already taken is not added,
+     * the same way as an element rejected by an {@code allow} trigger.
+     */
+    UNIQUE,
+    /**
+     * The index is built from the collection by the first query instead of when the collection is built.
+     * Modifications made before that cost nothing. A unique index is also built by the first addition,
+     * because it has to check the key.
+     */
+    LAZY
+}
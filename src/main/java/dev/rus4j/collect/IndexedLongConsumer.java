@@ -0,0 +1,15 @@
+package dev.rus4j.collect;
+
+/**
+ * Action that takes an index and a {@code long} element of a list without boxing either of them.
+ */
+@FunctionalInterface
+public interface IndexedLongConsumer {
+
+    /**
+     * Performs the action.
+     * @param index index of the element
+     * @param value the element
+     */
+    void accept(int index, long value);
+}
@@ -0,0 +1,601 @@
+package dev.rus4j.collect;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Append-only log of the modifications of a collection, written by collections built with
+ * {@link TriggerCollection.TriggerCollectionBuilder#journal(Path, JournalCodec, int)}.
+ * Use {@link #replay(Path, JournalCodec, Collection)} to rebuild the collection after a restart.
+ *
+ * <p>Every modification of the backing collection is a record of the operation, its sequence number,
+ * the index in a list and the element encoded by a {@link JournalCodec}. Records are written right into
+ * memory-mapped segments of the file, so a record survives a crash of the process as soon as the modification
+ * returns; {@link TriggerCollection#flush()} forces it to the disk. The length of a record is written last,
+ * a record torn by a crash has no length and ends the journal.
+ *
+ * <p>A snapshot writes all the elements to a file next to the journal, named {@code <journal>.snapshot},
+ * and starts a new journal, so replay reads the elements once instead of the whole history.
+ *
+ * @param <E> type of the elements
+ */
+public final class Journal<E> extends ModificationLog<E> {
+    static final byte ADD = 1;
+    static final byte REMOVE = 2;
+    static final byte SET = 3;
+    static final byte CLEAR = 4;
+
+    /**
+     * Removal of the ranges of a list, the index is the number of ranges and the payload has
+     * the first index and the length of every range.
+     */
+    static final byte REMOVE_RANGES = 5;
+
+    /**
+     * Insertion of elements into a list at the index, the payload has the number of the elements
+     * and every element preceded by its length.
+     */
+    static final byte ADD_ALL = 6;
+
+    static final int SEGMENT_SIZE = 8 << 20;
+
+    private static final int MAGIC = 0x54434a31;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 16;
+    private static final int SNAPSHOT_HEADER = 12;
+
+    /**
+     * Length, operation, sequence number and index.
+     */
+    private static final int RECORD_HEADER = 17;
+
+    private final Path path;
+    private final JournalCodec<E> codec;
+    private final int snapshotEvery;
+    private final int segmentSize;
+    private final Collection<E> elements;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private long sequence;
+    private int sinceSnapshot;
+    private boolean closed;
+
+    /**
+     * Opens the journal of the elements. An existing journal is continued, the elements are expected
+     * to be replayed from it. A new journal starts with a snapshot of the elements unless there are none.
+     */
+    Journal(Path path, JournalCodec<E> codec, int snapshotEvery, int segmentSize, Collection<E> elements) {
+        this.path = path;
+        this.codec = codec;
+        this.snapshotEvery = snapshotEvery;
+        this.segmentSize = segmentSize;
+        this.elements = elements;
+        try {
+            if (Files.exists(path)) {
+                recover();
+            } else {
+                Files.deleteIfExists(snapshotPath(path));
+                channel = create(path);
+                if (!elements.isEmpty()) snapshot();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds the elements recorded in the journal and its snapshot to the collection.
+     * The collection must be a {@link List} if the journal was written by a list.
+     *
+     * @param path  journal file
+     * @param codec codec the journal was written with
+     * @param into  collection to add the elements to, usually an empty one
+     * @param <E>   type of the elements
+     * @return sequence number of the last modification, pass the collection to
+     *         {@link TriggerCollection.TriggerCollectionBuilder#journal(Path, JournalCodec, int)}
+     *         to continue the journal
+     * @throws UncheckedIOException if the journal cannot be read
+     */
+    public static <E> long replay(Path path, JournalCodec<E> codec, Collection<E> into) {
+        try {
+            final long snapshot = readSnapshot(snapshotPath(path), codec, into);
+            long last = snapshot;
+            try (FileChannel file = FileChannel.open(path, READ)) {
+                final Reader reader = new Reader(file);
+                while (reader.next()) {
+                    if (reader.sequence <= snapshot) continue;
+                    apply(reader.op, reader.sequence, reader.index, reader.payload, codec, into);
+                    last = reader.sequence;
+                }
+            }
+            return last;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wraps the backing collection, so every modification made through it is recorded.
+     */
+    Collection<E> wrap(Collection<E> backing) {
+        if (backing instanceof List) return RecordedList.of((List<E>) backing, this);
+        return new JournaledCollection<>(backing, this);
+    }
+
+    @Override
+    synchronized void append(byte op, int index, E element) {
+        record(op, index, element, null, 0, 0);
+        completed();
+    }
+
+    @Override
+    synchronized void appendRemovals(int[] ranges, int start, int end) {
+        record(REMOVE_RANGES, (end - start) / 2, null, ranges, start, end);
+    }
+
+    /**
+     * Writes the elements that fit into the current segment as one record and continues in the next segments.
+     */
+    @Override
+    synchronized void appendInsertion(int index, Object[] inserted) {
+        if (closed) throw new IllegalStateException("The journal is closed");
+        int from = 0;
+        while (from < inserted.length) {
+            final int written = writeInsertion(sequence + 1, index + from, inserted, from);
+            if (written > 0) {
+                sequence++;
+                sinceSnapshot++;
+                from += written;
+            } else if (segment.position() == (segmentIndex == 0 ? FILE_HEADER : 0)) {
+                throw new IllegalArgumentException("Element does not fit a segment of " + segmentSize + " bytes");
+            } else {
+                map(segmentIndex + 1);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot once enough records have been written. It waits for the last record of a modification,
+     * a snapshot between the records of one modification would already contain the records after it.
+     */
+    @Override
+    synchronized void completed() {
+        if (snapshotEvery > 0 && sinceSnapshot >= snapshotEvery) snapshot();
+    }
+
+    /**
+     * As many ranges as fit into an empty segment.
+     */
+    @Override
+    int maxRemovalRanges() {
+        return Math.max(1, (segmentSize - FILE_HEADER - RECORD_HEADER) / 8);
+    }
+
+    private void record(byte op, int index, E element, int[] ranges, int start, int end) {
+        if (closed) throw new IllegalStateException("The journal is closed");
+        final long next = sequence + 1;
+        while (!write(op, next, index, element, ranges, start, end)) {
+            if (segment.position() == (segmentIndex == 0 ? FILE_HEADER : 0)) {
+                throw new IllegalArgumentException("Record does not fit a segment of " + segmentSize + " bytes");
+            }
+            map(segmentIndex + 1);
+        }
+        sequence = next;
+        sinceSnapshot++;
+    }
+
+    /**
+     * Writes the elements to the snapshot file and starts a new journal.
+     */
+    synchronized void snapshot() {
+        if (closed) throw new IllegalStateException("The journal is closed");
+        final Path snapshot = snapshotPath(path);
+        final Path tmp = sibling(snapshot, ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                buffer.putInt(MAGIC).putLong(sequence);
+                for (E e : elements) {
+                    buffer = put(e, buffer, out);
+                }
+                drain(buffer, out);
+                out.force(true);
+            }
+            Files.move(tmp, snapshot, ATOMIC_MOVE, REPLACE_EXISTING);
+            final Path log = sibling(path, ".tmp");
+            final FileChannel fresh = create(log);
+            Files.move(log, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            channel.close();
+            channel = fresh;
+            sinceSnapshot = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the records to the disk.
+     */
+    synchronized void force() {
+        if (!closed) segment.force();
+    }
+
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        segment.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean write(byte op, long next, int index, E element, int[] ranges, int from, int to) {
+        final MappedByteBuffer b = segment;
+        final int start = b.position();
+        if (b.remaining() < RECORD_HEADER) return false;
+        b.position(start + 4);
+        b.put(op).putLong(next).putInt(index);
+        try {
+            if (op == ADD || op == SET || op == REMOVE && index < 0) codec.encode(element, b);
+            for (int i = from; i < to; i++) {
+                b.putInt(ranges[i]);
+            }
+        } catch (BufferOverflowException e) {
+            final int end = b.position();
+            for (int i = start + 4; i < end; i++) {
+                b.put(i, (byte) 0);
+            }
+            b.position(start);
+            return false;
+        }
+        b.putInt(start, b.position() - start - 4);
+        return true;
+    }
+
+    /**
+     * Writes an {@link #ADD_ALL} record of the elements from {@code from} that fit into the segment.
+     * @return number of the elements written, 0 if not even the first one fits
+     */
+    @SuppressWarnings("unchecked")
+    private int writeInsertion(long next, int index, Object[] inserted, int from) {
+        final MappedByteBuffer b = segment;
+        final int start = b.position();
+        if (b.remaining() < RECORD_HEADER + 8) return 0;
+        b.position(start + 4);
+        b.put(ADD_ALL).putLong(next).putInt(index).putInt(0);
+        int end = b.position();
+        int count = 0;
+        try {
+            while (from + count < inserted.length && b.limit() - end >= 4) {
+                b.position(end + 4);
+                codec.encode((E) inserted[from + count], b);
+                b.putInt(end, b.position() - end - 4);
+                end = b.position();
+                count++;
+            }
+        } catch (BufferOverflowException e) {
+            for (int i = end; i < b.position(); i++) {
+                b.put(i, (byte) 0);
+            }
+        }
+        if (count == 0) {
+            for (int i = start + 4; i < end; i++) {
+                b.put(i, (byte) 0);
+            }
+            b.position(start);
+            return 0;
+        }
+        b.position(end);
+        b.putInt(start + RECORD_HEADER, count);
+        b.putInt(start, end - start - 4);
+        return count;
+    }
+
+    /**
+     * Encodes an element of the snapshot, preceded by its length. Writes the buffer out when it is full
+     * and grows it when a single element does not fit.
+     */
+    private ByteBuffer put(E e, ByteBuffer buffer, FileChannel out) throws IOException {
+        while (true) {
+            final int start = buffer.position();
+            try {
+                if (buffer.remaining() < 4) throw new BufferOverflowException();
+                buffer.position(start + 4);
+                codec.encode(e, buffer);
+                buffer.putInt(start, buffer.position() - start - 4);
+                return buffer;
+            } catch (BufferOverflowException ex) {
+                buffer.position(start);
+                if (start > 0) {
+                    drain(buffer, out);
+                } else {
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                }
+            }
+        }
+    }
+
+    private FileChannel create(Path file) throws IOException {
+        final FileChannel created = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+        segment = created.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = 0;
+        segment.putInt(MAGIC).putInt(VERSION).putInt(segmentSize).putInt(0);
+        return created;
+    }
+
+    /**
+     * Continues an existing journal after its last complete record.
+     */
+    private void recover() throws IOException {
+        channel = FileChannel.open(path, READ, WRITE);
+        final Reader reader = new Reader(channel);
+        if (reader.segmentSize != segmentSize) {
+            channel.close();
+            throw new IllegalStateException(path + " has segments of " + reader.segmentSize + " bytes");
+        }
+        sequence = readSnapshot(snapshotPath(path), null, null);
+        while (reader.next()) {
+            sequence = Math.max(sequence, reader.sequence);
+        }
+        map(reader.segmentIndex);
+        segment.position(reader.segment.position());
+        for (int i = segment.position(); i < segment.limit(); i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+
+    private void map(long index) {
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, index * segmentSize, segmentSize);
+            segmentIndex = index;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Adds the elements of the snapshot to the collection if there is one.
+     * @return sequence number of the last modification included in the snapshot, 0 if there is no snapshot
+     */
+    private static <E> long readSnapshot(Path snapshot, JournalCodec<E> codec, Collection<E> into) throws IOException {
+        if (!Files.exists(snapshot)) return 0;
+        try (FileChannel file = FileChannel.open(snapshot, READ)) {
+            final ByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            if (buffer.limit() < SNAPSHOT_HEADER || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a journal snapshot: " + snapshot);
+            }
+            final long last = buffer.getLong();
+            if (into == null) return last;
+            while (buffer.hasRemaining()) {
+                into.add(decode(buffer, codec));
+            }
+            return last;
+        }
+    }
+
+    /**
+     * Applies one record to the collection, the list operations by index and the others by element.
+     *
+     * @throws IllegalStateException if the operation of the record is unknown
+     */
+    @SuppressWarnings("unchecked")
+    static <E> void apply(byte op, long sequence, int index, ByteBuffer payload, JournalCodec<E> codec,
+                          Collection<E> into) {
+        switch (op) {
+            case ADD:
+                if (index < 0) {
+                    into.add(codec.decode(payload));
+                } else {
+                    ((List<E>) into).add(index, codec.decode(payload));
+                }
+                break;
+            case REMOVE:
+                if (index < 0) {
+                    into.remove(codec.decode(payload));
+                } else {
+                    ((List<E>) into).remove(index);
+                }
+                break;
+            case SET:
+                ((List<E>) into).set(index, codec.decode(payload));
+                break;
+            case REMOVE_RANGES:
+                RecordedList.removeRanges(payload, index, (List<E>) into);
+                break;
+            case ADD_ALL:
+                final List<E> inserted = new ArrayList<>(payload.getInt());
+                while (payload.hasRemaining()) {
+                    inserted.add(decode(payload, codec));
+                }
+                ((List<E>) into).addAll(index, inserted);
+                break;
+            case CLEAR:
+                into.clear();
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + op + " in record " + sequence);
+        }
+    }
+
+    /**
+     * Decodes the next element preceded by its length.
+     */
+    private static <E> E decode(ByteBuffer buffer, JournalCodec<E> codec) {
+        final int length = buffer.getInt();
+        final E element = codec.decode(buffer.slice().limit(length));
+        buffer.position(buffer.position() + length);
+        return element;
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static Path snapshotPath(Path path) {
+        return sibling(path, ".snapshot");
+    }
+
+    private static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    /**
+     * Reads the records of a journal one by one, moving to the next segment when a segment has no more records.
+     */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long size;
+        private final int segmentSize;
+        private MappedByteBuffer segment;
+        private long segmentIndex;
+
+        private byte op;
+        private long sequence;
+        private int index;
+        private ByteBuffer payload;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+            channel.read(header, 0);
+            header.flip();
+            if (header.limit() < FILE_HEADER || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a journal");
+            }
+            this.segmentSize = header.getInt();
+            map(0);
+            segment.position(FILE_HEADER);
+        }
+
+        boolean next() throws IOException {
+            int length = length();
+            if (length == 0) {
+                if ((segmentIndex + 1) * segmentSize >= size) return false;
+                map(segmentIndex + 1);
+                length = length();
+                if (length == 0) return false;
+            }
+            final int start = segment.position();
+            op = segment.get(start + 4);
+            sequence = segment.getLong(start + 5);
+            index = segment.getInt(start + 13);
+            payload = segment.duplicate().limit(start + 4 + length).position(start + RECORD_HEADER);
+            segment.position(start + 4 + length);
+            return true;
+        }
+
+        private int length() {
+            return segment.remaining() < RECORD_HEADER ? 0 : segment.getInt(segment.position());
+        }
+
+        private void map(long segmentIndex) throws IOException {
+            this.segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentIndex * segmentSize, segmentSize);
+            this.segmentIndex = segmentIndex;
+        }
+    }
+
+    /**
+     * Records the modifications of a collection that is not a list, elements are added and removed by value.
+     */
+    private static final class JournaledCollection<E> extends AbstractCollection<E> {
+        private final Collection<E> backing;
+        private final Journal<E> journal;
+
+        JournaledCollection(Collection<E> backing, Journal<E> journal) {
+            this.backing = backing;
+            this.journal = journal;
+        }
+
+        @Override
+        public boolean add(E e) {
+            if (!backing.add(e)) return false;
+            journal.append(ADD, -1, e);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            if (!backing.remove(o)) return false;
+            journal.append(REMOVE, -1, (E) o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            backing.clear();
+            journal.append(CLEAR, -1, null);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return backing.contains(o);
+        }
+
+        @Override
+        public int size() {
+            return backing.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<E> iterator = backing.iterator();
+            return new Iterator<>() {
+                private E last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return last = iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    journal.append(REMOVE, -1, last);
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return backing.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return backing.hashCode();
+        }
+    }
+}
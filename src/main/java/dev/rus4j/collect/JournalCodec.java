@@ -0,0 +1,85 @@
+package dev.rus4j.collect;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary format of the elements written to a {@link Journal}. An element is encoded right into the memory-mapped
+ * journal file, so a codec writes with the relative {@link ByteBuffer} methods and must not keep
+ * a reference to the buffer.
+ *
+ * @param <E> type of the elements
+ */
+public interface JournalCodec<E> {
+
+    /**
+     * Writes the element at the position of the buffer. A {@link java.nio.BufferOverflowException} is not an error:
+     * the journal moves to a new segment and encodes the element again.
+     * @param element element to write
+     * @param buffer  buffer to write to
+     */
+    void encode(E element, ByteBuffer buffer);
+
+    /**
+     * Reads an element written by {@link #encode(Object, ByteBuffer)}.
+     * @param buffer buffer positioned at the element, limited to its bytes
+     * @return the element
+     */
+    E decode(ByteBuffer buffer);
+
+    /**
+     * Codec of non-null {@link Integer} elements, four bytes each.
+     * @return codec
+     */
+    static JournalCodec<Integer> integers() {
+        return new JournalCodec<>() {
+            @Override
+            public void encode(Integer element, ByteBuffer buffer) {
+                buffer.putInt(element);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer) {
+                return buffer.getInt();
+            }
+        };
+    }
+
+    /**
+     * Codec of non-null {@link Long} elements, eight bytes each.
+     * @return codec
+     */
+    static JournalCodec<Long> longs() {
+        return new JournalCodec<>() {
+            @Override
+            public void encode(Long element, ByteBuffer buffer) {
+                buffer.putLong(element);
+            }
+
+            @Override
+            public Long decode(ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+        };
+    }
+
+    /**
+     * Codec of non-null {@link String} elements in UTF-8.
+     * @return codec
+     */
+    static JournalCodec<String> strings() {
+        return new JournalCodec<>() {
+            @Override
+            public void encode(String element, ByteBuffer buffer) {
+                buffer.put(element.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public String decode(ByteBuffer buffer) {
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
@@ -0,0 +1,61 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with power of two buckets: a latency of {@code n} nanoseconds is counted
+ * in the bucket of {@code [2^(k-1), 2^k)} nanoseconds. Every thread records into its own stripe of buckets,
+ * so recording never allocates and threads rarely contend for a cache line.
+ */
+public final class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private static final int STRIPES = Math.min(
+        Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), 16
+    );
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS);
+
+    LatencyHistogram() {
+    }
+
+    void record(long nanos) {
+        final int bucket = BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.incrementAndGet(stripe * BUCKETS + Math.min(bucket, BUCKETS - 1));
+    }
+
+    /**
+     * Number of recorded latencies.
+     * @return count
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Estimates a percentile of the recorded latencies by the upper bound of the bucket it falls into,
+     * so the estimate is at most twice the actual value.
+     * @param percentile percentile from {@code 0} to {@code 100}
+     * @return latency in nanoseconds, {@code 0} if nothing is recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be in [0, 100]");
+        final long[] buckets = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            buckets[i % BUCKETS] += counts.get(i);
+            count += counts.get(i);
+        }
+        final long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets[bucket];
+            if (seen >= rank && seen > 0) return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+        return 0;
+    }
+}
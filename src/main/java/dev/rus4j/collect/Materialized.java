@@ -0,0 +1,83 @@
+package dev.rus4j.collect;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes and aggregates of one collection, shared with its views. The collection reports every element
+ * it adds or removes, and asks {@link #admits(Object, Object)} before adding an element if any of the indexes
+ * is unique.
+ */
+final class Materialized<E> {
+    private final HashIndex<E>[] indexes;
+    private final boolean unique;
+    private final String[] aggregateNames;
+    private final Aggregation.Aggregator<? super E, ?>[] aggregators;
+
+    @SuppressWarnings("unchecked")
+    Materialized(
+        List<HashIndex.Definition<E>> indexes,
+        Map<String, Aggregation<? super E, ?>> aggregates,
+        Collection<E> elements
+    ) {
+        this.indexes = new HashIndex[indexes.size()];
+        boolean anyUnique = false;
+        for (int i = 0; i < this.indexes.length; i++) {
+            this.indexes[i] = indexes.get(i).newIndex(elements);
+            anyUnique |= this.indexes[i].isUnique();
+        }
+        this.unique = anyUnique;
+        this.aggregateNames = aggregates.keySet().toArray(new String[0]);
+        this.aggregators = new Aggregation.Aggregator[aggregateNames.length];
+        for (int i = 0; i < aggregators.length; i++) {
+            aggregators[i] = aggregates.get(aggregateNames[i]).newAggregator();
+            for (E e : elements) {
+                aggregators[i].added(e);
+            }
+        }
+    }
+
+    /**
+     * Checks the unique indexes for {@code e} replacing {@code replaced}, {@code null} if nothing is replaced.
+     */
+    boolean admits(E e, E replaced) {
+        if (!unique) return true;
+        for (HashIndex<E> index : indexes) {
+            if (index.isUnique() && !index.admits(e, replaced)) return false;
+        }
+        return true;
+    }
+
+    void added(E e) {
+        for (HashIndex<E> index : indexes) {
+            index.added(e);
+        }
+        for (Aggregation.Aggregator<? super E, ?> aggregator : aggregators) {
+            aggregator.added(e);
+        }
+    }
+
+    void removed(E e) {
+        for (HashIndex<E> index : indexes) {
+            index.removed(e);
+        }
+        for (Aggregation.Aggregator<? super E, ?> aggregator : aggregators) {
+            aggregator.removed(e);
+        }
+    }
+
+    HashIndex<E> index(String name) {
+        for (HashIndex<E> index : indexes) {
+            if (index.name.equals(name)) return index;
+        }
+        throw new IllegalArgumentException("Unknown index " + name);
+    }
+
+    Object aggregate(String name) {
+        for (int i = 0; i < aggregateNames.length; i++) {
+            if (aggregateNames[i].equals(name)) return aggregators[i].get();
+        }
+        throw new IllegalArgumentException("Unknown aggregate " + name);
+    }
+}
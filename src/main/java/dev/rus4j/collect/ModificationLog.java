@@ -0,0 +1,38 @@
+package dev.rus4j.collect;
+
+/**
+ * Receives the records of a {@link RecordedList}: the {@link Journal} writes them to a file and
+ * the {@link ReplicationPrimary} sends them to its followers. A modification of the list and its record
+ * are made while holding the lock of the log.
+ *
+ * @param <E> type of the elements
+ */
+abstract class ModificationLog<E> {
+
+    /**
+     * Records a modification of one element, see the operations of {@link Journal}.
+     */
+    abstract void append(byte op, int index, E element);
+
+    /**
+     * Records the removal of the ranges {@code [from, from + count)} stored as pairs in
+     * {@code ranges[start, end)}, in ascending order.
+     */
+    abstract void appendRemovals(int[] ranges, int start, int end);
+
+    /**
+     * Records the insertion of the elements at the index, in as few records as the log can hold.
+     */
+    abstract void appendInsertion(int index, Object[] elements);
+
+    /**
+     * Maximum number of ranges in one record, larger removals are split into several records.
+     */
+    abstract int maxRemovalRanges();
+
+    /**
+     * Called once a modification has recorded all its records, a bulk modification may need several of them.
+     */
+    void completed() {
+    }
+}
@@ -0,0 +1,77 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Every slot of the ring carries a sequence number that tells whether it is free for
+ * the producer of the current lap or holds an element for the consumer.
+ * The ring has at least two slots, with one slot the two states would be indistinguishable.
+ */
+final class MpscQueue<T> {
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscQueue(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        final int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the element if there is space, may be called by any thread.
+     */
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            final long difference = sequences.get((int) position & mask) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        final int index = (int) position & mask;
+        buffer[index] = element;
+        sequences.lazySet(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest element, may be called only by the current consumer.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        final long position = head;
+        final int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) return null;
+        final T element = (T) buffer[index];
+        buffer[index] = null;
+        sequences.lazySet(index, position + buffer.length);
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Returns {@code true} if no element is queued or being queued.
+     */
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+}
@@ -0,0 +1,250 @@
+package dev.rus4j.collect;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * List of fixed-size records kept outside of the Java heap, in direct or memory-mapped {@link ByteBuffer}s.
+ * An element is encoded by a {@link RecordCodec} when it is added or set and decoded from the buffer
+ * on every {@link #get(int)}, so the list holds no objects and adds nothing to scan for the garbage collector.
+ * Use {@link #get(int, Object)} to read into a reused instance without allocating.
+ *
+ * <p>Records are stored in chunks of about 1 MiB, so the list is not limited to the 2 GiB of a single buffer.
+ * {@code get}, {@code set} and additions and removals at the end take constant time, additions and removals
+ * in the middle move the following records. Wrap the list with {@link TriggerList#from(java.util.List)}
+ * to fire triggers on its modifications. The list is not thread-safe and does not permit {@code null}.
+ *
+ * @param <E> type of the elements
+ */
+public final class OffHeapList<E> extends AbstractList<E> implements RandomAccess, AutoCloseable {
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int MAGIC = 0x54434f31;
+    private static final int HEADER = 16;
+
+    private final RecordCodec<E> codec;
+    private final int recordSize;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int chunkCount;
+    private int size;
+
+    private OffHeapList(RecordCodec<E> codec, FileChannel channel) {
+        this.codec = codec;
+        this.recordSize = codec.size();
+        if (recordSize < 1) throw new IllegalArgumentException("Record size must be positive");
+        this.chunkShift = 31 - Integer.numberOfLeadingZeros(Math.max(1, CHUNK_BYTES / recordSize));
+        this.chunkMask = (1 << chunkShift) - 1;
+        this.channel = channel;
+        this.header = channel == null ? null : map(0, HEADER);
+    }
+
+    /**
+     * Creates an empty list in direct buffers. The memory is released when the list is garbage collected.
+     *
+     * @param codec layout of the elements
+     * @param <E>   type of the elements
+     * @return empty list
+     */
+    public static <E> OffHeapList<E> direct(RecordCodec<E> codec) {
+        return new OffHeapList<>(codec, null);
+    }
+
+    /**
+     * Opens a list kept in a memory-mapped file. An existing file written with the same record size
+     * is opened with its elements, a new file is created empty. The operating system writes the records
+     * back to the file, {@link #close()} forces them to the disk.
+     *
+     * @param path  file of the list
+     * @param codec layout of the elements
+     * @param <E>   type of the elements
+     * @return list with the elements of the file
+     * @throws UncheckedIOException  if the file cannot be opened
+     * @throws IllegalStateException if the file is not a list of records of the codec size
+     */
+    public static <E> OffHeapList<E> mapped(Path path, RecordCodec<E> codec) {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(path, CREATE, READ, WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final OffHeapList<E> list = new OffHeapList<>(codec, channel);
+        list.open(path);
+        return list;
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return codec.read(chunks[index >>> chunkShift], offset(index));
+    }
+
+    /**
+     * Reads the element into an existing instance, see {@link RecordCodec#read(ByteBuffer, int, Object)}.
+     * Does not fire the {@code get} triggers of a {@link TriggerList} wrapping the list,
+     * use {@link TriggerList#get(int, Object)} for that.
+     *
+     * @param index index of the element
+     * @param reuse instance to read into
+     * @return the element, {@code reuse} if the codec supports reusing
+     */
+    public E get(int index, E reuse) {
+        Objects.checkIndex(index, size);
+        return codec.read(chunks[index >>> chunkShift], offset(index), reuse);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Objects.requireNonNull(element);
+        final E previous = get(index);
+        write(index, element);
+        return previous;
+    }
+
+    @Override
+    public boolean add(E e) {
+        Objects.requireNonNull(e);
+        ensureCapacity(size + 1);
+        write(size, e);
+        resize(size + 1);
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        Objects.checkIndex(index, size + 1);
+        Objects.requireNonNull(element);
+        ensureCapacity(size + 1);
+        for (int i = size - 1; i >= index; i--) {
+            move(i, i + 1);
+        }
+        write(index, element);
+        resize(size + 1);
+    }
+
+    @Override
+    public E remove(int index) {
+        final E removed = get(index);
+        removeRange(index, index + 1);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        final int count = toIndex - fromIndex;
+        if (count <= 0) return;
+        for (int i = toIndex; i < size; i++) {
+            move(i, i - count);
+        }
+        resize(size - count);
+    }
+
+    @Override
+    public void clear() {
+        resize(0);
+    }
+
+    /**
+     * Forces the records of a memory-mapped list to the disk and closes the file,
+     * the list must not be used afterwards. Does nothing for a list in direct buffers.
+     */
+    @Override
+    public void close() {
+        if (channel == null || !channel.isOpen()) return;
+        header.force();
+        for (int i = 0; i < chunkCount; i++) {
+            ((MappedByteBuffer) chunks[i]).force();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void open(Path path) {
+        if (header.getInt(0) == 0) {
+            header.putInt(0, MAGIC).putInt(8, recordSize);
+        } else if (header.getInt(0) != MAGIC || header.getInt(8) != recordSize) {
+            close();
+            throw new IllegalStateException(path + " is not a list of " + recordSize + "-byte records");
+        }
+        final int stored = header.getInt(4);
+        ensureCapacity(stored);
+        size = stored;
+    }
+
+    private void write(int index, E element) {
+        codec.write(element, chunks[index >>> chunkShift], offset(index));
+    }
+
+    private int offset(int index) {
+        return (index & chunkMask) * recordSize;
+    }
+
+    private void resize(int newSize) {
+        size = newSize;
+        modCount++;
+        if (header != null) header.putInt(4, newSize);
+    }
+
+    private void ensureCapacity(int capacity) {
+        while ((long) chunkCount << chunkShift < capacity) {
+            if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, Math.max(4, chunkCount * 2));
+            final int bytes = recordSize << chunkShift;
+            chunks[chunkCount] = channel == null
+                ? ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder())
+                : map(HEADER + (long) chunkCount * bytes, bytes);
+            chunkCount++;
+        }
+    }
+
+    private MappedByteBuffer map(long position, int bytes) {
+        try {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes);
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies a record eight bytes at a time.
+     */
+    private void move(int from, int to) {
+        final ByteBuffer source = chunks[from >>> chunkShift];
+        final ByteBuffer target = chunks[to >>> chunkShift];
+        final int sourceOffset = offset(from);
+        final int targetOffset = offset(to);
+        int i = 0;
+        for (; i + Long.BYTES <= recordSize; i += Long.BYTES) {
+            target.putLong(targetOffset + i, source.getLong(sourceOffset + i));
+        }
+        for (; i < recordSize; i++) {
+            target.put(targetOffset + i, source.get(sourceOffset + i));
+        }
+    }
+}
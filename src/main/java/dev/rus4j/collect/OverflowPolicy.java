@@ -0,0 +1,20 @@
+package dev.rus4j.collect;
+
+/**
+ * What to do with an event when the bounded queue it should be put into is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * The mutating thread waits until there is space in the queue.
+     */
+    BLOCK,
+    /**
+     * The event is discarded.
+     */
+    DROP,
+    /**
+     * The mutating thread delivers the queued events and then the new one itself,
+     * or waits like {@link #BLOCK} if the events are being delivered by another thread.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,19 @@
+package dev.rus4j.collect;
+
+/**
+ * Action that takes a key of a map with its previous and new values.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+@FunctionalInterface
+public interface PutConsumer<K, V> {
+
+    /**
+     * Performs the action.
+     * @param key      key of the entry
+     * @param previous value the key was mapped to, {@code null} if there was none
+     * @param value    new value of the key
+     */
+    void accept(K key, V previous, V value);
+}
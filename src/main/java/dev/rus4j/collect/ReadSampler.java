@@ -0,0 +1,85 @@
+package dev.rus4j.collect;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Sampling state of the read triggers of one list. The calls are counted only if they are reported: a
+ * {@link LongAdder} spreads the increments over a bounded number of cells, {@link #flush()} sums them up
+ * and also runs periodically on {@link TriggerTimer}. The periodic task only holds a weak reference, so it
+ * stops by itself when the list is garbage collected. Sampling every n-th call counts the calls of each thread
+ * in a thread local that is not registered anywhere else.
+ */
+final class ReadSampler {
+    private final Sampling sampling;
+    private final LongConsumer gets;
+    private final LongAdder calls;
+    private final ThreadLocal<long[]> threadCalls;
+    private final AtomicLong nextPermit = new AtomicLong(System.nanoTime());
+    private final ScheduledFuture<?> flushTask;
+    private long flushed;
+
+    ReadSampler(Sampling sampling, LongConsumer gets, long flushPeriodNanos) {
+        this.sampling = sampling;
+        this.gets = gets;
+        this.calls = gets == null ? null : new LongAdder();
+        this.threadCalls = sampling != null && sampling.mode == Sampling.Mode.EVERY_NTH
+            ? ThreadLocal.withInitial(() -> new long[1])
+            : null;
+        this.flushTask = gets == null ? null : schedule(this, flushPeriodNanos);
+    }
+
+    private static ScheduledFuture<?> schedule(ReadSampler sampler, long periodNanos) {
+        final WeakReference<ReadSampler> reference = new WeakReference<>(sampler);
+        final ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+        task[0] = TriggerTimer.INSTANCE.scheduleAtFixedRate(() -> {
+            final ReadSampler current = reference.get();
+            if (current == null) {
+                task[0].cancel(false);
+            } else {
+                AsyncDispatcher.run(current::flush);
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+        return task[0];
+    }
+
+    /**
+     * Counts the call and decides whether it fires the read triggers.
+     */
+    boolean sample() {
+        if (calls != null) calls.increment();
+        if (sampling == null) return true;
+        switch (sampling.mode) {
+            case EVERY_NTH:
+                return ++threadCalls.get()[0] % sampling.every == 0;
+            case PROBABILITY:
+                return ThreadLocalRandom.current().nextDouble() < sampling.probability;
+            default:
+                final long next = nextPermit.get();
+                final long now = System.nanoTime();
+                return now - next >= 0 && nextPermit.compareAndSet(next, now + sampling.intervalNanos);
+        }
+    }
+
+    /**
+     * Reports the calls made since the previous flush.
+     */
+    synchronized void flush() {
+        if (gets == null) return;
+        final long total = calls.sum();
+        final long delta = total - flushed;
+        flushed = total;
+        if (delta > 0) gets.accept(delta);
+    }
+
+    void close() {
+        if (flushTask != null) flushTask.cancel(false);
+        flush();
+    }
+
+}
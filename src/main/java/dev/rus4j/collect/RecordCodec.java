@@ -0,0 +1,47 @@
+package dev.rus4j.collect;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size binary layout of the elements of an {@link OffHeapList}. Every element takes {@link #size()} bytes
+ * at an offset of a buffer in the native byte order; a codec reads and writes them with the absolute
+ * {@link ByteBuffer} methods, e.g. {@code buffer.getLong(offset + 8)}, and must not keep the buffer.
+ *
+ * @param <E> type of the elements
+ */
+public interface RecordCodec<E> {
+
+    /**
+     * Number of bytes of an element, the same for all of them.
+     * @return size of a record in bytes
+     */
+    int size();
+
+    /**
+     * Writes the element at the offset.
+     * @param element element to write, never {@code null}
+     * @param buffer  buffer to write to
+     * @param offset  offset of the record in the buffer
+     */
+    void write(E element, ByteBuffer buffer, int offset);
+
+    /**
+     * Reads the element at the offset into a new instance.
+     * @param buffer buffer to read from
+     * @param offset offset of the record in the buffer
+     * @return the element
+     */
+    E read(ByteBuffer buffer, int offset);
+
+    /**
+     * Reads the element at the offset into an existing instance, so a mutable element can be reused as a flyweight
+     * instead of allocating a new one for every read. Allocates a new instance by default.
+     * @param buffer buffer to read from
+     * @param offset offset of the record in the buffer
+     * @param reuse  instance to read into
+     * @return the element, {@code reuse} if the codec supports reusing
+     */
+    default E read(ByteBuffer buffer, int offset, E reuse) {
+        return read(buffer, offset);
+    }
+}
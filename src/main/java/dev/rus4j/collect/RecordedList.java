@@ -0,0 +1,247 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.Journal.ADD;
+import static dev.rus4j.collect.Journal.CLEAR;
+import static dev.rus4j.collect.Journal.REMOVE;
+import static dev.rus4j.collect.Journal.SET;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Records the modifications of a list by index in a {@link ModificationLog}. The single-element methods of
+ * {@link List} end up in {@link #set(int, Object)}, {@link #add(int, Object)} and {@link #remove(int)}.
+ * The bulk methods make one pass over the backing list: {@code addAll} records the inserted elements and
+ * {@code removeIf}, {@code removeAll}, {@code retainAll} and the {@code clear} of a sublist record the removed ranges
+ * in a single record, a sort or a {@code replaceAll} records only the positions whose element has changed.
+ *
+ * @param <E> type of the elements
+ */
+class RecordedList<E> extends AbstractList<E> {
+    private final List<E> backing;
+    private final ModificationLog<E> log;
+
+    RecordedList(List<E> backing, ModificationLog<E> log) {
+        this.backing = backing;
+        this.log = log;
+    }
+
+    /**
+     * Wraps the list, keeping its {@link RandomAccess} marker.
+     */
+    static <E> RecordedList<E> of(List<E> backing, ModificationLog<E> log) {
+        if (backing instanceof RandomAccess) return new RandomAccessList<>(backing, log);
+        return new RecordedList<>(backing, log);
+    }
+
+    /**
+     * Removes the ranges of a {@link Journal#REMOVE_RANGES} record from the list in one pass.
+     * @param payload pairs of the first index and the length of every range, in ascending order
+     * @param ranges  number of ranges
+     */
+    static <E> void removeRanges(ByteBuffer payload, int ranges, List<E> from) {
+        final int[] pairs = new int[ranges * 2];
+        payload.asIntBuffer().get(pairs);
+        final int[] position = {0, 0};
+        from.removeIf(e -> {
+            final int index = position[0]++;
+            int range = position[1];
+            while (range < pairs.length && index >= pairs[range] + pairs[range + 1]) {
+                range += 2;
+            }
+            position[1] = range;
+            return range < pairs.length && index >= pairs[range];
+        });
+    }
+
+    @Override
+    public E get(int index) {
+        return backing.get(index);
+    }
+
+    @Override
+    public int size() {
+        return backing.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        synchronized (log) {
+            final E previous = backing.set(index, element);
+            log.append(SET, index, element);
+            return previous;
+        }
+    }
+
+    @Override
+    public void add(int index, E element) {
+        synchronized (log) {
+            backing.add(index, element);
+            modCount++;
+            log.append(ADD, index, element);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        synchronized (log) {
+            return addAll(backing.size(), c);
+        }
+    }
+
+    /**
+     * Inserts the elements with one call of the backing list and records them as one insertion.
+     */
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        synchronized (log) {
+            final int size = backing.size();
+            if (!backing.addAll(index, c)) return false;
+            modCount++;
+            final int added = backing.size() - size;
+            log.appendInsertion(index, backing.subList(index, index + added).toArray());
+            log.completed();
+            return true;
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        synchronized (log) {
+            final E removed = backing.remove(index);
+            modCount++;
+            log.append(REMOVE, index, null);
+            return removed;
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (log) {
+            backing.clear();
+            modCount++;
+            log.append(CLEAR, -1, null);
+        }
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) return;
+        synchronized (log) {
+            backing.subList(fromIndex, toIndex).clear();
+            modCount++;
+            log.appendRemovals(new int[] {fromIndex, toIndex - fromIndex}, 0, 2);
+            log.completed();
+        }
+    }
+
+    /**
+     * Removes the elements in one pass of the backing list. The positions are counted in the order the backing
+     * list tests its elements, which is the order of the list for the lists of the JDK.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        final Ranges ranges = new Ranges();
+        synchronized (log) {
+            if (!backing.removeIf(e -> ranges.next(filter.test(e)))) return false;
+            modCount++;
+            ranges.appendTo(log);
+            log.completed();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        synchronized (log) {
+            final Object[] before = backing.toArray();
+            backing.sort(c);
+            modCount++;
+            recordChanged(before);
+        }
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        synchronized (log) {
+            final Object[] before = backing.toArray();
+            backing.replaceAll(operator);
+            recordChanged(before);
+        }
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return backing.indexOf(o);
+    }
+
+    private void recordChanged(Object[] before) {
+        int index = 0;
+        for (E e : backing) {
+            if (e != before[index]) log.append(SET, index, e);
+            index++;
+        }
+    }
+
+    private static final class RandomAccessList<E> extends RecordedList<E> implements RandomAccess {
+
+        RandomAccessList(List<E> backing, ModificationLog<E> log) {
+            super(backing, log);
+        }
+    }
+
+    /**
+     * Removed positions merged into ranges as the backing list tests its elements.
+     */
+    private static final class Ranges {
+        private int[] pairs = new int[8];
+        private int length;
+        private int position;
+
+        boolean next(boolean removed) {
+            final int index = position++;
+            if (!removed) return false;
+            if (length > 0 && pairs[length - 2] + pairs[length - 1] == index) {
+                pairs[length - 1]++;
+                return true;
+            }
+            if (length == pairs.length) pairs = Arrays.copyOf(pairs, length * 2);
+            pairs[length++] = index;
+            pairs[length++] = 1;
+            return true;
+        }
+
+        /**
+         * Records the ranges from the last one, so the indexes of a record are not shifted
+         * by the records applied before it.
+         */
+        void appendTo(ModificationLog<?> log) {
+            final int step = log.maxRemovalRanges() * 2;
+            for (int end = length; end > 0; end -= step) {
+                log.appendRemovals(pairs, Math.max(0, end - step), end);
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.ReplicationPrimary.FRAME_HEADER;
+import static dev.rus4j.collect.ReplicationPrimary.HANDSHAKE;
+import static dev.rus4j.collect.ReplicationPrimary.SNAPSHOT;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the modifications sent by a {@link ReplicationPrimary} to a list of this process, usually a
+ * {@link TriggerList}, so the triggers of the replica fire for the replicated modifications.
+ *
+ * <p>The records are applied on the thread of the follower in the order of their sequence numbers. A record that
+ * does not follow the last applied one is a gap: the follower reconnects with the last applied sequence number and
+ * the primary resends the missing records or a snapshot. The first connection always gets a snapshot, which
+ * replaces the elements of the list once all its frames have arrived. If the primary is unreachable
+ * the follower retries every {@code 100} milliseconds until it is closed. A record that cannot be applied, because
+ * the list has diverged from the primary or the list throws, is a divergence: the follower reconnects
+ * and gets a snapshot, see {@link #divergences()}.
+ *
+ * <p>Only the follower modifies the list, other threads read it; a list created with {@link TriggerList#versioned()}
+ * gives them consistent {@link TriggerList#snapshot()}s without locking.
+ *
+ * @param <E> type of the elements
+ */
+public final class ReplicationFollower<E> implements AutoCloseable {
+    private static final long RETRY_MILLIS = 100;
+
+    private final SocketAddress primary;
+    private final JournalCodec<E> codec;
+    private final List<E> target;
+    private final Thread thread;
+
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    private long epoch;
+    private long sequence = -1;
+    private long gaps;
+    private long divergences;
+    private List<E> snapshot;
+
+    private ReplicationFollower(SocketAddress primary, JournalCodec<E> codec, List<E> target) {
+        this.primary = Objects.requireNonNull(primary);
+        this.codec = Objects.requireNonNull(codec);
+        this.target = Objects.requireNonNull(target);
+        this.thread = new Thread(this::follow, "trigger-replica-" + primary);
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts following the primary.
+     * @param primary address of the primary, see {@link ReplicationPrimary#address()}
+     * @param codec   decodes the elements, compatible with the codec of the primary
+     * @param target  list replicating the list of the primary, its elements are replaced by the first snapshot
+     * @param <E>     type of the elements
+     * @return follower, close it to stop following
+     */
+    public static <E> ReplicationFollower<E> connect(SocketAddress primary, JournalCodec<E> codec, List<E> target) {
+        final ReplicationFollower<E> follower = new ReplicationFollower<>(primary, codec, target);
+        follower.thread.start();
+        return follower;
+    }
+
+    /**
+     * Sequence number of the last modification applied to the list.
+     * @return sequence number, {@code -1} before the first snapshot
+     */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Number of records that did not follow the last applied record, each one made the follower reconnect.
+     * @return number of detected gaps
+     */
+    public synchronized long gaps() {
+        return gaps;
+    }
+
+    /**
+     * Number of records or snapshots that could not be applied to the list, for example because a trigger
+     * of the list threw. Each one made the follower reconnect and replace the elements with a new snapshot.
+     * @return number of detected divergences
+     */
+    public synchronized long divergences() {
+        return divergences;
+    }
+
+    /**
+     * Waits until the list has caught up with a modification of the primary.
+     * @param sequence sequence number of the modification, see {@link ReplicationPrimary#sequence()}
+     * @param timeout  maximum time to wait
+     * @param unit     unit of the timeout
+     * @return {@code false} if the time elapsed first
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized boolean await(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (this.sequence < sequence) {
+            final long left = deadline - System.nanoTime();
+            if (left <= 0) return false;
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return true;
+    }
+
+    /**
+     * Stops following, the list keeps the elements applied so far.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        final SocketChannel current = channel;
+        try {
+            if (current != null) current.close();
+            thread.join();
+        } catch (IOException ignored) {
+            // the thread stops anyway
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void follow() {
+        while (!closed) {
+            try (SocketChannel connection = SocketChannel.open(primary)) {
+                channel = connection;
+                snapshot = null;
+                if (closed) return;
+                handshake(connection);
+                while (!closed) {
+                    receive(connection);
+                }
+            } catch (IOException e) {
+                if (closed) return;
+            } catch (RuntimeException e) {
+                if (closed) return;
+                diverged();
+            }
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A record that cannot be applied means the list no longer matches the primary,
+     * forgetting the epoch makes the primary send a snapshot on the next connection.
+     */
+    private synchronized void diverged() {
+        divergences++;
+        epoch = 0;
+    }
+
+    private void handshake(SocketChannel connection) throws IOException {
+        final ByteBuffer out = ByteBuffer.allocate(HANDSHAKE);
+        synchronized (this) {
+            out.putLong(epoch).putLong(sequence).flip();
+        }
+        while (out.hasRemaining()) {
+            connection.write(out);
+        }
+    }
+
+    private void receive(SocketChannel connection) throws IOException {
+        buffer.clear().limit(4);
+        read(connection);
+        final int length = buffer.getInt(0);
+        if (buffer.capacity() < length + 4) {
+            buffer = ByteBuffer.allocate(Integer.highestOneBit(length + 4) << 1).putInt(length);
+        }
+        buffer.limit(length + 4);
+        read(connection);
+        final byte op = buffer.get(4);
+        final long next = buffer.getLong(5);
+        final int index = buffer.getInt(13);
+        buffer.position(FRAME_HEADER);
+        if (op == SNAPSHOT) {
+            applySnapshot(next, index);
+            return;
+        }
+        if (next != sequence + 1) {
+            synchronized (this) {
+                gaps++;
+            }
+            throw new IOException("Record " + next + " does not follow " + sequence);
+        }
+        Journal.apply(op, next, index, buffer, codec, target);
+        applied(next);
+    }
+
+    /**
+     * Collects the elements of the snapshot frames and replaces the elements of the list with them
+     * once the last frame has arrived.
+     */
+    private void applySnapshot(long next, int count) {
+        final long snapshotEpoch = buffer.getLong();
+        final int size = buffer.getInt();
+        if (snapshot == null) snapshot = new ArrayList<>(size);
+        for (int i = 0; i < count; i++) {
+            final int length = buffer.getInt();
+            snapshot.add(codec.decode(buffer.slice().limit(length)));
+            buffer.position(buffer.position() + length);
+        }
+        if (snapshot.size() < size) return;
+        replace(snapshot);
+        snapshot = null;
+        synchronized (this) {
+            epoch = snapshotEpoch;
+        }
+        applied(next);
+    }
+
+    /**
+     * Replaces the elements of the list in one operation, a versioned {@link TriggerList} publishes them
+     * as a single version. Another list is overwritten in place, so it is never empty in between.
+     */
+    private void replace(List<E> elements) {
+        if (target instanceof TriggerList) {
+            ((TriggerList<E>) target).replaceWith(elements);
+            return;
+        }
+        final int common = Math.min(target.size(), elements.size());
+        for (int i = 0; i < common; i++) {
+            target.set(i, elements.get(i));
+        }
+        if (target.size() > common) {
+            target.subList(common, target.size()).clear();
+        } else {
+            target.addAll(elements.subList(common, elements.size()));
+        }
+    }
+
+    private synchronized void applied(long next) {
+        sequence = next;
+        notifyAll();
+    }
+
+    private void read(SocketChannel connection) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (connection.read(buffer) < 0) throw new EOFException("The primary has closed the connection");
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.Journal.ADD;
+import static dev.rus4j.collect.Journal.ADD_ALL;
+import static dev.rus4j.collect.Journal.REMOVE_RANGES;
+import static dev.rus4j.collect.Journal.SET;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends the modifications of one list to {@link ReplicationFollower}s in other processes of the host, declared by
+ * {@link TriggerList.TriggerListBuilder#replicate(ReplicationPrimary)}. Every modification of the backing list is
+ * a record of the operation, its sequence number, the index and the element encoded by a {@link JournalCodec},
+ * the same records a {@link Journal} writes, so the traffic depends on the modifications and not on the size
+ * of the list. A bulk insertion is one record of the inserted elements per about {@code 64} kilobytes, a bulk removal
+ * is one record of the removed ranges and a sort sends only the moved elements.
+ *
+ * <p>One thread serves all the followers over non-blocking channels. The mutating thread only encodes the record
+ * into a backlog of the latest records and wakes the thread up, it never waits for a follower. A follower
+ * connects with the last sequence number it has applied and gets the records after it, or a snapshot of the list
+ * if those records are no longer in the backlog or it has never seen this primary. A snapshot copies the references
+ * to the elements under the lock of the list; the serving thread encodes and sends them afterwards in frames of
+ * about {@code 64} kilobytes. Until the first follower connects nothing is encoded.
+ *
+ * <p>The primary listens on a loopback address, or on a Unix domain socket address on Java 16 and later.
+ *
+ * @param <E> type of the elements
+ */
+public final class ReplicationPrimary<E> extends ModificationLog<E> implements AutoCloseable {
+    /**
+     * Operation of a snapshot frame, the other frames carry the operations of {@link Journal}.
+     */
+    static final byte SNAPSHOT = -1;
+
+    /**
+     * Length of the rest of the frame, operation, sequence number and index, followed by the encoded element.
+     * A snapshot frame has the number of its elements as the index, then the epoch of the primary, the size
+     * of the snapshot and every element preceded by its length.
+     */
+    static final int FRAME_HEADER = 17;
+
+    /**
+     * Epoch and last applied sequence number sent by a follower when it connects.
+     */
+    static final int HANDSHAKE = 16;
+
+    private static final int DEFAULT_BACKLOG = 1 << 14;
+    private static final int CHUNK_SIZE = 64 << 10;
+    private static final int MAX_REMOVAL_RANGES = 1 << 13;
+
+    private final JournalCodec<E> codec;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final long epoch;
+    private final byte[][] backlog;
+    private final int mask;
+    private final AtomicBoolean wakeup = new AtomicBoolean();
+    private final List<Follower> followers = new ArrayList<>();
+
+    private List<E> elements;
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE + 256);
+    private long sequence;
+    private long oldest = 1;
+    private int connected;
+    private boolean followed;
+    private long snapshots;
+    private volatile boolean closed;
+    private volatile boolean disconnect;
+
+    private ReplicationPrimary(SocketAddress address, JournalCodec<E> codec, int backlog) throws IOException {
+        this.codec = codec;
+        this.backlog = new byte[Integer.highestOneBit(backlog - 1) << 1][];
+        this.mask = this.backlog.length - 1;
+        long random = 0;
+        while (random == 0) {
+            random = ThreadLocalRandom.current().nextLong();
+        }
+        this.epoch = random;
+        this.server = open(address);
+        this.selector = Selector.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::serve, "trigger-replication-" + server.getLocalAddress());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts a primary that keeps the latest {@code 16384} records for followers that reconnect.
+     * @param address loopback address, port {@code 0} picks a free port, or a Unix domain socket address
+     * @param codec   encodes the elements
+     * @param <E>     type of the elements
+     * @return primary to declare on a list builder
+     * @throws IOException if the address cannot be bound
+     */
+    public static <E> ReplicationPrimary<E> bind(SocketAddress address, JournalCodec<E> codec) throws IOException {
+        return bind(address, codec, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * Starts a primary listening for followers on the address.
+     * @param address loopback address, port {@code 0} picks a free port, or a Unix domain socket address
+     * @param codec   encodes the elements
+     * @param backlog number of the latest records kept for followers that reconnect, rounded up to a power of two;
+     *                a follower that has missed more records gets a snapshot
+     * @param <E>     type of the elements
+     * @return primary to declare on a list builder
+     * @throws IOException if the address cannot be bound
+     */
+    public static <E> ReplicationPrimary<E> bind(SocketAddress address, JournalCodec<E> codec, int backlog)
+        throws IOException {
+        if (backlog < 2) throw new IllegalArgumentException("Backlog must be at least 2");
+        return new ReplicationPrimary<>(address, codec, backlog);
+    }
+
+    /**
+     * Address the followers connect to, with the port picked by the system for port {@code 0}.
+     * @return bound address
+     */
+    public SocketAddress address() {
+        try {
+            return server.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sequence number of the last modification of the list.
+     * @return number of modifications since the list was built
+     */
+    public synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Disconnects the followers and stops listening. The list keeps working without replication.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wraps the backing list of the built collection, so every modification made through it is replicated.
+     */
+    synchronized List<E> attach(List<E> backing) {
+        if (elements != null) throw new IllegalStateException("The primary already replicates a list");
+        elements = backing;
+        return RecordedList.of(backing, this);
+    }
+
+    synchronized long snapshots() {
+        return snapshots;
+    }
+
+    synchronized int followers() {
+        return connected;
+    }
+
+    /**
+     * Drops the connections, the followers reconnect and continue from the backlog.
+     */
+    void disconnect() {
+        disconnect = true;
+        selector.wakeup();
+    }
+
+    @Override
+    synchronized void append(byte op, int index, E element) {
+        if (!recording()) return;
+        buffer.clear().position(4);
+        buffer.put(op).putLong(sequence).putInt(index);
+        if (op == ADD || op == SET) buffer = encode(element, buffer, FRAME_HEADER, false);
+        store();
+    }
+
+    @Override
+    synchronized void appendRemovals(int[] ranges, int start, int end) {
+        if (!recording()) return;
+        final int size = FRAME_HEADER + (end - start) * 4;
+        if (buffer.capacity() < size) buffer = ByteBuffer.allocate(size);
+        buffer.clear().position(4);
+        buffer.put(REMOVE_RANGES).putLong(sequence).putInt((end - start) / 2);
+        for (int i = start; i < end; i++) {
+            buffer.putInt(ranges[i]);
+        }
+        store();
+    }
+
+    /**
+     * Encodes the elements into frames of about {@code 64} kilobytes, every frame is a record of its own.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    synchronized void appendInsertion(int index, Object[] inserted) {
+        if (buffer.capacity() < CHUNK_SIZE + 256) buffer = ByteBuffer.allocate(CHUNK_SIZE + 256);
+        int from = 0;
+        while (from < inserted.length) {
+            if (!recording()) return;
+            final int first = from;
+            buffer.clear().position(4);
+            buffer.put(ADD_ALL).putLong(sequence).putInt(index + first).putInt(0);
+            while (from < inserted.length && (from == first || buffer.position() < CHUNK_SIZE)) {
+                buffer = encode((E) inserted[from++], buffer, buffer.position(), true);
+            }
+            buffer.putInt(FRAME_HEADER, from - first);
+            store();
+        }
+    }
+
+    @Override
+    int maxRemovalRanges() {
+        return MAX_REMOVAL_RANGES;
+    }
+
+    /**
+     * Counts the modification and tells if its record is needed by a follower.
+     */
+    private boolean recording() {
+        sequence++;
+        if (followed && !closed) return true;
+        oldest = sequence + 1;
+        return false;
+    }
+
+    /**
+     * Finishes the frame in the buffer, keeps it in the backlog and wakes the serving thread up.
+     */
+    private void store() {
+        buffer.putInt(0, buffer.position() - 4);
+        backlog[(int) sequence & mask] = Arrays.copyOf(buffer.array(), buffer.position());
+        if (sequence - oldest >= backlog.length) oldest = sequence - backlog.length + 1;
+        if (!wakeup.getAndSet(true)) selector.wakeup();
+    }
+
+    /**
+     * Encodes the element after {@code start}, growing the buffer until it fits.
+     * @return the buffer or the grown copy of it
+     */
+    private ByteBuffer encode(E element, ByteBuffer b, int start, boolean prefixed) {
+        ByteBuffer target = b;
+        while (true) {
+            try {
+                target.position(prefixed ? start + 4 : start);
+                codec.encode(element, target);
+                if (prefixed) target.putInt(start, target.position() - start - 4);
+                return target;
+            } catch (BufferOverflowException e) {
+                target = ByteBuffer.allocate(target.capacity() * 2).put(target.array(), 0, start);
+            }
+        }
+    }
+
+    /**
+     * Encodes the next frame of the snapshot the follower is receiving, outside the lock of the list.
+     */
+    @SuppressWarnings("unchecked")
+    private ByteBuffer chunk(Follower follower) {
+        final Snapshot snapshot = follower.snapshot;
+        chunk.clear().position(4);
+        chunk.put(SNAPSHOT).putLong(snapshot.sequence).putInt(0).putLong(epoch).putInt(snapshot.elements.length);
+        int count = 0;
+        while (snapshot.position < snapshot.elements.length && (count == 0 || chunk.position() < CHUNK_SIZE)) {
+            chunk = encode((E) snapshot.elements[snapshot.position++], chunk, chunk.position(), true);
+            count++;
+        }
+        chunk.putInt(0, chunk.position() - 4).putInt(13, count);
+        if (snapshot.position == snapshot.elements.length) follower.snapshot = null;
+        return ByteBuffer.wrap(Arrays.copyOf(chunk.array(), chunk.position()));
+    }
+
+    private void serve() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeup.set(false);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) accept();
+                    if (key.isValid() && key.isReadable()) read((Follower) key.attachment());
+                }
+                if (disconnect) {
+                    disconnect = false;
+                    new ArrayList<>(followers).forEach(this::drop);
+                }
+                for (Follower follower : new ArrayList<>(followers)) {
+                    if (follower.ready) send(follower);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            new ArrayList<>(followers).forEach(this::drop);
+            closeQuietly();
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        final Follower follower = new Follower(channel);
+        follower.key = channel.register(selector, SelectionKey.OP_READ, follower);
+        followers.add(follower);
+    }
+
+    /**
+     * Reads the handshake of the follower, anything the follower sends later is ignored until it disconnects.
+     */
+    private void read(Follower follower) {
+        try {
+            final ByteBuffer in = follower.ready ? ByteBuffer.allocate(HANDSHAKE) : follower.handshake;
+            if (follower.channel.read(in) < 0) {
+                drop(follower);
+            } else if (!follower.ready && !in.hasRemaining()) {
+                handshake(follower, in.getLong(0), in.getLong(8));
+            }
+        } catch (IOException e) {
+            drop(follower);
+        }
+    }
+
+    private synchronized void handshake(Follower follower, long followerEpoch, long last) {
+        connected++;
+        followed = true;
+        follower.ready = true;
+        follower.next = followerEpoch == epoch && last >= oldest - 1 && last <= sequence ? last + 1 : Long.MIN_VALUE;
+    }
+
+    /**
+     * Writes the records the follower has not received until the channel is full.
+     */
+    private void send(Follower follower) {
+        try {
+            while (true) {
+                if (follower.pending == null || !follower.pending.hasRemaining()) {
+                    follower.pending = follower.snapshot == null ? next(follower) : null;
+                    if (follower.snapshot != null) follower.pending = chunk(follower);
+                    if (follower.pending == null) {
+                        follower.key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                }
+                follower.channel.write(follower.pending);
+                if (follower.pending.hasRemaining()) {
+                    follower.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            drop(follower);
+        }
+    }
+
+    /**
+     * Takes the next record from the backlog, or starts a snapshot if the record is no longer there.
+     */
+    private synchronized ByteBuffer next(Follower follower) {
+        if (follower.next < oldest) {
+            follower.snapshot = new Snapshot(elements == null ? new Object[0] : elements.toArray(), sequence);
+            follower.next = sequence + 1;
+            snapshots++;
+            return null;
+        }
+        if (follower.next > sequence) return null;
+        return ByteBuffer.wrap(backlog[(int) follower.next++ & mask]);
+    }
+
+    private void drop(Follower follower) {
+        follower.key.cancel();
+        try {
+            follower.channel.close();
+        } catch (IOException ignored) {
+            // the follower is gone anyway
+        }
+        followers.remove(follower);
+        if (follower.ready) {
+            synchronized (this) {
+                connected--;
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException ignored) {
+            // nothing is listening any more
+        }
+    }
+
+    /**
+     * Opens a channel of the protocol family of the address, Unix domain sockets are looked up reflectively
+     * because they appeared after the Java version the library is compiled for.
+     */
+    private static ServerSocketChannel open(SocketAddress address) throws IOException {
+        if (address instanceof InetSocketAddress) return ServerSocketChannel.open();
+        try {
+            final ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            return (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                .invoke(null, unix);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16", e);
+        }
+    }
+
+    private static final class Follower {
+        final SocketChannel channel;
+        final ByteBuffer handshake = ByteBuffer.allocate(HANDSHAKE);
+        SelectionKey key;
+        boolean ready;
+        long next;
+        ByteBuffer pending;
+        Snapshot snapshot;
+
+        Follower(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Elements of the list at a sequence number, sent to a follower chunk by chunk.
+     */
+    private static final class Snapshot {
+        final Object[] elements;
+        final long sequence;
+        int position;
+
+        Snapshot(Object[] elements, long sequence) {
+            this.elements = elements;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.rus4j.collect;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * {@code allow} trigger that checks the elements against a {@link RuleSet} which can be replaced at any time.
+ * Pass it to {@code allowAdd}, {@code allowAddEach}, {@code allowRemove} or any other {@code allow} method
+ * of a builder; {@link #swap(RuleSet)} replaces the rules atomically for the next checks of all the collections
+ * it was passed to, without building them again.
+ *
+ * <pre>{@code
+ * RuleEngine<Order> rules = new RuleEngine<>(orderRules, (order, reason) -> log.info(reason));
+ * TriggerList<Order> orders = TriggerList.from(new ArrayList<Order>()).allowAdd(rules).build();
+ * rules.swap(newOrderRules);
+ * }</pre>
+ *
+ * @param <E> type of the elements
+ */
+public final class RuleEngine<E> implements Predicate<E> {
+    private final BiConsumer<? super E, String> rejected;
+    private volatile RuleSet<E> rules;
+
+    /**
+     * Creates an engine that does not report the rejections.
+     *
+     * @param rules initial rules
+     */
+    public RuleEngine(RuleSet<E> rules) {
+        this(rules, null);
+    }
+
+    /**
+     * Creates an engine that reports every rejected element with the reason of the first rule rejecting it.
+     *
+     * @param rules    initial rules
+     * @param rejected action with the rejected element and the reason as parameters, {@code null} to not report
+     */
+    public RuleEngine(RuleSet<E> rules, BiConsumer<? super E, String> rejected) {
+        this.rules = Objects.requireNonNull(rules);
+        this.rejected = rejected;
+    }
+
+    /**
+     * Checks the element against the current rules and reports the rejection.
+     *
+     * @param e element to check
+     * @return {@code true} if no rule rejects the element
+     */
+    @Override
+    public boolean test(E e) {
+        final String reason = rules.rejection(e);
+        if (reason == null) return true;
+        if (rejected != null) rejected.accept(e, reason);
+        return false;
+    }
+
+    /**
+     * Replaces the rules, a check that has already started finishes with the previous rules.
+     *
+     * @param rules new rules
+     * @return the previous rules
+     */
+    public RuleSet<E> swap(RuleSet<E> rules) {
+        final RuleSet<E> previous = this.rules;
+        this.rules = Objects.requireNonNull(rules);
+        return previous;
+    }
+
+    /**
+     * Returns the current rules.
+     *
+     * @return rules
+     */
+    public RuleSet<E> rules() {
+        return rules;
+    }
+}
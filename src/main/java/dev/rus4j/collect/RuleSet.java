@@ -0,0 +1,377 @@
+package dev.rus4j.collect;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable set of rejection rules compiled into indexes. A rule rejects an element if all its conditions hold:
+ * an attribute equals a value or a numeric attribute lies in a range. Instead of testing every rule, a rule
+ * with an equality condition is found by a hash lookup of the attribute of the element and a rule with only
+ * range conditions by a search in an interval index, so a check touches only the rules that can match.
+ * Use a {@link RuleEngine} to check the elements of a trigger collection and to swap the rules.
+ *
+ * @param <E> type of the elements
+ */
+public final class RuleSet<E> {
+    private final Map<String, Function<? super E, ?>> keys;
+    private final Map<String, ToLongFunction<? super E>> numbers;
+    private final int size;
+    private final List<KeyIndex<E>> keyIndexes;
+    private final List<Intervals<E>> intervals;
+    private final Rule<E>[] unconditional;
+
+    private RuleSet(Builder<E> builder) {
+        this.keys = new LinkedHashMap<>(builder.keys);
+        this.numbers = new LinkedHashMap<>(builder.numbers);
+        this.size = builder.rules.size();
+        final Map<String, Map<Object, List<Rule<E>>>> byKey = new LinkedHashMap<>();
+        final Map<String, List<Rule<E>>> byRange = new LinkedHashMap<>();
+        final List<Rule<E>> always = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final Rule<E> rule = compile(i, builder.rules.get(i));
+            if (rule.equal.length > 0) {
+                final Condition first = rule.equalConditions[0];
+                byKey.computeIfAbsent(first.attribute, a -> new HashMap<>())
+                    .computeIfAbsent(first.value, v -> new ArrayList<>())
+                    .add(rule);
+            } else if (rule.ranges.length > 0) {
+                byRange.computeIfAbsent(rule.rangeConditions[0].attribute, a -> new ArrayList<>()).add(rule);
+            } else {
+                always.add(rule);
+            }
+        }
+        this.keyIndexes = new ArrayList<>();
+        byKey.forEach((attribute, rules) -> keyIndexes.add(new KeyIndex<>(keys.get(attribute), rules)));
+        this.intervals = new ArrayList<>();
+        byRange.forEach((attribute, rules) -> intervals.add(new Intervals<>(numbers.get(attribute), rules)));
+        this.unconditional = toArray(always);
+    }
+
+    /**
+     * Creates a builder of an empty rule set.
+     *
+     * @param <E> type of the elements
+     * @return builder
+     */
+    public static <E> Builder<E> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Condition that holds if the attribute of the element {@link Object#equals(Object)} the value.
+     *
+     * @param attribute name of an attribute declared with {@link Builder#key(String, Function)}
+     * @param value     value to compare with, may be {@code null}
+     * @return condition
+     */
+    public static Condition equal(String attribute, Object value) {
+        return new Condition(Objects.requireNonNull(attribute), value, 0, 0, false);
+    }
+
+    /**
+     * Condition that holds if the numeric attribute of the element is in the range, both ends included.
+     *
+     * @param attribute name of an attribute declared with {@link Builder#number(String, ToLongFunction)}
+     * @param min       lowest matching value
+     * @param max       highest matching value
+     * @return condition
+     * @throws IllegalArgumentException if {@code min} is greater than {@code max}
+     */
+    public static Condition between(String attribute, long min, long max) {
+        if (min > max) throw new IllegalArgumentException("Empty range [" + min + ", " + max + "]");
+        return new Condition(Objects.requireNonNull(attribute), null, min, max, true);
+    }
+
+    /**
+     * Finds the first rule, in the order the rules were added, that rejects the element.
+     *
+     * @param e element to check
+     * @return reason of the rule, {@code null} if no rule rejects the element
+     */
+    public String rejection(E e) {
+        Rule<E> first = unconditional.length > 0 ? unconditional[0] : null;
+        for (KeyIndex<E> index : keyIndexes) {
+            first = index.first(e, first);
+        }
+        for (Intervals<E> index : intervals) {
+            first = index.first(e, first);
+        }
+        return first == null ? null : first.reason;
+    }
+
+    /**
+     * Number of rules in the set.
+     * @return number of rules
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return size + " rules over " + keys.keySet() + " and " + numbers.keySet();
+    }
+
+    private Rule<E> compile(int order, RuleDefinition definition) {
+        final List<Condition> equalConditions = new ArrayList<>();
+        final List<Condition> rangeConditions = new ArrayList<>();
+        for (Condition condition : definition.conditions) {
+            if (condition.range) {
+                if (!numbers.containsKey(condition.attribute)) throw unknown("numeric", condition.attribute);
+                rangeConditions.add(condition);
+            } else {
+                if (!keys.containsKey(condition.attribute)) throw unknown("key", condition.attribute);
+                equalConditions.add(condition);
+            }
+        }
+        return new Rule<>(order, definition.reason, equalConditions, rangeConditions, keys, numbers);
+    }
+
+    private static IllegalArgumentException unknown(String kind, String attribute) {
+        return new IllegalArgumentException("Unknown " + kind + " attribute " + attribute);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Rule<E>[] toArray(List<Rule<E>> rules) {
+        return rules.toArray(new Rule[0]);
+    }
+
+    /**
+     * Condition of a rule, see {@link #equal(String, Object)} and {@link #between(String, long, long)}.
+     */
+    public static final class Condition {
+        private final String attribute;
+        private final Object value;
+        private final long min;
+        private final long max;
+        private final boolean range;
+
+        private Condition(String attribute, Object value, long min, long max, boolean range) {
+            this.attribute = attribute;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+            this.range = range;
+        }
+
+        @Override
+        public String toString() {
+            return range ? attribute + " in [" + min + ", " + max + "]" : attribute + " == " + value;
+        }
+    }
+
+    /**
+     * Collects the attributes and the rules of a {@link RuleSet}.
+     *
+     * @param <E> type of the elements
+     */
+    public static final class Builder<E> {
+        private final Map<String, Function<? super E, ?>> keys = new LinkedHashMap<>();
+        private final Map<String, ToLongFunction<? super E>> numbers = new LinkedHashMap<>();
+        private final List<RuleDefinition> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Declares an attribute compared by {@link RuleSet#equal(String, Object)}.
+         * @param name      name of the attribute
+         * @param extractor function that returns the attribute of an element
+         * @return builder
+         */
+        public Builder<E> key(String name, Function<? super E, ?> extractor) {
+            declare(name);
+            keys.put(name, Objects.requireNonNull(extractor));
+            return this;
+        }
+
+        /**
+         * Declares a numeric attribute compared by {@link RuleSet#between(String, long, long)}.
+         * @param name      name of the attribute
+         * @param extractor function that returns the attribute of an element
+         * @return builder
+         */
+        public Builder<E> number(String name, ToLongFunction<? super E> extractor) {
+            declare(name);
+            numbers.put(name, Objects.requireNonNull(extractor));
+            return this;
+        }
+
+        /**
+         * Adds a rule that rejects the elements matching all the conditions, a rule without conditions
+         * rejects every element.
+         * @param reason     reason reported for a rejected element
+         * @param conditions conditions of the rule
+         * @return builder
+         */
+        public Builder<E> reject(String reason, Condition... conditions) {
+            rules.add(new RuleDefinition(Objects.requireNonNull(reason), conditions.clone()));
+            return this;
+        }
+
+        /**
+         * Compiles the rules. The builder can be changed and built again afterwards.
+         * @return rule set
+         * @throws IllegalArgumentException if a condition refers to an attribute that is not declared
+         *                                  or is declared with another kind
+         */
+        public RuleSet<E> build() {
+            return new RuleSet<>(this);
+        }
+
+        private void declare(String name) {
+            if (keys.containsKey(name) || numbers.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate attribute " + name);
+            }
+        }
+    }
+
+    private static final class RuleDefinition {
+        final String reason;
+        final Condition[] conditions;
+
+        RuleDefinition(String reason, Condition[] conditions) {
+            this.reason = reason;
+            this.conditions = conditions;
+        }
+    }
+
+    /**
+     * Compiled rule: the extractors of its conditions are resolved, so checking it does no lookups by name.
+     */
+    private static final class Rule<E> {
+        final int order;
+        final String reason;
+        final Condition[] equalConditions;
+        final Condition[] rangeConditions;
+        final Function<? super E, ?>[] equal;
+        final ToLongFunction<? super E>[] ranges;
+
+        @SuppressWarnings("unchecked")
+        Rule(
+            int order,
+            String reason,
+            List<Condition> equalConditions,
+            List<Condition> rangeConditions,
+            Map<String, Function<? super E, ?>> keys,
+            Map<String, ToLongFunction<? super E>> numbers
+        ) {
+            this.order = order;
+            this.reason = reason;
+            this.equalConditions = equalConditions.toArray(new Condition[0]);
+            this.rangeConditions = rangeConditions.toArray(new Condition[0]);
+            this.equal = new Function[this.equalConditions.length];
+            this.ranges = new ToLongFunction[this.rangeConditions.length];
+            for (int i = 0; i < equal.length; i++) {
+                equal[i] = keys.get(this.equalConditions[i].attribute);
+            }
+            for (int i = 0; i < ranges.length; i++) {
+                ranges[i] = numbers.get(this.rangeConditions[i].attribute);
+            }
+        }
+
+        /**
+         * Checks the conditions that were not used to find the rule.
+         */
+        boolean matches(E e, int skipEqual, int skipRange) {
+            for (int i = skipEqual; i < equal.length; i++) {
+                if (!Objects.equals(equal[i].apply(e), equalConditions[i].value)) return false;
+            }
+            for (int i = skipRange; i < ranges.length; i++) {
+                final long value = ranges[i].applyAsLong(e);
+                if (value < rangeConditions[i].min || value > rangeConditions[i].max) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Rules found by the value of one key attribute.
+     */
+    private static final class KeyIndex<E> {
+        private final Function<? super E, ?> extractor;
+        private final Map<Object, Rule<E>[]> rules = new HashMap<>();
+
+        KeyIndex(Function<? super E, ?> extractor, Map<Object, List<Rule<E>>> rules) {
+            this.extractor = extractor;
+            rules.forEach((value, list) -> this.rules.put(value, toArray(list)));
+        }
+
+        /**
+         * Returns the earliest matching rule of the index that comes before {@code first}, or {@code first}.
+         */
+        Rule<E> first(E e, Rule<E> first) {
+            final Rule<E>[] candidates = rules.get(extractor.apply(e));
+            if (candidates == null) return first;
+            for (Rule<E> rule : candidates) {
+                if (first != null && rule.order >= first.order) break;
+                if (rule.matches(e, 1, 0)) return rule;
+            }
+            return first;
+        }
+    }
+
+    /**
+     * Rules found by the range of one numeric attribute: the ranges sorted by their lower end, with the highest
+     * upper end among the ranges up to each one, so a search stops as soon as no earlier range can contain the value.
+     */
+    private static final class Intervals<E> {
+        private final ToLongFunction<? super E> extractor;
+        private final long[] min;
+        private final long[] max;
+        private final long[] maxSoFar;
+        private final Rule<E>[] rules;
+
+        Intervals(ToLongFunction<? super E> extractor, List<Rule<E>> rules) {
+            this.extractor = extractor;
+            final List<Rule<E>> sorted = new ArrayList<>(rules);
+            sorted.sort(Comparator.comparingLong(rule -> rule.rangeConditions[0].min));
+            this.rules = toArray(sorted);
+            this.min = new long[this.rules.length];
+            this.max = new long[this.rules.length];
+            this.maxSoFar = new long[this.rules.length];
+            for (int i = 0; i < this.rules.length; i++) {
+                min[i] = this.rules[i].rangeConditions[0].min;
+                max[i] = this.rules[i].rangeConditions[0].max;
+                maxSoFar[i] = i == 0 ? max[i] : Math.max(maxSoFar[i - 1], max[i]);
+            }
+        }
+
+        Rule<E> first(E e, Rule<E> first) {
+            final long value = extractor.applyAsLong(e);
+            int i = upperBound(value) - 1;
+            while (i >= 0 && maxSoFar[i] >= value) {
+                final Rule<E> rule = rules[i];
+                if (max[i] >= value && (first == null || rule.order < first.order) && rule.matches(e, 0, 1)) {
+                    first = rule;
+                }
+                i--;
+            }
+            return first;
+        }
+
+        /**
+         * Index of the first range whose lower end is greater than the value.
+         */
+        private int upperBound(long value) {
+            int low = 0;
+            int high = min.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (min[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
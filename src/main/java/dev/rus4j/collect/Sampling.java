@@ -0,0 +1,60 @@
+package dev.rus4j.collect;
+
+/**
+ * Decides which calls of {@code get} fire the read triggers. Register it with the {@code sampleGets}
+ * method of a list builder. A sampling only describes the decision, so the same instance can be used
+ * for any number of lists.
+ */
+public final class Sampling {
+    final Mode mode;
+    final long every;
+    final double probability;
+    final long intervalNanos;
+
+    private Sampling(Mode mode, long every, double probability, long intervalNanos) {
+        this.mode = mode;
+        this.every = every;
+        this.probability = probability;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Fires the read triggers on every {@code n}-th call of each thread. Threads count their calls
+     * separately, so the decision never touches shared memory.
+     * @param n sampling interval
+     * @return sampling
+     */
+    public static Sampling everyNth(int n) {
+        if (n < 1) throw new IllegalArgumentException("Interval must be positive");
+        return new Sampling(Mode.EVERY_NTH, n, 0, 0);
+    }
+
+    /**
+     * Fires the read triggers on a call with the given probability, using a thread-local random generator.
+     * @param probability probability from {@code 0} to {@code 1}
+     * @return sampling
+     */
+    public static Sampling probability(double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("Probability must be in [0, 1]");
+        }
+        return new Sampling(Mode.PROBABILITY, 0, probability, 0);
+    }
+
+    /**
+     * Fires the read triggers at most {@code permits} times per second across all threads, evenly spaced.
+     * Calls read the shared time of the next permit and only the call that takes a permit writes it.
+     * @param permits maximum number of sampled calls per second
+     * @return sampling
+     */
+    public static Sampling perSecond(int permits) {
+        if (permits < 1) throw new IllegalArgumentException("Permits must be positive");
+        return new Sampling(Mode.PER_SECOND, 0, 0, 1_000_000_000L / permits);
+    }
+
+    enum Mode {
+        EVERY_NTH,
+        PROBABILITY,
+        PER_SECOND
+    }
+}
@@ -0,0 +1,37 @@
+package dev.rus4j.collect;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a trigger that took longer than the threshold of the collection metrics.
+ * Created only for slow triggers, so it costs nothing while the triggers are fast.
+ */
+@Name("dev.rus4j.collect.SlowTrigger")
+@Label("Slow Trigger")
+@Category("Trigger Collections")
+@Description("Trigger of a trigger collection that took longer than the configured threshold")
+final class SlowTriggerEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Trigger Duration")
+    @Timespan
+    long triggerDuration;
+
+    static void emit(TriggerMetrics.Operation operation, TriggerMetrics.Phase phase, long nanos) {
+        final SlowTriggerEvent event = new SlowTriggerEvent();
+        if (!event.isEnabled()) return;
+        event.operation = operation.name();
+        event.phase = phase.name();
+        event.triggerDuration = nanos;
+        event.commit();
+    }
+}
@@ -0,0 +1,27 @@
+package dev.rus4j.collect;
+
+/**
+ * Modifications collected by {@link TriggerCollection#batch(java.util.function.Consumer)}. An operation is checked
+ * by the {@code allow} triggers and runs the {@code before} triggers right away, but the collection is modified
+ * only when the batch commits. A transaction must not be used after the batch has returned.
+ *
+ * @param <E> type of the elements
+ */
+public interface Transaction<E> {
+
+    /**
+     * Adds the element on commit, see {@link java.util.Collection#add(Object)}.
+     * @param e element to add
+     * @return {@code false} if the addition is not allowed
+     * @throws IllegalStateException if the batch has returned
+     */
+    boolean add(E e);
+
+    /**
+     * Removes a single instance of the element on commit, see {@link java.util.Collection#remove(Object)}.
+     * @param o element to remove
+     * @return {@code false} if the removal is not allowed
+     * @throws IllegalStateException if the batch has returned
+     */
+    boolean remove(Object o);
+}
@@ -0,0 +1,166 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE_ALL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking queue that fires the triggers of {@link TriggerQueue}. {@link #put(Object)} and the timed
+ * {@code offer} fire the add triggers, {@link #take()} and the timed {@code poll} fire the {@code after}
+ * remove triggers. {@link #drainTo(Collection)} fires {@code afterRemoveBatch} once with all the drained elements
+ * instead of the per-element remove triggers; {@link #clear()} runs the per-element remove triggers
+ * as {@link TriggerCollection#clear()} does.
+ *
+ * <p>The {@code allow} and {@code before} triggers run before a blocking call and the {@code after} triggers after
+ * it returns, so a producer may wait for space after its element was allowed. The blocking calls are not included
+ * in the metrics, as their time is mostly spent waiting. Indexes and aggregates are not supported, since producers
+ * and consumers modify the queue from different threads.
+ *
+ * @param <E> type of the elements
+ */
+public class TriggerBlockingQueue<E> extends TriggerQueue<E> implements BlockingQueue<E> {
+    private final BlockingQueue<E> backedQueue;
+    private final Triggers<E> triggers;
+
+    private TriggerBlockingQueue(BlockingQueue<E> backedQueue, Triggers<E> triggers) {
+        super(backedQueue, triggers);
+        this.backedQueue = backedQueue;
+        this.triggers = triggers;
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to blocking queue.
+     * Use {@link TriggerBlockingQueueBuilder#build()} to build trigger queue.
+     *
+     * @param backedQueue original queue
+     * @param <E>         type of original queue
+     * @return            {@link TriggerBlockingQueueBuilder} to add triggers
+     */
+    public static <E> TriggerBlockingQueueBuilder<E> from(BlockingQueue<E> backedQueue) {
+        return new TriggerBlockingQueueBuilder<>(backedQueue);
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (!beforeAdd(e)) return;
+        backedQueue.put(e);
+        afterAdd(e, true);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!beforeAdd(e)) return false;
+        final boolean result = backedQueue.offer(e, timeout, unit);
+        afterAdd(e, result);
+        return result;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return polled(backedQueue.take());
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return polled(backedQueue.poll(timeout, unit));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return backedQueue.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) throw new IllegalArgumentException("Cannot drain a queue to itself");
+        if (!triggers.collectRemoved) return backedQueue.drainTo(c, maxElements);
+        final List<E> drained = new ArrayList<>();
+        final long start = startBacking();
+        final int count = backedQueue.drainTo(drained, maxElements);
+        endBacking(REMOVE_ALL, start);
+        c.addAll(drained);
+        if (count > 0) removed(drained);
+        return count;
+    }
+
+    /**
+     * Drains the queue instead of copying and clearing it, so an element a producer offers meanwhile is either
+     * drained and reported or stays in the queue. With {@code allowRemoveEach} or the single element remove triggers
+     * the elements go through them as in {@link #removeIf(java.util.function.Predicate)}.
+     */
+    @Override
+    public void clear() {
+        final Triggers<E> t = triggers;
+        if (!t.collectRemoved || t.allowRemoveEach != null || t.elementRemoveTriggers) {
+            super.clear();
+            return;
+        }
+        final List<E> drained = new ArrayList<>();
+        final long start = startBacking();
+        backedQueue.drainTo(drained);
+        endBacking(REMOVE_ALL, start);
+        if (!drained.isEmpty()) cleared(drained);
+    }
+
+    /**
+     * Collects triggers for a blocking queue, the same as {@link TriggerCollectionBuilder}.
+     */
+    public static class TriggerBlockingQueueBuilder<E>
+        extends TriggerCollectionBuilder<E, TriggerBlockingQueueBuilder<E>> {
+
+        private final BlockingQueue<E> backedQueue;
+
+        private TriggerBlockingQueueBuilder(BlockingQueue<E> backedQueue) {
+            super(backedQueue);
+            this.backedQueue = backedQueue;
+        }
+
+        @Override
+        protected TriggerBlockingQueueBuilder<E> self() {
+            return this;
+        }
+
+        /**
+         * Creates a blocking queue with the triggers.
+         * @return trigger blocking queue
+         * @throws IllegalStateException if indexes or aggregates are declared
+         */
+        @Override
+        public TriggerBlockingQueue<E> build() {
+            return new TriggerBlockingQueue<>(backedQueue, triggers());
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps blocking queues.
+         * @return template creating trigger blocking queues
+         * @throws IllegalStateException if indexes, aggregates or a journal are declared
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public TriggerTemplate<E, TriggerBlockingQueue<E>> compile() {
+            final Triggers<E> triggers = TriggerTemplate.shared(triggers());
+            return new TriggerTemplate<>(
+                BlockingQueue.class,
+                triggers,
+                backing -> new TriggerBlockingQueue<>((BlockingQueue<E>) backing, triggers)
+            );
+        }
+
+        private Triggers<E> triggers() {
+            final Triggers<E> triggers = new Triggers<>(this);
+            if (!triggers.indexes.isEmpty() || !triggers.aggregates.isEmpty()) {
+                throw new IllegalStateException("Blocking queues do not support indexes and aggregates");
+            }
+            return triggers;
+        }
+    }
+}
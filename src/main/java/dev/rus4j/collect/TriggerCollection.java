@@ -1,17 +1,75 @@
 package dev.rus4j.collect;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD;
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD_ALL;
+import static dev.rus4j.collect.TriggerMetrics.Operation.BATCH;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE_ALL;
+import static dev.rus4j.collect.TriggerMetrics.Phase.AFTER;
+import static dev.rus4j.collect.TriggerMetrics.Phase.BEFORE;
+
+import dev.rus4j.collect.TriggerMetrics.Operation;
+import dev.rus4j.collect.TriggerMetrics.Phase;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public class TriggerCollection<E> implements Collection<E> {
+
+    /**
+     * Result of {@link #removeEqual(Object)} when nothing was removed, {@code null} can be an element.
+     */
+    private static final Object NONE = new Object();
+
+    private final Collection<E> backedCollection;
+    private final Triggers<E> triggers;
+    private final Coalescer<E> coalescer;
+    private final Materialized<E> materialized;
+    private final Journal<E> journal;
+    private final boolean view;
 
-public class TriggerCollection implements InvocationHandler {
-    private static TriggerCollectionBuilder builder;
+    TriggerCollection(Collection<E> backedCollection, Triggers<E> triggers) {
+        this.triggers = triggers;
+        this.view = false;
+        this.coalescer = triggers.newCoalescer();
+        this.materialized = triggers.newMaterialized(backedCollection);
+        this.journal = triggers.newJournal(backedCollection);
+        this.backedCollection = journal == null ? backedCollection : journal.wrap(backedCollection);
+    }
 
-    protected TriggerCollection() {
+    /**
+     * Views share the triggers, the coalescer, the indexes and the aggregates of the collection they were created from,
+     * so their modifications are delivered in one stream with the modifications of the collection.
+     */
+    TriggerCollection(Collection<E> backedCollection, TriggerCollection<E> parent) {
+        this.backedCollection = backedCollection;
+        this.triggers = parent.triggers;
+        this.coalescer = parent.coalescer;
+        this.materialized = parent.materialized;
+        this.journal = parent.journal;
+        this.view = true;
     }
 
     /**
@@ -23,76 +81,1075 @@ public class TriggerCollection implements InvocationHandler {
      * @param <T>        TriggeredCollectionBuilder subclass
      * @return           {@link TriggerCollectionBuilder} to add triggers
      */
-    @SuppressWarnings("unchecked")
     public static <E, T extends TriggerCollectionBuilder<E, T>> TriggerCollectionBuilder<E, T> from(
         Collection<E> backedList
     ) {
-        builder = new TriggerCollectionBuilder<>(backedList);
-        return (TriggerCollectionBuilder<E, T>) builder;
+        return new TriggerCollectionBuilder<>(backedList);
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!beforeAdd(e)) return false;
+        final long start = startBacking();
+        final boolean result = backedCollection.add(e);
+        endBacking(ADD, start);
+        afterAdd(e, result);
+        return result;
     }
 
+    /**
+     * The triggers get the argument, the indexes and the aggregates the instance that was actually removed,
+     * see {@link #removeEqual(Object)}.
+     */
     @Override
     @SuppressWarnings("unchecked")
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (method.getName().equals("add")) {
-            final boolean allowed = builder.allowAdd.test(args[0]);
-            if (!allowed) return false;
-            builder.beforeAdd.accept(args[0]);
-            final Object result = method.invoke(builder.backedCollection, args);
-            builder.afterAdd.accept(args[0], result);
-            return result;
-        }
-        if (method.getName().equals("remove")) {
-            final boolean allowed = builder.allowRemove.test(args[0]);
-            if (!allowed) return false;
-            builder.beforeRemove.accept(args[0]);
-            final Object result = method.invoke(builder.backedCollection, args);
-            builder.afterRemove.accept(args[0], result);
-            return result;
-        }
-        if (method.getName().equals("addAll")) {
-            final boolean allowed = builder.allowAddAll.test(args[0]);
-            if (!allowed) return false;
-            builder.beforeAddAll.accept(args[0]);
-            final Object result = method.invoke(builder.backedCollection, args);
-            builder.afterAddAll.accept(args[0], result);
-            return result;
-        }
-        if (method.getName().equals("removeAll")) {
-            final boolean allowed = builder.allowRemoveAll.test(args[0]);
-            if (!allowed) return false;
-            builder.beforeRemoveAll.accept(args[0]);
-            final Object result = method.invoke(builder.backedCollection, args);
-            builder.afterRemoveAll.accept(args[0], result);
-            return result;
-        }
-        return method.invoke(builder.backedCollection, args);
+    public boolean remove(Object o) {
+        if (!beforeRemove((E) o)) return false;
+        final long start = startBacking();
+        final E removed = removeEqual((E) o);
+        endBacking(REMOVE, start);
+        final boolean result = removed != none();
+        if (result) materializeRemoved(removed);
+        fireAfterRemove((E) o, result);
+        return result;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        final Triggers<E> t = triggers;
+        if (t.allowAddAll != null && !t.allowAddAll.test(c)) return false;
+        if (t.beforeAddAll != null) t.beforeAddAll.accept(c);
+        final long start = startBacking();
+        final boolean result;
+        if (t.allowAddEach == null && !t.collectAdded && !t.elementAddTriggers && materialized == null) {
+            result = backedCollection.addAll(c);
+        } else {
+            final List<E> added = addEach(c, t.allowAddEach);
+            result = !added.isEmpty();
+            if (result) addedEach(added);
+        }
+        endBacking(ADD_ALL, start);
+        if (t.afterAddAll != null) t.afterAddAll.accept(c, result);
+        return result;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        final Triggers<E> t = triggers;
+        if (t.allowRemoveAll != null && !t.allowRemoveAll.test(c)) return false;
+        if (t.beforeRemoveAll != null) t.beforeRemoveAll.accept(c);
+        final long start = startBacking();
+        final boolean result = removesEach() ? removeEach(c::contains) : backedCollection.removeAll(c);
+        endBacking(REMOVE_ALL, start);
+        if (t.afterRemoveAll != null) t.afterRemoveAll.accept(c, result);
+        return result;
+    }
+
+    /**
+     * Removes the elements that are not in {@code c} the way {@link #removeIf(Predicate)} does.
+     * The {@code removeAll} triggers are not executed, they expect the elements to remove while {@code c} holds
+     * the elements to keep.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        final long start = startBacking();
+        final boolean result = removesEach() ? removeEach(e -> !c.contains(e)) : backedCollection.retainAll(c);
+        endBacking(REMOVE_ALL, start);
+        return result;
+    }
+
+    /**
+     * Every matching element is checked by {@code allowRemoveEach} and {@code allowRemove} and runs
+     * the {@code beforeRemove} and {@code afterRemove} triggers, the batch triggers get the removed elements at once.
+     * {@link #removeAll(Collection)}, {@link #retainAll(Collection)} and {@link #clear()} remove the same way.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        final long start = startBacking();
+        final boolean result = removesEach() ? removeEach(filter) : backedCollection.removeIf(filter);
+        endBacking(REMOVE_ALL, start);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        final Triggers<E> t = triggers;
+        final long start = startBacking();
+        if (!removesEach()) {
+            backedCollection.clear();
+        } else if (t.allowRemoveEach == null && t.allowRemove == null && t.beforeRemove == null) {
+            final List<E> removed = new ArrayList<>(backedCollection);
+            backedCollection.clear();
+            if (materialized != null) removed.forEach(materialized::removed);
+            if (t.afterRemove != null) removed.forEach(e -> t.afterRemove.accept(e, true));
+            if (!removed.isEmpty()) cleared(removed);
+        } else {
+            removeEach(e -> true);
+        }
+        endBacking(REMOVE_ALL, start);
+    }
+
+    /**
+     * Runs the operations of {@code body} as one transaction. Every operation is checked by the {@code allow}
+     * triggers and runs the {@code before} triggers when it is made; the collection is modified only after
+     * {@code body} returns, in one pass. Then the {@code after} triggers are executed once for the net change:
+     * an element added and removed again by the same batch is not reported. In a list only the removal of the very
+     * element the batch appended cancels its addition, an element removed and added again moves to the end and
+     * both changes are reported; a queue reports every change. The batch triggers get the net removed and added
+     * elements and the subscribers of {@link #changes()} get one batch event.
+     *
+     * <p>If {@code body} throws, the collection is not modified. If the backing collection throws while
+     * the batch is applied, the applied operations are undone, so the collection has its previous elements
+     * again (a journal records the undo as well), and the exception is rethrown.
+     * Elements removed from a list are put back at their positions.
+     *
+     * @param body operations of the transaction
+     * @return {@code true} if the collection was modified
+     */
+    public boolean batch(Consumer<? super Transaction<E>> body) {
+        final PendingBatch batch = new PendingBatch();
+        try {
+            body.accept(batch);
+        } finally {
+            batch.closed = true;
+        }
+        if (batch.changes.isEmpty()) return false;
+        final long start = startBacking();
+        final List<Change<E>> applied = apply(batch.changes);
+        endBacking(BATCH, start);
+        fireNet(applied);
+        return !applied.isEmpty();
+    }
+
+    /**
+     * Applies the changes of a batch, undoing the applied ones if the backing collection throws.
+     * @return the changes that modified the collection
+     */
+    List<Change<E>> apply(List<Change<E>> changes) {
+        final List<Change<E>> applied = new ArrayList<>(changes.size());
+        try {
+            for (Change<E> change : changes) {
+                if (apply(change)) applied.add(change);
+            }
+        } catch (RuntimeException e) {
+            undo(applied);
+            throw e;
+        }
+        return applied;
+    }
+
+    private boolean apply(Change<E> change) {
+        final E e = change.element;
+        if (change.add) {
+            if (!admits(e, null) || !backedCollection.add(e)) return false;
+            if (backedCollection instanceof List) change.index = backedCollection.size() - 1;
+            materializeAdded(e);
+            return true;
+        }
+        final E removed;
+        if (backedCollection instanceof List) {
+            final List<E> list = (List<E>) backedCollection;
+            change.index = list.indexOf(e);
+            if (change.index < 0) return false;
+            removed = list.remove(change.index);
+        } else {
+            removed = removeEqual(e);
+            if (removed == none()) return false;
+        }
+        change.removed = removed;
+        materializeRemoved(removed);
+        return true;
+    }
+
+    /**
+     * Removes a single element equal to {@code o} and returns the removed instance for the indexes and
+     * the aggregates. Equal elements of a set are interchangeable, so a set removes by hash and returns
+     * the argument. A list removes by the index of the element, other collections such as queues remove
+     * it through their iterator, in the same single pass their {@code remove} makes.
+     * @return removed instance, {@link #none()} if no element was removed
+     */
+    E removeEqual(E o) {
+        if (materialized == null || backedCollection instanceof Set) {
+            return backedCollection.remove(o) ? o : none();
+        }
+        if (backedCollection instanceof List) {
+            final List<E> list = (List<E>) backedCollection;
+            final int index = list.indexOf(o);
+            return index < 0 ? none() : list.remove(index);
+        }
+        final Iterator<E> iterator = backedCollection.iterator();
+        while (iterator.hasNext()) {
+            final E e = iterator.next();
+            if (Objects.equals(e, o)) {
+                iterator.remove();
+                return e;
+            }
+        }
+        return none();
+    }
+
+    /**
+     * Marker of an element that was not removed, compared by identity.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> E none() {
+        return (E) NONE;
+    }
+
+    /**
+     * Reverts the applied changes from the last one, an element added to a list is its last element at that point.
+     */
+    private void undo(List<Change<E>> applied) {
+        final List<E> list = backedCollection instanceof List ? (List<E>) backedCollection : null;
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            final Change<E> change = applied.get(i);
+            if (change.add) {
+                if (list != null) {
+                    list.remove(list.size() - 1);
+                } else {
+                    backedCollection.remove(change.element);
+                }
+                materializeRemoved(change.element);
+            } else {
+                if (list != null) {
+                    list.add(change.index, change.removed);
+                } else {
+                    backedCollection.add(change.removed);
+                }
+                materializeAdded(change.removed);
+            }
+        }
+    }
+
+    /**
+     * Runs the {@code after} triggers for the elements whose additions and removals do not cancel each other out.
+     */
+    private void fireNet(List<Change<E>> applied) {
+        final List<E> added = new ArrayList<>();
+        final List<E> removed = new ArrayList<>();
+        if (backedCollection instanceof List) {
+            netByPosition(applied, added, removed);
+        } else if (backedCollection instanceof Queue) {
+            for (Change<E> change : applied) {
+                (change.add ? added : removed).add(change.element);
+            }
+        } else {
+            netByCount(applied, added, removed);
+        }
+        final Triggers<E> t = triggers;
+        if (t.afterRemove != null) removed.forEach(e -> t.afterRemove.accept(e, true));
+        if (t.afterAdd != null) added.forEach(e -> t.afterAdd.accept(e, true));
+        if (!removed.isEmpty() && t.afterRemoveBatch != null) removedBatch(removed);
+        if (!added.isEmpty() && t.afterAddBatch != null) addedBatch(added);
+        if (!added.isEmpty() || !removed.isEmpty()) publish(added, removed);
+    }
+
+    /**
+     * A removal cancels an addition of the batch only if it removes the appended element at its current position,
+     * so the additions are shifted by the removals before them.
+     */
+    private static <E> void netByPosition(List<Change<E>> applied, List<E> added, List<E> removed) {
+        final List<Change<E>> additions = new ArrayList<>();
+        for (Change<E> change : applied) {
+            if (change.add) {
+                additions.add(change);
+                continue;
+            }
+            Change<E> cancelled = null;
+            for (Change<E> addition : additions) {
+                if (addition.index == change.index) {
+                    cancelled = addition;
+                } else if (addition.index > change.index) {
+                    addition.index--;
+                }
+            }
+            if (cancelled == null) {
+                removed.add(change.element);
+            } else {
+                additions.remove(cancelled);
+            }
+        }
+        additions.forEach(addition -> added.add(addition.element));
+    }
+
+    /**
+     * Equal elements are interchangeable in a collection without order, only their counts matter.
+     */
+    private static <E> void netByCount(List<Change<E>> applied, List<E> added, List<E> removed) {
+        final Map<E, Integer> counts = new LinkedHashMap<>();
+        for (Change<E> change : applied) {
+            counts.merge(change.element, change.add ? 1 : -1, Integer::sum);
+        }
+        for (Map.Entry<E, Integer> entry : counts.entrySet()) {
+            final List<E> target = entry.getValue() > 0 ? added : removed;
+            for (int i = Math.abs(entry.getValue()); i > 0; i--) {
+                target.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Starts measuring a call of the backing collection, free without metrics.
+     */
+    long startBacking() {
+        return triggers.metrics == null ? 0 : System.nanoTime();
+    }
+
+    void endBacking(Operation operation, long start) {
+        if (triggers.metrics != null) triggers.metrics.record(operation, Phase.BACKING, start);
+    }
+
+    /**
+     * Runs the {@code allow} and {@code before} triggers of a single element addition.
+     * @return {@code false} if the element must not be added
+     */
+    boolean beforeAdd(E e) {
+        final Triggers<E> t = triggers;
+        if (t.allowAdd != null && !t.allowAdd.test(e)) return false;
+        if (materialized != null && !materialized.admits(e, null)) return false;
+        if (t.beforeAdd != null) t.beforeAdd.accept(e);
+        return true;
+    }
+
+    void afterAdd(E e, boolean result) {
+        if (result && materialized != null) materialized.added(e);
+        fireAfterAdd(e, result);
+    }
+
+    /**
+     * Runs the {@code after} triggers of an addition whose indexes and aggregates are already updated.
+     */
+    void fireAfterAdd(E e, boolean result) {
+        final Triggers<E> t = triggers;
+        if (t.afterAdd != null) t.afterAdd.accept(e, result);
+        if (!result) return;
+        if (t.afterAddBatch != null) addedBatch(Collections.singletonList(e));
+        if (publishing()) t.changes.publish(ChangeEvent.addition(e));
+    }
+
+    /**
+     * Runs the {@code allow} and {@code before} triggers of a single element removal.
+     * @return {@code false} if the element must not be removed
+     */
+    boolean beforeRemove(E e) {
+        final Triggers<E> t = triggers;
+        if (t.allowRemove != null && !t.allowRemove.test(e)) return false;
+        if (t.beforeRemove != null) t.beforeRemove.accept(e);
+        return true;
+    }
+
+    void afterRemove(E e, boolean result) {
+        if (result && materialized != null) materialized.removed(e);
+        fireAfterRemove(e, result);
+    }
+
+    void fireAfterRemove(E e, boolean result) {
+        final Triggers<E> t = triggers;
+        if (t.afterRemove != null) t.afterRemove.accept(e, result);
+        if (!result) return;
+        if (t.afterRemoveBatch != null) removedBatch(Collections.singletonList(e));
+        if (publishing()) t.changes.publish(ChangeEvent.removal(e));
+    }
+
+    /**
+     * Bulk removals go element by element only if the elements are filtered or somebody needs them.
+     */
+    private boolean removesEach() {
+        return triggers.allowRemoveEach != null || triggers.collectRemoved || triggers.elementRemoveTriggers
+            || materialized != null;
+    }
+
+    /**
+     * Removes the matching elements allowed by {@code allowRemoveEach} and {@code allowRemove} in a single pass,
+     * runs {@code afterRemove} for each of them and delivers them to {@code afterRemoveBatch} as one batch.
+     * The indexes and the aggregates are updated once {@code removeIf} has returned: if a trigger throws,
+     * the backing collection may keep all the elements.
+     */
+    private boolean removeEach(Predicate<? super E> filter) {
+        if (backedCollection instanceof Queue && !(backedCollection instanceof List)) {
+            return removeEachOutsideLock(filter);
+        }
+        final Predicate<E> each = triggers.allowRemoveEach;
+        final List<E> removed = collectsRemoved() || materialized != null ? new ArrayList<>() : null;
+        final boolean result = backedCollection.removeIf(e -> {
+            if (!filter.test(e) || each != null && !each.test(e) || !beforeRemove(e)) return false;
+            if (removed != null) removed.add(e);
+            return true;
+        });
+        if (!result || removed == null) return result;
+        if (materialized != null) removed.forEach(materialized::removed);
+        removedEach(removed);
+        return true;
+    }
+
+    boolean collectsRemoved() {
+        return triggers.collectRemoved || triggers.afterRemove != null;
+    }
+
+    /**
+     * Runs {@code afterAdd} for every element added by a bulk addition, then delivers them as one batch.
+     */
+    void addedEach(List<E> elements) {
+        final Triggers<E> t = triggers;
+        if (t.afterAdd != null) elements.forEach(e -> t.afterAdd.accept(e, true));
+        if (t.collectAdded) added(elements);
+    }
+
+    /**
+     * Runs {@code afterRemove} for every element removed by a bulk removal, then delivers them as one batch.
+     */
+    void removedEach(List<E> elements) {
+        final Triggers<E> t = triggers;
+        if (t.afterRemove != null) elements.forEach(e -> t.afterRemove.accept(e, true));
+        if (t.collectRemoved) removed(elements);
+    }
+
+    /**
+     * Queues such as {@link java.util.concurrent.ArrayBlockingQueue} run the filter of {@code removeIf}
+     * under their internal lock, so the triggers choose the elements from a copy of the queue first. The chosen
+     * instances are then removed by identity, and only the ones still in the queue are reported.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean removeEachOutsideLock(Predicate<? super E> filter) {
+        final Predicate<E> each = triggers.allowRemoveEach;
+        final Set<Object> chosen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object o : backedCollection.toArray()) {
+            final E e = (E) o;
+            if (filter.test(e) && (each == null || each.test(e)) && beforeRemove(e)) chosen.add(e);
+        }
+        if (chosen.isEmpty()) return false;
+        final List<E> removed = new ArrayList<>();
+        final boolean result = backedCollection.removeIf(e -> chosen.contains(e) && removed.add(e));
+        if (materialized != null) removed.forEach(materialized::removed);
+        if (result) removedEach(removed);
+        return result;
+    }
+
+    /**
+     * Adds the elements allowed by {@code allowAddEach} and {@code allowAdd} in one pass over the input, running
+     * {@code beforeAdd} for each of them, and collects the ones the backing collection accepted.
+     * A list accepts every element, so without a filter it gets a single {@code addAll} call.
+     */
+    private List<E> addEach(Collection<? extends E> c, Predicate<E> each) {
+        final List<E> added = new ArrayList<>(c.size());
+        if (each == null && !triggers.elementAddTriggers && materialized == null && backedCollection instanceof List) {
+            if (backedCollection.addAll(c)) added.addAll(c);
+            return added;
+        }
+        for (E e : c) {
+            if (each != null && !each.test(e) || !beforeAdd(e) || !backedCollection.add(e)) continue;
+            added.add(e);
+            if (materialized != null) materialized.added(e);
+        }
+        return added;
+    }
+
+    /**
+     * Checks the unique indexes for an element added in place of {@code replaced}.
+     */
+    boolean admits(E e, E replaced) {
+        return materialized == null || materialized.admits(e, replaced);
+    }
+
+    /**
+     * Reports an element replaced in place to the indexes and the aggregates.
+     */
+    void materializeReplaced(E previous, E e) {
+        if (materialized == null) return;
+        materialized.removed(previous);
+        materialized.added(e);
+    }
+
+    /**
+     * Reports an element about to be added by a bulk operation to the indexes and the aggregates.
+     */
+    void materializeAdded(E e) {
+        if (materialized != null) materialized.added(e);
+    }
+
+    /**
+     * Reports an element removed by a bulk operation to the indexes and the aggregates.
+     */
+    void materializeRemoved(E e) {
+        if (materialized != null) materialized.removed(e);
+    }
+
+    boolean isMaterialized() {
+        return materialized != null;
+    }
+
+    boolean isJournaled() {
+        return journal != null;
+    }
+
+    /**
+     * The collection the triggers delegate to, wrapped by the journal if there is one.
+     */
+    @SuppressWarnings("unchecked")
+    <C extends Collection<E>> C backing() {
+        return (C) backedCollection;
+    }
+
+    /**
+     * Delivers the elements added by a bulk operation to the batch triggers and the subscribers.
+     */
+    void added(List<E> elements) {
+        if (triggers.afterAddBatch != null) addedBatch(elements);
+        publish(elements, List.of());
+    }
+
+    /**
+     * Delivers the elements removed by a bulk operation to the batch triggers and the subscribers.
+     */
+    void removed(List<E> elements) {
+        if (triggers.afterRemoveBatch != null) removedBatch(elements);
+        publish(List.of(), elements);
+    }
+
+    /**
+     * Delivers the elements removed by {@code clear()}. Clearing a view removes only a part of the collection,
+     * so the subscribers get a batch.
+     */
+    void cleared(List<E> elements) {
+        if (view) {
+            removed(elements);
+            return;
+        }
+        if (triggers.afterRemoveBatch != null) removedBatch(elements);
+        if (publishing()) triggers.changes.publish(ChangeEvent.cleared(elements));
+    }
+
+    /**
+     * Publishes a {@link ChangeEvent.Type#BATCH} event.
+     */
+    void publish(List<E> added, List<E> removed) {
+        if (publishing()) triggers.changes.publish(ChangeEvent.batch(added, removed));
+    }
+
+    /**
+     * Events are created only if somebody is subscribed to {@link #changes()}.
+     */
+    boolean publishing() {
+        return triggers.changes != null && triggers.changes.active();
+    }
+
+    void addedBatch(List<E> elements) {
+        if (coalescer != null) {
+            coalescer.added(elements);
+        } else {
+            triggers.afterAddBatch.accept(elements);
+        }
+    }
+
+    void removedBatch(List<E> elements) {
+        if (coalescer != null) {
+            coalescer.removed(elements);
+        } else {
+            triggers.afterRemoveBatch.accept(elements);
+        }
+    }
+
+    /**
+     * Finds the elements by the key of an index declared with
+     * {@link TriggerCollectionBuilder#index(String, Function, IndexOption...)}.
+     * A lazy index is built by the first call.
+     *
+     * @param index name of the index
+     * @param key   key to look for
+     * @return elements with the key, an empty list if there are none
+     * @throws IllegalArgumentException if there is no index with the name
+     */
+    public List<E> lookup(String index, Object key) {
+        return materialized().index(index).lookup(key);
+    }
+
+    /**
+     * Estimates the heap taken by an index, assuming compressed references. Keys and elements are shared
+     * with the collection and are not counted.
+     *
+     * @param index name of the index
+     * @return approximate size of the index in bytes, {@code 0} if a lazy index is not built yet
+     * @throws IllegalArgumentException if there is no index with the name
+     */
+    public long indexMemory(String index) {
+        return materialized().index(index).memory();
+    }
+
+    /**
+     * Reads an aggregate declared with {@link TriggerCollectionBuilder#aggregate(String, Aggregation)}.
+     * Takes constant time and never locks, so it can be called from any thread while the collection is modified.
+     *
+     * @param aggregate name of the aggregate
+     * @param <R>       type of the value of the {@link Aggregation}
+     * @return current value of the aggregate
+     * @throws IllegalArgumentException if there is no aggregate with the name
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R aggregate(String aggregate) {
+        return (R) materialized().aggregate(aggregate);
+    }
+
+    private Materialized<E> materialized() {
+        if (materialized == null) throw new IllegalArgumentException("The collection has no indexes or aggregates");
+        return materialized;
+    }
+
+    /**
+     * Returns the metrics collected since the collection was built, shared with its views.
+     *
+     * @return metrics
+     * @throws IllegalStateException if the collection is built without
+     *                               {@link TriggerCollectionBuilder#metrics(long, TimeUnit)}
+     */
+    public TriggerMetrics metrics() {
+        if (triggers.metrics == null) throw new IllegalStateException("The collection is built without metrics");
+        return triggers.metrics;
+    }
+
+    /**
+     * Returns the publisher of the modifications of the collection and its views. Every subscriber gets
+     * the events in the order they were published, on the executor of the publisher and only as many as it has
+     * requested; see {@link TriggerCollectionBuilder#publishChanges(Executor, int, OverflowPolicy)}.
+     * A subscriber gets only the modifications made after it has subscribed. {@link #close()} completes
+     * the subscribers.
+     *
+     * @return publisher of change events
+     * @throws IllegalStateException if the collection is built without
+     *                               {@link TriggerCollectionBuilder#publishChanges()}
+     */
+    public Flow.Publisher<ChangeEvent<E>> changes() {
+        if (triggers.changes == null) throw new IllegalStateException("The collection does not publish changes");
+        return triggers.changes;
+    }
+
+    /**
+     * Writes the elements to the snapshot of the journal and starts the journal over,
+     * so {@link Journal#replay(Path, JournalCodec, Collection)} no longer reads the earlier modifications.
+     *
+     * @throws IllegalStateException if the collection is built without
+     *                               {@link TriggerCollectionBuilder#journal(Path, JournalCodec, int)}
+     *                               or the journal is closed
+     * @throws UncheckedIOException  if the snapshot cannot be written
+     */
+    public void compactJournal() {
+        if (journal == null) throw new IllegalStateException("The collection is built without a journal");
+        journal.snapshot();
+    }
+
+    /**
+     * Delivers the coalesced batch and waits until the {@code after} triggers of the modifications
+     * made so far are executed, forces the journal to the disk. Does nothing unless the collection is built with
+     * {@link TriggerCollectionBuilder#async()}, {@link TriggerCollectionBuilder#coalesce(int, long, TimeUnit)}
+     * or {@link TriggerCollectionBuilder#journal(Path, JournalCodec, int)}.
+     */
+    public void flush() {
+        if (coalescer != null) coalescer.flush();
+        if (triggers.dispatcher != null) triggers.dispatcher.flush();
+        if (journal != null) journal.force();
+    }
+
+    /**
+     * Executes the pending {@code after} triggers and switches the collection back to synchronous triggers.
+     * Closes the journal, the collection cannot be modified afterwards if it has one.
+     * Completes the subscribers of {@link #changes()}, later modifications are not published.
+     * A collection created by a {@link TriggerTemplate} only delivers its coalesced batch: the asynchronous
+     * triggers and the change stream are shared with the other collections of the template and are closed
+     * by {@link TriggerTemplate#close()}.
+     * Does nothing unless the collection is built with {@link TriggerCollectionBuilder#async()},
+     * {@link TriggerCollectionBuilder#coalesce(int, long, TimeUnit)}
+     * or {@link TriggerCollectionBuilder#journal(Path, JournalCodec, int)}.
+     */
+    public void close() {
+        if (coalescer != null) coalescer.flush();
+        if (journal != null) journal.close();
+        if (!triggers.shared) triggers.closeShared();
     }
 
+    @Override
+    public int size() {
+        return backedCollection.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return backedCollection.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return backedCollection.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        return backedCollection.containsAll(c);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<E> iterator = backedCollection.iterator();
+        return triggers.removeTriggers ? new TriggerIterator(iterator) : iterator;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return backedCollection.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return backedCollection.toArray(a);
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return backedCollection.toArray(generator);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        backedCollection.forEach(action);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return backedCollection.spliterator();
+    }
+
+    @Override
+    public Stream<E> stream() {
+        return backedCollection.stream();
+    }
+
+    @Override
+    public Stream<E> parallelStream() {
+        return backedCollection.parallelStream();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || backedCollection.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return backedCollection.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return backedCollection.toString();
+    }
+
+    /**
+     * Fires the remove triggers for {@link Iterator#remove()}, an element that is not allowed is kept.
+     */
+    class TriggerIterator implements Iterator<E> {
+        private final Iterator<E> iterator;
+        private E last;
+
+        TriggerIterator(Iterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            return last = iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            final E e = last;
+            if (!beforeRemove(e)) return;
+            iterator.remove();
+            afterRemove(e, true);
+        }
+    }
+
+    /**
+     * Addition or removal buffered by a batch. The index of an element removed from a list is kept
+     * to put it back on rollback, the index of an element added to a list to net the changes.
+     */
+    static final class Change<E> {
+        final boolean add;
+        final E element;
+        int index;
+
+        /**
+         * Instance taken from the collection by a removal, equal to the element.
+         */
+        E removed;
+
+        Change(boolean add, E element) {
+            this.add = add;
+            this.element = element;
+        }
+    }
+
+    /**
+     * Checks the operations of a batch and collects the allowed ones.
+     */
+    private class PendingBatch implements Transaction<E> {
+        private final List<Change<E>> changes = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public boolean add(E e) {
+            if (closed) throw new IllegalStateException("The batch has returned");
+            if (!beforeAdd(e)) return false;
+            changes.add(new Change<>(true, e));
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            if (closed) throw new IllegalStateException("The batch has returned");
+            if (!beforeRemove((E) o)) return false;
+            changes.add(new Change<>(false, (E) o));
+            return true;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the triggers taken when the collection is built.
+     * Every built collection owns its own table, so it is never affected by
+     * other builders or by further changes of the builder it was created from.
+     * An event without triggers is {@code null}, see {@link Chains}.
+     */
+    static class Triggers<E> {
+        final Consumer<E> beforeAdd;
+        final BiConsumer<E, Boolean> afterAdd;
+        final Predicate<E> allowAdd;
+
+        final Consumer<Collection<? extends E>> beforeAddAll;
+        final BiConsumer<Collection<? extends E>, Boolean> afterAddAll;
+        final Predicate<Collection<? extends E>> allowAddAll;
+
+        final Consumer<E> beforeRemove;
+        final BiConsumer<E, Boolean> afterRemove;
+        final Predicate<E> allowRemove;
+
+        final Consumer<Collection<?>> beforeRemoveAll;
+        final BiConsumer<Collection<?>, Boolean> afterRemoveAll;
+        final Predicate<Collection<?>> allowRemoveAll;
+
+        final Consumer<List<E>> afterAddBatch;
+        final Predicate<E> allowAddEach;
+        final Consumer<List<E>> afterRemoveBatch;
+        final Predicate<E> allowRemoveEach;
+        final int coalesceSize;
+        final long coalesceDelayNanos;
+
+        final AsyncDispatcher dispatcher;
+        final TriggerMetrics metrics;
+        final ChangePublisher<E> changes;
+
+        final List<HashIndex.Definition<E>> indexes;
+        final Map<String, Aggregation<? super E, ?>> aggregates;
+
+        final Path journalPath;
+        final JournalCodec<E> journalCodec;
+        final int journalSnapshotEvery;
+
+        /**
+         * Bulk operations collect the elements they added or removed only if a batch trigger
+         * or the change publisher needs them.
+         */
+        final boolean collectAdded;
+        final boolean collectRemoved;
+
+        /**
+         * Iterators are wrapped only if there is something to fire or to index on {@link Iterator#remove()}.
+         */
+        final boolean removeTriggers;
+
+        /**
+         * The single element add and remove triggers run for every element of a bulk addition
+         * or removal as well.
+         */
+        final boolean elementAddTriggers;
+        final boolean elementRemoveTriggers;
+
+        /**
+         * Set by {@link TriggerTemplate#shared(Triggers)} before the first collection is created: the dispatcher
+         * and the publisher then belong to the template and are closed only by {@link TriggerTemplate#close()}.
+         */
+        boolean shared;
+
+        /**
+         * Closes the dispatcher and the publisher, which a template shares among its collections.
+         */
+        void closeShared() {
+            if (dispatcher != null) dispatcher.close();
+            if (changes != null) changes.close();
+        }
+
+        Triggers(TriggerCollectionBuilder<E, ?> builder) {
+            this.dispatcher = builder.asyncExecutor == null
+                ? null
+                : new AsyncDispatcher(builder.asyncExecutor, builder.asyncCapacity, builder.overflowPolicy);
+            this.metrics = builder.slowTriggerNanos < 0 ? null : new TriggerMetrics(builder.slowTriggerNanos);
+            this.changes = builder.changesExecutor == null
+                ? null
+                : new ChangePublisher<>(builder.changesExecutor, builder.changesCapacity, builder.changesPolicy);
+            this.beforeAdd = timed(ADD, BEFORE, Chains.consumers(builder.beforeAdd));
+            this.afterAdd = async(timed(ADD, AFTER, Chains.biConsumers(builder.afterAdd)));
+            this.allowAdd = timed(ADD, Chains.predicates(builder.allowAdd));
+            this.beforeAddAll = timed(ADD_ALL, BEFORE, Chains.consumers(unchecked(builder.beforeAddAll)));
+            this.afterAddAll = async(timed(ADD_ALL, AFTER, Chains.biConsumers(unchecked(builder.afterAddAll))));
+            this.allowAddAll = timed(ADD_ALL, Chains.predicates(unchecked(builder.allowAddAll)));
+            this.beforeRemove = timed(REMOVE, BEFORE, Chains.consumers(builder.beforeRemove));
+            this.afterRemove = async(timed(REMOVE, AFTER, Chains.biConsumers(builder.afterRemove)));
+            this.allowRemove = timed(REMOVE, Chains.predicates(builder.allowRemove));
+            this.beforeRemoveAll = timed(REMOVE_ALL, BEFORE, Chains.consumers(unchecked(builder.beforeRemoveAll)));
+            this.afterRemoveAll = async(
+                timed(REMOVE_ALL, AFTER, Chains.biConsumers(unchecked(builder.afterRemoveAll)))
+            );
+            this.allowRemoveAll = timed(REMOVE_ALL, Chains.predicates(unchecked(builder.allowRemoveAll)));
+            this.afterAddBatch = async(timed(ADD_ALL, AFTER, Chains.consumers(builder.afterAddBatch)));
+            this.allowAddEach = timed(ADD_ALL, Chains.predicates(builder.allowAddEach));
+            this.afterRemoveBatch = async(timed(REMOVE_ALL, AFTER, Chains.consumers(builder.afterRemoveBatch)));
+            this.allowRemoveEach = timed(REMOVE_ALL, Chains.predicates(builder.allowRemoveEach));
+            this.coalesceSize = builder.coalesceSize;
+            this.coalesceDelayNanos = builder.coalesceDelayNanos;
+            this.indexes = List.copyOf(builder.indexes);
+            this.aggregates = Collections.unmodifiableMap(new LinkedHashMap<>(builder.aggregates));
+            this.journalPath = builder.journalPath;
+            this.journalCodec = builder.journalCodec;
+            this.journalSnapshotEvery = builder.journalSnapshotEvery;
+            this.collectAdded = any(afterAddBatch, changes);
+            this.collectRemoved = any(afterRemoveBatch, changes);
+            this.removeTriggers = any(allowRemove, beforeRemove, afterRemove, afterRemoveBatch, changes)
+                || !indexes.isEmpty() || !aggregates.isEmpty();
+            this.elementAddTriggers = any(allowAdd, beforeAdd, afterAdd);
+            this.elementRemoveTriggers = any(allowRemove, beforeRemove, afterRemove);
+        }
+
+        /**
+         * Every collection coalesces its own elements, {@code null} if there is nothing to coalesce.
+         * Expired batches are delivered on the executor of the asynchronous triggers, or on the default one.
+         */
+        Coalescer<E> newCoalescer() {
+            if (coalesceSize == 0 || afterAddBatch == null && afterRemoveBatch == null) return null;
+            final Executor executor = dispatcher == null ? AsyncDispatcher.defaultExecutor() : dispatcher.executor();
+            return new Coalescer<>(afterAddBatch, afterRemoveBatch, coalesceSize, coalesceDelayNanos, executor);
+        }
+
+        Materialized<E> newMaterialized(Collection<E> elements) {
+            if (indexes.isEmpty() && aggregates.isEmpty()) return null;
+            return new Materialized<>(indexes, aggregates, elements);
+        }
+
+        /**
+         * Every collection writes its own journal, {@code null} if there is none.
+         */
+        Journal<E> newJournal(Collection<E> elements) {
+            if (journalPath == null) return null;
+            return new Journal<>(journalPath, journalCodec, journalSnapshotEvery, Journal.SEGMENT_SIZE, elements);
+        }
+
+        <T> Predicate<T> timed(Operation operation, Predicate<T> trigger) {
+            return metrics == null ? trigger : metrics.timed(operation, trigger);
+        }
+
+        <T> Consumer<T> timed(Operation operation, Phase phase, Consumer<T> trigger) {
+            return metrics == null ? trigger : metrics.timed(operation, phase, trigger);
+        }
+
+        <T, U> BiConsumer<T, U> timed(Operation operation, Phase phase, BiConsumer<T, U> trigger) {
+            return metrics == null ? trigger : metrics.timed(operation, phase, trigger);
+        }
+
+        <T> ObjIntConsumer<T> timed(Operation operation, Phase phase, ObjIntConsumer<T> trigger) {
+            return metrics == null ? trigger : metrics.timed(operation, phase, trigger);
+        }
+
+        <T> Consumer<T> async(Consumer<T> trigger) {
+            return dispatcher == null ? trigger : dispatcher.wrap(trigger);
+        }
+
+        <T, U> BiConsumer<T, U> async(BiConsumer<T, U> trigger) {
+            return dispatcher == null ? trigger : dispatcher.wrap(trigger);
+        }
+
+        <T> ObjIntConsumer<T> async(ObjIntConsumer<T> trigger) {
+            if (dispatcher == null || trigger == null) return trigger;
+            return (t, value) -> dispatcher.dispatch(() -> trigger.accept(t, value));
+        }
+
+        static boolean any(Object... triggers) {
+            for (Object trigger : triggers) {
+                if (trigger != null) return true;
+            }
+            return false;
+        }
+
+        /**
+         * Bulk triggers are registered with the collection type the caller works with,
+         * e.g. {@code Consumer<List<E>>}, and are called with the collection passed to the bulk method.
+         */
+        @SuppressWarnings("unchecked")
+        static <T> List<T> unchecked(List<?> triggers) {
+            return (List<T>) triggers;
+        }
+    }
+
+    /**
+     * Collects triggers for a collection. Every call adds one more trigger to the event:
+     * actions are executed in the order they were added and an element passes
+     * an {@code allow} check only if it matches all the predicates.
+     */
     public static class TriggerCollectionBuilder<E, T extends TriggerCollectionBuilder<E, T>> {
 
-        private Collection<E> backedCollection;
+        private final Collection<E> backedCollection;
+
+        private final List<Consumer<E>> beforeAdd = new ArrayList<>();
+        private final List<BiConsumer<E, Boolean>> afterAdd = new ArrayList<>();
+        private final List<Predicate<E>> allowAdd = new ArrayList<>();
+
+        private final List<Consumer<? extends Collection<E>>> beforeAddAll = new ArrayList<>();
+        private final List<BiConsumer<? extends Collection<E>, Boolean>> afterAddAll = new ArrayList<>();
+        private final List<Predicate<? extends Collection<E>>> allowAddAll = new ArrayList<>();
+
+        private final List<Consumer<E>> beforeRemove = new ArrayList<>();
+        private final List<BiConsumer<E, Boolean>> afterRemove = new ArrayList<>();
+        private final List<Predicate<E>> allowRemove = new ArrayList<>();
+
+        private final List<Consumer<? extends Collection<E>>> beforeRemoveAll = new ArrayList<>();
+        private final List<BiConsumer<? extends Collection<E>, Boolean>> afterRemoveAll = new ArrayList<>();
+        private final List<Predicate<? extends Collection<E>>> allowRemoveAll = new ArrayList<>();
 
-        private Consumer<E> beforeAdd = valueToAdd -> {};
-        private BiConsumer<E, Boolean> afterAdd = (valueToAdd, result) -> {};
-        private Predicate<E> allowAdd = valueToAdd -> true;
+        private final List<Consumer<List<E>>> afterAddBatch = new ArrayList<>();
+        private final List<Predicate<E>> allowAddEach = new ArrayList<>();
+        private final List<Consumer<List<E>>> afterRemoveBatch = new ArrayList<>();
+        private final List<Predicate<E>> allowRemoveEach = new ArrayList<>();
+        private int coalesceSize;
+        private long coalesceDelayNanos;
 
-        private Consumer<? extends Collection<E>> beforeAddAll = valueToAdd -> {};
-        private BiConsumer<? extends Collection<E>, Boolean> afterAddAll = (valueToAdd, result) -> {};
-        private Predicate<? extends Collection<E>> allowAddAll = valueToAdd -> true;
+        private final List<HashIndex.Definition<E>> indexes = new ArrayList<>();
+        private final Map<String, Aggregation<? super E, ?>> aggregates = new LinkedHashMap<>();
 
-        private Consumer<E> beforeRemove = valueToRemove -> {};
-        private BiConsumer<E, Boolean> afterRemove = (valueToRemove, result) -> {};
-        private Predicate<E> allowRemove = valueToRemove -> true;
+        private long slowTriggerNanos = -1;
 
-        private Consumer<? extends Collection<E>> beforeRemoveAll = valueToRemove -> {};
-        private BiConsumer<? extends Collection<E>, Boolean> afterRemoveAll = (valueToRemove, result) -> {};
-        private Predicate<? extends Collection<E>> allowRemoveAll = valueToRemove -> true;
+        private Executor asyncExecutor;
+        private int asyncCapacity;
+        private OverflowPolicy overflowPolicy;
+
+        private Path journalPath;
+        private JournalCodec<E> journalCodec;
+        private int journalSnapshotEvery;
+
+        private Executor changesExecutor;
+        private int changesCapacity;
+        private OverflowPolicy changesPolicy;
 
         TriggerCollectionBuilder(Collection<E> backedCollection) {
-            if (builder == null) {
-                builder = this;
-            }
             this.backedCollection = backedCollection;
         }
 
@@ -102,32 +1159,35 @@ public class TriggerCollection implements InvocationHandler {
         }
 
         /**
-         * Adds action that will be executed before {@link Collection#add(Object)} method is called.
+         * Adds action that will be executed before {@link Collection#add(Object)} method is called,
+         * and before every element is added by a bulk addition.
          * @param beforeAdd action with element to be added as a parameter
          * @return builder
          */
         public T beforeAdd(Consumer<E> beforeAdd) {
-            TriggerCollection.builder.beforeAdd = beforeAdd;
+            this.beforeAdd.add(beforeAdd);
             return self();
         }
 
         /**
-         * Adds action that will be executed after {@link Collection#add(Object)} method is called.
+         * Adds action that will be executed after {@link Collection#add(Object)} method is called,
+         * and after every element added by a bulk addition.
          * @param afterAdd action with element to be added and result as parameters
          * @return builder
          */
         public T afterAdd(BiConsumer<E, Boolean> afterAdd) {
-            this.afterAdd = afterAdd;
+            this.afterAdd.add(afterAdd);
             return self();
         }
 
         /**
-         * Element will be added to collection if it matches the predicate.
+         * Element will be added to collection by {@link Collection#add(Object)} or a bulk addition
+         * such as {@link Collection#addAll(Collection)} if it matches the predicate.
          * @param allowAdd predicate
          * @return builder
          */
         public T allowAdd(Predicate<E> allowAdd) {
-            this.allowAdd = allowAdd;
+            this.allowAdd.add(allowAdd);
             return self();
         }
 
@@ -137,7 +1197,7 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T beforeAddAll(Consumer<? extends Collection<E>> beforeAddAll) {
-            this.beforeAddAll = beforeAddAll;
+            this.beforeAddAll.add(beforeAddAll);
             return self();
         }
 
@@ -147,7 +1207,7 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T afterAddAll(BiConsumer<? extends Collection<E>, Boolean> afterAddAll) {
-            this.afterAddAll = afterAddAll;
+            this.afterAddAll.add(afterAddAll);
             return self();
         }
 
@@ -157,37 +1217,40 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T allowAddAll(Predicate<? extends Collection<E>> allowAddAll) {
-            this.allowAddAll = allowAddAll;
+            this.allowAddAll.add(allowAddAll);
             return self();
         }
 
         /**
-         * Adds action that will be executed before {@link Collection#remove(Object)} method is called.
+         * Adds action that will be executed before {@link Collection#remove(Object)} method is called,
+         * and before every element is removed by {@link Iterator#remove()} or a bulk removal.
          * @param beforeRemove action with element to be removed as a parameter
          * @return builder
          */
         public T beforeRemove(Consumer<E> beforeRemove) {
-            this.beforeRemove = beforeRemove;
+            this.beforeRemove.add(beforeRemove);
             return self();
         }
 
         /**
-         * Adds action that will be executed after {@link Collection#remove(Object)} method is called.
+         * Adds action that will be executed after {@link Collection#remove(Object)} method is called,
+         * and after every element removed by {@link Iterator#remove()} or a bulk removal.
          * @param afterRemove action with element to be removed and result as parameters
          * @return builder
          */
         public T afterRemove(BiConsumer<E, Boolean> afterRemove) {
-            this.afterRemove = afterRemove;
+            this.afterRemove.add(afterRemove);
             return self();
         }
 
         /**
-         * Element will be removed from collection if it matches the predicate.
+         * Element will be removed from collection by {@link Collection#remove(Object)}, {@link Iterator#remove()}
+         * or a bulk removal such as {@link Collection#clear()} if it matches the predicate.
          * @param allowRemove predicate
          * @return builder
          */
         public T allowRemove(Predicate<E> allowRemove) {
-            this.allowRemove = allowRemove;
+            this.allowRemove.add(allowRemove);
             return self();
         }
 
@@ -197,7 +1260,7 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T beforeRemoveAll(Consumer<? extends Collection<E>> beforeRemoveAll) {
-            this.beforeRemoveAll = beforeRemoveAll;
+            this.beforeRemoveAll.add(beforeRemoveAll);
             return self();
         }
 
@@ -207,7 +1270,7 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T afterRemoveAll(BiConsumer<? extends Collection<E>, Boolean> afterRemoveAll) {
-            this.afterRemoveAll = afterRemoveAll;
+            this.afterRemoveAll.add(afterRemoveAll);
             return self();
         }
 
@@ -217,20 +1280,253 @@ public class TriggerCollection implements InvocationHandler {
          * @return builder
          */
         public T allowRemoveAll(Predicate<? extends Collection<E>> allowRemoveAll) {
-            this.allowRemoveAll = allowRemoveAll;
+            this.allowRemoveAll.add(allowRemoveAll);
             return self();
         }
 
         /**
-         * Creates a proxy instance.
-         * @return proxy instance for the {@link Collection}
+         * Adds action that will be executed with the elements that were actually added: once per
+         * {@link Collection#addAll(Collection)} call and with a single element per {@link Collection#add(Object)} call,
+         * unless the elements are merged with {@link #coalesce(int, long, TimeUnit)}.
+         * Nothing is delivered if no element was added.
+         * @param afterAddBatch action with the added elements as a parameter
+         * @return builder
          */
-        @SuppressWarnings("unchecked")
-        public Collection<E> build() {
-            return (Collection<E>) Proxy.newProxyInstance(
-                    backedCollection.getClass().getClassLoader(),
-                    backedCollection.getClass().getInterfaces(),
-                    new TriggerCollection()
+        public T afterAddBatch(Consumer<List<E>> afterAddBatch) {
+            this.afterAddBatch.add(afterAddBatch);
+            return self();
+        }
+
+        /**
+         * Element will be added by {@link Collection#addAll(Collection)} if it matches the predicate,
+         * the rest of the elements are skipped. The input is checked and added in a single pass.
+         * @param allowAddEach predicate
+         * @return builder
+         */
+        public T allowAddEach(Predicate<E> allowAddEach) {
+            this.allowAddEach.add(allowAddEach);
+            return self();
+        }
+
+        /**
+         * Adds action that will be executed with the elements that were actually removed: once per bulk removal
+         * ({@link Collection#removeAll(Collection)}, {@link Collection#removeIf(Predicate)},
+         * {@link Collection#retainAll(Collection)}, {@link Collection#clear()}) and with a single element per
+         * {@link Collection#remove(Object)} or {@link Iterator#remove()} call, unless the elements are merged with
+         * {@link #coalesce(int, long, TimeUnit)}. Nothing is delivered if no element was removed.
+         * @param afterRemoveBatch action with the removed elements as a parameter
+         * @return builder
+         */
+        public T afterRemoveBatch(Consumer<List<E>> afterRemoveBatch) {
+            this.afterRemoveBatch.add(afterRemoveBatch);
+            return self();
+        }
+
+        /**
+         * Element will be removed by a bulk removal ({@link Collection#removeAll(Collection)},
+         * {@link Collection#removeIf(Predicate)}, {@link Collection#retainAll(Collection)}, {@link Collection#clear()})
+         * if it matches the predicate, the rest of the elements are kept. The collection is filtered in a single pass.
+         * @param allowRemoveEach predicate
+         * @return builder
+         */
+        public T allowRemoveEach(Predicate<E> allowRemoveEach) {
+            this.allowRemoveEach.add(allowRemoveEach);
+            return self();
+        }
+
+        /**
+         * Merges the elements delivered to {@link #afterAddBatch(Consumer)} and {@link #afterRemoveBatch(Consumer)}
+         * into micro-batches. A batch is delivered when it has {@code maxBatchSize} elements, when {@code maxDelay}
+         * has passed since its first element (on a timer thread), on {@link TriggerCollection#flush()},
+         * or when elements of the other kind arrive, so additions and removals keep their order.
+         * @param maxBatchSize maximum number of elements in a batch
+         * @param maxDelay     maximum time an element waits for delivery, {@code 0} to wait for a full batch
+         * @param unit         unit of {@code maxDelay}
+         * @return builder
+         */
+        public T coalesce(int maxBatchSize, long maxDelay, TimeUnit unit) {
+            if (maxBatchSize < 1) throw new IllegalArgumentException("Batch size must be positive");
+            if (maxDelay < 0) throw new IllegalArgumentException("Delay must not be negative");
+            this.coalesceSize = maxBatchSize;
+            this.coalesceDelayNanos = unit.toNanos(maxDelay);
+            return self();
+        }
+
+        /**
+         * Adds a hash index by the key of the elements, kept up to date by every modification of the collection.
+         * Use {@link TriggerCollection#lookup(String, Object)} to find the elements by a key.
+         * The key of an element must not change while the element is in the collection.
+         * @param name         name of the index
+         * @param keyExtractor function that returns the key of an element
+         * @param options      {@link IndexOption#UNIQUE} to allow one element per key,
+         *                     {@link IndexOption#LAZY} to build the index on the first query
+         * @param <K>          type of the key
+         * @return builder
+         */
+        public <K> T index(String name, Function<? super E, K> keyExtractor, IndexOption... options) {
+            for (HashIndex.Definition<E> index : indexes) {
+                if (index.name.equals(name)) throw new IllegalArgumentException("Duplicate index " + name);
+            }
+            final List<IndexOption> optionList = Arrays.asList(options);
+            this.indexes.add(new HashIndex.Definition<>(
+                name,
+                Objects.requireNonNull(keyExtractor),
+                optionList.contains(IndexOption.UNIQUE),
+                optionList.contains(IndexOption.LAZY)
+            ));
+            return self();
+        }
+
+        /**
+         * Adds an aggregate kept up to date by every modification of the collection.
+         * Use {@link TriggerCollection#aggregate(String)} to read it.
+         * @param name        name of the aggregate
+         * @param aggregation what to aggregate, see the factory methods of {@link Aggregation}
+         * @return builder
+         */
+        public T aggregate(String name, Aggregation<? super E, ?> aggregation) {
+            if (aggregates.putIfAbsent(name, Objects.requireNonNull(aggregation)) != null) {
+                throw new IllegalArgumentException("Duplicate aggregate " + name);
+            }
+            return self();
+        }
+
+        /**
+         * Collects metrics and reports triggers slower than 10 milliseconds to Flight Recorder.
+         * See {@link #metrics(long, TimeUnit)}.
+         * @return builder
+         */
+        public T metrics() {
+            return metrics(10, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Collects invocation and rejection counts and latency histograms of every phase of the operations,
+         * read them with {@link TriggerCollection#metrics()}. A trigger that runs for {@code slowTrigger}
+         * or longer is reported as a {@code dev.rus4j.collect.SlowTrigger} Flight Recorder event.
+         * @param slowTrigger minimum duration of a trigger reported to Flight Recorder
+         * @param unit        unit of {@code slowTrigger}
+         * @return builder
+         */
+        public T metrics(long slowTrigger, TimeUnit unit) {
+            if (slowTrigger < 0) throw new IllegalArgumentException("Threshold must not be negative");
+            this.slowTriggerNanos = unit.toNanos(slowTrigger);
+            return self();
+        }
+
+        /**
+         * Executes the {@code after} triggers asynchronously on virtual threads, or on a shared pool
+         * of daemon threads if the runtime has no virtual threads. Up to 1024 events are queued,
+         * then the mutating thread waits. See {@link #async(Executor, int, OverflowPolicy)}.
+         * @return builder
+         */
+        public T async() {
+            return async(AsyncDispatcher.defaultExecutor(), AsyncDispatcher.DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+        }
+
+        /**
+         * Executes the {@code after} triggers asynchronously on the executor. The triggers of a collection
+         * are executed one at a time in the order the collection was modified; {@code before} and
+         * {@code allow} triggers stay synchronous. Bulk triggers get the collection passed to the bulk method,
+         * so it should not be modified afterwards. Use {@link TriggerCollection#flush()} to wait for
+         * the pending triggers and {@link TriggerCollection#close()} to stop asynchronous execution.
+         * @param executor       executor to run the triggers on
+         * @param queueCapacity  maximum number of pending events, rounded up to a power of two
+         * @param overflowPolicy what to do with an event when the queue is full
+         * @return builder
+         */
+        public T async(Executor executor, int queueCapacity, OverflowPolicy overflowPolicy) {
+            if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive");
+            this.asyncExecutor = Objects.requireNonNull(executor);
+            this.asyncCapacity = queueCapacity;
+            this.overflowPolicy = Objects.requireNonNull(overflowPolicy);
+            return self();
+        }
+
+        /**
+         * Records the modifications in a journal that is compacted only by {@link TriggerCollection#compactJournal()}.
+         * See {@link #journal(Path, JournalCodec, int)}.
+         * @param path  journal file
+         * @param codec binary format of the elements
+         * @return builder
+         */
+        public T journal(Path path, JournalCodec<E> codec) {
+            return journal(path, codec, 0);
+        }
+
+        /**
+         * Records every modification of the backing collection in an append-only journal file,
+         * see {@link Journal}. A modification rejected by the triggers is not recorded.
+         * Use {@link Journal#replay(Path, JournalCodec, Collection)} to rebuild the collection after a restart
+         * and build it with the same journal to continue it. A new journal starts with a snapshot
+         * of the original collection. Queues do not support journals.
+         * @param path          journal file
+         * @param codec         binary format of the elements
+         * @param snapshotEvery number of modifications after which the journal is compacted,
+         *                      see {@link TriggerCollection#compactJournal()}, {@code 0} to never compact it
+         * @return builder
+         */
+        public T journal(Path path, JournalCodec<E> codec, int snapshotEvery) {
+            if (snapshotEvery < 0) throw new IllegalArgumentException("Snapshot interval must not be negative");
+            this.journalPath = Objects.requireNonNull(path);
+            this.journalCodec = Objects.requireNonNull(codec);
+            this.journalSnapshotEvery = snapshotEvery;
+            return self();
+        }
+
+        /**
+         * Publishes the modifications with {@link TriggerCollection#changes()} on virtual threads, or on a shared
+         * pool of daemon threads if the runtime has no virtual threads. Every subscriber buffers up to
+         * {@link Flow#defaultBufferSize()} events, then the mutating thread waits.
+         * See {@link #publishChanges(Executor, int, OverflowPolicy)}.
+         * @return builder
+         */
+        public T publishChanges() {
+            return publishChanges(AsyncDispatcher.defaultExecutor(), Flow.defaultBufferSize(), OverflowPolicy.BLOCK);
+        }
+
+        /**
+         * Publishes every modification that changed the collection as a {@link ChangeEvent} to the subscribers
+         * of {@link TriggerCollection#changes()}. Every subscriber has its own buffer and gets the events
+         * on the executor as it requests them, so the triggers and the mutating thread do not wait for it
+         * until its buffer is full. Events are created only while there are subscribers.
+         * @param executor       executor to deliver the events on
+         * @param bufferCapacity maximum number of events buffered for a subscriber, rounded up to a power of two
+         * @param overflowPolicy {@link OverflowPolicy#BLOCK} to make the mutating thread wait for space
+         *                       in a full buffer, {@link OverflowPolicy#DROP} to discard the event for that subscriber
+         * @return builder
+         */
+        public T publishChanges(Executor executor, int bufferCapacity, OverflowPolicy overflowPolicy) {
+            if (bufferCapacity < 1) throw new IllegalArgumentException("Buffer capacity must be positive");
+            if (overflowPolicy == OverflowPolicy.CALLER_RUNS) {
+                throw new IllegalArgumentException("Change events do not support CALLER_RUNS");
+            }
+            this.changesExecutor = Objects.requireNonNull(executor);
+            this.changesCapacity = bufferCapacity;
+            this.changesPolicy = Objects.requireNonNull(overflowPolicy);
+            return self();
+        }
+
+        /**
+         * Creates a collection that delegates to the original one and fires the triggers.
+         * @return trigger collection backed by the original {@link Collection}
+         */
+        public TriggerCollection<E> build() {
+            return new TriggerCollection<>(backedCollection, new Triggers<>(this));
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps any number of collections,
+         * see {@link TriggerTemplate}. The collection the builder was created from is not used.
+         * @return template creating the same kind of trigger collection as {@link #build()}
+         * @throws IllegalStateException if a journal is declared
+         */
+        public TriggerTemplate<E, ? extends TriggerCollection<E>> compile() {
+            final Triggers<E> triggers = TriggerTemplate.shared(new Triggers<>(this));
+            return new TriggerTemplate<>(
+                Collection.class,
+                triggers,
+                backing -> new TriggerCollection<>(backing, triggers)
             );
         }
     }
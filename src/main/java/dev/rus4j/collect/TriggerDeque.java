@@ -0,0 +1,221 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE;
+
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Deque that fires the triggers of {@link TriggerQueue} at both ends: the {@code add}, {@code offer}
+ * and {@link #push(Object)} methods fire the add triggers, the {@code poll}, {@code remove} and {@link #pop()}
+ * methods fire the {@code after} remove triggers with the element they return.
+ *
+ * @param <E> type of the elements
+ */
+public class TriggerDeque<E> extends TriggerQueue<E> implements Deque<E> {
+    private final Deque<E> backedDeque;
+    private final Triggers<E> triggers;
+
+    private TriggerDeque(Deque<E> backedDeque, Triggers<E> triggers) {
+        super(backedDeque, triggers);
+        this.backedDeque = backedDeque;
+        this.triggers = triggers;
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to deque.
+     * Use {@link TriggerDequeBuilder#build()} to build trigger deque.
+     *
+     * @param backedDeque original deque
+     * @param <E>         type of original deque
+     * @return            {@link TriggerDequeBuilder} to add triggers
+     */
+    public static <E> TriggerDequeBuilder<E> from(Deque<E> backedDeque) {
+        return new TriggerDequeBuilder<>(backedDeque);
+    }
+
+    @Override
+    public void addFirst(E e) {
+        if (!beforeAdd(e)) return;
+        final long start = startBacking();
+        backedDeque.addFirst(e);
+        endBacking(ADD, start);
+        afterAdd(e, true);
+    }
+
+    @Override
+    public void addLast(E e) {
+        if (!beforeAdd(e)) return;
+        final long start = startBacking();
+        backedDeque.addLast(e);
+        endBacking(ADD, start);
+        afterAdd(e, true);
+    }
+
+    @Override
+    public boolean offerFirst(E e) {
+        if (!beforeAdd(e)) return false;
+        final long start = startBacking();
+        final boolean result = backedDeque.offerFirst(e);
+        endBacking(ADD, start);
+        afterAdd(e, result);
+        return result;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+        if (!beforeAdd(e)) return false;
+        final long start = startBacking();
+        final boolean result = backedDeque.offerLast(e);
+        endBacking(ADD, start);
+        afterAdd(e, result);
+        return result;
+    }
+
+    @Override
+    public E removeFirst() {
+        final long start = startBacking();
+        final E e = backedDeque.removeFirst();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E removeLast() {
+        final long start = startBacking();
+        final E e = backedDeque.removeLast();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E pollFirst() {
+        final long start = startBacking();
+        final E e = backedDeque.pollFirst();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E pollLast() {
+        final long start = startBacking();
+        final E e = backedDeque.pollLast();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E getFirst() {
+        return backedDeque.getFirst();
+    }
+
+    @Override
+    public E getLast() {
+        return backedDeque.getLast();
+    }
+
+    @Override
+    public E peekFirst() {
+        return backedDeque.peekFirst();
+    }
+
+    @Override
+    public E peekLast() {
+        return backedDeque.peekLast();
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return remove(o);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeLastOccurrence(Object o) {
+        if (!beforeRemove((E) o)) return false;
+        final long start = startBacking();
+        final E removed = isMaterialized() ? removeLastEqual(o) : backedDeque.removeLastOccurrence(o) ? (E) o : none();
+        endBacking(REMOVE, start);
+        final boolean result = removed != none();
+        if (result) materializeRemoved(removed);
+        fireAfterRemove((E) o, result);
+        return result;
+    }
+
+    /**
+     * Removes the last element equal to {@code o} in the single pass of {@code removeLastOccurrence} and returns
+     * the removed instance, the indexes and the aggregates must see it rather than the argument.
+     */
+    private E removeLastEqual(Object o) {
+        final Iterator<E> iterator = backedDeque.descendingIterator();
+        while (iterator.hasNext()) {
+            final E e = iterator.next();
+            if (Objects.equals(e, o)) {
+                iterator.remove();
+                return e;
+            }
+        }
+        return none();
+    }
+
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        final Iterator<E> iterator = backedDeque.descendingIterator();
+        return triggers.removeTriggers ? new TriggerIterator(iterator) : iterator;
+    }
+
+    /**
+     * Collects triggers for a deque, the same as {@link TriggerCollectionBuilder}.
+     */
+    public static class TriggerDequeBuilder<E> extends TriggerCollectionBuilder<E, TriggerDequeBuilder<E>> {
+
+        private final Deque<E> backedDeque;
+
+        private TriggerDequeBuilder(Deque<E> backedDeque) {
+            super(backedDeque);
+            this.backedDeque = backedDeque;
+        }
+
+        @Override
+        protected TriggerDequeBuilder<E> self() {
+            return this;
+        }
+
+        /**
+         * Creates a deque with the triggers.
+         * @return trigger deque
+         */
+        @Override
+        public TriggerDeque<E> build() {
+            return new TriggerDeque<>(backedDeque, new Triggers<>(this));
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps deques.
+         * @return template creating trigger deques
+         * @throws IllegalStateException if a journal is declared
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public TriggerTemplate<E, TriggerDeque<E>> compile() {
+            final Triggers<E> triggers = TriggerTemplate.shared(new Triggers<>(this));
+            return new TriggerTemplate<>(
+                Deque.class,
+                triggers,
+                backing -> new TriggerDeque<>((Deque<E>) backing, triggers)
+            );
+        }
+    }
+}
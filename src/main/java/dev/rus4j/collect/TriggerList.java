@@ -1,16 +1,51 @@
 package dev.rus4j.collect;
 
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD;
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD_ALL;
+import static dev.rus4j.collect.TriggerMetrics.Operation.GET;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE;
+import static dev.rus4j.collect.TriggerMetrics.Operation.SET;
+import static dev.rus4j.collect.TriggerMetrics.Phase.AFTER;
+import static dev.rus4j.collect.TriggerMetrics.Phase.BEFORE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+public class TriggerList<E> extends TriggerCollection<E> implements List<E> {
+    private final List<E> backedList;
+    private final ListTriggers<E> triggers;
+    private final ReadSampler sampler;
+    private final VersionedList<E> versions;
+    private final OffHeapList<E> offHeap;
 
-public class TriggerList extends TriggerCollection {
-    private static TriggerListBuilder builder;
+    private TriggerList(List<E> backedList, ListTriggers<E> triggers) {
+        super(triggers.replicated(backedList), triggers);
+        this.backedList = backing();
+        this.triggers = triggers;
+        this.sampler = triggers.newReadSampler();
+        this.versions = backedList instanceof VersionedList ? (VersionedList<E>) backedList : null;
+        this.offHeap = backedList instanceof OffHeapList ? (OffHeapList<E>) backedList : null;
+    }
 
-    private TriggerList() {
-        super();
+    private TriggerList(List<E> backedList, TriggerList<E> parent) {
+        super(backedList, parent);
+        this.backedList = backedList;
+        this.triggers = parent.triggers;
+        this.sampler = parent.sampler;
+        this.versions = null;
+        this.offHeap = null;
     }
 
     /**
@@ -21,30 +56,399 @@ public class TriggerList extends TriggerCollection {
      * @param <T>        type of original list
      * @return           {@link TriggerListBuilder} to add triggers
      */
-    @SuppressWarnings("unchecked")
     public static <T> TriggerListBuilder<T> from(List<T> backedList) {
-        builder = new TriggerListBuilder<>(backedList);
-        return (TriggerListBuilder<T>)builder;
+        return new TriggerListBuilder<>(backedList);
+    }
+
+    /**
+     * Create trigger builder for a new empty list that supports {@link #snapshot()}. The list keeps its elements
+     * in a persistent vector: a modification copies a few arrays of 32 elements instead of the whole list,
+     * additions and removals in the middle copy the elements after the index.
+     *
+     * @param <T> type of the elements
+     * @return    {@link TriggerListBuilder} to add triggers
+     */
+    public static <T> TriggerListBuilder<T> versioned() {
+        return new TriggerListBuilder<>(new VersionedList<>());
+    }
+
+    /**
+     * Returns the current version of the list in O(1). The snapshot is immutable and is not affected
+     * by further modifications, so it can be iterated without locks while the list is modified.
+     * Modifications of the list must still not run concurrently.
+     *
+     * @return immutable snapshot of the list
+     * @throws IllegalStateException if the list is not created with {@link #versioned()} or is a view
+     */
+    public List<E> snapshot() {
+        if (versions == null) throw new IllegalStateException("The list is not versioned");
+        return versions.snapshot();
+    }
+
+    @Override
+    public E get(int index) {
+        return get(index, null);
+    }
+
+    /**
+     * Reads the element into an existing instance and fires the get triggers, so a list created from an
+     * {@link OffHeapList} is read without allocating, see {@link OffHeapList#get(int, Object)}.
+     * Other lists and views return the element of {@link #get(int)}.
+     *
+     * @param index index of the element
+     * @param reuse instance to read into, {@code null} to read a new one
+     * @return the element, {@code reuse} if the list and its codec support reusing
+     */
+    public E get(int index, E reuse) {
+        final ListTriggers<E> t = triggers;
+        final ReadSampler s = sampler;
+        if (s != null && !s.sample()) return read(index, reuse);
+        if (t.beforeGet != null) t.beforeGet.accept(index);
+        final long start = startBacking();
+        final E result = read(index, reuse);
+        endBacking(GET, start);
+        if (t.afterGet != null) t.afterGet.accept(index, result);
+        return result;
+    }
+
+    private E read(int index, E reuse) {
+        return reuse == null || offHeap == null ? backedList.get(index) : offHeap.get(index, reuse);
+    }
+
+    /**
+     * Also reports the {@code get} calls counted since the last report,
+     * if the list is built with {@link TriggerListBuilder#countGets(LongConsumer, long, TimeUnit)}.
+     */
+    @Override
+    public void flush() {
+        super.flush();
+        if (sampler != null) sampler.flush();
+    }
+
+    /**
+     * Also reports the remaining {@code get} calls and stops the periodic reports,
+     * if the list is built with {@link TriggerListBuilder#countGets(LongConsumer, long, TimeUnit)}.
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (sampler != null) sampler.close();
+    }
+
+    /**
+     * Replaces the element and fires the set triggers. The batch triggers get the replaced element
+     * as a removed one and the new element as an added one.
+     *
+     * @return the previous element, or the current one if the new element is not allowed
+     */
+    @Override
+    public E set(int index, E element) {
+        final E current = isMaterialized() ? backedList.get(index) : null;
+        if (!beforeSet(index, current, element)) return backedList.get(index);
+        final long start = startBacking();
+        final E previous = backedList.set(index, element);
+        endBacking(SET, start);
+        afterSet(index, previous, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (!beforeAdd(element)) return;
+        final long start = startBacking();
+        backedList.add(index, element);
+        endBacking(ADD, start);
+        afterAdd(element, true);
+    }
+
+    /**
+     * Removes the element and fires the remove triggers.
+     *
+     * @return the removed element, or {@code null} if the element is not allowed to be removed
+     */
+    @Override
+    public E remove(int index) {
+        final E e = triggers.removeTriggers ? backedList.get(index) : null;
+        if (triggers.removeTriggers && !beforeRemove(e)) return null;
+        final long start = startBacking();
+        final E removed = backedList.remove(index);
+        endBacking(REMOVE, start);
+        if (triggers.removeTriggers) afterRemove(removed, true);
+        return removed;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        final ListTriggers<E> t = triggers;
+        if (t.allowAddAll != null && !t.allowAddAll.test(c)) return false;
+        if (t.beforeAddAll != null) t.beforeAddAll.accept(c);
+        final long start = startBacking();
+        final boolean result;
+        if (t.allowAddEach == null && !t.elementAddTriggers && !isMaterialized()) {
+            result = backedList.addAll(index, c);
+            if (result && t.collectAdded) added(new ArrayList<>(c));
+        } else {
+            final Predicate<E> each = t.allowAddEach;
+            final List<E> allowed = new ArrayList<>(c.size());
+            for (E e : c) {
+                if (each != null && !each.test(e) || !beforeAdd(e)) continue;
+                allowed.add(e);
+                materializeAdded(e);
+            }
+            result = backedList.addAll(index, allowed);
+            if (result) addedEach(allowed);
+        }
+        endBacking(ADD_ALL, start);
+        if (t.afterAddAll != null) t.afterAddAll.accept(c, result);
+        return result;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return backedList.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return backedList.lastIndexOf(o);
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        final ListIterator<E> iterator = backedList.listIterator(index);
+        return triggers.mutationTriggers ? new TriggerListIterator(iterator) : iterator;
+    }
+
+    /**
+     * Returns a view with the same triggers, so modifications made through the view fire them as well.
+     */
+    @Override
+    public TriggerList<E> subList(int fromIndex, int toIndex) {
+        return new TriggerList<>(backedList.subList(fromIndex, toIndex), this);
     }
 
+    /**
+     * Replaces the elements in a single pass. A replacement is made only if it is allowed by
+     * {@link TriggerListBuilder#allowSet(Predicate)}. The per-element set actions are not executed,
+     * instead the batch triggers get all the replaced elements and all the new elements at once.
+     */
     @Override
-    @SuppressWarnings("unchecked")
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        if (method.getName().equals("get")) {
-            builder.beforeGet.accept(args[0]);
-            Object result = method.invoke(builder.backedList, args);
-            builder.afterGet.accept(args[0], result);
-            return result;
+    public void replaceAll(UnaryOperator<E> operator) {
+        final ListTriggers<E> t = triggers;
+        if (t.allowSet == null && !t.collectAdded && !t.collectRemoved && !isMaterialized()) {
+            backedList.replaceAll(operator);
+            return;
+        }
+        final Predicate<E> allow = t.allowSet;
+        final List<E> previous = new ArrayList<>();
+        final List<E> replaced = new ArrayList<>();
+        backedList.replaceAll(e -> {
+            final E element = operator.apply(e);
+            if (allow != null && !allow.test(element) || !admits(element, e)) return e;
+            materializeReplaced(e, element);
+            previous.add(e);
+            replaced.add(element);
+            return element;
+        });
+        if (previous.isEmpty()) return;
+        replaced(previous, replaced);
+        publish(replaced, previous);
+    }
+
+    /**
+     * Replaces all the elements in one operation, the way {@link ReplicationFollower} applies a snapshot.
+     * A versioned list without a journal or a primary publishes the new elements as a single version.
+     * The elements are not checked by the {@code allow} triggers and the per-element triggers are not executed,
+     * the batch triggers get all the previous and all the new elements at once and the subscribers one batch event.
+     */
+    void replaceWith(List<E> elements) {
+        final ListTriggers<E> t = triggers;
+        final List<E> previous = t.collectRemoved || isMaterialized() ? new ArrayList<>(backedList) : List.of();
+        final long start = startBacking();
+        if (backedList == versions) {
+            versions.replaceWith(elements);
+        } else {
+            backedList.clear();
+            backedList.addAll(elements);
+        }
+        endBacking(ADD_ALL, start);
+        previous.forEach(this::materializeRemoved);
+        elements.forEach(this::materializeAdded);
+        if (!previous.isEmpty() && t.afterRemoveBatch != null) removedBatch(previous);
+        if (!elements.isEmpty() && t.afterAddBatch != null) addedBatch(elements);
+        if (!previous.isEmpty() || !elements.isEmpty()) publish(elements, previous);
+    }
+
+    @Override
+    public void sort(Comparator<? super E> c) {
+        backedList.sort(c);
+        if (triggers.afterSort != null) triggers.afterSort.accept(c);
+    }
+
+    private boolean beforeSet(int index, E current, E element) {
+        final ListTriggers<E> t = triggers;
+        if (t.allowSet != null && !t.allowSet.test(element)) return false;
+        if (!admits(element, current)) return false;
+        if (t.beforeSet != null) t.beforeSet.accept(element, index);
+        return true;
+    }
+
+    private void afterSet(int index, E previous, E element) {
+        final ListTriggers<E> t = triggers;
+        materializeReplaced(previous, element);
+        if (t.afterSet != null) t.afterSet.accept(element, index);
+        if (t.afterAddBatch != null || t.afterRemoveBatch != null) {
+            replaced(Collections.singletonList(previous), Collections.singletonList(element));
+        }
+        if (publishing()) t.changes.publish(ChangeEvent.set(index, previous, element));
+    }
+
+    /**
+     * Delivers replaced elements to the batch triggers, the subscribers get them as one event.
+     */
+    private void replaced(List<E> previous, List<E> elements) {
+        if (triggers.afterRemoveBatch != null) removedBatch(previous);
+        if (triggers.afterAddBatch != null) addedBatch(elements);
+    }
+
+    /**
+     * Fires the triggers for modifications made through {@link ListIterator}.
+     * A modification that is not allowed is skipped.
+     */
+    private class TriggerListIterator implements ListIterator<E> {
+        private final ListIterator<E> iterator;
+        private E last;
+        private int lastIndex;
+
+        TriggerListIterator(ListIterator<E> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+            lastIndex = iterator.nextIndex();
+            return last = iterator.next();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return iterator.hasPrevious();
+        }
+
+        @Override
+        public E previous() {
+            lastIndex = iterator.previousIndex();
+            return last = iterator.previous();
+        }
+
+        @Override
+        public int nextIndex() {
+            return iterator.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return iterator.previousIndex();
+        }
+
+        @Override
+        public void remove() {
+            final E e = last;
+            if (!beforeRemove(e)) return;
+            iterator.remove();
+            afterRemove(e, true);
+        }
+
+        @Override
+        public void set(E e) {
+            if (!beforeSet(lastIndex, last, e)) return;
+            iterator.set(e);
+            afterSet(lastIndex, last, e);
+            last = e;
+        }
+
+        @Override
+        public void add(E e) {
+            if (!beforeAdd(e)) return;
+            iterator.add(e);
+            afterAdd(e, true);
+        }
+    }
+
+    static class ListTriggers<E> extends Triggers<E> {
+        final Consumer<Integer> beforeGet;
+        final BiConsumer<Integer, E> afterGet;
+
+        final ObjIntConsumer<E> beforeSet;
+        final ObjIntConsumer<E> afterSet;
+        final Predicate<E> allowSet;
+
+        final Consumer<Comparator<? super E>> afterSort;
+
+        final Sampling sampleGets;
+        final LongConsumer countGets;
+        final long countGetsNanos;
+
+        /**
+         * List iterators are wrapped only if there is something to fire on a modification.
+         */
+        final boolean mutationTriggers;
+
+        final ReplicationPrimary<E> replication;
+
+        ListTriggers(TriggerListBuilder<E> builder) {
+            super(builder);
+            this.beforeGet = timed(GET, BEFORE, Chains.consumers(builder.beforeGet));
+            this.afterGet = async(timed(GET, AFTER, Chains.biConsumers(builder.afterGet)));
+            this.beforeSet = timed(SET, BEFORE, Chains.objIntConsumers(builder.beforeSet));
+            this.afterSet = async(timed(SET, AFTER, Chains.objIntConsumers(builder.afterSet)));
+            this.allowSet = timed(SET, Chains.predicates(builder.allowSet));
+            this.afterSort = async(Chains.consumers(builder.afterSort));
+            this.sampleGets = builder.sampleGets;
+            this.countGets = builder.countGets;
+            this.countGetsNanos = builder.countGetsNanos;
+            this.mutationTriggers = removeTriggers
+                || any(allowAdd, beforeAdd, afterAdd, afterAddBatch, allowSet, beforeSet, afterSet, changes);
+            this.replication = builder.replication;
+        }
+
+        List<E> replicated(List<E> backedList) {
+            return replication == null ? backedList : replication.attach(backedList);
+        }
+
+        ReadSampler newReadSampler() {
+            if (sampleGets == null && countGets == null) return null;
+            return new ReadSampler(sampleGets, countGets, countGetsNanos);
         }
-        return super.invoke(proxy, method, args);
     }
 
     public static class TriggerListBuilder<E> extends TriggerCollectionBuilder<E, TriggerListBuilder<E>> {
 
-        private List<E> backedList;
+        private final List<E> backedList;
 
-        private Consumer<Integer> beforeGet = t -> {};
-        private BiConsumer<Integer, E> afterGet = (i, t) -> {};
+        private final List<Consumer<Integer>> beforeGet = new ArrayList<>();
+        private final List<BiConsumer<Integer, E>> afterGet = new ArrayList<>();
+
+        private final List<ObjIntConsumer<E>> beforeSet = new ArrayList<>();
+        private final List<ObjIntConsumer<E>> afterSet = new ArrayList<>();
+        private final List<Predicate<E>> allowSet = new ArrayList<>();
+
+        private final List<Consumer<Comparator<? super E>>> afterSort = new ArrayList<>();
+
+        private Sampling sampleGets;
+        private LongConsumer countGets;
+        private long countGetsNanos;
+        private ReplicationPrimary<E> replication;
 
         private TriggerListBuilder(List<E> backedList) {
             super(backedList);
@@ -62,30 +466,127 @@ public class TriggerList extends TriggerCollection {
          * @return builder
          */
         public TriggerListBuilder<E> beforeGet(Consumer<Integer> beforeGet) {
-            this.beforeGet = beforeGet;
+            this.beforeGet.add(beforeGet);
             return this;
         }
 
         /**
-         * Adds action that will be executed before {@link List#get(int)} method is called.
-         * @param afterGet action with index of an element as a parameter
+         * Adds action that will be executed after {@link List#get(int)} method is called.
+         * @param afterGet action with index of an element and the element as parameters
          * @return builder
          */
         public TriggerListBuilder<E> afterGet(BiConsumer<Integer, E> afterGet) {
-            this.afterGet = afterGet;
+            this.afterGet.add(afterGet);
+            return this;
+        }
+
+        /**
+         * Fires the {@code get} triggers and records the {@code get} metrics only for the calls chosen by
+         * {@code sampling}, other calls go straight to the backed list.
+         * @param sampling which calls fire the triggers
+         * @return builder
+         */
+        public TriggerListBuilder<E> sampleGets(Sampling sampling) {
+            this.sampleGets = Objects.requireNonNull(sampling);
+            return this;
+        }
+
+        /**
+         * Counts all the {@code get} calls, sampled or not, and reports the number of calls made since
+         * the previous report every {@code period} on a timer thread, on {@link TriggerList#flush()}
+         * and on {@link TriggerList#close()}. Every thread counts its calls separately,
+         * so counting does not make concurrent readers contend.
+         * @param gets   action with the number of calls as a parameter
+         * @param period period of the reports
+         * @param unit   unit of the period
+         * @return builder
+         */
+        public TriggerListBuilder<E> countGets(LongConsumer gets, long period, TimeUnit unit) {
+            if (period <= 0) throw new IllegalArgumentException("Period must be positive");
+            this.countGets = Objects.requireNonNull(gets);
+            this.countGetsNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before {@link List#set(int, Object)} or {@link ListIterator#set(Object)}
+         * method is called.
+         * @param beforeSet action with the new element and its index as parameters
+         * @return builder
+         */
+        public TriggerListBuilder<E> beforeSet(ObjIntConsumer<E> beforeSet) {
+            this.beforeSet.add(beforeSet);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after {@link List#set(int, Object)} or {@link ListIterator#set(Object)}
+         * method is called.
+         * @param afterSet action with the new element and its index as parameters
+         * @return builder
+         */
+        public TriggerListBuilder<E> afterSet(ObjIntConsumer<E> afterSet) {
+            this.afterSet.add(afterSet);
             return this;
         }
 
         /**
-         * Creates a proxy instance.
-         * @return proxy instance for the {@link List}
+         * Element will be set by {@link List#set(int, Object)}, {@link ListIterator#set(Object)}
+         * or {@link List#replaceAll(UnaryOperator)} if it matches the predicate.
+         * @param allowSet predicate
+         * @return builder
          */
+        public TriggerListBuilder<E> allowSet(Predicate<E> allowSet) {
+            this.allowSet.add(allowSet);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after {@link List#sort(Comparator)} method is called.
+         * @param afterSort action with the comparator as a parameter, {@code null} for the natural ordering
+         * @return builder
+         */
+        public TriggerListBuilder<E> afterSort(Consumer<Comparator<? super E>> afterSort) {
+            this.afterSort.add(afterSort);
+            return this;
+        }
+
+        /**
+         * Sends every modification of the list to the followers of the primary. The records are the modifications
+         * of the original list, so a sort or a {@code replaceAll} is sent as the elements it sets.
+         * A primary replicates one list.
+         * @param primary primary serving the followers, see {@link ReplicationPrimary#bind(java.net.SocketAddress,
+         *                JournalCodec)}
+         * @return builder
+         */
+        public TriggerListBuilder<E> replicate(ReplicationPrimary<E> primary) {
+            this.replication = Objects.requireNonNull(primary);
+            return this;
+        }
+
+        /**
+         * Creates a list that delegates to the original one and fires the triggers.
+         * @return trigger list backed by the original {@link List}
+         */
+        @Override
+        public TriggerList<E> build() {
+            return new TriggerList<>(backedList, new ListTriggers<>(this));
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps lists.
+         * @return template creating trigger lists
+         * @throws IllegalStateException if a journal or replication is declared
+         */
+        @Override
         @SuppressWarnings("unchecked")
-        public List<E> build() {
-            return (List<E>) Proxy.newProxyInstance(
-                    backedList.getClass().getClassLoader(),
-                    new Class[]{List.class},
-                    new TriggerList()
+        public TriggerTemplate<E, TriggerList<E>> compile() {
+            if (replication != null) throw new IllegalStateException("Templates do not support replication");
+            final ListTriggers<E> triggers = TriggerTemplate.shared(new ListTriggers<>(this));
+            return new TriggerTemplate<>(
+                List.class,
+                triggers,
+                backing -> new TriggerList<>((List<E>) backing, triggers)
             );
         }
 
@@ -0,0 +1,617 @@
+package dev.rus4j.collect;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+/**
+ * List of {@code long} values stored in a primitive array. Triggers take primitive callbacks,
+ * so neither the values nor the indexes are boxed on {@code add}, {@code get}, {@code set} and
+ * {@code remove}. Use {@link #asList()} where a {@code List<Long>} is needed.
+ *
+ * <p>A vetoed modification leaves the list as it is and reports it the way the method can: {@link #add(long)}
+ * returns {@code false}, while {@link #set(int, long)} and {@link #removeAt(int)} still return the value at the
+ * position, so compare {@link #size()} before and after {@code removeAt} to tell whether {@code allowRemove}
+ * has let the value go.
+ */
+public class TriggerLongList {
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final LongTriggers triggers;
+    private final ReadSampler sampler;
+    private long[] elements;
+    private int size;
+
+    private TriggerLongList(long[] elements, LongTriggers triggers) {
+        this.elements = elements;
+        this.size = elements.length;
+        this.triggers = triggers;
+        this.sampler = triggers.sampleGets == null ? null : new ReadSampler(triggers.sampleGets, null, 0);
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to long list.
+     * Use {@link TriggerLongListBuilder#build()} to build trigger list.
+     *
+     * @param values initial values of the list, they are copied
+     * @return       {@link TriggerLongListBuilder} to add triggers
+     */
+    public static TriggerLongListBuilder from(long... values) {
+        return new TriggerLongListBuilder(values);
+    }
+
+    /**
+     * Appends the value to the end of the list if it is allowed.
+     * @param value value to add
+     * @return {@code true} if the value is added
+     */
+    public boolean add(long value) {
+        final LongTriggers t = triggers;
+        if (t.allowAdd != null && !t.allowAdd.test(value)) return false;
+        if (t.beforeAdd != null) t.beforeAdd.accept(value);
+        insert(size, value);
+        if (t.afterAdd != null) t.afterAdd.accept(value);
+        return true;
+    }
+
+    /**
+     * Inserts the value at the position if it is allowed, fires the same triggers as {@link #add(int)}.
+     * @param index position to insert the value at
+     * @param value value to add
+     * @return {@code true} if the value is added
+     */
+    public boolean add(int index, long value) {
+        checkPositionIndex(index);
+        final LongTriggers t = triggers;
+        if (t.allowAdd != null && !t.allowAdd.test(value)) return false;
+        if (t.beforeAdd != null) t.beforeAdd.accept(value);
+        insert(index, value);
+        if (t.afterAdd != null) t.afterAdd.accept(value);
+        return true;
+    }
+
+    /**
+     * Returns the value at the position.
+     * @param index position of the value
+     * @return the value
+     */
+    public long get(int index) {
+        checkElementIndex(index);
+        final ReadSampler s = sampler;
+        if (s != null && !s.sample()) return elements[index];
+        final LongTriggers t = triggers;
+        if (t.beforeGet != null) t.beforeGet.accept(index);
+        final long value = elements[index];
+        if (t.afterGet != null) t.afterGet.accept(index, value);
+        return value;
+    }
+
+    /**
+     * Replaces the value at the position if the new value is allowed.
+     * @param index position of the value
+     * @param value new value
+     * @return previous value, or the current one if the new value is not allowed
+     */
+    public long set(int index, long value) {
+        checkElementIndex(index);
+        final LongTriggers t = triggers;
+        final long previous = elements[index];
+        if (t.allowSet != null && !t.allowSet.test(value)) return previous;
+        if (t.beforeSet != null) t.beforeSet.accept(index, value);
+        elements[index] = value;
+        if (t.afterSet != null) t.afterSet.accept(index, value);
+        return previous;
+    }
+
+    /**
+     * Removes the value at the position if it is allowed.
+     * @param index position of the value
+     * @return the value at the position, removed or not
+     */
+    public long removeAt(int index) {
+        checkElementIndex(index);
+        final long value = elements[index];
+        delete(index);
+        return value;
+    }
+
+    /**
+     * Returns number of values in the list.
+     * @return number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the list has no values.
+     * @return {@code true} if the list is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns position of the first occurrence of the value.
+     * @param value value to look for
+     * @return position of the value or {@code -1} if there is no such value
+     */
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns {@code true} if the list has the value.
+     * @param value value to look for
+     * @return {@code true} if the value is found
+     */
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Removes all the values that {@code allowRemove} lets go in one pass, firing the remove triggers
+     * for every value. Vetoed values stay in the list in their order.
+     */
+    public void clear() {
+        final LongTriggers t = triggers;
+        if (t.allowRemove == null && t.beforeRemove == null && t.afterRemove == null) {
+            size = 0;
+            return;
+        }
+        removeWhere(null);
+    }
+
+    /**
+     * Returns a copy of the values.
+     * @return array with the values of the list
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Returns a sequential stream over the values, no triggers are fired.
+     * @return stream of the values
+     */
+    public LongStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    /**
+     * Returns a {@code List<Long>} view of this list. The view boxes the values, and its
+     * methods go through the triggered methods of this list.
+     * @return list view
+     */
+    public List<Long> asList() {
+        return new ListView();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void insert(int index, long value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        if (index < size) System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * Removes the value at the valid position if {@code allowRemove} lets it go.
+     * @return {@code false} if the removal is vetoed
+     */
+    private boolean delete(int index) {
+        final LongTriggers t = triggers;
+        final long value = elements[index];
+        if (t.allowRemove != null && !t.allowRemove.test(value)) return false;
+        if (t.beforeRemove != null) t.beforeRemove.accept(value);
+        final int moved = size - index - 1;
+        if (moved > 0) System.arraycopy(elements, index + 1, elements, index, moved);
+        size--;
+        if (t.afterRemove != null) t.afterRemove.accept(value);
+        return true;
+    }
+
+    /**
+     * Removes the values matching {@code filter}, or all of them if it is {@code null}, that {@code allowRemove}
+     * lets go, moving the rest to the front in one pass. The {@code afterRemove} triggers run once the list
+     * is consistent again; if a trigger throws, the values not visited yet stay in the list.
+     * @return {@code true} if any value is removed
+     */
+    private boolean removeWhere(LongPredicate filter) {
+        final LongTriggers t = triggers;
+        final long[] removed = t.afterRemove == null ? null : new long[size];
+        int kept = 0;
+        int count = 0;
+        int i = 0;
+        try {
+            for (; i < size; i++) {
+                final long value = elements[i];
+                if (filter != null && !filter.test(value) || t.allowRemove != null && !t.allowRemove.test(value)) {
+                    elements[kept++] = value;
+                    continue;
+                }
+                if (t.beforeRemove != null) t.beforeRemove.accept(value);
+                if (removed != null) removed[count] = value;
+                count++;
+            }
+        } finally {
+            System.arraycopy(elements, i, elements, kept, size - i);
+            size = kept + size - i;
+        }
+        for (int j = 0; removed != null && j < count; j++) {
+            t.afterRemove.accept(removed[j]);
+        }
+        return count > 0;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private final class ListView extends AbstractList<Long> implements RandomAccess {
+
+        @Override
+        public Long get(int index) {
+            return TriggerLongList.this.get(index);
+        }
+
+        @Override
+        public Long set(int index, Long element) {
+            return TriggerLongList.this.set(index, element);
+        }
+
+        @Override
+        public boolean add(Long element) {
+            return TriggerLongList.this.add(element);
+        }
+
+        @Override
+        public void add(int index, Long element) {
+            TriggerLongList.this.add(index, element);
+        }
+
+        @Override
+        public Long remove(int index) {
+            return TriggerLongList.this.removeAt(index);
+        }
+
+        /**
+         * Removes the first occurrence of the value if {@code allowRemove} lets it go.
+         */
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Long)) return false;
+            final int index = indexOf((long) (Long) o);
+            return index >= 0 && delete(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new ViewIterator(0);
+        }
+
+        @Override
+        public ListIterator<Long> listIterator(int index) {
+            checkPositionIndex(index);
+            return new ViewIterator(index);
+        }
+
+        @Override
+        public void clear() {
+            TriggerLongList.this.clear();
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Long> filter) {
+            Objects.requireNonNull(filter);
+            return removeWhere(filter::test);
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(c::contains);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(e -> !c.contains(e));
+        }
+    }
+
+    /**
+     * Iterator of the list view that moves back after a removal or forward after an addition only if
+     * the triggers have not vetoed it, so a vetoed value is not visited twice.
+     */
+    private final class ViewIterator implements ListIterator<Long> {
+        private int cursor;
+        private int last = -1;
+
+        ViewIterator(int cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public Long next() {
+            if (cursor >= size) throw new NoSuchElementException();
+            last = cursor++;
+            return elements[last];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public Long previous() {
+            if (cursor <= 0 || cursor > size) throw new NoSuchElementException();
+            last = --cursor;
+            return elements[last];
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0 || last >= size) throw new IllegalStateException();
+            if (delete(last) && last < cursor) cursor--;
+            last = -1;
+        }
+
+        @Override
+        public void set(Long element) {
+            if (last < 0 || last >= size) throw new IllegalStateException();
+            TriggerLongList.this.set(last, element);
+        }
+
+        @Override
+        public void add(Long element) {
+            final int index = Math.min(cursor, size);
+            if (TriggerLongList.this.add(index, element)) cursor = index + 1;
+            last = -1;
+        }
+    }
+
+    static final class LongTriggers {
+        final LongConsumer beforeAdd;
+        final LongConsumer afterAdd;
+        final LongPredicate allowAdd;
+
+        final LongConsumer beforeRemove;
+        final LongConsumer afterRemove;
+        final LongPredicate allowRemove;
+
+        final IndexedLongConsumer beforeSet;
+        final IndexedLongConsumer afterSet;
+        final LongPredicate allowSet;
+
+        final IntConsumer beforeGet;
+        final IndexedLongConsumer afterGet;
+
+        final Sampling sampleGets;
+
+        LongTriggers(TriggerLongListBuilder builder) {
+            this.beforeAdd = Chains.longConsumers(builder.beforeAdd);
+            this.afterAdd = Chains.longConsumers(builder.afterAdd);
+            this.allowAdd = Chains.longPredicates(builder.allowAdd);
+            this.beforeRemove = Chains.longConsumers(builder.beforeRemove);
+            this.afterRemove = Chains.longConsumers(builder.afterRemove);
+            this.allowRemove = Chains.longPredicates(builder.allowRemove);
+            this.beforeSet = Chains.indexedLongConsumers(builder.beforeSet);
+            this.afterSet = Chains.indexedLongConsumers(builder.afterSet);
+            this.allowSet = Chains.longPredicates(builder.allowSet);
+            this.beforeGet = Chains.intConsumers(builder.beforeGet);
+            this.afterGet = Chains.indexedLongConsumers(builder.afterGet);
+            this.sampleGets = builder.sampleGets;
+        }
+    }
+
+    /**
+     * Collects triggers for a long list. Every call adds one more trigger to the event:
+     * actions are executed in the order they were added and a value passes
+     * an {@code allow} check only if it matches all the predicates.
+     */
+    public static class TriggerLongListBuilder {
+
+        private final long[] values;
+
+        private final List<LongConsumer> beforeAdd = new ArrayList<>();
+        private final List<LongConsumer> afterAdd = new ArrayList<>();
+        private final List<LongPredicate> allowAdd = new ArrayList<>();
+
+        private final List<LongConsumer> beforeRemove = new ArrayList<>();
+        private final List<LongConsumer> afterRemove = new ArrayList<>();
+        private final List<LongPredicate> allowRemove = new ArrayList<>();
+
+        private final List<IndexedLongConsumer> beforeSet = new ArrayList<>();
+        private final List<IndexedLongConsumer> afterSet = new ArrayList<>();
+        private final List<LongPredicate> allowSet = new ArrayList<>();
+
+        private final List<IntConsumer> beforeGet = new ArrayList<>();
+        private final List<IndexedLongConsumer> afterGet = new ArrayList<>();
+
+        private Sampling sampleGets;
+
+        private TriggerLongListBuilder(long[] values) {
+            this.values = values.clone();
+        }
+
+        /**
+         * Adds action that will be executed before a value is added.
+         * @param beforeAdd action with value to be added as a parameter
+         * @return builder
+         */
+        public TriggerLongListBuilder beforeAdd(LongConsumer beforeAdd) {
+            this.beforeAdd.add(beforeAdd);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a value is added.
+         * @param afterAdd action with added value as a parameter
+         * @return builder
+         */
+        public TriggerLongListBuilder afterAdd(LongConsumer afterAdd) {
+            this.afterAdd.add(afterAdd);
+            return this;
+        }
+
+        /**
+         * Value will be added to list if it matches the predicate.
+         * @param allowAdd predicate
+         * @return builder
+         */
+        public TriggerLongListBuilder allowAdd(LongPredicate allowAdd) {
+            this.allowAdd.add(allowAdd);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before a value is removed.
+         * @param beforeRemove action with value to be removed as a parameter
+         * @return builder
+         */
+        public TriggerLongListBuilder beforeRemove(LongConsumer beforeRemove) {
+            this.beforeRemove.add(beforeRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a value is removed.
+         * @param afterRemove action with removed value as a parameter
+         * @return builder
+         */
+        public TriggerLongListBuilder afterRemove(LongConsumer afterRemove) {
+            this.afterRemove.add(afterRemove);
+            return this;
+        }
+
+        /**
+         * Value will be removed from list if it matches the predicate.
+         * @param allowRemove predicate
+         * @return builder
+         */
+        public TriggerLongListBuilder allowRemove(LongPredicate allowRemove) {
+            this.allowRemove.add(allowRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before a value is replaced.
+         * @param beforeSet action with index and new value as parameters
+         * @return builder
+         */
+        public TriggerLongListBuilder beforeSet(IndexedLongConsumer beforeSet) {
+            this.beforeSet.add(beforeSet);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a value is replaced.
+         * @param afterSet action with index and new value as parameters
+         * @return builder
+         */
+        public TriggerLongListBuilder afterSet(IndexedLongConsumer afterSet) {
+            this.afterSet.add(afterSet);
+            return this;
+        }
+
+        /**
+         * Value will be replaced if the new value matches the predicate.
+         * @param allowSet predicate
+         * @return builder
+         */
+        public TriggerLongListBuilder allowSet(LongPredicate allowSet) {
+            this.allowSet.add(allowSet);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before {@link TriggerLongList#get(int)} method is called.
+         * @param beforeGet action with index of a value as a parameter
+         * @return builder
+         */
+        public TriggerLongListBuilder beforeGet(IntConsumer beforeGet) {
+            this.beforeGet.add(beforeGet);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after {@link TriggerLongList#get(int)} method is called.
+         * @param afterGet action with index and value as parameters
+         * @return builder
+         */
+        public TriggerLongListBuilder afterGet(IndexedLongConsumer afterGet) {
+            this.afterGet.add(afterGet);
+            return this;
+        }
+
+        /**
+         * Fires the {@code get} triggers only for the calls chosen by {@code sampling},
+         * other calls just read the value.
+         * @param sampling which calls fire the triggers
+         * @return builder
+         */
+        public TriggerLongListBuilder sampleGets(Sampling sampling) {
+            this.sampleGets = Objects.requireNonNull(sampling);
+            return this;
+        }
+
+        /**
+         * Creates a long list with the initial values and the triggers.
+         * @return trigger long list
+         */
+        public TriggerLongList build() {
+            return new TriggerLongList(values.clone(), new LongTriggers(this));
+        }
+    }
+}
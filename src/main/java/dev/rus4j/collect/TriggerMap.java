@@ -0,0 +1,632 @@
+package dev.rus4j.collect;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Map that fires triggers on every modification: {@code put}, {@code remove}, {@code putAll}, {@code compute},
+ * {@code merge}, {@code replace} and their variants, and modifications through {@link #entrySet()},
+ * {@link #keySet()} and {@link #values()}. A value that is not allowed is not stored.
+ *
+ * <p>Triggers can be registered for all the keys or for a single key. The triggers of every registered key
+ * are compiled together with the triggers of all the keys into one table, so firing the triggers
+ * of a modification takes a single hash lookup however many keys have their own triggers.
+ *
+ * <p>This map is not thread-safe, even when it wraps a {@link java.util.concurrent.ConcurrentMap}.
+ * {@code putIfAbsent}, {@code replace}, {@code computeIfAbsent}, {@code computeIfPresent}, {@code compute} and
+ * {@code merge} read the current value and then store the new one through the triggers, so they are not atomic:
+ * callers that share the map between threads must synchronize on it.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class TriggerMap<K, V> extends AbstractMap<K, V> {
+    private final Map<K, V> backedMap;
+    private final MapTriggers<K, V> triggers;
+    private Set<Entry<K, V>> entrySet;
+    private Set<K> keySet;
+
+    private TriggerMap(Map<K, V> backedMap, MapTriggers<K, V> triggers) {
+        this.backedMap = backedMap;
+        this.triggers = triggers;
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to map.
+     * Use {@link TriggerMapBuilder#build()} to build trigger map.
+     *
+     * @param backedMap original map
+     * @param <K>       type of the keys
+     * @param <V>       type of the values
+     * @return          {@link TriggerMapBuilder} to add triggers
+     */
+    public static <K, V> TriggerMapBuilder<K, V> from(Map<K, V> backedMap) {
+        return new TriggerMapBuilder<>(backedMap);
+    }
+
+    @Override
+    public int size() {
+        return backedMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return backedMap.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return backedMap.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return backedMap.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return backedMap.get(key);
+    }
+
+    /**
+     * Stores the value if it is allowed.
+     *
+     * @return the previous value, or the current one if the new value is not allowed
+     */
+    @Override
+    public V put(K key, V value) {
+        final EntryTriggers<K, V> t = triggers.of(key);
+        if (!t.beforePut(key, value)) return backedMap.get(key);
+        final V previous = backedMap.put(key, value);
+        t.afterPut(key, previous, value);
+        return previous;
+    }
+
+    /**
+     * Removes the key if it is allowed. An absent key fires no trigger, as in {@link #remove(Object, Object)}.
+     *
+     * @return the removed value, {@code null} if the key is absent or not allowed to be removed
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (!backedMap.containsKey(key)) return null;
+        final EntryTriggers<K, V> t = triggers.of(key);
+        if (!t.beforeRemove((K) key)) return null;
+        final V removed = backedMap.remove(key);
+        t.afterRemove((K) key, removed);
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!Objects.equals(backedMap.get(key), value) || !backedMap.containsKey(key)) return false;
+        return delete(key);
+    }
+
+    /**
+     * Stores every entry with {@link #put(Object, Object)}, so the entries that are not allowed are skipped.
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes every entry with the remove triggers, the entries that are not allowed to be removed are kept.
+     */
+    @Override
+    public void clear() {
+        if (triggers.removeTriggers) {
+            entrySet().clear();
+        } else {
+            backedMap.clear();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        final V current = backedMap.get(key);
+        return current != null ? current : put(key, value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (!Objects.equals(backedMap.get(key), oldValue) || !backedMap.containsKey(key)) return false;
+        return store(key, newValue);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return backedMap.containsKey(key) ? put(key, value) : null;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        final V current = backedMap.get(key);
+        if (current != null) return current;
+        final V value = mappingFunction.apply(key);
+        return value != null && store(key, value) ? value : null;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        final V current = backedMap.get(key);
+        return current == null ? null : update(key, current, remappingFunction.apply(key, current));
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        final V current = backedMap.get(key);
+        return update(key, current, remappingFunction.apply(key, current));
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        final V current = backedMap.get(key);
+        return update(key, current, current == null ? value : remappingFunction.apply(current, value));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        for (K key : new ArrayList<>(backedMap.keySet())) {
+            store(key, function.apply(key, backedMap.get(key)));
+        }
+    }
+
+    /**
+     * Entries fire the put triggers on {@link Entry#setValue(Object)}, removals fire the remove triggers.
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    /**
+     * Removals fire the remove triggers.
+     */
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) keySet = new KeySet();
+        return keySet;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || backedMap.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return backedMap.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return backedMap.toString();
+    }
+
+    /**
+     * Result of {@code compute} and {@code merge}: {@code null} removes the key.
+     * @return the value the key is mapped to afterwards
+     */
+    private V update(K key, V current, V value) {
+        if (value == null) {
+            return current == null && !backedMap.containsKey(key) || delete(key) ? null : current;
+        }
+        return store(key, value) ? value : current;
+    }
+
+    private boolean store(K key, V value) {
+        final EntryTriggers<K, V> t = triggers.of(key);
+        if (!t.beforePut(key, value)) return false;
+        final V previous = backedMap.put(key, value);
+        t.afterPut(key, previous, value);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean delete(Object key) {
+        final EntryTriggers<K, V> t = triggers.of(key);
+        if (!t.beforeRemove((K) key)) return false;
+        final V removed = backedMap.remove(key);
+        t.afterRemove((K) key, removed);
+        return true;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator(backedMap.entrySet().iterator());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return backedMap.entrySet().contains(o);
+        }
+
+        @Override
+        public int size() {
+            return backedMap.size();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() {
+            final Iterator<Entry<K, V>> iterator = entrySet().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return iterator.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return backedMap.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return backedMap.containsKey(o) && delete(o);
+        }
+
+        @Override
+        public int size() {
+            return backedMap.size();
+        }
+    }
+
+    /**
+     * Fires the remove triggers for {@link Iterator#remove()}, an entry that is not allowed to be removed is kept.
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Entry<K, V>> iterator;
+        private Entry<K, V> last;
+
+        EntryIterator(Iterator<Entry<K, V>> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            last = iterator.next();
+            return triggers.putTriggers ? new TriggerEntry(last) : last;
+        }
+
+        @Override
+        public void remove() {
+            final K key = last.getKey();
+            final V value = last.getValue();
+            final EntryTriggers<K, V> t = triggers.of(key);
+            if (!t.beforeRemove(key)) return;
+            iterator.remove();
+            t.afterRemove(key, value);
+        }
+    }
+
+    /**
+     * Fires the put triggers for {@link Entry#setValue(Object)}, the iterator returns it only if there are any.
+     */
+    private final class TriggerEntry extends SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Entry<K, V> entry;
+
+        TriggerEntry(Entry<K, V> entry) {
+            super(entry);
+            this.entry = entry;
+        }
+
+        @Override
+        public V setValue(V value) {
+            final K key = entry.getKey();
+            final EntryTriggers<K, V> t = triggers.of(key);
+            if (!t.beforePut(key, value)) return entry.getValue();
+            final V previous = entry.setValue(value);
+            super.setValue(value);
+            t.afterPut(key, previous, value);
+            return previous;
+        }
+    }
+
+    /**
+     * Triggers fired for one key, an event without triggers is {@code null}, see {@link Chains}.
+     */
+    static final class EntryTriggers<K, V> {
+        final BiPredicate<K, V> allowPut;
+        final BiConsumer<K, V> beforePut;
+        final PutConsumer<K, V> afterPut;
+
+        final Predicate<K> allowRemove;
+        final Consumer<K> beforeRemove;
+        final BiConsumer<K, V> afterRemove;
+
+        EntryTriggers(EntryTriggerLists<K, V> all, EntryTriggerLists<K, V> key) {
+            this.allowPut = Chains.biPredicates(join(all.allowPut, key.allowPut));
+            this.beforePut = Chains.biConsumers(join(all.beforePut, key.beforePut));
+            this.afterPut = Chains.putConsumers(join(all.afterPut, key.afterPut));
+            this.allowRemove = Chains.predicates(join(all.allowRemove, key.allowRemove));
+            this.beforeRemove = Chains.consumers(join(all.beforeRemove, key.beforeRemove));
+            this.afterRemove = Chains.biConsumers(join(all.afterRemove, key.afterRemove));
+        }
+
+        private static <T> List<T> join(List<T> all, List<T> key) {
+            final List<T> joined = new ArrayList<>(all);
+            joined.addAll(key);
+            return joined;
+        }
+
+        boolean beforePut(K key, V value) {
+            if (allowPut != null && !allowPut.test(key, value)) return false;
+            if (beforePut != null) beforePut.accept(key, value);
+            return true;
+        }
+
+        void afterPut(K key, V previous, V value) {
+            if (afterPut != null) afterPut.accept(key, previous, value);
+        }
+
+        boolean beforeRemove(K key) {
+            if (allowRemove != null && !allowRemove.test(key)) return false;
+            if (beforeRemove != null) beforeRemove.accept(key);
+            return true;
+        }
+
+        void afterRemove(K key, V removed) {
+            if (afterRemove != null) afterRemove.accept(key, removed);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the triggers taken when the map is built.
+     */
+    static final class MapTriggers<K, V> {
+        private final EntryTriggers<K, V> all;
+        private final Map<Object, EntryTriggers<K, V>> keys;
+
+        /**
+         * Clearing goes entry by entry only if there is something to fire.
+         */
+        final boolean removeTriggers;
+
+        /**
+         * The entries of {@link #entrySet()} are wrapped only if there is something to fire on a put.
+         */
+        final boolean putTriggers;
+
+        MapTriggers(TriggerMapBuilder<K, V> builder) {
+            final EntryTriggerLists<K, V> none = new EntryTriggerLists<>();
+            this.all = new EntryTriggers<>(builder.all, none);
+            final Map<Object, EntryTriggers<K, V>> table = new HashMap<>();
+            boolean anyRemoveTriggers = builder.all.hasRemoveTriggers();
+            boolean anyPutTriggers = builder.all.hasPutTriggers();
+            for (Entry<K, EntryTriggerLists<K, V>> entry : builder.keys.entrySet()) {
+                table.put(entry.getKey(), new EntryTriggers<>(builder.all, entry.getValue()));
+                anyRemoveTriggers |= entry.getValue().hasRemoveTriggers();
+                anyPutTriggers |= entry.getValue().hasPutTriggers();
+            }
+            this.keys = table.isEmpty() ? null : table;
+            this.removeTriggers = anyRemoveTriggers;
+            this.putTriggers = anyPutTriggers;
+        }
+
+        EntryTriggers<K, V> of(Object key) {
+            return keys == null ? all : keys.getOrDefault(key, all);
+        }
+    }
+
+    /**
+     * Triggers registered in a builder for all the keys or for one key.
+     */
+    static final class EntryTriggerLists<K, V> {
+        private final List<BiPredicate<K, V>> allowPut = new ArrayList<>();
+        private final List<BiConsumer<K, V>> beforePut = new ArrayList<>();
+        private final List<PutConsumer<K, V>> afterPut = new ArrayList<>();
+
+        private final List<Predicate<K>> allowRemove = new ArrayList<>();
+        private final List<Consumer<K>> beforeRemove = new ArrayList<>();
+        private final List<BiConsumer<K, V>> afterRemove = new ArrayList<>();
+
+        boolean hasRemoveTriggers() {
+            return !allowRemove.isEmpty() || !beforeRemove.isEmpty() || !afterRemove.isEmpty();
+        }
+
+        boolean hasPutTriggers() {
+            return !allowPut.isEmpty() || !beforePut.isEmpty() || !afterPut.isEmpty();
+        }
+    }
+
+    /**
+     * Collects triggers for a map. Every call adds one more trigger to the event:
+     * actions are executed in the order they were added, the triggers of all the keys before
+     * the triggers of a single key, and a value passes an {@code allow} check only if it matches
+     * all the predicates.
+     */
+    public static class TriggerMapBuilder<K, V> {
+
+        private final Map<K, V> backedMap;
+
+        private final EntryTriggerLists<K, V> all = new EntryTriggerLists<>();
+        private final Map<K, EntryTriggerLists<K, V>> keys = new LinkedHashMap<>();
+
+        private TriggerMapBuilder(Map<K, V> backedMap) {
+            this.backedMap = backedMap;
+        }
+
+        private EntryTriggerLists<K, V> key(K key) {
+            return keys.computeIfAbsent(key, k -> new EntryTriggerLists<>());
+        }
+
+        /**
+         * Value will be stored if it matches the predicate.
+         * @param allowPut predicate with key and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> allowPut(BiPredicate<K, V> allowPut) {
+            all.allowPut.add(allowPut);
+            return this;
+        }
+
+        /**
+         * Value of the key will be stored if it matches the predicate.
+         * @param key      key the predicate is checked for
+         * @param allowPut predicate with key and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> allowPut(K key, BiPredicate<K, V> allowPut) {
+            key(key).allowPut.add(allowPut);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before a value is stored.
+         * @param beforePut action with key and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> beforePut(BiConsumer<K, V> beforePut) {
+            all.beforePut.add(beforePut);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before a value of the key is stored.
+         * @param key       key the action is executed for
+         * @param beforePut action with key and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> beforePut(K key, BiConsumer<K, V> beforePut) {
+            key(key).beforePut.add(beforePut);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a value is stored.
+         * @param afterPut action with key, previous and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> afterPut(PutConsumer<K, V> afterPut) {
+            all.afterPut.add(afterPut);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a value of the key is stored.
+         * @param key      key the action is executed for
+         * @param afterPut action with key, previous and new value as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> afterPut(K key, PutConsumer<K, V> afterPut) {
+            key(key).afterPut.add(afterPut);
+            return this;
+        }
+
+        /**
+         * Key will be removed if it matches the predicate.
+         * @param allowRemove predicate with key as a parameter
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> allowRemove(Predicate<K> allowRemove) {
+            all.allowRemove.add(allowRemove);
+            return this;
+        }
+
+        /**
+         * The key will be removed if it matches the predicate.
+         * @param key         key the predicate is checked for
+         * @param allowRemove predicate with key as a parameter
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> allowRemove(K key, Predicate<K> allowRemove) {
+            key(key).allowRemove.add(allowRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before a key is removed.
+         * @param beforeRemove action with key as a parameter
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> beforeRemove(Consumer<K> beforeRemove) {
+            all.beforeRemove.add(beforeRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed before the key is removed.
+         * @param key          key the action is executed for
+         * @param beforeRemove action with key as a parameter
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> beforeRemove(K key, Consumer<K> beforeRemove) {
+            key(key).beforeRemove.add(beforeRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after a key is removed.
+         * @param afterRemove action with key and removed value, {@code null} if there was none, as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> afterRemove(BiConsumer<K, V> afterRemove) {
+            all.afterRemove.add(afterRemove);
+            return this;
+        }
+
+        /**
+         * Adds action that will be executed after the key is removed.
+         * @param key         key the action is executed for
+         * @param afterRemove action with key and removed value, {@code null} if there was none, as parameters
+         * @return builder
+         */
+        public TriggerMapBuilder<K, V> afterRemove(K key, BiConsumer<K, V> afterRemove) {
+            key(key).afterRemove.add(afterRemove);
+            return this;
+        }
+
+        /**
+         * Creates a map with the triggers. The builder can be reused, the map is not affected
+         * by triggers added afterwards.
+         * @return trigger map
+         */
+        public TriggerMap<K, V> build() {
+            return new TriggerMap<>(backedMap, new MapTriggers<>(this));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Counters and latency histograms of a trigger collection built with
+ * {@link TriggerCollection.TriggerCollectionBuilder#metrics(long, TimeUnit)}.
+ * The triggers are wrapped with timers when the collection is built, so a collection without metrics
+ * runs exactly the same code as before.
+ */
+public final class TriggerMetrics {
+    private static final int PHASES = Phase.values().length;
+
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] rejections;
+    private final long slowTriggerNanos;
+
+    TriggerMetrics(long slowTriggerNanos) {
+        this.slowTriggerNanos = slowTriggerNanos;
+        this.latencies = new LatencyHistogram[Operation.values().length * PHASES];
+        this.rejections = new LongAdder[Operation.values().length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Number of calls that reached the backing collection.
+     * @param operation operation
+     * @return count
+     */
+    public long invocations(Operation operation) {
+        return latency(operation, Phase.BACKING).count();
+    }
+
+    /**
+     * Number of calls, or elements for bulk operations, rejected by {@code allow} triggers.
+     * @param operation operation
+     * @return count
+     */
+    public long rejections(Operation operation) {
+        return rejections[operation.ordinal()].sum();
+    }
+
+    /**
+     * Latencies of a phase of an operation.
+     * @param operation operation
+     * @param phase     phase
+     * @return histogram
+     */
+    public LatencyHistogram latency(Operation operation, Phase phase) {
+        return latencies[operation.ordinal() * PHASES + phase.ordinal()];
+    }
+
+    void record(Operation operation, Phase phase, long start) {
+        final long nanos = System.nanoTime() - start;
+        latency(operation, phase).record(nanos);
+        if (phase != Phase.BACKING && nanos >= slowTriggerNanos) SlowTriggerEvent.emit(operation, phase, nanos);
+    }
+
+    <T> Predicate<T> timed(Operation operation, Predicate<T> trigger) {
+        if (trigger == null) return null;
+        return t -> {
+            final long start = System.nanoTime();
+            final boolean allowed = trigger.test(t);
+            record(operation, Phase.ALLOW, start);
+            if (!allowed) rejections[operation.ordinal()].increment();
+            return allowed;
+        };
+    }
+
+    <T> Consumer<T> timed(Operation operation, Phase phase, Consumer<T> trigger) {
+        if (trigger == null) return null;
+        return t -> {
+            final long start = System.nanoTime();
+            trigger.accept(t);
+            record(operation, phase, start);
+        };
+    }
+
+    <T, U> BiConsumer<T, U> timed(Operation operation, Phase phase, BiConsumer<T, U> trigger) {
+        if (trigger == null) return null;
+        return (t, u) -> {
+            final long start = System.nanoTime();
+            trigger.accept(t, u);
+            record(operation, phase, start);
+        };
+    }
+
+    <T> ObjIntConsumer<T> timed(Operation operation, Phase phase, ObjIntConsumer<T> trigger) {
+        if (trigger == null) return null;
+        return (t, value) -> {
+            final long start = System.nanoTime();
+            trigger.accept(t, value);
+            record(operation, phase, start);
+        };
+    }
+
+    /**
+     * Measured operations. Bulk removals ({@code removeIf}, {@code retainAll}, {@code clear}) count as
+     * {@link #REMOVE_ALL}, the per-element {@code allow*Each} filters and the batch triggers are reported
+     * under the bulk operations.
+     */
+    public enum Operation {
+        /**
+         * {@code add(E)} and {@code add(int, E)}.
+         */
+        ADD,
+        /**
+         * {@code addAll}.
+         */
+        ADD_ALL,
+        /**
+         * {@code remove(Object)} and {@code remove(int)}.
+         */
+        REMOVE,
+        /**
+         * {@code removeAll}, {@code removeIf}, {@code retainAll} and {@code clear}.
+         */
+        REMOVE_ALL,
+        /**
+         * {@code get(int)} of a list.
+         */
+        GET,
+        /**
+         * {@code set(int, E)} of a list.
+         */
+        SET,
+        /**
+         * Commit of a {@code batch}, the {@code allow} and {@code before} triggers of its operations
+         * count as {@link #ADD} and {@link #REMOVE}.
+         */
+        BATCH
+    }
+
+    /**
+     * Phases of an operation.
+     */
+    public enum Phase {
+        /**
+         * {@code allow} triggers.
+         */
+        ALLOW,
+        /**
+         * {@code before} triggers.
+         */
+        BEFORE,
+        /**
+         * The call of the backing collection.
+         */
+        BACKING,
+        /**
+         * {@code after} triggers, measured on the thread that runs them.
+         */
+        AFTER
+    }
+}
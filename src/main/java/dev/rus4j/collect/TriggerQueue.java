@@ -0,0 +1,134 @@
+package dev.rus4j.collect;
+
+import static dev.rus4j.collect.TriggerMetrics.Operation.ADD;
+import static dev.rus4j.collect.TriggerMetrics.Operation.REMOVE;
+
+import java.util.Queue;
+
+/**
+ * Queue that fires the triggers of {@link TriggerCollection}: {@link #offer(Object)} fires the add triggers,
+ * {@link #poll()} and {@link #remove()} fire the {@code afterRemove} and {@code afterRemoveBatch} triggers
+ * with the element they return. The element is unknown before it is polled, so {@code allowRemove}
+ * and {@code beforeRemove} only apply to {@link #remove(Object)} and {@link java.util.Iterator#remove()}.
+ *
+ * <p>Triggers are called around the calls of the backing queue, never from inside them,
+ * so a trigger never runs while the queue holds its internal lock.
+ *
+ * @param <E> type of the elements
+ */
+public class TriggerQueue<E> extends TriggerCollection<E> implements Queue<E> {
+    private final Queue<E> backedQueue;
+
+    TriggerQueue(Queue<E> backedQueue, Triggers<E> triggers) {
+        super(backedQueue, withoutJournal(triggers));
+        this.backedQueue = backedQueue;
+    }
+
+    /**
+     * Create trigger builder that can be used for adding new triggers to queue.
+     * Use {@link TriggerQueueBuilder#build()} to build trigger queue.
+     *
+     * @param backedQueue original queue
+     * @param <E>         type of original queue
+     * @return            {@link TriggerQueueBuilder} to add triggers
+     */
+    public static <E> TriggerQueueBuilder<E> from(Queue<E> backedQueue) {
+        return new TriggerQueueBuilder<>(backedQueue);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (!beforeAdd(e)) return false;
+        final long start = startBacking();
+        final boolean result = backedQueue.offer(e);
+        endBacking(ADD, start);
+        afterAdd(e, result);
+        return result;
+    }
+
+    @Override
+    public E remove() {
+        final long start = startBacking();
+        final E e = backedQueue.remove();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E poll() {
+        final long start = startBacking();
+        final E e = backedQueue.poll();
+        endBacking(REMOVE, start);
+        return polled(e);
+    }
+
+    @Override
+    public E element() {
+        return backedQueue.element();
+    }
+
+    @Override
+    public E peek() {
+        return backedQueue.peek();
+    }
+
+    private static <E> Triggers<E> withoutJournal(Triggers<E> triggers) {
+        if (triggers.journalPath != null) throw new IllegalStateException("Queues do not support journals");
+        return triggers;
+    }
+
+    /**
+     * Fires the {@code after} remove triggers for an element taken from the head or the tail of the queue.
+     * @return the element
+     */
+    E polled(E e) {
+        if (e != null) {
+            materializeRemoved(e);
+            fireAfterRemove(e, true);
+        }
+        return e;
+    }
+
+    /**
+     * Collects triggers for a queue, the same as {@link TriggerCollectionBuilder}.
+     */
+    public static class TriggerQueueBuilder<E> extends TriggerCollectionBuilder<E, TriggerQueueBuilder<E>> {
+
+        private final Queue<E> backedQueue;
+
+        private TriggerQueueBuilder(Queue<E> backedQueue) {
+            super(backedQueue);
+            this.backedQueue = backedQueue;
+        }
+
+        @Override
+        protected TriggerQueueBuilder<E> self() {
+            return this;
+        }
+
+        /**
+         * Creates a queue with the triggers.
+         * @return trigger queue
+         */
+        @Override
+        public TriggerQueue<E> build() {
+            return new TriggerQueue<>(backedQueue, new Triggers<>(this));
+        }
+
+        /**
+         * Compiles the triggers into a template that wraps queues.
+         * @return template creating trigger queues
+         * @throws IllegalStateException if a journal is declared
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public TriggerTemplate<E, TriggerQueue<E>> compile() {
+            final Triggers<E> triggers = TriggerTemplate.shared(new Triggers<>(this));
+            return new TriggerTemplate<>(
+                Queue.class,
+                triggers,
+                backing -> new TriggerQueue<>((Queue<E>) backing, triggers)
+            );
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.rus4j.collect;
+
+import dev.rus4j.collect.TriggerCollection.Triggers;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Triggers compiled once by {@link TriggerCollection.TriggerCollectionBuilder#compile()} and applied to any number
+ * of collections. The template is immutable and can be shared by threads; {@link #apply(Collection)} creates
+ * only the wrapper of the collection, so wrapping many small or short-lived collections costs one object each
+ * instead of a builder and a table of triggers.
+ *
+ * <p>Indexes, aggregates and coalesced batches belong to every collection. The metrics, the queue of asynchronous
+ * triggers and the stream of {@link TriggerCollection#changes()} are created with the template and shared by all
+ * its collections: the {@code after} triggers of all the collections run one at a time in one queue, and
+ * a subscriber of the changes of any collection gets the changes of all of them, without telling which
+ * collection an event comes from. Closing a collection does not close them, {@link #close()} does.
+ * Templates do not support journals, a journal belongs to one collection.
+ *
+ * @param <E> type of the elements
+ * @param <C> type of the trigger collections created by the template
+ */
+public final class TriggerTemplate<E, C extends TriggerCollection<E>> implements AutoCloseable {
+    private final Class<?> backingType;
+    private final Triggers<E> triggers;
+    private final Function<Collection<E>, C> wrapper;
+
+    TriggerTemplate(Class<?> backingType, Triggers<E> triggers, Function<Collection<E>, C> wrapper) {
+        this.backingType = backingType;
+        this.triggers = triggers;
+        this.wrapper = wrapper;
+    }
+
+    /**
+     * Checks that the compiled triggers can be shared by many collections and marks them as shared,
+     * so a collection does not close what the others still use.
+     */
+    static <T extends Triggers<?>> T shared(T triggers) {
+        if (triggers.journalPath != null) throw new IllegalStateException("Templates do not support journals");
+        triggers.shared = true;
+        return triggers;
+    }
+
+    /**
+     * Wraps the collection with the triggers of the template.
+     *
+     * @param backing original collection, a {@link java.util.List} for a template of a list builder,
+     *                a {@link java.util.Queue} for a queue builder and so on
+     * @return trigger collection backed by the original one
+     * @throws IllegalArgumentException if the collection is not of the type the builder was created for
+     */
+    public C apply(Collection<E> backing) {
+        if (!backingType.isInstance(backing)) {
+            throw new IllegalArgumentException("The template wraps instances of " + backingType.getName());
+        }
+        return wrapper.apply(backing);
+    }
+
+    /**
+     * Executes the pending {@code after} triggers of all the collections of the template and switches them back
+     * to synchronous triggers, completes the subscribers of their {@link TriggerCollection#changes()}.
+     * Does nothing unless the builder declared {@code async} triggers or {@code publishChanges}.
+     */
+    @Override
+    public void close() {
+        triggers.closeShared();
+    }
+}
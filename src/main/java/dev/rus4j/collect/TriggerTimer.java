@@ -0,0 +1,25 @@
+package dev.rus4j.collect;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Single daemon thread shared by all collections for delayed and periodic trigger work.
+ * Cancelled tasks are removed right away, so collections that cancel their timers do not leak them.
+ */
+final class TriggerTimer {
+    static final ScheduledExecutorService INSTANCE = create();
+
+    private TriggerTimer() {
+    }
+
+    private static ScheduledExecutorService create() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, task -> {
+            final Thread thread = new Thread(task, "trigger-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,378 @@
+package dev.rus4j.collect;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * List that keeps its elements in a persistent vector: a trie of 32-element arrays that are never modified
+ * once published, see {@link Version}. Every modification builds a new version that shares all the untouched
+ * arrays with the previous one and publishes it with a single volatile write, so {@link #snapshot()} costs
+ * one read and the snapshot stays valid while the list is modified.
+ *
+ * <p>{@code get}, {@code set} and additions and removals at the end copy a few arrays of 32 references.
+ * Additions and removals in the middle reuse the arrays before the index and rebuild the rest,
+ * the same as shifting the tail of an {@link ArrayList}. Modifications must not run concurrently,
+ * snapshots can be taken and read from any thread.
+ *
+ * @param <E> type of the elements
+ */
+final class VersionedList<E> extends AbstractList<E> implements RandomAccess {
+    private volatile Version version = Version.EMPTY;
+
+    @Override
+    public E get(int index) {
+        final Version v = version;
+        return v.get(Objects.checkIndex(index, v.size));
+    }
+
+    @Override
+    public int size() {
+        return version.size;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        final Version v = version;
+        final E previous = v.get(Objects.checkIndex(index, v.size));
+        version = v.set(index, element);
+        return previous;
+    }
+
+    @Override
+    public boolean add(E e) {
+        version = version.push(e);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        final Version v = version;
+        if (index == v.size) {
+            add(element);
+        } else {
+            version = v.replace(Objects.checkIndex(index, v.size), index, new Object[]{element});
+            modCount++;
+        }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        final Version v = version;
+        final Object[] elements = c.toArray();
+        version = v.replace(Objects.checkIndex(index, v.size + 1), index, elements);
+        modCount++;
+        return elements.length > 0;
+    }
+
+    @Override
+    public E remove(int index) {
+        final Version v = version;
+        final E removed = v.get(Objects.checkIndex(index, v.size));
+        version = index == v.size - 1 ? v.pop() : v.replace(index, index + 1, new Object[0]);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) return;
+        version = version.replace(fromIndex, toIndex, new Object[0]);
+        modCount++;
+    }
+
+    /**
+     * Filters the elements in one pass and publishes the remaining ones as a single version.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        final Object[] elements = toArray();
+        int kept = 0;
+        for (Object e : elements) {
+            if (!filter.test((E) e)) elements[kept++] = e;
+        }
+        if (kept == elements.length) return false;
+        version = Version.EMPTY.replace(0, 0, Arrays.copyOf(elements, kept));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    public void clear() {
+        version = Version.EMPTY;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        final Object[] elements = toArray();
+        Arrays.sort(elements, (Comparator<Object>) c);
+        version = Version.EMPTY.replace(0, 0, elements);
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        final Object[] elements = toArray();
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = operator.apply((E) elements[i]);
+        }
+        version = Version.EMPTY.replace(0, 0, elements);
+        modCount++;
+    }
+
+    /**
+     * Replaces all the elements with a single version, a snapshot has either the previous elements or the new ones.
+     */
+    void replaceWith(Collection<? extends E> c) {
+        version = Version.EMPTY.replace(0, 0, c.toArray());
+        modCount++;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return version.toArray();
+    }
+
+    /**
+     * Returns the current version of the list.
+     *
+     * @return immutable list that is not affected by further modifications
+     */
+    List<E> snapshot() {
+        return new Snapshot<>(version);
+    }
+
+    /**
+     * Immutable version of the list, read without locks.
+     */
+    private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+        private final Version version;
+
+        Snapshot(Version version) {
+            this.version = version;
+        }
+
+        @Override
+        public E get(int index) {
+            return version.get(Objects.checkIndex(index, version.size));
+        }
+
+        @Override
+        public int size() {
+            return version.size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return version.toArray();
+        }
+    }
+
+    /**
+     * Persistent vector with a tail: the last 1 to 32 elements are kept in {@link #tail}, the others
+     * in full 32-element leaves of a trie whose depth is {@link #shift} / 5.
+     */
+    private static final class Version {
+        private static final int BITS = 5;
+        private static final int WIDTH = 1 << BITS;
+        private static final int MASK = WIDTH - 1;
+        private static final Version EMPTY = new Version(0, BITS, new Object[WIDTH], new Object[0]);
+
+        private final int size;
+        private final int shift;
+        private final Object[] root;
+        private final Object[] tail;
+
+        Version(int size, int shift, Object[] root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        @SuppressWarnings("unchecked")
+        <E> E get(int index) {
+            return (E) leaf(index)[index & MASK];
+        }
+
+        Version set(int index, Object element) {
+            if (index >= tailOffset()) {
+                final Object[] newTail = tail.clone();
+                newTail[index & MASK] = element;
+                return new Version(size, shift, root, newTail);
+            }
+            return new Version(size, shift, copyPath(shift, root, index, element), tail);
+        }
+
+        Version push(Object element) {
+            if (size - tailOffset() < WIDTH) {
+                final Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+                newTail[tail.length] = element;
+                return new Version(size + 1, shift, root, newTail);
+            }
+            final Object[] newRoot;
+            int newShift = shift;
+            if ((size >>> BITS) > (1 << shift)) {
+                newRoot = new Object[WIDTH];
+                newRoot[0] = root;
+                newRoot[1] = path(shift, tail);
+                newShift += BITS;
+            } else {
+                newRoot = pushTail(shift, root);
+            }
+            return new Version(size + 1, newShift, newRoot, new Object[]{element});
+        }
+
+        Version pop() {
+            if (size == 1) return EMPTY;
+            if (size - tailOffset() > 1) {
+                return new Version(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+            }
+            final Object[] newTail = leaf(size - 2);
+            Object[] newRoot = popTail(shift, root);
+            int newShift = shift;
+            if (newRoot == null) newRoot = EMPTY.root;
+            if (shift > BITS && newRoot[1] == null) {
+                newRoot = (Object[]) newRoot[0];
+                newShift -= BITS;
+            }
+            return new Version(size - 1, newShift, newRoot, newTail);
+        }
+
+        /**
+         * Replaces the elements from {@code from} to {@code to} with the inserted ones. The leaves before
+         * the leaf of {@code from} are shared with this version, the following elements are copied.
+         */
+        Version replace(int from, int to, Object[] inserted) {
+            final int newSize = size - (to - from) + inserted.length;
+            if (newSize == 0) return EMPTY;
+            final int newTailOffset = (newSize - 1) & ~MASK;
+            final int start = Math.min(from & ~MASK, newTailOffset);
+            final Object[] rest = new Object[newSize - start];
+            copy(start, from, rest, 0);
+            System.arraycopy(inserted, 0, rest, from - start, inserted.length);
+            copy(to, size, rest, from - start + inserted.length);
+
+            final List<Object[]> leaves = new ArrayList<>((newSize >>> BITS) + 1);
+            for (int i = 0; i < start; i += WIDTH) {
+                leaves.add(leaf(i));
+            }
+            for (int i = start; i < newTailOffset; i += WIDTH) {
+                leaves.add(Arrays.copyOfRange(rest, i - start, i - start + WIDTH));
+            }
+            final Object[] newTail = Arrays.copyOfRange(rest, newTailOffset - start, newSize - start);
+            int newShift = BITS;
+            List<Object[]> nodes = leaves;
+            while (nodes.size() > WIDTH) {
+                final List<Object[]> parents = new ArrayList<>((nodes.size() >>> BITS) + 1);
+                for (int i = 0; i < nodes.size(); i += WIDTH) {
+                    parents.add(nodes.subList(i, Math.min(i + WIDTH, nodes.size())).toArray(new Object[WIDTH]));
+                }
+                nodes = parents;
+                newShift += BITS;
+            }
+            return new Version(newSize, newShift, nodes.toArray(new Object[WIDTH]), newTail);
+        }
+
+        Object[] toArray() {
+            final Object[] result = new Object[size];
+            copy(0, size, result, 0);
+            return result;
+        }
+
+        private int tailOffset() {
+            return size == 0 ? 0 : (size - 1) & ~MASK;
+        }
+
+        /**
+         * Copies the elements from {@code from} to {@code to} leaf by leaf.
+         */
+        private void copy(int from, int to, Object[] target, int position) {
+            int i = from;
+            while (i < to) {
+                final int length = Math.min(WIDTH - (i & MASK), to - i);
+                System.arraycopy(leaf(i), i & MASK, target, position + i - from, length);
+                i += length;
+            }
+        }
+
+        private Object[] leaf(int index) {
+            if (index >= tailOffset()) return tail;
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Object[]) node[(index >>> level) & MASK];
+            }
+            return node;
+        }
+
+        private static Object[] copyPath(int level, Object[] node, int index, Object element) {
+            final Object[] copy = node.clone();
+            if (level == 0) {
+                copy[index & MASK] = element;
+            } else {
+                final int child = (index >>> level) & MASK;
+                copy[child] = copyPath(level - BITS, (Object[]) node[child], index, element);
+            }
+            return copy;
+        }
+
+        private Object[] pushTail(int level, Object[] parent) {
+            final int child = ((size - 1) >>> level) & MASK;
+            final Object[] copy = parent.clone();
+            if (level == BITS) {
+                copy[child] = tail;
+            } else {
+                final Object[] node = (Object[]) parent[child];
+                copy[child] = node == null ? path(level - BITS, tail) : pushTail(level - BITS, node);
+            }
+            return copy;
+        }
+
+        private Object[] popTail(int level, Object[] node) {
+            final int child = ((size - 2) >>> level) & MASK;
+            if (level > BITS) {
+                final Object[] newChild = popTail(level - BITS, (Object[]) node[child]);
+                if (newChild == null && child == 0) return null;
+                final Object[] copy = node.clone();
+                copy[child] = newChild;
+                return copy;
+            }
+            if (child == 0) return null;
+            final Object[] copy = node.clone();
+            copy[child] = null;
+            return copy;
+        }
+
+        private static Object[] path(int level, Object[] leaf) {
+            if (level == 0) return leaf;
+            final Object[] node = new Object[WIDTH];
+            node[0] = path(level - BITS, leaf);
+            return node;
+        }
+    }
+}
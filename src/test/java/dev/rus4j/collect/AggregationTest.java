@@ -0,0 +1,97 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AggregationTest {
+
+    @Test
+    public void testCountingAndSumming() {
+        final Aggregation.Aggregator<String, Long> count = Aggregation.<String>counting().newAggregator();
+        final Aggregation.Aggregator<String, Long> length = Aggregation.summingLong(String::length).newAggregator();
+        count.added("a");
+        count.added("bb");
+        length.added("a");
+        length.added("bb");
+        count.removed("a");
+        length.removed("a");
+        assertEquals(Long.valueOf(1), count.get());
+        assertEquals(Long.valueOf(2), length.get());
+    }
+
+    @Test
+    public void testDoubleSumDoesNotDrift() {
+        final Aggregation.Aggregator<Double, Double> sum = Aggregation.summingDouble((Double d) -> d).newAggregator();
+        final Aggregation.Aggregator<Double, Double> average =
+            Aggregation.averagingDouble((Double d) -> d).newAggregator();
+        assertEquals(0, average.get(), 0);
+        sum.added(1e16);
+        average.added(1e16);
+        for (int i = 0; i < 1000; i++) {
+            sum.added(1.0);
+            average.added(1.0);
+        }
+        sum.removed(1e16);
+        average.removed(1e16);
+        assertEquals(1000.0, sum.get(), 0);
+        assertEquals(1.0, average.get(), 0);
+
+        final Aggregation.Aggregator<Double, Double> empty =
+            Aggregation.averagingDouble((Double d) -> d).newAggregator();
+        empty.added(2.0);
+        empty.removed(2.0);
+        assertEquals(0, empty.get(), 0);
+    }
+
+    @Test
+    public void testMinAndMaxSurviveRemoval() {
+        final Aggregation.Aggregator<String, Optional<String>> min =
+            Aggregation.minBy(Comparator.comparingInt(String::length)).newAggregator();
+        final Aggregation.Aggregator<String, Optional<String>> max =
+            Aggregation.maxBy(Comparator.<String>naturalOrder()).newAggregator();
+        for (String s : new String[] {"bb", "a", "c", "ddd"}) {
+            min.added(s);
+            max.added(s);
+        }
+        assertEquals(Optional.of("a"), min.get());
+        assertEquals(Optional.of("ddd"), max.get());
+        min.removed("a");
+        max.removed("ddd");
+        assertEquals(Optional.of("c"), min.get());
+        assertEquals(Optional.of("c"), max.get());
+        min.removed("x");
+        min.removed("xx");
+        min.removed("c");
+        min.removed("bb");
+        min.removed("ddd");
+        assertFalse(min.get().isPresent());
+    }
+
+    @Test
+    public void testGroupingBy() {
+        final Aggregation.Aggregator<String, Map<Integer, Long>> groups =
+            Aggregation.groupingBy(String::length, Aggregation.<String>counting()).newAggregator();
+        groups.added("a");
+        groups.added("b");
+        groups.added("cc");
+        final Map<Integer, Long> view = groups.get();
+        assertEquals(Long.valueOf(2), view.get(1));
+        assertEquals(Map.of(1, 2L, 2, 1L), new HashMap<>(view));
+        groups.removed("cc");
+        groups.removed("ddd");
+        assertFalse(view.containsKey(2));
+        assertNull(view.get(2));
+        assertEquals(1, view.size());
+        assertTrue(view.entrySet().iterator().hasNext());
+        assertEquals(1, view.entrySet().size());
+    }
+}
@@ -0,0 +1,151 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncDispatcherTest {
+
+    @Test
+    public void testKeepsOrder() {
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(AsyncDispatcher.defaultExecutor(), 4, OverflowPolicy.BLOCK);
+        final BiConsumer<Integer, Boolean> trigger = dispatcher.wrap((i, r) -> events.add(i));
+
+        for (int i = 0; i < 1000; i++) {
+            trigger.accept(i, true);
+        }
+        dispatcher.flush();
+        assertEquals(1000, events.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), events.get(i));
+        }
+        assertNull(dispatcher.wrap((BiConsumer<Integer, Boolean>) null));
+        assertNull(dispatcher.wrap((Consumer<Integer>) null));
+    }
+
+    @Test
+    public void testDropsWhenFull() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> events = new ArrayList<>();
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(tasks::add, 2, OverflowPolicy.DROP);
+
+        for (int i = 0; i < 5; i++) {
+            final int event = i;
+            dispatcher.dispatch(() -> events.add(event));
+        }
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals(List.of(0, 1), events);
+    }
+
+    @Test
+    public void testCallerRunsWhenFull() throws InterruptedException {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(tasks::add, 2, OverflowPolicy.CALLER_RUNS);
+
+        for (int i = 0; i < 2; i++) {
+            final int event = i;
+            dispatcher.dispatch(() -> events.add(event));
+        }
+        final Thread caller = new Thread(() -> dispatcher.dispatch(() -> {
+            events.add(2);
+            threads.add(Thread.currentThread());
+        }));
+        caller.start();
+        while (caller.getState() != Thread.State.TIMED_WAITING) {
+            Thread.yield();
+        }
+        tasks.get(0).run();
+        caller.join();
+        assertEquals(List.of(0, 1, 2), events);
+        assertEquals(List.of(caller), threads);
+    }
+
+    @Test
+    public void testBlocksWhenFull() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(task -> new Thread(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        }).start(), 2, OverflowPolicy.BLOCK);
+
+        dispatcher.dispatch(() -> events.add(0));
+        dispatcher.dispatch(() -> events.add(1));
+        final Thread producer = new Thread(() -> dispatcher.dispatch(() -> events.add(2)));
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+        release.countDown();
+        producer.join();
+        dispatcher.flush();
+        assertEquals(List.of(0, 1, 2), events);
+    }
+
+    @Test(timeout = 5000)
+    public void testTriggersDispatchingOnTheDeliveringThread() {
+        for (OverflowPolicy policy : List.of(OverflowPolicy.BLOCK, OverflowPolicy.CALLER_RUNS)) {
+            final List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+            final AsyncDispatcher dispatcher = new AsyncDispatcher(AsyncDispatcher.defaultExecutor(), 2, policy);
+            dispatcher.dispatch(() -> {
+                for (int i = 1; i <= 5; i++) {
+                    final int event = i;
+                    dispatcher.dispatch(() -> events.add(event));
+                }
+                dispatcher.flush();
+                events.add(6);
+            });
+            dispatcher.flush();
+            assertEquals(List.of(1, 2, 3, 4, 5, 6), events);
+        }
+    }
+
+    @Test
+    public void testRunsOnCallerWhenRejectedOrClosed() {
+        final List<Integer> events = new ArrayList<>();
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(task -> {
+            throw new RejectedExecutionException();
+        }, 4, OverflowPolicy.BLOCK);
+
+        dispatcher.dispatch(() -> events.add(0));
+        dispatcher.close();
+        dispatcher.dispatch(() -> events.add(1));
+        assertEquals(List.of(0, 1), events);
+    }
+
+    @Test
+    public void testReportsFailedTriggers() {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        Thread.currentThread().setUncaughtExceptionHandler((thread, e) -> failure.set(e));
+        try {
+            final IllegalStateException exception = new IllegalStateException();
+            final AsyncDispatcher dispatcher = new AsyncDispatcher(Runnable::run, 4, OverflowPolicy.BLOCK);
+            dispatcher.dispatch(() -> {
+                throw exception;
+            });
+            assertSame(exception, failure.get());
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+    }
+}
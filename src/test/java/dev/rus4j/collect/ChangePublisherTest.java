@@ -0,0 +1,232 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChangePublisherTest {
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void testListEvents() {
+        final TriggerList<Integer> list = TriggerList.from(new ArrayList<Integer>())
+            .publishChanges(DIRECT, 64, OverflowPolicy.BLOCK)
+            .build();
+        list.add(0);
+        final Recorder<Integer> recorder = new Recorder<>(Long.MAX_VALUE);
+        list.changes().subscribe(recorder);
+        list.add(1);
+        list.addAll(List.of(2, 3, 4));
+        list.remove(Integer.valueOf(2));
+        list.set(0, 10);
+        list.replaceAll(e -> e * 2);
+        list.removeIf(e -> e > 6);
+        list.subList(0, 1).clear();
+        list.add(5);
+        list.clear();
+        list.clear();
+        assertEquals(List.of(
+            "ADDED added [1] removed []",
+            "BATCH added [2, 3, 4] removed []",
+            "REMOVED added [] removed [2]",
+            "SET at 0 added [10] removed [0]",
+            "BATCH added [20, 2, 6, 8] removed [10, 1, 3, 4]",
+            "BATCH added [] removed [20, 8]",
+            "BATCH added [] removed [2]",
+            "ADDED added [5] removed []",
+            "CLEARED added [] removed [6, 5]"
+        ), recorder.events);
+        list.close();
+        assertTrue(recorder.completed);
+        list.add(7);
+        assertEquals(9, recorder.events.size());
+    }
+
+    @Test
+    public void testCollectionEvents() {
+        final TriggerCollection<Integer> set = TriggerCollection.from(new HashSet<Integer>())
+            .afterRemoveBatch(batch -> { })
+            .publishChanges(DIRECT, 64, OverflowPolicy.DROP)
+            .build();
+        final Recorder<Integer> recorder = new Recorder<>(Long.MAX_VALUE);
+        set.changes().subscribe(recorder);
+        set.add(1);
+        set.add(1);
+        set.remove(2);
+        set.addAll(List.of(2, 3));
+        final Iterator<Integer> iterator = set.iterator();
+        iterator.next();
+        iterator.remove();
+        set.removeAll(List.of(3));
+        set.clear();
+        assertEquals(List.of(
+            "ADDED added [1] removed []",
+            "BATCH added [2, 3] removed []",
+            "REMOVED added [] removed [1]",
+            "BATCH added [] removed [3]",
+            "CLEARED added [] removed [2]"
+        ), recorder.events);
+    }
+
+    @Test
+    public void testConcurrentCollectionAndQueues() {
+        final TriggerCollection<Integer> concurrent = ConcurrentTriggerCollection
+            .concurrent(ConcurrentHashMap.<Integer>newKeySet())
+            .publishChanges(DIRECT, 64, OverflowPolicy.BLOCK)
+            .build();
+        final Recorder<Integer> recorder = new Recorder<>(Long.MAX_VALUE);
+        concurrent.changes().subscribe(recorder);
+        concurrent.add(1);
+        concurrent.clear();
+        assertEquals(List.of("ADDED added [1] removed []", "BATCH added [] removed [1]"), recorder.events);
+
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(new ArrayBlockingQueue<Integer>(8))
+            .publishChanges(DIRECT, 64, OverflowPolicy.BLOCK)
+            .build();
+        final Recorder<Integer> queueRecorder = new Recorder<>(Long.MAX_VALUE);
+        queue.changes().subscribe(queueRecorder);
+        queue.offer(1);
+        queue.offer(2);
+        queue.offer(3);
+        queue.poll();
+        queue.drainTo(new ArrayList<>());
+        assertEquals(List.of(
+            "ADDED added [1] removed []", "ADDED added [2] removed []", "ADDED added [3] removed []",
+            "REMOVED added [] removed [1]", "BATCH added [] removed [2, 3]"
+        ), queueRecorder.events);
+    }
+
+    @Test
+    public void testDropWithoutDemand() {
+        final TriggerList<Integer> list = TriggerList.from(new ArrayList<Integer>())
+            .publishChanges(DIRECT, 4, OverflowPolicy.DROP)
+            .build();
+        final Recorder<Integer> recorder = new Recorder<>(0);
+        list.changes().subscribe(recorder);
+        for (int i = 0; i < 20; i++) {
+            list.add(i);
+        }
+        assertEquals(20, list.size());
+        assertTrue(recorder.events.isEmpty());
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(List.of(
+            "ADDED added [0] removed []", "ADDED added [1] removed []",
+            "ADDED added [2] removed []", "ADDED added [3] removed []"
+        ), recorder.events);
+        list.add(20);
+        assertEquals("ADDED added [20] removed []", recorder.events.get(4));
+    }
+
+    @Test
+    public void testSlowSubscriberBlocksWriter() throws InterruptedException {
+        final TriggerList<Integer> list = TriggerList.from(new CopyOnWriteArrayList<Integer>())
+            .publishChanges(AsyncDispatcher.defaultExecutor(), 2, OverflowPolicy.BLOCK)
+            .build();
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        list.changes().subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ChangeEvent<Integer> item) {
+                received.add(item.added().get(0));
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        list.close();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        try {
+            TriggerList.from(new ArrayList<Integer>()).build().changes();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("The collection does not publish changes", expected.getMessage());
+        }
+        try {
+            TriggerList.from(new ArrayList<Integer>()).publishChanges(DIRECT, 0, OverflowPolicy.DROP);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Buffer capacity must be positive", expected.getMessage());
+        }
+        try {
+            TriggerList.from(new ArrayList<Integer>()).publishChanges(DIRECT, 8, OverflowPolicy.CALLER_RUNS);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Change events do not support CALLER_RUNS", expected.getMessage());
+        }
+        final TriggerList<Integer> list = TriggerList.from(new ArrayList<Integer>()).publishChanges().build();
+        list.add(1);
+        list.close();
+        assertEquals(List.of(1), list);
+    }
+
+    private static final class Recorder<E> implements Flow.Subscriber<ChangeEvent<E>> {
+        private final long initialDemand;
+        private final List<String> events = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+
+        Recorder(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(ChangeEvent<E> item) {
+            events.add(item.toString());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable.toString());
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
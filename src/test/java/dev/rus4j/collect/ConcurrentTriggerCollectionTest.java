@@ -0,0 +1,315 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentTriggerCollectionTest {
+    private static final int THREADS = 4;
+
+    @Test
+    public void testAllowAddIsAtomic() throws InterruptedException {
+        final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger added = new AtomicInteger();
+        final Collection<Integer> collection = ConcurrentTriggerCollection.concurrent(queue)
+            .allowAdd(e -> !queue.contains(e))
+            .afterAdd((e, result) -> added.incrementAndGet())
+            .build();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                collection.add(i);
+            }
+        });
+        assertEquals(1000, queue.size());
+        assertEquals(1000, added.get());
+    }
+
+    @Test
+    public void testSingleStripeGuardsTheWholeCollection() throws InterruptedException {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final Collection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowAdd(e -> set.size() < 100)
+            .stripes(1)
+            .build();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                collection.add(i);
+            }
+        });
+        assertEquals(100, set.size());
+    }
+
+    @Test
+    public void testWithoutChecksNoLockIsTaken() throws InterruptedException {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final ConcurrentTriggerCollection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .afterAddBatch(batch -> {
+                synchronized (batches) {
+                    batches.add(batch);
+                }
+            })
+            .build();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 100; i++) {
+                collection.add(i);
+            }
+        });
+        assertEquals(100, set.size());
+        assertEquals(100, batches.size());
+        assertTrue(collection.addAll(List.of(100, 101)));
+        assertFalse(collection.removeAll(List.of(-1)));
+        assertTrue(collection.remove(100));
+        assertTrue(collection.removeIf(e -> e > 50));
+        collection.clear();
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testRemoveTriggers() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        set.addAll(List.of(1, 2, 3, 4, 5, 6));
+        final List<String> calls = new ArrayList<>();
+        final Collection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowRemove(e -> e != 1)
+            .beforeRemove(e -> calls.add("before " + e))
+            .afterRemove((e, result) -> calls.add("after " + e + " " + result))
+            .afterRemoveBatch(batch -> calls.add("batch " + batch))
+            .allowRemoveEach(e -> e != 2)
+            .build();
+
+        assertFalse(collection.remove(1));
+        assertTrue(collection.remove(6));
+        assertFalse(collection.remove(7));
+        assertEquals(List.of("before 6", "after 6 true", "batch [6]", "before 7", "after 7 false"), calls);
+
+        calls.clear();
+        assertTrue(collection.removeAll(List.of(2, 5)));
+        assertTrue(collection.retainAll(List.of(1, 2, 3)));
+        assertFalse(collection.removeIf(e -> e > 10));
+        assertEquals(List.of(
+            "before 5", "after 5 true", "batch [5]", "before 4", "after 4 true", "batch [4]"
+        ), calls);
+
+        calls.clear();
+        final Iterator<Integer> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(Set.of(1), set);
+        assertEquals(List.of(
+            "before 2", "after 2 true", "batch [2]", "before 3", "after 3 true", "batch [3]"
+        ), calls);
+        calls.clear();
+        collection.clear();
+        assertEquals(Set.of(1), set);
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void testBulkRemovalFromQueueRemovesVisitedInstances() {
+        final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        final String first = new String("a");
+        final String second = new String("a");
+        queue.addAll(List.of(first, "b", second, "c"));
+        final List<String> removed = new ArrayList<>();
+        final ConcurrentTriggerCollection<String> collection = ConcurrentTriggerCollection.concurrent(queue)
+            .allowRemove(e -> !e.equals("c"))
+            .afterRemove((e, result) -> removed.add(e))
+            .aggregate("count", Aggregation.counting())
+            .build();
+
+        assertTrue(collection.removeIf(e -> e == second));
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(queue));
+        assertTrue(queue.iterator().next() == first);
+        assertTrue(removed.get(0) == second);
+        collection.clear();
+        assertEquals(List.of("c"), new ArrayList<>(queue));
+        assertEquals(List.of("a", "a", "b"), removed);
+        assertEquals(1L, (long) collection.aggregate("count"));
+    }
+
+    @Test
+    public void testBulkTriggers() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final List<String> calls = new ArrayList<>();
+        final Collection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowAddAll(c -> c.size() < 4)
+            .beforeAddAll(c -> calls.add("before add " + c))
+            .afterAddAll((c, result) -> calls.add("after add " + c + " " + result))
+            .allowAddEach(e -> e > 0)
+            .afterAddBatch(batch -> calls.add("batch " + batch))
+            .allowRemoveAll(c -> !c.isEmpty())
+            .beforeRemoveAll(c -> calls.add("before remove " + c))
+            .afterRemoveAll((c, result) -> calls.add("after remove " + c + " " + result))
+            .build();
+
+        assertFalse(collection.addAll(List.of(1, 2, 3, 4)));
+        assertTrue(collection.addAll(List.of(-1, 1, 2)));
+        assertFalse(collection.addAll(List.of(-1)));
+        assertFalse(collection.removeAll(List.of()));
+        assertTrue(collection.removeAll(List.of(1)));
+        assertEquals(Set.of(2), set);
+        assertEquals(List.of(
+            "before add [-1, 1, 2]", "batch [1, 2]", "after add [-1, 1, 2] true",
+            "before add [-1]", "after add [-1] false",
+            "before remove [1]", "after remove [1] true"
+        ), calls);
+    }
+
+    @Test
+    public void testUniqueIndexUnderContention() throws InterruptedException {
+        final Set<String> set = ConcurrentHashMap.newKeySet();
+        final ConcurrentTriggerCollection<String> collection = ConcurrentTriggerCollection.concurrent(set)
+            .index("length", String::length, IndexOption.UNIQUE)
+            .aggregate("count", Aggregation.counting())
+            .build();
+
+        final AtomicInteger thread = new AtomicInteger();
+        runConcurrently(() -> {
+            final String prefix = String.valueOf((char) ('a' + thread.getAndIncrement()));
+            for (int i = 1; i <= 50; i++) {
+                collection.add(prefix.repeat(i));
+            }
+        });
+        assertEquals(50, set.size());
+        assertEquals(50L, (long) collection.aggregate("count"));
+        assertEquals(1, collection.lookup("length", 7).size());
+        assertTrue(collection.indexMemory("length") > 0);
+
+        final String seven = collection.lookup("length", 7).get(0);
+        assertTrue(collection.remove(seven));
+        assertTrue(collection.addAll(List.of("1234567", "12")));
+        assertEquals(List.of("1234567"), collection.lookup("length", 7));
+        collection.clear();
+        assertEquals(0L, (long) collection.aggregate("count"));
+        assertEquals(List.of(), collection.lookup("length", 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidStripes() {
+        ConcurrentTriggerCollection.concurrent(ConcurrentHashMap.newKeySet()).stripes(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyStripes() {
+        ConcurrentTriggerCollection.concurrent(ConcurrentHashMap.newKeySet()).stripes(1 << 17);
+    }
+
+    @Test
+    public void testStripesAreRoundedUp() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final Collection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowAdd(e -> true)
+            .stripes(3)
+            .build();
+        for (int i = 0; i < 10; i++) {
+            collection.add(i);
+        }
+        assertEquals(10, set.size());
+    }
+
+    @Test
+    public void testBatchUnderContention() throws InterruptedException {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final TriggerCollection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowAdd(e -> !set.contains(-e))
+            .stripes(4)
+            .build();
+        final AtomicInteger next = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                final int e = next.incrementAndGet();
+                collection.batch(tx -> {
+                    tx.add(e);
+                    tx.add(-e);
+                    tx.remove(e);
+                });
+            }
+        });
+        assertEquals(THREADS * 1000, set.size());
+        set.forEach(e -> assertTrue(e < 0));
+    }
+
+    @Test
+    public void testBatchIsCheckedAgainUnderTheLocks() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean open = new AtomicBoolean(true);
+        final List<String> calls = new ArrayList<>();
+        final TriggerCollection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .allowAdd(e -> open.get())
+            .allowRemove(e -> open.get())
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .afterRemove((e, result) -> calls.add("remove " + e))
+            .build();
+        assertFalse(collection.batch(tx -> {
+            assertTrue(tx.add(1));
+            open.set(false);
+        }));
+        assertTrue(set.isEmpty());
+        open.set(true);
+        assertTrue(collection.batch(tx -> tx.add(2)));
+        assertFalse(collection.batch(tx -> {
+            assertTrue(tx.remove(2));
+            open.set(false);
+        }));
+        assertEquals(Set.of(2), set);
+        assertEquals(List.of("add 2"), calls);
+    }
+
+    @Test
+    public void testIteratorRemovesOnlyElementsStillPresent() {
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final List<String> calls = new ArrayList<>();
+        final TriggerCollection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .afterRemove((e, result) -> calls.add("after " + e + " " + result))
+            .build();
+        collection.addAll(List.of(1, 2));
+        final Iterator<Integer> iterator = collection.iterator();
+        final Integer first = iterator.next();
+        assertTrue(collection.remove(first));
+        iterator.remove();
+        assertEquals(3L - first, (long) collection.aggregate("sum"));
+        assertEquals(List.of("after " + first + " true", "after " + first + " false"), calls);
+    }
+
+    private static void runConcurrently(Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                task.run();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
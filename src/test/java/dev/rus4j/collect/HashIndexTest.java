@@ -0,0 +1,66 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashIndexTest {
+
+    @Test
+    public void testSharedKeysGetBucket() {
+        final List<String> elements = new ArrayList<>(List.of("a", "b", "cc"));
+        final HashIndex<String> index = new HashIndex<>("length", String::length, false, false, elements);
+        final long unique = new HashIndex<>("self", s -> s, false, false, elements).memory();
+
+        assertEquals(List.of("a", "b"), index.lookup(1));
+        assertTrue(index.memory() > unique);
+        index.removed("a");
+        assertEquals(List.of("b"), index.lookup(1));
+        index.removed("x");
+        index.removed("cc");
+        assertEquals(List.of(), index.lookup(2));
+    }
+
+    @Test
+    public void testLazyIndexIgnoresChangesUntilBuilt() {
+        final List<String> elements = new ArrayList<>(List.of("a"));
+        final HashIndex<String> index = new HashIndex<>("self", s -> s, true, true, elements);
+
+        index.added("b");
+        index.removed("a");
+        assertEquals(0, index.memory());
+        elements.add("b");
+        assertFalse(index.admits("a", null));
+        assertTrue(index.admits("a", "a"));
+        assertTrue(index.admits("c", null));
+        assertEquals(List.of("b"), index.lookup("b"));
+    }
+
+    @Test
+    public void testLazyUniqueIndexOfDuplicates() {
+        final HashIndex<String> index = new HashIndex<>("length", String::length, true, true, List.of("a", "b"));
+        try {
+            index.lookup(1);
+        } catch (IllegalStateException e) {
+            assertEquals(0, index.memory());
+            return;
+        }
+        throw new AssertionError("Duplicate keys are not detected");
+    }
+
+    @Test
+    public void testMemoryGrowsWithTable() {
+        final List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            elements.add(i);
+        }
+        final long small = new HashIndex<>("self", (Integer i) -> i, false, false, elements.subList(0, 10)).memory();
+        final long large = new HashIndex<>("self", (Integer i) -> i, false, false, elements).memory();
+        assertTrue(large > small * 5);
+    }
+}
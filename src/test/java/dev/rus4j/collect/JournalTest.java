@@ -0,0 +1,383 @@
+package dev.rus4j.collect;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testListReplay() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("list.journal");
+        final List<Integer> list = new ArrayList<>();
+        final TriggerList<Integer> triggerList = TriggerList.from(list)
+            .allowAdd(e -> e >= 0)
+            .journal(path, JournalCodec.integers())
+            .build();
+
+        triggerList.addAll(List.of(5, 3, 8, 1));
+        triggerList.add(-1);
+        triggerList.add(0, 9);
+        triggerList.set(1, 4);
+        triggerList.remove(Integer.valueOf(8));
+        triggerList.remove(0);
+        triggerList.sort(Comparator.naturalOrder());
+        triggerList.replaceAll(e -> e * 10);
+        triggerList.addAll(1, List.of(7, 7));
+        triggerList.subList(0, 2).clear();
+        final ListIterator<Integer> iterator = triggerList.listIterator();
+        iterator.next();
+        iterator.set(2);
+        iterator.add(6);
+        triggerList.removeIf(e -> e == 40);
+        assertEquals(List.of(2, 6, 30), list);
+        assertEquals(1, triggerList.indexOf(6));
+        assertTrue(triggerList.contains(30));
+        triggerList.flush();
+        triggerList.close();
+        triggerList.close();
+
+        final List<Integer> replayed = new ArrayList<>();
+        assertTrue(Journal.replay(path, JournalCodec.integers(), replayed) > 0);
+        assertEquals(list, replayed);
+        try {
+            triggerList.add(1);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(List.of(2, 6, 30, 1), list);
+        }
+        triggerList.flush();
+    }
+
+    @Test
+    public void testCollectionReplay() {
+        final Path path = folder.getRoot().toPath().resolve("set.journal");
+        final Set<String> set = new HashSet<>(Set.of("a", "b"));
+        final TriggerCollection<String> collection = TriggerCollection.from(set)
+            .journal(path, JournalCodec.strings())
+            .build();
+
+        assertTrue(collection.add("c"));
+        assertFalse(collection.add("c"));
+        assertTrue(collection.remove("a"));
+        assertFalse(collection.remove("x"));
+        collection.addAll(List.of("д", "e", "f"));
+        collection.removeIf(e -> e.equals("e"));
+        final Iterator<String> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().equals("b")) iterator.remove();
+        }
+        assertEquals(Set.of("c", "д", "f"), set);
+        assertTrue(collection.equals(set));
+        assertEquals(set.hashCode(), collection.hashCode());
+        assertTrue(collection.contains("f"));
+        assertEquals(replay(path, JournalCodec.strings()), set);
+
+        collection.clear();
+        collection.add("g");
+        assertEquals(Set.of("g"), replay(path, JournalCodec.strings()));
+    }
+
+    @Test
+    public void testContinueAndCompact() {
+        final Path path = folder.getRoot().toPath().resolve("compact.journal");
+        final List<Long> list = new ArrayList<>(List.of(1L, 2L));
+        final TriggerList<Long> first = TriggerList.from(list).journal(path, JournalCodec.longs(), 3).build();
+        for (long i = 3; i <= 10; i++) {
+            first.add(i);
+        }
+        first.close();
+        assertTrue(Files.exists(path.resolveSibling("compact.journal.snapshot")));
+
+        final List<Long> restored = new ArrayList<>();
+        assertEquals(8, Journal.replay(path, JournalCodec.longs(), restored));
+        assertEquals(list, restored);
+        final TriggerList<Long> second = TriggerList.from(restored).journal(path, JournalCodec.longs()).build();
+        second.remove(0);
+        second.add(11L);
+        second.compactJournal();
+        second.add(12L);
+        second.close();
+
+        final List<Long> again = new ArrayList<>();
+        assertEquals(11, Journal.replay(path, JournalCodec.longs(), again));
+        assertEquals(restored, again);
+        assertEquals(12L, (long) again.get(again.size() - 1));
+    }
+
+    @Test
+    public void testBulkRemovalsAreSingleRecords() {
+        final Path path = folder.getRoot().toPath().resolve("bulk.journal");
+        final List<Integer> list = new ArrayList<>();
+        final TriggerList<Integer> triggerList = TriggerList.from(list)
+            .journal(path, JournalCodec.integers())
+            .build();
+        for (int i = 0; i < 20; i++) {
+            triggerList.add(i);
+        }
+        assertTrue(triggerList.removeIf(e -> e % 2 == 0));
+        assertFalse(triggerList.removeIf(e -> e > 100));
+        assertTrue(triggerList.removeAll(List.of(1, 3, 5)));
+        assertTrue(triggerList.retainAll(List.of(7, 9, 11, 13, 15, 17)));
+        triggerList.subList(1, 3).clear();
+        triggerList.sort(Comparator.reverseOrder());
+        triggerList.replaceAll(e -> e == 13 ? 13 : e + 1);
+        assertEquals(List.of(18, 16, 13, 8), list);
+        triggerList.close();
+
+        final List<Integer> replayed = new ArrayList<>();
+        assertEquals(20 + 4 + 4 + 3, Journal.replay(path, JournalCodec.integers(), replayed));
+        assertEquals(list, replayed);
+    }
+
+    @Test
+    public void testBulkRemovalsSplitBySegment() {
+        final Path path = folder.getRoot().toPath().resolve("split.journal");
+        final List<String> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            list.add(String.valueOf(i));
+        }
+        final Journal<String> journal = new Journal<>(path, JournalCodec.strings(), 0, 64, list);
+        final List<String> journaled = (List<String>) journal.wrap(list);
+        assertTrue(journaled instanceof RandomAccess);
+        assertFalse(journal.wrap(new LinkedList<>()) instanceof RandomAccess);
+        journaled.removeIf(e -> Integer.parseInt(e) % 2 == 0);
+        journal.close();
+        assertEquals(list, replay(path, JournalCodec.strings(), new ArrayList<>()));
+    }
+
+    @Test
+    public void testBulkInsertionsAreSingleRecords() {
+        final Path path = folder.getRoot().toPath().resolve("insert.journal");
+        final List<Integer> list = new ArrayList<>(List.of(1, 2));
+        final TriggerList<Integer> triggerList = TriggerList.from(list)
+            .journal(path, JournalCodec.integers())
+            .build();
+        assertTrue(triggerList.addAll(1, List.of(10, 11, 12)));
+        assertTrue(triggerList.addAll(List.of(20, 21)));
+        assertFalse(triggerList.addAll(0, List.of()));
+        assertEquals(List.of(1, 10, 11, 12, 2, 20, 21), list);
+        triggerList.close();
+
+        final List<Integer> replayed = new ArrayList<>();
+        assertEquals(2, Journal.replay(path, JournalCodec.integers(), replayed));
+        assertEquals(list, replayed);
+    }
+
+    @Test
+    public void testBulkInsertionsSplitBySegment() {
+        final Path path = folder.getRoot().toPath().resolve("split-insert.journal");
+        final List<String> list = new ArrayList<>(List.of("a", "b"));
+        final Journal<String> journal = new Journal<>(path, JournalCodec.strings(), 2, 64, list);
+        final List<String> journaled = (List<String>) journal.wrap(list);
+        final List<String> inserted = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inserted.add(String.valueOf(i));
+        }
+        journaled.addAll(1, inserted);
+        journaled.addAll(inserted);
+        journaled.removeIf(e -> e.length() == 1 && e.charAt(0) % 3 == 0);
+        try {
+            journaled.addAll(List.of("c", "x".repeat(60)));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("c", list.get(list.size() - 2));
+        }
+        journal.close();
+        assertEquals(list.subList(0, list.size() - 1), replay(path, JournalCodec.strings(), new ArrayList<>()));
+    }
+
+    @Test
+    public void testSegments() {
+        final Path path = folder.getRoot().toPath().resolve("segments.journal");
+        final List<String> list = new ArrayList<>();
+        final Journal<String> journal = new Journal<>(path, JournalCodec.strings(), 0, 64, list);
+        final List<String> journaled = (List<String>) journal.wrap(list);
+        for (int i = 0; i < 20; i++) {
+            journaled.add("element " + i);
+        }
+        journaled.remove(3);
+        try {
+            journaled.add("x".repeat(60));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(20, list.size());
+        }
+        journaled.clear();
+        journaled.add("last");
+        journal.close();
+        assertEquals(List.of("last"), replay(path, JournalCodec.strings(), new ArrayList<>()));
+
+        final Journal<String> reopened = new Journal<>(path, JournalCodec.strings(), 0, 64, list);
+        final List<String> continued = (List<String>) reopened.wrap(list);
+        continued.set(0, "first");
+        continued.add("second");
+        reopened.close();
+        assertEquals(List.of("first", "second"), replay(path, JournalCodec.strings(), new ArrayList<>()));
+        try {
+            new Journal<>(path, JournalCodec.strings(), 0, 128, list);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("64"));
+        }
+    }
+
+    @Test
+    public void testLargeSnapshot() {
+        final Path path = folder.getRoot().toPath().resolve("large.journal");
+        final List<String> list = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i + "x".repeat(1000));
+        }
+        list.add("y".repeat(200_000));
+        final TriggerList<String> triggerList = TriggerList.from(list).journal(path, JournalCodec.strings()).build();
+        triggerList.add("z");
+        triggerList.close();
+        assertEquals(list, replay(path, JournalCodec.strings(), new ArrayList<>()));
+    }
+
+    @Test
+    public void testConcurrentJournal() throws InterruptedException {
+        final Path path = folder.getRoot().toPath().resolve("concurrent.journal");
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final TriggerCollection<Integer> collection = ConcurrentTriggerCollection.concurrent(set)
+            .journal(path, JournalCodec.integers())
+            .build();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    collection.add(i % 50);
+                    collection.remove((i + 25) % 50);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        collection.addAll(List.of(100, 101));
+        collection.removeIf(e -> e == 100);
+        final Iterator<Integer> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == 101) iterator.remove();
+        }
+        collection.close();
+        assertEquals(set, replay(path, JournalCodec.integers()));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("errors.journal");
+        try {
+            TriggerList.from(new ArrayList<Integer>()).build().compactJournal();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("The collection is built without a journal", expected.getMessage());
+        }
+        try {
+            TriggerList.from(new ArrayList<Integer>()).journal(path, JournalCodec.integers(), -1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertFalse(Files.exists(path));
+        }
+        try {
+            TriggerQueue.from(new ArrayDeque<Integer>()).journal(path, JournalCodec.integers()).build();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertFalse(Files.exists(path));
+        }
+
+        final TriggerList<Integer> closed = TriggerList.from(new ArrayList<Integer>())
+            .journal(path, JournalCodec.integers())
+            .build();
+        closed.close();
+        try {
+            closed.compactJournal();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("The journal is closed", expected.getMessage());
+        }
+
+        final Path garbage = folder.newFile("garbage").toPath();
+        Files.write(garbage, new byte[]{1, 2, 3});
+        try {
+            Journal.replay(garbage, JournalCodec.integers(), new ArrayList<>());
+            fail();
+        } catch (UncheckedIOException expected) {
+            assertEquals("Not a journal", expected.getCause().getMessage());
+        }
+        Files.write(garbage, new byte[32]);
+        try {
+            Journal.replay(garbage, JournalCodec.integers(), new ArrayList<>());
+            fail();
+        } catch (UncheckedIOException expected) {
+            assertEquals("Not a journal", expected.getCause().getMessage());
+        }
+        Files.write(path.resolveSibling("errors.journal.snapshot"), new byte[]{1, 2, 3});
+        try {
+            Journal.replay(path, JournalCodec.integers(), new ArrayList<>());
+            fail();
+        } catch (UncheckedIOException expected) {
+            assertTrue(expected.getCause().getMessage().startsWith("Not a journal snapshot"));
+        }
+    }
+
+    @Test
+    public void testUnknownOperation() throws IOException {
+        final Path path = folder.getRoot().toPath().resolve("unknown.journal");
+        final TriggerList<Integer> triggerList = TriggerList.from(new ArrayList<Integer>())
+            .journal(path, JournalCodec.integers())
+            .build();
+        triggerList.add(1);
+        triggerList.add(2);
+        triggerList.close();
+
+        final byte[] bytes = Files.readAllBytes(path);
+        final int second = 16 + 4 + ByteBuffer.wrap(bytes, 16, 4).getInt();
+        bytes[second + 4] = 99;
+        Files.write(path, bytes);
+        final List<Integer> replayed = new ArrayList<>();
+        try {
+            Journal.replay(path, JournalCodec.integers(), replayed);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("Unknown operation 99 in record 2", expected.getMessage());
+            assertEquals(List.of(1), replayed);
+        }
+    }
+
+    private static <E> Set<E> replay(Path path, JournalCodec<E> codec) {
+        return replay(path, codec, new HashSet<>());
+    }
+
+    private static <E, C extends Collection<E>> C replay(Path path, JournalCodec<E> codec, C into) {
+        Journal.replay(path, codec, into);
+        return into;
+    }
+}
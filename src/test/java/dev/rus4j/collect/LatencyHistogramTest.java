@@ -0,0 +1,43 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (int i = 0; i < 98; i++) {
+            histogram.record(100);
+        }
+        histogram.record(0);
+        histogram.record(5000);
+        assertEquals(100, histogram.count());
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(127, histogram.percentile(50));
+        assertEquals(127, histogram.percentile(99));
+        assertEquals(8191, histogram.percentile(100));
+    }
+
+    @Test
+    public void testExtremeLatencies() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileOutOfRange() {
+        new LatencyHistogram().percentile(101);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePercentile() {
+        new LatencyHistogram().percentile(-1);
+    }
+}
@@ -0,0 +1,80 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscQueueTest {
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        assertEquals(2, new MpscQueue<>(1).capacity());
+        assertEquals(2, new MpscQueue<>(2).capacity());
+        assertEquals(8, new MpscQueue<>(5).capacity());
+        assertEquals(8, new MpscQueue<>(8).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBePositive() {
+        new MpscQueue<>(0);
+    }
+
+    @Test
+    public void testFifoAndBounds() {
+        final MpscQueue<Integer> queue = new MpscQueue<>(2);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertTrue(queue.offer(3));
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 10_000;
+        final MpscQueue<Integer> queue = new MpscQueue<>(64);
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        final Set<Integer> received = new HashSet<>();
+        final int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        while (received.size() < producers * perProducer) {
+            final Integer value = queue.poll();
+            if (value == null) continue;
+            assertTrue(received.add(value));
+            final int producer = value / perProducer;
+            assertTrue(value % perProducer > last[producer]);
+            last[producer] = value % perProducer;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
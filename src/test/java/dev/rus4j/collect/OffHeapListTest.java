@@ -0,0 +1,225 @@
+package dev.rus4j.collect;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OffHeapListTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testListOperations() {
+        final OffHeapList<Point> list = OffHeapList.direct(new PointCodec());
+        final List<Point> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(new Point(i, i / 2.0));
+            expected.add(new Point(i, i / 2.0));
+        }
+        list.add(0, new Point(-1, 0));
+        expected.add(0, new Point(-1, 0));
+        list.add(50, new Point(-2, 0));
+        expected.add(50, new Point(-2, 0));
+        assertEquals(expected.remove(10), list.remove(10));
+        assertEquals(expected.set(20, new Point(7, 7)), list.set(20, new Point(7, 7)));
+        list.subList(30, 40).clear();
+        expected.subList(30, 40).clear();
+        list.subList(0, 0).clear();
+        assertEquals(expected, list);
+        assertEquals(expected.size(), list.size());
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.close();
+        try {
+            list.add(null);
+            fail();
+        } catch (NullPointerException expected1) {
+            assertTrue(list.isEmpty());
+        }
+    }
+
+    @Test
+    public void testFlyweight() {
+        final OffHeapList<Point> list = OffHeapList.direct(new PointCodec());
+        list.add(new Point(1, 1.5));
+        list.add(new Point(2, 2.5));
+        final Point reused = new Point(0, 0);
+        assertSame(reused, list.get(0, reused));
+        assertEquals(new Point(1, 1.5), reused);
+        assertSame(reused, list.get(1, reused));
+        assertEquals(new Point(2, 2.5), reused);
+        try {
+            list.get(2, reused);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            assertEquals(2, list.size());
+        }
+    }
+
+    @Test
+    public void testChunks() {
+        final OffHeapList<Integer> list = OffHeapList.direct(new BlobCodec());
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        list.add(1, 100);
+        expected.add(1, 100);
+        list.remove(4);
+        expected.remove(4);
+        assertEquals(expected, list);
+        assertEquals(100, (int) list.get(1, 0));
+    }
+
+    @Test
+    public void testMapped() {
+        final Path path = folder.getRoot().toPath().resolve("points");
+        final OffHeapList<Point> list = OffHeapList.mapped(path, new PointCodec());
+        for (int i = 0; i < 1000; i++) {
+            list.add(new Point(i, -i));
+        }
+        list.remove(0);
+        list.close();
+        list.close();
+
+        final OffHeapList<Point> reopened = OffHeapList.mapped(path, new PointCodec());
+        assertEquals(999, reopened.size());
+        assertEquals(new Point(1, -1), reopened.get(0));
+        assertEquals(new Point(999, -999), reopened.get(998));
+        reopened.close();
+        try {
+            OffHeapList.mapped(path, new BlobCodec());
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().endsWith("is not a list of 300003-byte records"));
+        }
+    }
+
+    @Test
+    public void testTriggers() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerList<Point> list = TriggerList.from(OffHeapList.direct(new PointCodec()))
+            .allowAdd(p -> p.id >= 0)
+            .afterAdd((p, result) -> calls.add("add " + p.id))
+            .afterSet((p, index) -> calls.add("set " + p.id))
+            .build();
+        list.add(new Point(1, 0));
+        list.add(new Point(-1, 0));
+        list.set(0, new Point(2, 0));
+        assertEquals(List.of(new Point(2, 0)), list);
+        assertEquals(List.of("add 1", "set 2"), calls);
+    }
+
+    @Test
+    public void testTriggeredFlyweight() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerList<Point> list = TriggerList.from(OffHeapList.direct(new PointCodec()))
+            .beforeGet(index -> calls.add("before " + index))
+            .afterGet((index, p) -> calls.add("after " + index + " " + p.id))
+            .build();
+        list.add(new Point(1, 1.5));
+        list.add(new Point(2, 2.5));
+        final Point reused = new Point(0, 0);
+        assertSame(reused, list.get(1, reused));
+        assertEquals(new Point(2, 2.5), reused);
+        assertEquals(new Point(1, 1.5), list.get(0, null));
+        assertEquals(new Point(1, 1.5), list.subList(0, 1).get(0, reused));
+        assertEquals(List.of("before 1", "after 1 2", "before 0", "after 0 1", "before 0", "after 0 1"), calls);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRecordSize() {
+        OffHeapList.direct(new RecordCodec<Integer>() {
+            @Override
+            public int size() {
+                return 0;
+            }
+
+            @Override
+            public void write(Integer element, ByteBuffer buffer, int offset) {
+            }
+
+            @Override
+            public Integer read(ByteBuffer buffer, int offset) {
+                return null;
+            }
+        });
+    }
+
+    private static final class Point {
+        private long id;
+        private double value;
+
+        Point(long id, double value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point && ((Point) o).id == id && ((Point) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, value);
+        }
+    }
+
+    private static final class PointCodec implements RecordCodec<Point> {
+        @Override
+        public int size() {
+            return 16;
+        }
+
+        @Override
+        public void write(Point element, ByteBuffer buffer, int offset) {
+            buffer.putLong(offset, element.id).putDouble(offset + 8, element.value);
+        }
+
+        @Override
+        public Point read(ByteBuffer buffer, int offset) {
+            return new Point(buffer.getLong(offset), buffer.getDouble(offset + 8));
+        }
+
+        @Override
+        public Point read(ByteBuffer buffer, int offset, Point reuse) {
+            reuse.id = buffer.getLong(offset);
+            reuse.value = buffer.getDouble(offset + 8);
+            return reuse;
+        }
+    }
+
+    /**
+     * Large records with an odd size: two records per chunk.
+     */
+    private static final class BlobCodec implements RecordCodec<Integer> {
+        @Override
+        public int size() {
+            return 300_003;
+        }
+
+        @Override
+        public void write(Integer element, ByteBuffer buffer, int offset) {
+            buffer.putInt(offset, element).put(offset + 300_002, element.byteValue());
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) {
+            if (buffer.get(offset + 300_002) != buffer.getInt(offset) % 256) throw new IllegalStateException();
+            return buffer.getInt(offset);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadSamplerTest {
+
+    @Test
+    public void testEveryNth() throws InterruptedException {
+        final ReadSampler sampler = new ReadSampler(Sampling.everyNth(3), null, 0);
+        final List<Boolean> samples = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            samples.add(sampler.sample());
+        }
+        assertEquals(List.of(false, false, true, false, false, true), samples);
+        final boolean[] other = new boolean[1];
+        final Thread thread = new Thread(() -> other[0] = sampler.sample());
+        thread.start();
+        thread.join();
+        assertFalse(other[0]);
+    }
+
+    @Test
+    public void testProbability() {
+        final ReadSampler never = new ReadSampler(Sampling.probability(0), null, 0);
+        final ReadSampler always = new ReadSampler(Sampling.probability(1), null, 0);
+        for (int i = 0; i < 100; i++) {
+            assertFalse(never.sample());
+            assertTrue(always.sample());
+        }
+    }
+
+    @Test
+    public void testPerSecond() {
+        final ReadSampler sampler = new ReadSampler(Sampling.perSecond(1), null, 0);
+        assertTrue(sampler.sample());
+        assertFalse(sampler.sample());
+    }
+
+    @Test
+    public void testCountsAcrossThreads() throws InterruptedException {
+        final AtomicLong gets = new AtomicLong();
+        final ReadSampler sampler = new ReadSampler(null, gets::addAndGet, 60_000_000_000L);
+        assertTrue(sampler.sample());
+        for (int t = 0; t < 100; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    sampler.sample();
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        sampler.flush();
+        assertEquals(1001, gets.get());
+        sampler.flush();
+        assertEquals(1001, gets.get());
+        sampler.sample();
+        sampler.close();
+        assertEquals(1002, gets.get());
+    }
+
+    @Test
+    public void testPeriodicFlush() throws InterruptedException {
+        final AtomicLong gets = new AtomicLong();
+        final ReadSampler sampler = new ReadSampler(null, gets::addAndGet, 1_000_000L);
+        sampler.sample();
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (gets.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, gets.get());
+        sampler.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        Sampling.everyNth(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProbability() {
+        Sampling.probability(Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPermits() {
+        Sampling.perSecond(0);
+    }
+}
@@ -0,0 +1,309 @@
+package dev.rus4j.collect;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplicationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFollowerReplicatesList() throws Exception {
+        final List<String> replicaAdds = new ArrayList<>();
+        try (ReplicationPrimary<Integer> primary = ReplicationPrimary.bind(loopback(), JournalCodec.integers())) {
+            final TriggerList<Integer> list = TriggerList.from(new ArrayList<>(List.of(3, 1, 2)))
+                .replicate(primary)
+                .build();
+            final TriggerList<Integer> replica = TriggerList.<Integer>versioned()
+                .afterAdd((e, result) -> replicaAdds.add("add " + e))
+                .afterAddAll((c, result) -> replicaAdds.add("add all " + c))
+                .build();
+            try (ReplicationFollower<Integer> follower =
+                     ReplicationFollower.connect(primary.address(), JournalCodec.integers(), replica)) {
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(List.of(3, 1, 2), replica.snapshot());
+
+                list.add(4);
+                list.add(0, 5);
+                list.remove(Integer.valueOf(1));
+                list.set(1, 6);
+                list.sort(Comparator.naturalOrder());
+                list.subList(0, 2).clear();
+                list.addAll(List.of(7, 8));
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(list, replica.snapshot());
+                assertTrue(replicaAdds.contains("add 5"));
+                assertTrue(replicaAdds.contains("add all [7, 8]"));
+
+                list.clear();
+                list.add(9);
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(List.of(9), replica.snapshot());
+                assertEquals(1, primary.snapshots());
+                assertEquals(0, follower.gaps());
+            }
+            list.add(10);
+            assertEquals(List.of(9), replica.snapshot());
+        }
+    }
+
+    @Test
+    public void testReconnectedFollowerCatchesUp() throws Exception {
+        try (ReplicationPrimary<String> primary = ReplicationPrimary.bind(loopback(), JournalCodec.strings(), 4)) {
+            final TriggerList<String> list = TriggerList.from(new ArrayList<String>()).replicate(primary).build();
+            final List<String> replica = new ArrayList<>();
+            try (ReplicationFollower<String> follower =
+                     ReplicationFollower.connect(primary.address(), JournalCodec.strings(), replica)) {
+                list.add("a");
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+
+                disconnect(primary);
+                list.add("b");
+                list.add("c".repeat(1000));
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(list, replica);
+                assertEquals(1, primary.snapshots());
+
+                disconnect(primary);
+                for (int i = 0; i < 10; i++) {
+                    list.add("d" + i);
+                }
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(list, replica);
+                assertEquals(2, primary.snapshots());
+            }
+        }
+    }
+
+    @Test
+    public void testLargeSnapshotIsSentInChunks() throws Exception {
+        try (ReplicationPrimary<String> primary = ReplicationPrimary.bind(loopback(), JournalCodec.strings())) {
+            final List<String> backing = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                backing.add(i + "x".repeat(100));
+            }
+            final TriggerList<String> list = TriggerList.from(backing).replicate(primary).build();
+            final List<String> replica = new ArrayList<>(List.of("stale"));
+            try (ReplicationFollower<String> follower =
+                     ReplicationFollower.connect(primary.address(), JournalCodec.strings(), replica)) {
+                for (int i = 0; i < 100; i++) {
+                    list.set(i, "changed " + i);
+                }
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(list, replica);
+                assertEquals(1, primary.snapshots());
+            }
+        }
+    }
+
+    @Test
+    public void testBulkModificationsAreSingleRecords() throws Exception {
+        try (ReplicationPrimary<Integer> primary = ReplicationPrimary.bind(loopback(), JournalCodec.integers())) {
+            final List<Integer> backing = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                backing.add(i);
+            }
+            final TriggerList<Integer> list = TriggerList.from(backing).replicate(primary).build();
+            final List<Integer> replica = new ArrayList<>();
+            try (ReplicationFollower<Integer> follower =
+                     ReplicationFollower.connect(primary.address(), JournalCodec.integers(), replica)) {
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+
+                long sequence = primary.sequence();
+                list.removeIf(e -> e % 3 == 0);
+                assertEquals(sequence + 1, primary.sequence());
+                list.removeAll(List.of(1, 2, 500, 998));
+                list.retainAll(Set.of(10, 11, 12, 13, 14, 700, 701));
+                assertEquals(sequence + 3, primary.sequence());
+
+                list.set(0, -1);
+                sequence = primary.sequence();
+                list.sort(Comparator.naturalOrder());
+                assertEquals(sequence, primary.sequence());
+
+                list.addAll(2, List.of(20, 21, 22));
+                list.addAll(List.of(30, 31));
+                assertEquals(sequence + 2, primary.sequence());
+                final List<Integer> many = new ArrayList<>();
+                for (int i = 0; i < 40_000; i++) {
+                    many.add(i);
+                }
+                list.addAll(1, many);
+                assertTrue(primary.sequence() > sequence + 3);
+                assertTrue(follower.await(primary.sequence(), 5, TimeUnit.SECONDS));
+                assertEquals(list, replica);
+                assertEquals(1, primary.snapshots());
+                assertEquals(0, follower.gaps());
+            }
+        }
+        try (ReplicationPrimary<Integer> primary = ReplicationPrimary.bind(loopback(), JournalCodec.integers())) {
+            assertTrue(primary.attach(new ArrayList<>()) instanceof RandomAccess);
+        }
+    }
+
+    @Test
+    public void testGapMakesFollowerReconnect() throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(loopback())) {
+            final List<Integer> replica = new ArrayList<>(List.of(1, 2));
+            try (ReplicationFollower<Integer> follower =
+                     ReplicationFollower.connect(server.getLocalAddress(), JournalCodec.integers(), replica)) {
+                try (SocketChannel connection = server.accept()) {
+                    assertEquals(List.of(0L, -1L), handshake(connection));
+                    final ByteBuffer snapshot = frame(ReplicationPrimary.SNAPSHOT, 5, 1, 20)
+                        .putLong(42).putInt(1).putInt(4).putInt(7);
+                    write(connection, snapshot);
+                    write(connection, frame(Journal.ADD, 7, 1, 4).putInt(8));
+                    assertTrue(follower.await(5, 5, TimeUnit.SECONDS));
+                }
+                try (SocketChannel connection = server.accept()) {
+                    assertEquals(List.of(42L, 5L), handshake(connection));
+                    write(connection, frame(Journal.ADD, 6, 1, 4).putInt(8));
+                    assertTrue(follower.await(6, 5, TimeUnit.SECONDS));
+                }
+                assertEquals(List.of(7, 8), replica);
+                assertEquals(1, follower.gaps());
+            }
+        }
+    }
+
+    @Test
+    public void testDivergedFollowerGetsSnapshot() throws Exception {
+        final List<List<Integer>> batches = new ArrayList<>();
+        final TriggerList<Integer> replica = TriggerList.<Integer>versioned()
+            .afterAddBatch(batch -> batches.add(List.copyOf(batch)))
+            .afterRemoveBatch(batch -> batches.add(List.copyOf(batch)))
+            .build();
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(loopback());
+             ReplicationFollower<Integer> follower =
+                 ReplicationFollower.connect(server.getLocalAddress(), JournalCodec.integers(), replica)) {
+            try (SocketChannel connection = server.accept()) {
+                handshake(connection);
+                write(connection, frame(ReplicationPrimary.SNAPSHOT, 5, 1, 20)
+                    .putLong(42).putInt(1).putInt(4).putInt(7));
+                assertTrue(follower.await(5, 5, TimeUnit.SECONDS));
+                write(connection, frame(Journal.REMOVE, 6, 3, 0));
+                try (SocketChannel next = server.accept()) {
+                    assertEquals(List.of(0L, 5L), handshake(next));
+                    write(next, frame(ReplicationPrimary.SNAPSHOT, 6, 2, 28)
+                        .putLong(42).putInt(2).putInt(4).putInt(8).putInt(4).putInt(9));
+                    assertTrue(follower.await(6, 5, TimeUnit.SECONDS));
+                }
+            }
+            assertEquals(List.of(8, 9), replica.snapshot());
+            assertEquals(List.of(List.of(7), List.of(7), List.of(8, 9)), batches);
+            assertEquals(1, follower.divergences());
+            assertEquals(0, follower.gaps());
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws Exception {
+        final SocketAddress address;
+        try {
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                .getMethod("of", Path.class)
+                .invoke(null, folder.getRoot().toPath().resolve("primary.sock"));
+        } catch (ClassNotFoundException e) {
+            Assume.assumeNoException(e);
+            return;
+        }
+        try (ReplicationPrimary<Long> primary = ReplicationPrimary.bind(address, JournalCodec.longs())) {
+            final TriggerList<Long> list = TriggerList.from(new ArrayList<Long>()).replicate(primary).build();
+            final List<Long> replica = new ArrayList<>();
+            try (ReplicationFollower<Long> follower =
+                     ReplicationFollower.connect(primary.address(), JournalCodec.longs(), replica)) {
+                assertTrue(follower.await(0, 5, TimeUnit.SECONDS));
+                list.add(1L);
+                list.add(2L);
+                assertTrue(follower.await(2, 5, TimeUnit.SECONDS));
+                assertEquals(List.of(1L, 2L), replica);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidReplication() throws Exception {
+        try {
+            ReplicationPrimary.bind(loopback(), JournalCodec.integers(), 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Backlog must be at least 2", expected.getMessage());
+        }
+        try (ReplicationPrimary<Integer> primary = ReplicationPrimary.bind(loopback(), JournalCodec.integers())) {
+            final TriggerList.TriggerListBuilder<Integer> builder = TriggerList.from(new ArrayList<Integer>())
+                .replicate(primary);
+            builder.build();
+            try {
+                builder.build();
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals("The primary already replicates a list", expected.getMessage());
+            }
+            try {
+                builder.compile();
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals("Templates do not support replication", expected.getMessage());
+            }
+            try {
+                ReplicationPrimary.bind(primary.address(), JournalCodec.integers());
+                fail();
+            } catch (IOException expected) {
+                assertTrue(primary.address() instanceof InetSocketAddress);
+            }
+        }
+    }
+
+    private static InetSocketAddress loopback() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    private static void disconnect(ReplicationPrimary<?> primary) throws InterruptedException {
+        primary.disconnect();
+        while (primary.followers() > 0) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<Long> handshake(SocketChannel connection) throws IOException {
+        final ByteBuffer in = ByteBuffer.allocate(ReplicationPrimary.HANDSHAKE);
+        while (in.hasRemaining()) {
+            connection.read(in);
+        }
+        return List.of(in.getLong(0), in.getLong(8));
+    }
+
+    private static ByteBuffer frame(byte op, long sequence, int index, int payload) {
+        final ByteBuffer frame = ByteBuffer.allocate(ReplicationPrimary.FRAME_HEADER + payload);
+        return frame.putInt(frame.capacity() - 4).put(op).putLong(sequence).putInt(index);
+    }
+
+    private static void write(SocketChannel connection, ByteBuffer frame) throws IOException {
+        frame.flip();
+        while (frame.hasRemaining()) {
+            connection.write(frame);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RuleSetTest {
+
+    @Test
+    public void testFirstMatchingRule() {
+        final RuleSet<Order> rules = orderRules()
+            .reject("blocked country", RuleSet.equal("country", "XX"))
+            .reject("large DE order", RuleSet.equal("country", "DE"), RuleSet.between("amount", 10_000, Long.MAX_VALUE))
+            .reject("negative", RuleSet.between("amount", Long.MIN_VALUE, -1))
+            .reject("large", RuleSet.between("amount", 1_000_000, Long.MAX_VALUE))
+            .reject("no amount", RuleSet.equal("channel", null), RuleSet.between("amount", 0, 0))
+            .reject("app in YY", RuleSet.equal("country", "YY"), RuleSet.equal("channel", "app"))
+            .build();
+        assertEquals("app in YY", rules.rejection(new Order("YY", "app", 5)));
+        assertNull(rules.rejection(new Order("YY", "web", 5)));
+        assertEquals(6, rules.size());
+        assertEquals("6 rules over [country, channel] and [amount]", rules.toString());
+        assertNull(rules.rejection(new Order("DE", "web", 5_000)));
+        assertEquals("blocked country", rules.rejection(new Order("XX", "web", -5)));
+        assertEquals("large DE order", rules.rejection(new Order("DE", "web", 2_000_000)));
+        assertEquals("negative", rules.rejection(new Order("FR", "web", -5)));
+        assertEquals("large", rules.rejection(new Order("FR", "web", 2_000_000)));
+        assertEquals("no amount", rules.rejection(new Order("FR", null, 0)));
+        assertNull(rules.rejection(new Order("FR", "web", 0)));
+        assertEquals("country == XX", RuleSet.equal("country", "XX").toString());
+        assertEquals("amount in [1, 2]", RuleSet.between("amount", 1, 2).toString());
+
+        final RuleSet<Order> all = orderRules().reject("closed").reject("never", RuleSet.equal("country", "XX")).build();
+        assertEquals("closed", all.rejection(new Order("XX", "web", 1)));
+    }
+
+    @Test
+    public void testIndexesMatchLinearScan() {
+        final Random random = new Random(7);
+        final RuleSet.Builder<Order> builder = orderRules();
+        final List<Predicate<Order>> linear = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final long min = random.nextInt(10_000);
+            final long max = min + random.nextInt(300);
+            final String country = "C" + random.nextInt(20);
+            final Predicate<Order> inRange = order -> order.amount >= min && order.amount <= max;
+            final Predicate<Order> inCountry = order -> order.country.equals(country);
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.reject("rule " + i, RuleSet.equal("country", country));
+                    linear.add(inCountry);
+                    break;
+                case 1:
+                    builder.reject("rule " + i, RuleSet.between("amount", min, max));
+                    linear.add(inRange);
+                    break;
+                default:
+                    builder.reject("rule " + i, RuleSet.equal("country", country), RuleSet.between("amount", min, max));
+                    linear.add(inCountry.and(inRange));
+            }
+        }
+        final RuleSet<Order> rules = builder.build();
+        for (int i = 0; i < 20_000; i++) {
+            final Order order = new Order("C" + random.nextInt(40), "web", random.nextInt(11_000));
+            String expected = null;
+            for (int r = 0; r < linear.size() && expected == null; r++) {
+                if (linear.get(r).test(order)) expected = "rule " + r;
+            }
+            assertEquals(expected, rules.rejection(order));
+        }
+    }
+
+    @Test
+    public void testEngineInTriggerCollection() {
+        final List<String> rejections = new ArrayList<>();
+        final RuleEngine<Order> engine = new RuleEngine<>(
+            orderRules().reject("blocked", RuleSet.equal("country", "XX")).build(),
+            (order, reason) -> rejections.add(order.country + ": " + reason)
+        );
+        final TriggerList<Order> orders = TriggerList.from(new ArrayList<Order>())
+            .allowAdd(engine)
+            .allowAddEach(engine)
+            .build();
+        assertTrue(orders.add(new Order("DE", "web", 1)));
+        assertFalse(orders.add(new Order("XX", "web", 1)));
+        final RuleSet<Order> previous = engine.swap(orderRules().reject("no DE", RuleSet.equal("country", "DE")).build());
+        assertEquals(1, previous.size());
+        orders.addAll(List.of(new Order("XX", "web", 2), new Order("DE", "web", 2)));
+        assertEquals(List.of("DE", "XX"), List.of(orders.get(0).country, orders.get(1).country));
+        assertEquals(List.of("XX: blocked", "DE: no DE"), rejections);
+        assertEquals(1, engine.rules().size());
+        assertTrue(new RuleEngine<>(RuleSet.<Order>builder().build()).test(new Order("XX", "web", 1)));
+        assertFalse(new RuleEngine<>(RuleSet.<Order>builder().reject("all").build()).test(null));
+    }
+
+    @Test
+    public void testInvalidRules() {
+        try {
+            orderRules().reject("bad", RuleSet.equal("amount", 1)).build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Unknown key attribute amount", expected.getMessage());
+        }
+        try {
+            orderRules().reject("bad", RuleSet.between("country", 1, 2)).build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Unknown numeric attribute country", expected.getMessage());
+        }
+        try {
+            RuleSet.between("amount", 2, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Empty range [2, 1]", expected.getMessage());
+        }
+        try {
+            orderRules().key("amount", order -> order.amount);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Duplicate attribute amount", expected.getMessage());
+        }
+        final RuleSet.Builder<Order> builder = orderRules();
+        try {
+            builder.number("country", order -> 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertSame(builder, builder.reject("still usable"));
+        }
+    }
+
+    private static RuleSet.Builder<Order> orderRules() {
+        return RuleSet.<Order>builder()
+            .key("country", order -> order.country)
+            .key("channel", order -> order.channel)
+            .number("amount", order -> order.amount);
+    }
+
+    private static final class Order {
+        final String country;
+        final String channel;
+        final long amount;
+
+        Order(String country, String channel, long amount) {
+            this.country = country;
+            this.channel = channel;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerBlockingQueueTest {
+
+    @Test
+    public void testBlockingCalls() throws InterruptedException {
+        final BlockingQueue<Integer> backing = new ArrayBlockingQueue<>(2);
+        final List<String> calls = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(backing)
+            .allowAdd(e -> e > 0)
+            .afterAdd((e, result) -> calls.add("+" + e + " " + result))
+            .afterRemove((e, result) -> calls.add("-" + e))
+            .build();
+
+        queue.put(1);
+        queue.put(-1);
+        assertTrue(queue.offer(2, 1, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer(3, 1, TimeUnit.MILLISECONDS));
+        assertFalse(queue.offer(-3, 1, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(1, (int) queue.take());
+        assertEquals(2, (int) queue.poll(1, TimeUnit.MILLISECONDS));
+        assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("+1 true", "+2 true", "+3 false", "-1", "-2"), calls);
+    }
+
+    @Test
+    public void testDrainFiresOneBatch() {
+        final BlockingQueue<Integer> backing = new ArrayBlockingQueue<>(10, false, List.of(1, 2, 3, 4, 5));
+        final List<List<Integer>> batches = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(backing)
+            .afterRemoveBatch(batches::add)
+            .build();
+
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals(0, queue.drainTo(drained));
+        assertEquals(List.of(1, 2, 3, 4, 5), drained);
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4, 5)), batches);
+
+        final TriggerBlockingQueue<Integer> plain = TriggerBlockingQueue.from(backing).build();
+        backing.add(6);
+        assertEquals(1, plain.drainTo(drained));
+    }
+
+    @Test
+    public void testClearReportsEveryRemovedElement() {
+        final List<Integer> offered = new ArrayList<>(List.of(1, 2));
+        final BlockingQueue<Integer> backing = new LinkedBlockingQueue<>(offered) {
+            @Override
+            public Object[] toArray() {
+                final Object[] elements = super.toArray();
+                offered.add(3);
+                offer(3);
+                return elements;
+            }
+        };
+        final List<Integer> reported = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(backing)
+            .afterRemoveBatch(reported::addAll)
+            .build();
+
+        queue.clear();
+        backing.forEach(reported::add);
+        assertEquals(offered, reported);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDrainToItself() {
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(new ArrayBlockingQueue<Integer>(1)).build();
+        queue.drainTo(queue);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIndexesAreRejected() {
+        TriggerBlockingQueue.from(new ArrayBlockingQueue<Integer>(1)).index("id", e -> e).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAggregatesAreRejected() {
+        TriggerBlockingQueue.from(new ArrayBlockingQueue<Integer>(1)).aggregate("count", Aggregation.counting()).build();
+    }
+
+    /**
+     * A trigger that waits for another thread using the queue would deadlock if it ran under the queue lock.
+     */
+    @Test
+    public void testTriggersRunOutsideTheLock() throws InterruptedException {
+        final BlockingQueue<Integer> backing = new ArrayBlockingQueue<>(10);
+        final List<Boolean> completed = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(backing)
+            .afterAdd((e, result) -> completed.add(sizeFromOtherThread(backing)))
+            .afterRemoveBatch(batch -> completed.add(sizeFromOtherThread(backing)))
+            .build();
+
+        queue.put(1);
+        queue.take();
+        queue.offer(2);
+        queue.drainTo(new ArrayList<>());
+        assertEquals(List.of(true, true, true, true), completed);
+    }
+
+    @Test
+    public void testClearFiresElementRemoveTriggers() {
+        final List<Integer> removed = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(new LinkedBlockingQueue<Integer>())
+            .allowRemove(e -> e != 2)
+            .afterRemove((e, result) -> removed.add(e))
+            .afterRemoveBatch(batches::add)
+            .build();
+
+        queue.addAll(List.of(1, 2, 3));
+        queue.clear();
+        assertEquals(List.of(2), new ArrayList<>(queue));
+        assertEquals(List.of(1, 3), removed);
+        assertEquals(List.of(List.of(1, 3)), batches);
+    }
+
+    @Test
+    public void testBulkRemovalTriggersRunOutsideTheLock() {
+        final BlockingQueue<Integer> backing = new ArrayBlockingQueue<>(10);
+        final List<Boolean> completed = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final TriggerBlockingQueue<Integer> queue = TriggerBlockingQueue.from(backing)
+            .allowRemoveEach(e -> completed.add(sizeFromOtherThread(backing)) && e != 5)
+            .afterRemoveBatch(batches::add)
+            .build();
+
+        queue.addAll(List.of(1, 2, 3, 4, 5, 6));
+        assertTrue(queue.removeIf(e -> e == 1));
+        assertTrue(queue.removeAll(List.of(2)));
+        assertFalse(queue.removeAll(List.of(7)));
+        assertTrue(queue.retainAll(List.of(4, 5, 6)));
+        queue.clear();
+        assertEquals(List.of(5), new ArrayList<>(backing));
+        assertEquals(List.of(List.of(1), List.of(2), List.of(3), List.of(4, 6)), batches);
+        assertFalse(completed.contains(false));
+        assertEquals(6, completed.size());
+    }
+
+    private static boolean sizeFromOtherThread(BlockingQueue<Integer> queue) {
+        final Thread thread = new Thread(queue::size);
+        thread.start();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+}
@@ -3,15 +3,34 @@ package dev.rus4j.collect;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TriggerCollectionTest {
     private static final int VALUE_TO_ADD = 7;
@@ -175,4 +194,734 @@ public class TriggerCollectionTest {
         collection.removeAll(List.of(1, 3, 5, 7));
         assertEquals(7, collection.size());
     }
+
+    @Test
+    public void testDelegatesUntriggeredMethods() {
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowAdd(integer -> integer <= 5)
+            .build();
+
+        collection.addAll(List.of(1, 2, 3));
+        assertFalse(Proxy.isProxyClass(collection.getClass()));
+        assertTrue(collection.contains(2));
+        assertTrue(collection.equals(this.collection));
+        assertEquals(this.collection.hashCode(), collection.hashCode());
+        assertEquals("[1, 2, 3]", collection.toString());
+    }
+
+    @Test
+    public void testCollectionsKeepOwnTriggers() {
+        final TriggerCollection.TriggerCollectionBuilder<Integer, ?> builder = TriggerCollection.from(this.collection)
+            .allowAdd(integer -> integer <= 5);
+        final Collection<Integer> first = builder.build();
+        final Collection<Integer> second = TriggerCollection.from(new ArrayList<Integer>())
+            .allowAdd(integer -> integer > 5)
+            .build();
+        builder.allowAdd(integer -> false);
+
+        first.add(5);
+        first.add(6);
+        second.add(5);
+        second.add(6);
+        assertEquals(List.of(5), new ArrayList<>(first));
+        assertEquals(List.of(6), new ArrayList<>(second));
+    }
+
+    @Test
+    public void testCollectionsBuiltConcurrently() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<Collection<Integer>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int limit = t;
+            futures.add(executor.submit(() -> {
+                final Collection<Integer> collection = TriggerCollection.from(new ArrayList<Integer>())
+                    .allowAdd(integer -> integer <= limit)
+                    .build();
+                for (int i = 0; i < 1000; i++) {
+                    collection.add(i % threads);
+                }
+                return collection;
+            }));
+        }
+        for (int t = 0; t < threads; t++) {
+            final Collection<Integer> collection = futures.get(t).get();
+            final int limit = t;
+            assertTrue(collection.stream().allMatch(i -> i <= limit));
+            assertEquals(1000 / threads * (t + 1), collection.size());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDelegatesReadAndBulkMethods() {
+        final Collection<Integer> collection = TriggerCollection.from(this.collection).build();
+
+        assertTrue(collection.isEmpty());
+        collection.addAll(List.of(1, 2, 3, 4));
+        assertTrue(collection.containsAll(List.of(1, 2)));
+        assertEquals(Integer.valueOf(1), collection.iterator().next());
+        assertEquals(4, collection.toArray().length);
+        assertEquals(4, collection.toArray(new Integer[0]).length);
+        assertEquals(4, collection.toArray(Integer[]::new).length);
+        assertEquals(4, collection.spliterator().estimateSize());
+        assertEquals(10, collection.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(10, collection.parallelStream().mapToInt(Integer::intValue).sum());
+        final List<Integer> visited = new ArrayList<>();
+        collection.forEach(visited::add);
+        assertEquals(List.of(1, 2, 3, 4), visited);
+
+        assertTrue(collection.retainAll(List.of(1, 2, 3)));
+        assertTrue(collection.removeIf(i -> i == 3));
+        assertEquals(List.of(1, 2), this.collection);
+        collection.clear();
+        assertTrue(this.collection.isEmpty());
+    }
+
+    @Test
+    public void testSeveralTriggersPerEvent() {
+        final List<String> calls = new ArrayList<>();
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .beforeAdd(i -> calls.add("before1 " + i))
+            .beforeAdd(i -> calls.add("before2 " + i))
+            .afterAdd((i, result) -> calls.add("after1 " + i))
+            .afterAdd((i, result) -> calls.add("after2 " + i))
+            .allowAdd(i -> i > 0)
+            .allowAdd(i -> i < 10)
+            .build();
+
+        collection.add(1);
+        collection.add(0);
+        collection.add(10);
+        assertEquals(List.of(1), this.collection);
+        assertEquals(List.of("before1 1", "before2 1", "after1 1", "after2 1"), calls);
+    }
+
+    @Test
+    public void testAsyncAfterTriggers() {
+        final List<Integer> added = Collections.synchronizedList(new ArrayList<>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .afterAdd((i, result) -> added.add(i))
+            .afterAdd((i, result) -> threads.add(Thread.currentThread().getName()))
+            .afterRemove((i, result) -> added.remove(i))
+            .async()
+            .build();
+
+        for (int i = 0; i < 100; i++) {
+            collection.add(i);
+        }
+        collection.remove(Integer.valueOf(0));
+        collection.flush();
+        assertEquals(this.collection, added);
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+
+        collection.close();
+        collection.add(100);
+        assertEquals(Integer.valueOf(100), added.get(added.size() - 1));
+        assertEquals(Thread.currentThread().getName(), threads.get(threads.size() - 1));
+    }
+
+    @Test
+    public void testFlushWithoutAsync() {
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection).build();
+        collection.flush();
+        collection.close();
+        assertTrue(collection.add(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAsyncCapacityMustBePositive() {
+        TriggerCollection.from(this.collection).async(Runnable::run, 0, OverflowPolicy.BLOCK);
+    }
+
+    @Test
+    public void testBatchTriggersGetChangedElements() {
+        final List<List<Integer>> added = new ArrayList<>();
+        final List<List<Integer>> removed = new ArrayList<>();
+        final Collection<Integer> collection = TriggerCollection.from(new HashSet<Integer>())
+            .afterAddBatch(added::add)
+            .afterRemoveBatch(removed::add)
+            .build();
+
+        collection.add(1);
+        collection.add(1);
+        collection.addAll(List.of(1, 2, 3));
+        collection.addAll(List.of(2, 3));
+        collection.remove(1);
+        collection.removeAll(List.of(2, 4));
+        collection.removeAll(List.of(4));
+        assertEquals(List.of(List.of(1), List.of(2, 3)), added);
+        assertEquals(List.of(List.of(1), List.of(2)), removed);
+    }
+
+    @Test
+    public void testAllowEachFiltersBulkOperations() {
+        final List<List<Integer>> added = new ArrayList<>();
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowAddEach(i -> i % 2 == 0)
+            .allowRemoveEach(i -> i > 2)
+            .afterAddBatch(added::add)
+            .build();
+
+        assertTrue(collection.addAll(List.of(1, 2, 3, 4, 5, 6)));
+        assertFalse(collection.addAll(List.of(1, 3)));
+        assertTrue(collection.removeAll(List.of(2, 4)));
+        assertFalse(collection.removeAll(List.of(2)));
+        assertEquals(List.of(2, 6), this.collection);
+        assertEquals(List.of(List.of(2, 4, 6)), added);
+
+        final List<Integer> list = new ArrayList<>();
+        final List<List<Integer>> listAdded = new ArrayList<>();
+        final Collection<Integer> unfiltered = TriggerCollection.from(list).afterAddBatch(listAdded::add).build();
+        unfiltered.addAll(List.of(1, 1));
+        unfiltered.addAll(List.of());
+        assertEquals(List.of(List.of(1, 1)), listAdded);
+    }
+
+    @Test
+    public void testCoalesceBySize() {
+        final List<String> batches = new ArrayList<>();
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .afterAddBatch(batch -> batches.add("added " + batch))
+            .afterRemoveBatch(batch -> batches.add("removed " + batch))
+            .coalesce(3, 0, TimeUnit.MILLISECONDS)
+            .build();
+
+        for (int i = 0; i < 5; i++) {
+            collection.add(i);
+        }
+        assertEquals(List.of("added [0, 1, 2]"), batches);
+        collection.remove(0);
+        collection.remove(1);
+        collection.add(5);
+        collection.flush();
+        collection.close();
+        assertEquals(List.of("added [0, 1, 2]", "added [3, 4]", "removed [0, 1]", "added [5]"), batches);
+    }
+
+    @Test
+    public void testCoalesceByTime() throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .afterAddBatch(batches::add)
+            .afterAddBatch(batch -> delivered.countDown())
+            .coalesce(100, 10, TimeUnit.MILLISECONDS)
+            .build();
+
+        collection.add(1);
+        collection.add(2);
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(List.of(1, 2)), batches);
+    }
+
+    @Test(timeout = 5000)
+    public void testSlowCoalescedTriggerDoesNotBlockProducers() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> batches = Collections.synchronizedList(new ArrayList<>());
+        final TriggerCollection<Integer> collection = TriggerCollection.from(
+                Collections.synchronizedList(new ArrayList<Integer>())
+            )
+            .afterAddBatch(batch -> {
+                batches.add(batch + " on " + Thread.currentThread().getName());
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            })
+            .coalesce(2, 10, TimeUnit.MILLISECONDS)
+            .build();
+
+        final ExecutorService producer = Executors.newSingleThreadExecutor(task -> new Thread(task, "producer"));
+        final Future<?> first = producer.submit(() -> {
+            collection.add(1);
+            collection.add(2);
+        });
+        entered.await();
+        collection.add(3);
+        collection.add(4);
+        collection.add(5);
+        assertEquals(1, batches.size());
+        release.countDown();
+        first.get();
+        collection.flush();
+        producer.shutdown();
+        assertEquals(3, batches.size());
+        assertEquals(List.of("[1, 2] on producer", "[3, 4] on producer"), batches.subList(0, 2));
+        assertTrue(batches.get(2).startsWith("[5] on "));
+        assertFalse(batches.get(2).endsWith("trigger-timer"));
+    }
+
+    @Test
+    public void testCoalesceRequiresBatchTriggers() {
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .coalesce(10, 0, TimeUnit.MILLISECONDS)
+            .build();
+        collection.add(1);
+        collection.flush();
+        assertEquals(List.of(1), this.collection);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCoalesceSizeMustBePositive() {
+        TriggerCollection.from(this.collection).coalesce(0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCoalesceDelayMustNotBeNegative() {
+        TriggerCollection.from(this.collection).coalesce(1, -1, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testIteratorRemoveFiresRemoveTriggers() {
+        final List<Integer> removed = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        this.collection.addAll(List.of(1, 2, 3));
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowRemove(i -> i != 2)
+            .afterRemove((i, result) -> removed.add(i))
+            .afterRemoveBatch(batches::add)
+            .build();
+
+        final Iterator<Integer> iterator = collection.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(List.of(2), this.collection);
+        assertEquals(List.of(1, 3), removed);
+        assertEquals(List.of(List.of(1), List.of(3)), batches);
+        final Collection<Integer> untriggered = TriggerCollection.from(this.collection).build();
+        assertEquals(this.collection.iterator().getClass(), untriggered.iterator().getClass());
+    }
+
+    @Test
+    public void testBulkRemovalsFireOneBatch() {
+        final List<List<Integer>> batches = new ArrayList<>();
+        this.collection.addAll(List.of(1, 2, 3, 4, 5, 6));
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .afterRemoveBatch(batches::add)
+            .build();
+
+        assertTrue(collection.removeIf(i -> i % 2 == 0));
+        assertFalse(collection.removeIf(i -> i > 10));
+        assertTrue(collection.retainAll(List.of(1, 3)));
+        collection.clear();
+        collection.clear();
+        assertTrue(this.collection.isEmpty());
+        assertEquals(List.of(List.of(2, 4, 6), List.of(5), List.of(1, 3)), batches);
+    }
+
+    @Test
+    public void testAllowRemoveEachFiltersBulkRemovals() {
+        this.collection.addAll(List.of(1, 2, 3, 4, 5, 6));
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowRemoveEach(i -> i > 2)
+            .build();
+
+        assertTrue(collection.removeIf(i -> i % 2 == 0));
+        assertEquals(List.of(1, 2, 3, 5), this.collection);
+        assertTrue(collection.retainAll(List.of(2)));
+        assertEquals(List.of(1, 2), this.collection);
+        collection.clear();
+        assertEquals(List.of(1, 2), this.collection);
+    }
+
+    @Test
+    public void testBulkRemovalsFireElementRemoveTriggers() {
+        final List<String> fired = new ArrayList<>();
+        this.collection.addAll(List.of(1, 2, 3, 4, 5, 6));
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowRemove(i -> i != 2)
+            .beforeRemove(i -> fired.add("before " + i))
+            .afterRemove((i, result) -> fired.add("after " + i))
+            .build();
+
+        assertTrue(collection.removeIf(i -> i % 2 == 0));
+        assertEquals(List.of(1, 2, 3, 5), this.collection);
+        assertTrue(collection.removeAll(List.of(1)));
+        assertTrue(collection.retainAll(List.of(2, 3)));
+        assertEquals(List.of(2, 3), this.collection);
+        collection.clear();
+        assertEquals(List.of(2), this.collection);
+        assertEquals(List.of("before 4", "before 6", "after 4", "after 6", "before 1", "after 1",
+            "before 5", "after 5", "before 3", "after 3"), fired);
+
+        final List<Integer> removed = new ArrayList<>();
+        final Collection<Integer> afterOnly = TriggerCollection.from(new HashSet<>(List.of(7, 8)))
+            .afterRemove((i, result) -> removed.add(i))
+            .build();
+        afterOnly.clear();
+        assertTrue(afterOnly.isEmpty());
+        assertEquals(Set.of(7, 8), new HashSet<>(removed));
+    }
+
+    @Test
+    public void testBulkAdditionsFireElementAddTriggers() {
+        final List<String> fired = new ArrayList<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final Collection<Integer> collection = TriggerCollection.from(this.collection)
+            .allowAdd(i -> i != 2)
+            .beforeAdd(i -> fired.add("before " + i))
+            .afterAdd((i, result) -> fired.add("after " + i))
+            .afterAddBatch(batches::add)
+            .build();
+
+        assertTrue(collection.addAll(List.of(1, 2, 3)));
+        assertEquals(List.of(1, 3), this.collection);
+        assertEquals(List.of("before 1", "before 3", "after 1", "after 3"), fired);
+        assertEquals(List.of(List.of(1, 3)), batches);
+
+        final List<Integer> list = TriggerList.from(new ArrayList<>(List.of(0)))
+            .allowAdd(i -> i != 2)
+            .afterAdd((i, result) -> fired.add("list " + i))
+            .build();
+        assertFalse(list.addAll(0, List.of(2)));
+        assertTrue(list.addAll(0, List.of(4, 2, 5)));
+        assertEquals(List.of(4, 5, 0), list);
+        assertEquals(List.of("list 4", "list 5"), fired.subList(4, fired.size()));
+
+        final Collection<Integer> concurrent = ConcurrentTriggerCollection.concurrent(new ArrayList<Integer>())
+            .allowAdd(i -> i != 2)
+            .afterAdd((i, result) -> fired.add("concurrent " + i))
+            .build();
+        assertTrue(concurrent.addAll(List.of(2, 6)));
+        assertEquals(List.of(6), new ArrayList<>(concurrent));
+        assertEquals("concurrent 6", fired.get(fired.size() - 1));
+    }
+
+    @Test
+    public void testIndexFollowsEveryModification() {
+        this.collection.addAll(List.of(1, 12, 23));
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .index("lastDigit", i -> i % 10)
+            .index("tens", i -> i / 10, IndexOption.LAZY)
+            .build();
+
+        assertEquals(List.of(1), collection.lookup("lastDigit", 1));
+        assertEquals(0, collection.indexMemory("tens"));
+        collection.add(11);
+        collection.addAll(List.of(21, 32));
+        collection.remove(12);
+        assertEquals(List.of(1, 11, 21), collection.lookup("lastDigit", 1));
+        assertEquals(List.of(23, 21), collection.lookup("tens", 2));
+        assertTrue(collection.indexMemory("tens") > 0);
+
+        collection.removeIf(i -> i > 30);
+        collection.retainAll(List.of(1, 11, 21));
+        final Iterator<Integer> iterator = collection.iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals(List.of(11, 21), collection.lookup("lastDigit", 1));
+        assertEquals(List.of(), collection.lookup("lastDigit", 2));
+        collection.clear();
+        assertEquals(List.of(), collection.lookup("tens", 1));
+    }
+
+    @Test
+    public void testRemovalsUpdateAggregatesWithTheRemovedInstance() {
+        final List<Collection<Order>> backings = List.of(new ArrayList<>(), new ArrayDeque<>());
+        for (Collection<Order> backing : backings) {
+            final TriggerCollection<Order> orders = TriggerCollection.from(backing)
+                .aggregate("total", Aggregation.summingLong(order -> order.amount))
+                .index("amount", order -> order.amount)
+                .build();
+            orders.addAll(List.of(new Order(1, 10), new Order(2, 20), new Order(3, 30)));
+            assertTrue(orders.remove(new Order(1, 0)));
+            assertFalse(orders.remove(new Order(4, 0)));
+            assertTrue(orders.batch(tx -> tx.remove(new Order(2, 0))));
+            assertFalse(orders.batch(tx -> tx.remove(new Order(2, 0))));
+            assertEquals(30L, (long) orders.aggregate("total"));
+            assertEquals(List.of(), orders.lookup("amount", 10L));
+            assertEquals(List.of(), orders.lookup("amount", 20L));
+        }
+
+        final TriggerCollection<Order> set = TriggerCollection.from(new HashSet<Order>())
+            .aggregate("total", Aggregation.summingLong(order -> order.amount))
+            .build();
+        set.addAll(List.of(new Order(1, 10), new Order(2, 20)));
+        assertTrue(set.remove(new Order(1, 10)));
+        assertFalse(set.remove(new Order(1, 10)));
+        assertEquals(20L, (long) set.aggregate("total"));
+
+        final TriggerDeque<Order> deque = TriggerDeque.from(new ArrayDeque<Order>())
+            .aggregate("total", Aggregation.summingLong(order -> order.amount))
+            .build();
+        deque.addAll(List.of(new Order(1, 10), new Order(1, 40)));
+        assertTrue(deque.removeLastOccurrence(new Order(1, 0)));
+        assertFalse(deque.removeLastOccurrence(new Order(2, 0)));
+        assertEquals(10L, (long) deque.aggregate("total"));
+
+        final TriggerCollection<Order> concurrent = ConcurrentTriggerCollection
+            .concurrent(ConcurrentHashMap.<Order>newKeySet())
+            .aggregate("total", Aggregation.summingLong(order -> order.amount))
+            .build();
+        concurrent.add(new Order(1, 10));
+        assertTrue(concurrent.remove(new Order(1, 10)));
+        assertEquals(0L, (long) concurrent.aggregate("total"));
+    }
+
+    @Test
+    public void testThrowingTriggerLeavesAggregatesOfBulkRemovalUnchanged() {
+        this.collection.addAll(List.of(1, 2, 3));
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .beforeRemove(e -> {
+                if (e == 3) throw new IllegalStateException("veto " + e);
+            })
+            .aggregate("sum", Aggregation.summingLong(e -> e))
+            .build();
+        final ConcurrentTriggerCollection<Integer> concurrent = ConcurrentTriggerCollection
+            .concurrent(new CopyOnWriteArrayList<>(List.of(1, 2, 3)))
+            .beforeRemove(e -> {
+                if (e == 3) throw new IllegalStateException("veto " + e);
+            })
+            .aggregate("sum", Aggregation.summingLong(e -> e))
+            .build();
+
+        for (TriggerCollection<Integer> c : List.of(collection, concurrent)) {
+            try {
+                c.removeIf(e -> true);
+                fail();
+            } catch (IllegalStateException expected) {
+                assertEquals(List.of(1, 2, 3), new ArrayList<>(c));
+                assertEquals(6L, (long) c.aggregate("sum"));
+            }
+        }
+    }
+
+    @Test
+    public void testUniqueIndexRejectsTakenKeys() {
+        final TriggerCollection<String> collection = TriggerCollection.from(new ArrayList<String>())
+            .index("length", String::length, IndexOption.UNIQUE)
+            .build();
+
+        assertTrue(collection.add("a"));
+        assertFalse(collection.add("b"));
+        assertTrue(collection.addAll(List.of("c", "dd", "ee", "fff")));
+        assertEquals(List.of("a", "dd", "fff"), new ArrayList<>(collection));
+        assertEquals(List.of("dd"), collection.lookup("length", 2));
+        collection.remove("dd");
+        assertTrue(collection.add("ee"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUniqueIndexOfDuplicates() {
+        TriggerCollection.from(new ArrayList<>(List.of("a", "b"))).index("length", String::length, IndexOption.UNIQUE)
+            .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateIndexName() {
+        TriggerCollection.from(this.collection).index("index", i -> i).index("index", i -> -i);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownIndex() {
+        TriggerCollection.from(this.collection).index("index", i -> i).build().lookup("other", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLookupWithoutIndexes() {
+        TriggerCollection.from(this.collection).build().indexMemory("index");
+    }
+
+    @Test
+    public void testAggregatesFollowEveryModification() {
+        this.collection.addAll(List.of(5, 1));
+        final TriggerCollection<Integer> collection = TriggerCollection.from(this.collection)
+            .aggregate("count", Aggregation.counting())
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .aggregate("min", Aggregation.minBy(Integer::compare))
+            .aggregate("parity", Aggregation.groupingBy(i -> i % 2, Aggregation.counting()))
+            .build();
+
+        assertEquals(Long.valueOf(2), collection.aggregate("count"));
+        collection.addAll(List.of(2, 3));
+        collection.remove(1);
+        collection.removeIf(i -> i == 5);
+        assertEquals(Long.valueOf(2), collection.aggregate("count"));
+        assertEquals(Long.valueOf(5), collection.aggregate("sum"));
+        assertEquals(Optional.of(2), collection.aggregate("min"));
+        assertEquals(Map.of(0, 1L, 1, 1L), collection.aggregate("parity"));
+        collection.clear();
+        assertEquals(Optional.empty(), collection.aggregate("min"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateAggregateName() {
+        TriggerCollection.from(this.collection)
+            .aggregate("count", Aggregation.counting())
+            .aggregate("count", Aggregation.counting());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAggregate() {
+        TriggerCollection.from(this.collection).aggregate("count", Aggregation.counting()).build().aggregate("sum");
+    }
+
+    @Test
+    public void testBatchFiresNetChange() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerCollection<Integer> triggerCollection = TriggerCollection.from(collection)
+            .allowAdd(e -> e > 0)
+            .beforeAdd(e -> calls.add("before add " + e))
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .allowRemove(e -> e != 9)
+            .afterRemove((e, result) -> calls.add("remove " + e))
+            .afterAddBatch(batch -> calls.add("added " + batch))
+            .afterRemoveBatch(batch -> calls.add("removed " + batch))
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .build();
+        triggerCollection.add(1);
+        calls.clear();
+        assertTrue(triggerCollection.batch(tx -> {
+            assertTrue(tx.add(2));
+            assertFalse(tx.add(-1));
+            tx.add(3);
+            tx.remove(3);
+            tx.remove(1);
+            tx.remove(5);
+            assertFalse(tx.remove(9));
+            assertEquals(List.of(1), collection);
+        }));
+        assertEquals(List.of(2), collection);
+        assertEquals(2L, (long) triggerCollection.aggregate("sum"));
+        assertEquals(List.of(
+            "before add 2", "before add 3", "remove 1", "add 2", "removed [1]", "added [2]"
+        ), calls);
+        calls.clear();
+        assertTrue(triggerCollection.batch(tx -> {
+            tx.add(4);
+            tx.remove(4);
+        }));
+        assertFalse(triggerCollection.batch(tx -> tx.remove(6)));
+        assertFalse(triggerCollection.batch(tx -> { }));
+        assertEquals(List.of("before add 4"), calls);
+    }
+
+    @Test
+    public void testBatchReportsMovedElements() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerList<Integer> list = TriggerList.from(new ArrayList<>(List.of(1, 2, 1)))
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .afterRemove((e, result) -> calls.add("remove " + e))
+            .metrics()
+            .build();
+        assertTrue(list.batch(tx -> {
+            tx.remove(1);
+            tx.add(1);
+            tx.add(3);
+            tx.remove(2);
+            tx.add(4);
+            tx.remove(3);
+        }));
+        assertEquals(List.of(1, 1, 4), list);
+        assertEquals(List.of("remove 1", "remove 2", "add 1", "add 4"), calls);
+        assertEquals(1, list.metrics().invocations(TriggerMetrics.Operation.BATCH));
+
+        calls.clear();
+        final TriggerQueue<Integer> queue = TriggerQueue.from(new ArrayDeque<>(List.of(1, 2)))
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .afterRemove((e, result) -> calls.add("remove " + e))
+            .build();
+        assertTrue(queue.batch(tx -> {
+            tx.remove(1);
+            tx.add(1);
+        }));
+        assertEquals(List.of(2, 1), new ArrayList<>(queue));
+        assertEquals(List.of("remove 1", "add 1"), calls);
+    }
+
+    @Test
+    public void testBatchRollback() {
+        final List<Integer> backing = new ArrayList<>(List.of(1, 2, 3)) {
+            @Override
+            public boolean add(Integer e) {
+                if (e == 0) throw new IllegalArgumentException("zero");
+                return super.add(e);
+            }
+        };
+        final List<String> calls = new ArrayList<>();
+        final TriggerList<Integer> list = TriggerList.from(backing)
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .build();
+        final List<Transaction<Integer>> escaped = new ArrayList<>();
+        try {
+            list.batch(tx -> {
+                escaped.add(tx);
+                tx.remove(2);
+                tx.add(4);
+                tx.remove(1);
+                tx.add(0);
+            });
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals(List.of(1, 2, 3), list);
+            assertEquals(6L, (long) list.aggregate("sum"));
+        }
+        try {
+            list.batch(tx -> {
+                tx.add(5);
+                throw new IllegalStateException("body");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(List.of(1, 2, 3), list);
+        }
+        try {
+            escaped.get(0).remove(1);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(calls.isEmpty());
+        }
+        try {
+            escaped.get(0).add(null);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(calls.isEmpty());
+        }
+
+        final Queue<Integer> bounded = new ArrayBlockingQueue<>(2);
+        final TriggerQueue<Integer> queue = TriggerQueue.from(bounded).build();
+        queue.add(1);
+        try {
+            queue.batch(tx -> {
+                tx.remove(1);
+                tx.add(2);
+                tx.add(3);
+                tx.add(4);
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(List.of(1), new ArrayList<>(queue));
+        }
+    }
+
+    /**
+     * Orders are equal by their id, the amount is only aggregated.
+     */
+    private static final class Order {
+        final int id;
+        final long amount;
+
+        Order(int id, long amount) {
+            this.id = id;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Order && ((Order) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerDequeTest {
+
+    @Test
+    public void testBothEnds() {
+        final Deque<Integer> backing = new ArrayDeque<>();
+        final List<String> calls = new ArrayList<>();
+        final TriggerDeque<Integer> deque = TriggerDeque.from(backing)
+            .allowAdd(e -> e > 0)
+            .afterAdd((e, result) -> calls.add("+" + e))
+            .afterRemove((e, result) -> calls.add("-" + e + " " + result))
+            .build();
+
+        deque.addFirst(2);
+        deque.addLast(3);
+        deque.addFirst(-1);
+        deque.addLast(-1);
+        assertTrue(deque.offerFirst(1));
+        assertTrue(deque.offerLast(4));
+        assertFalse(deque.offerFirst(-1));
+        assertFalse(deque.offerLast(-1));
+        deque.push(5);
+        assertEquals(List.of(5, 1, 2, 3, 4), List.copyOf(backing));
+        assertEquals(5, (int) deque.getFirst());
+        assertEquals(4, (int) deque.getLast());
+        assertEquals(5, (int) deque.peekFirst());
+        assertEquals(4, (int) deque.peekLast());
+
+        calls.clear();
+        assertEquals(5, (int) deque.pop());
+        assertEquals(1, (int) deque.removeFirst());
+        assertEquals(4, (int) deque.removeLast());
+        assertEquals(2, (int) deque.pollFirst());
+        assertEquals(3, (int) deque.pollLast());
+        assertNull(deque.pollLast());
+        assertEquals(List.of("-5 true", "-1 true", "-4 true", "-2 true", "-3 true"), calls);
+    }
+
+    @Test
+    public void testOccurrencesAndDescendingIterator() {
+        final Deque<Integer> backing = new ArrayDeque<>(List.of(1, 2, 1, 2, 3));
+        final List<String> calls = new ArrayList<>();
+        final TriggerDeque<Integer> deque = TriggerDeque.from(backing)
+            .allowRemove(e -> e != 3)
+            .afterRemove((e, result) -> calls.add("-" + e + " " + result))
+            .build();
+
+        assertTrue(deque.removeFirstOccurrence(1));
+        assertTrue(deque.removeLastOccurrence(2));
+        assertFalse(deque.removeLastOccurrence(3));
+        assertFalse(deque.removeLastOccurrence(4));
+        assertEquals(List.of(2, 1, 3), List.copyOf(backing));
+
+        final Iterator<Integer> iterator = deque.descendingIterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(List.of(3), List.copyOf(backing));
+        assertEquals(List.of("-1 true", "-2 true", "-4 false", "-1 true", "-2 true"), calls);
+
+        final Iterator<Integer> plain = TriggerDeque.from(backing).build().descendingIterator();
+        assertEquals(3, (int) plain.next());
+    }
+}
@@ -0,0 +1,250 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TriggerIntListTest {
+
+    @Test
+    public void testAddTriggers() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from()
+            .beforeAdd(v -> calls.add("before " + v))
+            .afterAdd(v -> calls.add("after " + v))
+            .allowAdd(v -> v >= 0)
+            .allowAdd(v -> v < 100)
+            .build();
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(list.add(i));
+        }
+        assertFalse(list.add(-1));
+        assertFalse(list.add(100));
+        assertTrue(list.add(0, 50));
+        assertEquals(21, list.size());
+        assertEquals(50, list.get(0));
+        assertEquals(19, list.get(20));
+        assertEquals(List.of("before 0", "after 0"), calls.subList(0, 2));
+        assertEquals(42, calls.size());
+    }
+
+    @Test
+    public void testGetTriggers() {
+        final int[] calls = new int[3];
+        final TriggerIntList list = TriggerIntList.from(7, 8, 9)
+            .beforeGet(i -> calls[0] += i)
+            .beforeGet(i -> calls[1]++)
+            .afterGet((i, v) -> calls[2] += v)
+            .afterGet((i, v) -> assertEquals(i + 7, v))
+            .build();
+
+        assertEquals(8, list.get(1));
+        assertEquals(9, list.get(2));
+        assertArrayEquals(new int[]{3, 2, 17}, calls);
+    }
+
+    @Test
+    public void testSetTriggers() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3)
+            .beforeSet((i, v) -> calls.add("before " + i + "=" + v))
+            .afterSet((i, v) -> calls.add("after " + i + "=" + v))
+            .allowSet(v -> v > 0)
+            .build();
+
+        assertEquals(2, list.set(1, 20));
+        assertEquals(3, list.set(2, -3));
+        assertArrayEquals(new int[]{1, 20, 3}, list.toArray());
+        assertEquals(List.of("before 1=20", "after 1=20"), calls);
+    }
+
+    @Test
+    public void testRemoveTriggers() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3, 4)
+            .beforeRemove(v -> calls.add("before " + v))
+            .afterRemove(v -> calls.add("after " + v))
+            .allowRemove(v -> v != 1)
+            .build();
+
+        assertEquals(2, list.removeAt(1));
+        assertEquals(1, list.removeAt(0));
+        assertEquals(4, list.removeAt(2));
+        assertArrayEquals(new int[]{1, 3}, list.toArray());
+        assertEquals(List.of("before 2", "after 2", "before 4", "after 4"), calls);
+    }
+
+    @Test
+    public void testClearFiresRemoveTriggers() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3, 2, 4)
+            .beforeRemove(v -> calls.add("before " + v))
+            .afterRemove(v -> calls.add("after " + v))
+            .allowRemove(v -> v != 2)
+            .build();
+
+        assertEquals(2, list.removeAt(1));
+        assertEquals(5, list.size());
+        list.clear();
+        assertArrayEquals(new int[]{2, 2}, list.toArray());
+        assertEquals(List.of("before 1", "before 3", "before 4", "after 1", "after 3", "after 4"), calls);
+
+        calls.clear();
+        final TriggerIntList viewed = TriggerIntList.from(1, 2, 3, 2, 4)
+            .beforeRemove(v -> calls.add("before " + v))
+            .afterRemove(v -> calls.add("after " + v))
+            .allowRemove(v -> v != 2)
+            .build();
+        viewed.asList().clear();
+        assertArrayEquals(list.toArray(), viewed.toArray());
+        assertEquals(List.of("before 1", "before 3", "before 4", "after 1", "after 3", "after 4"), calls);
+    }
+
+    @Test
+    public void testThrowingTriggerKeepsUnvisitedValues() {
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3, 4)
+            .beforeRemove(v -> {
+                if (v == 3) throw new IllegalStateException();
+            })
+            .build();
+
+        try {
+            list.clear();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertArrayEquals(new int[]{3, 4}, list.toArray());
+        }
+    }
+
+    @Test
+    public void testReadMethods() {
+        final TriggerIntList list = TriggerIntList.from(5, 6, 7).build();
+
+        assertFalse(list.isEmpty());
+        assertEquals(1, list.indexOf(6));
+        assertEquals(-1, list.indexOf(8));
+        assertTrue(list.contains(7));
+        assertFalse(list.contains(8));
+        assertEquals(18, list.stream().sum());
+        assertEquals("[5, 6, 7]", list.toString());
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        TriggerIntList.from(1).build().get(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testAddOutOfBounds() {
+        TriggerIntList.from(1).build().add(2, 1);
+    }
+
+    @Test(timeout = 2000)
+    public void testViewHonoursVetoedRemovals() {
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3, 2)
+            .allowRemove(v -> v != 2)
+            .allowAdd(v -> v >= 0)
+            .build();
+        final List<Integer> view = list.asList();
+
+        assertTrue(view.removeIf(v -> v == 2 || v == 3));
+        assertFalse(view.removeIf(v -> v == 2));
+        assertEquals(List.of(1, 2, 2), view);
+        assertFalse(view.removeAll(List.of(2)));
+        assertTrue(view.retainAll(List.of(2)));
+        assertEquals(List.of(2, 2), view);
+        assertFalse(view.remove(Integer.valueOf(2)));
+        assertFalse(view.remove(Integer.valueOf(9)));
+        assertFalse(view.remove("2"));
+        assertEquals(List.of(2, 2), view);
+
+        final ListIterator<Integer> iterator = view.listIterator(1);
+        assertTrue(iterator.hasPrevious());
+        assertEquals(0, iterator.previousIndex());
+        assertEquals(Integer.valueOf(2), iterator.previous());
+        iterator.remove();
+        assertEquals(0, iterator.nextIndex());
+        iterator.add(-1);
+        assertEquals(0, iterator.nextIndex());
+        iterator.add(5);
+        assertEquals(Integer.valueOf(2), iterator.next());
+        iterator.set(7);
+        assertEquals(Integer.valueOf(7), iterator.previous());
+        iterator.remove();
+        assertEquals(List.of(5, 2), view);
+        try {
+            iterator.remove();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(2, view.size());
+        }
+        try {
+            iterator.set(1);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(2, view.size());
+        }
+        iterator.next();
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+            assertEquals(2, iterator.nextIndex());
+        }
+        try {
+            view.listIterator(0).previous();
+            fail();
+        } catch (NoSuchElementException expected) {
+            assertEquals(2, view.size());
+        }
+        view.subList(0, 2).clear();
+        assertEquals(List.of(2), view);
+        view.add(4);
+        assertTrue(view.remove(Integer.valueOf(4)));
+        assertEquals(List.of(2), view);
+    }
+
+    @Test
+    public void testListView() {
+        final List<Integer> added = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from(1, 2)
+            .afterAdd(added::add)
+            .build();
+        final List<Integer> view = list.asList();
+
+        view.add(3);
+        view.add(0, 0);
+        assertEquals(Integer.valueOf(3), view.set(3, 30));
+        assertEquals(Integer.valueOf(1), view.remove(1));
+        assertEquals(List.of(0, 2, 30), view);
+        assertEquals(3, view.size());
+        assertEquals(List.of(3, 0), added);
+    }
+
+    @Test
+    public void testSampledGets() {
+        final List<Integer> indexes = new ArrayList<>();
+        final TriggerIntList list = TriggerIntList.from(1, 2, 3)
+            .beforeGet(indexes::add)
+            .sampleGets(Sampling.everyNth(3))
+            .build();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 1, list.get(i));
+        }
+        assertEquals(List.of(2), indexes);
+    }
+}
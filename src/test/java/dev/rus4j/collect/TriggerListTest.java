@@ -4,11 +4,19 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TriggerListTest {
     private static final int VALUE_TO_GET = 7;
@@ -67,4 +75,223 @@ public class TriggerListTest {
             .build();
         triggerList.add(15);
     }
+
+    @Test
+    public void testDelegatesListMethods() {
+        List<Integer> triggerList = TriggerList.from(this.list).build();
+
+        assertEquals(Integer.valueOf(VALUE_TO_GET), triggerList.set(0, 1));
+        triggerList.add(0, 0);
+        triggerList.addAll(2, List.of(2, 3, 2));
+        assertEquals(List.of(0, 1, 2, 3, 2), this.list);
+        assertEquals(2, triggerList.indexOf(2));
+        assertEquals(4, triggerList.lastIndexOf(2));
+        assertEquals(Integer.valueOf(2), triggerList.remove(4));
+        assertEquals(Integer.valueOf(0), triggerList.listIterator().next());
+        assertEquals(Integer.valueOf(3), triggerList.listIterator(3).next());
+        assertEquals(List.of(1, 2), triggerList.subList(1, 3));
+
+        triggerList.replaceAll(i -> i * 10);
+        triggerList.sort(Comparator.reverseOrder());
+        assertEquals(List.of(30, 20, 10, 0), this.list);
+    }
+
+    @Test
+    public void testIndexedMethodsFireTriggers() {
+        final List<String> events = new ArrayList<>();
+        final List<Integer> triggerList = TriggerList.from(this.list)
+            .allowAdd(i -> i > 0)
+            .afterAdd((i, result) -> events.add("add " + i))
+            .allowRemove(i -> i != VALUE_TO_GET)
+            .afterRemove((i, result) -> events.add("remove " + i))
+            .allowSet(i -> i < 100)
+            .beforeSet((i, index) -> events.add("set " + index + " " + i))
+            .afterSet((i, index) -> events.add("set " + index))
+            .afterSet((i, index) -> assertEquals(0, index))
+            .build();
+
+        triggerList.add(0, 1);
+        triggerList.add(0, 0);
+        assertEquals(Integer.valueOf(1), triggerList.set(0, 2));
+        assertEquals(Integer.valueOf(2), triggerList.set(0, 200));
+        assertNull(triggerList.remove(1));
+        assertEquals(Integer.valueOf(2), triggerList.remove(0));
+        assertEquals(List.of(VALUE_TO_GET), this.list);
+        assertEquals(List.of("add 1", "set 0 2", "set 0", "remove 2"), events);
+    }
+
+    @Test
+    public void testBatchTriggersGetIndexedModifications() {
+        final List<String> batches = new ArrayList<>();
+        final List<Integer> triggerList = TriggerList.from(this.list)
+            .allowAddEach(i -> i % 2 == 0)
+            .allowSet(i -> i < 100)
+            .afterAddBatch(batch -> batches.add("added " + batch))
+            .afterRemoveBatch(batch -> batches.add("removed " + batch))
+            .build();
+
+        assertTrue(triggerList.addAll(0, List.of(1, 2, 4)));
+        assertFalse(triggerList.addAll(0, List.of(1)));
+        triggerList.set(0, 3);
+        triggerList.replaceAll(i -> i * 10);
+        assertEquals(List.of(30, 40, 70), this.list);
+        assertEquals(List.of("added [2, 4]", "removed [2]", "added [3]", "removed [3, 4, 7]", "added [30, 40, 70]"), batches);
+
+        final List<List<Integer>> added = new ArrayList<>();
+        final List<Integer> unfiltered = TriggerList.from(this.list).afterAddBatch(added::add).build();
+        unfiltered.addAll(1, List.of(1, 1));
+        unfiltered.replaceAll(i -> i);
+        assertEquals(List.of(List.of(1, 1), List.of(30, 1, 1, 40, 70)), added);
+    }
+
+    @Test
+    public void testListIteratorFiresTriggers() {
+        final List<String> events = new ArrayList<>();
+        this.list.addAll(List.of(1, 2));
+        final List<Integer> triggerList = TriggerList.from(this.list)
+            .allowRemove(i -> i != 1)
+            .afterRemove((i, result) -> events.add("remove " + i))
+            .afterAdd((i, result) -> events.add("add " + i))
+            .afterSet((i, index) -> events.add("set " + index + " " + i))
+            .allowSet(i -> i != 0)
+            .allowAdd(i -> i != 0)
+            .build();
+
+        final ListIterator<Integer> iterator = triggerList.listIterator();
+        assertFalse(iterator.hasPrevious());
+        assertEquals(Integer.valueOf(VALUE_TO_GET), iterator.next());
+        iterator.set(8);
+        assertEquals(1, iterator.nextIndex());
+        assertEquals(Integer.valueOf(1), iterator.next());
+        iterator.remove();
+        iterator.next();
+        iterator.remove();
+        iterator.add(3);
+        assertEquals(2, iterator.previousIndex());
+        assertEquals(Integer.valueOf(3), iterator.previous());
+        iterator.set(4);
+        iterator.set(0);
+        iterator.add(0);
+        assertTrue(iterator.hasNext());
+        assertEquals(List.of(8, 1, 4), this.list);
+        assertEquals(List.of("set 0 8", "remove 2", "add 3", "set 2 4"), events);
+    }
+
+    @Test
+    public void testSubListAndSortFireTriggers() {
+        final List<String> events = new ArrayList<>();
+        this.list.addAll(List.of(1, 2, 3));
+        final List<Integer> triggerList = TriggerList.from(this.list)
+            .afterRemoveBatch(batch -> events.add("removed " + batch))
+            .afterSort(comparator -> events.add("sorted"))
+            .build();
+
+        final List<Integer> subList = triggerList.subList(1, 3);
+        subList.clear();
+        triggerList.sort(null);
+        assertEquals(List.of(3, VALUE_TO_GET), this.list);
+        assertEquals(List.of("removed [1, 2]", "sorted"), events);
+    }
+
+    @Test
+    public void testIndexFollowsListModifications() {
+        final TriggerList<Integer> triggerList = TriggerList.from(this.list)
+            .index("id", i -> i, IndexOption.UNIQUE)
+            .build();
+
+        triggerList.add(0, 1);
+        triggerList.add(0, 1);
+        assertEquals(Integer.valueOf(1), triggerList.set(0, 2));
+        assertEquals(Integer.valueOf(2), triggerList.set(0, VALUE_TO_GET));
+        assertEquals(Integer.valueOf(2), triggerList.set(0, 2));
+        assertTrue(triggerList.addAll(1, List.of(3, 3, 4)));
+        triggerList.replaceAll(i -> i == 4 ? 12 : i + 10);
+        assertEquals(List.of(12, 13, 4, VALUE_TO_GET + 10), this.list);
+        assertEquals(List.of(4), triggerList.lookup("id", 4));
+        assertEquals(List.of(), triggerList.lookup("id", 2));
+
+        final ListIterator<Integer> iterator = triggerList.listIterator();
+        iterator.next();
+        iterator.set(13);
+        iterator.set(14);
+        iterator.add(15);
+        triggerList.remove(0);
+        triggerList.subList(0, 2).clear();
+        assertEquals(List.of(4, VALUE_TO_GET + 10), this.list);
+        assertEquals(List.of(), triggerList.lookup("id", 15));
+        assertEquals(List.of(4), triggerList.lookup("id", 4));
+    }
+
+    @Test
+    public void testAggregatesFollowReplacements() {
+        final TriggerList<Integer> triggerList = TriggerList.from(this.list)
+            .aggregate("max", Aggregation.maxBy(Integer::compare))
+            .build();
+
+        triggerList.add(1);
+        triggerList.set(0, 0);
+        assertEquals(Optional.of(1), triggerList.aggregate("max"));
+        triggerList.replaceAll(i -> i + 10);
+        assertEquals(Optional.of(11), triggerList.aggregate("max"));
+    }
+
+    @Test
+    public void testSampledGets() {
+        final List<Integer> indexes = new ArrayList<>();
+        final List<Long> counts = new ArrayList<>();
+        final TriggerList<Integer> triggerList = TriggerList.from(this.list)
+            .beforeGet(indexes::add)
+            .sampleGets(Sampling.everyNth(2))
+            .countGets(counts::add, 1, TimeUnit.HOURS)
+            .build();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(VALUE_TO_GET, (int) triggerList.get(INDEX_TO_GET));
+        }
+        assertEquals(List.of(INDEX_TO_GET, INDEX_TO_GET), indexes);
+        triggerList.subList(0, 1).get(0);
+        triggerList.flush();
+        assertEquals(List.of(6L), counts);
+        triggerList.get(0);
+        triggerList.close();
+        assertEquals(List.of(6L, 1L), counts);
+        assertEquals(3, indexes.size());
+    }
+
+    @Test
+    public void testSnapshots() {
+        final List<Integer> added = new ArrayList<>();
+        final TriggerList<Integer> triggerList = TriggerList.<Integer>versioned()
+            .allowAdd(e -> e > 0)
+            .afterAdd((e, result) -> added.add(e))
+            .build();
+
+        for (int e : List.of(3, 1, -1, 2)) {
+            triggerList.add(e);
+        }
+        final List<Integer> snapshot = triggerList.snapshot();
+        triggerList.sort(null);
+        triggerList.set(0, 10);
+        triggerList.subList(1, 2).clear();
+        assertEquals(List.of(3, 1, 2), snapshot);
+        assertEquals(List.of(10, 3), triggerList);
+        assertEquals(List.of(10, 3), triggerList.snapshot());
+        assertEquals(List.of(3, 1, 2), added);
+        try {
+            triggerList.subList(0, 1).snapshot();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("The list is not versioned", expected.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSnapshotOfPlainList() {
+        TriggerList.from(this.list).build().snapshot();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCountPeriod() {
+        TriggerList.from(this.list).countGets(n -> { }, 0, TimeUnit.SECONDS);
+    }
 }
@@ -0,0 +1,225 @@
+package dev.rus4j.collect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerMapTest {
+    private Map<String, Integer> map;
+    private List<String> calls;
+
+    @Before
+    public void setUp() {
+        map = new LinkedHashMap<>();
+        map.put("a", 1);
+        calls = new ArrayList<>();
+    }
+
+    @Test
+    public void testPutAndRemoveTriggers() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .allowPut((k, v) -> v >= 0)
+            .allowPut((k, v) -> v < 100)
+            .beforePut((k, v) -> calls.add("before put " + k + "=" + v))
+            .afterPut((k, previous, v) -> calls.add("after put " + k + " " + previous + "->" + v))
+            .afterPut((k, previous, v) -> calls.add("second after put " + k))
+            .allowRemove(k -> !k.equals("a"))
+            .beforeRemove(k -> calls.add("before remove " + k))
+            .afterRemove((k, v) -> calls.add("after remove " + k + "=" + v))
+            .build();
+
+        assertEquals(1, (int) triggerMap.put("a", 2));
+        assertEquals(2, (int) triggerMap.put("a", -1));
+        assertEquals(2, (int) triggerMap.put("a", 100));
+        assertNull(triggerMap.put("b", 3));
+        assertNull(triggerMap.remove("a"));
+        assertEquals(3, (int) triggerMap.remove("b"));
+        assertNull(triggerMap.remove("c"));
+        map.put("n", null);
+        assertNull(triggerMap.remove("n"));
+        assertFalse(map.containsKey("n"));
+        assertEquals(Map.of("a", 2), map);
+        assertEquals(List.of(
+            "before put a=2", "after put a 1->2", "second after put a",
+            "before put b=3", "after put b null->3", "second after put b",
+            "before remove b", "after remove b=3",
+            "before remove n", "after remove n=null"
+        ), calls);
+    }
+
+    @Test
+    public void testKeyTriggers() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .afterPut((k, previous, v) -> calls.add("all " + k))
+            .allowPut("limit", (k, v) -> v <= 10)
+            .beforePut("limit", (k, v) -> calls.add("before limit " + v))
+            .afterPut("limit", (k, previous, v) -> calls.add("after limit " + v))
+            .allowRemove("a", k -> false)
+            .beforeRemove("b", k -> calls.add("before b"))
+            .afterRemove("b", (k, v) -> calls.add("after b " + v))
+            .build();
+
+        triggerMap.put("limit", 5);
+        triggerMap.put("limit", 50);
+        triggerMap.put("b", 50);
+        assertNull(triggerMap.remove("a"));
+        triggerMap.remove("b");
+        assertEquals(Map.of("a", 1, "limit", 5), map);
+        assertEquals(List.of(
+            "before limit 5", "all limit", "after limit 5",
+            "all b",
+            "before b", "after b 50"
+        ), calls);
+    }
+
+    @Test
+    public void testComputeAndMerge() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .allowPut((k, v) -> v < 10)
+            .allowRemove(k -> !k.equals("keep"))
+            .afterPut((k, previous, v) -> calls.add(k + "=" + v))
+            .afterRemove((k, v) -> calls.add("-" + k))
+            .build();
+
+        assertEquals(2, (int) triggerMap.compute("a", (k, v) -> v + 1));
+        assertEquals(2, (int) triggerMap.compute("a", (k, v) -> v + 10));
+        assertNull(triggerMap.compute("a", (k, v) -> null));
+        assertNull(triggerMap.compute("x", (k, v) -> null));
+        assertEquals(3, (int) triggerMap.computeIfAbsent("b", k -> 3));
+        assertEquals(3, (int) triggerMap.computeIfAbsent("b", k -> 4));
+        assertNull(triggerMap.computeIfAbsent("c", k -> 30));
+        assertNull(triggerMap.computeIfAbsent("c", k -> null));
+        assertEquals(4, (int) triggerMap.computeIfPresent("b", (k, v) -> v + 1));
+        assertNull(triggerMap.computeIfPresent("c", (k, v) -> 1));
+        assertEquals(5, (int) triggerMap.merge("b", 1, Integer::sum));
+        assertEquals(1, (int) triggerMap.merge("keep", 1, Integer::sum));
+        assertEquals(1, (int) triggerMap.merge("keep", 1, (v, w) -> null));
+        assertEquals(Map.of("b", 5, "keep", 1), map);
+        assertEquals(List.of("a=2", "-a", "b=3", "b=4", "b=5", "keep=1"), calls);
+    }
+
+    @Test
+    public void testReplaceMethods() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .allowPut((k, v) -> v < 10)
+            .afterPut((k, previous, v) -> calls.add(k + "=" + v))
+            .afterRemove((k, v) -> calls.add("-" + k))
+            .build();
+
+        assertEquals(1, (int) triggerMap.putIfAbsent("a", 5));
+        assertNull(triggerMap.putIfAbsent("b", 2));
+        assertNull(triggerMap.replace("c", 3));
+        assertEquals(2, (int) triggerMap.replace("b", 3));
+        assertFalse(triggerMap.replace("b", 2, 4));
+        assertFalse(triggerMap.replace("c", null, 4));
+        assertTrue(triggerMap.replace("b", 3, 4));
+        assertFalse(triggerMap.replace("b", 4, 40));
+        assertFalse(triggerMap.remove("b", 3));
+        assertFalse(triggerMap.remove("c", null));
+        assertTrue(triggerMap.remove("b", 4));
+        triggerMap.putAll(Map.of("x", 50));
+        triggerMap.replaceAll((k, v) -> v + 8);
+        assertEquals(Map.of("a", 9), map);
+        assertEquals(List.of("b=2", "b=3", "b=4", "-b", "a=9"), calls);
+    }
+
+    @Test
+    public void testViews() {
+        map.put("b", 2);
+        map.put("c", 3);
+        map.put("d", 4);
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .allowPut((k, v) -> v < 10)
+            .allowRemove(k -> !k.equals("a"))
+            .afterPut((k, previous, v) -> calls.add(k + "=" + v))
+            .afterRemove((k, v) -> calls.add("-" + k + "=" + v))
+            .build();
+
+        for (Map.Entry<String, Integer> entry : triggerMap.entrySet()) {
+            assertEquals(entry.getValue(), entry.setValue(entry.getValue() + 1));
+        }
+        final Map.Entry<String, Integer> first = triggerMap.entrySet().iterator().next();
+        assertEquals(2, (int) first.setValue(20));
+        assertEquals(2, (int) first.getValue());
+        assertTrue(triggerMap.entrySet().contains(Map.entry("b", 3)));
+        assertEquals(4, triggerMap.entrySet().size());
+
+        assertTrue(triggerMap.keySet().remove("b"));
+        assertFalse(triggerMap.keySet().remove("x"));
+        assertFalse(triggerMap.keySet().remove("a"));
+        assertTrue(triggerMap.keySet().contains("c"));
+        assertEquals(3, triggerMap.keySet().size());
+        final Iterator<String> keys = triggerMap.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().equals("c")) keys.remove();
+        }
+        assertTrue(triggerMap.values().remove(5));
+        assertEquals(Map.of("a", 2), map);
+        assertEquals(List.of("a=2", "b=3", "c=4", "d=5", "-b=3", "-c=4", "-d=5"), calls);
+
+        triggerMap.clear();
+        assertEquals(Map.of("a", 2), map);
+    }
+
+    @Test
+    public void testClearWithoutRemoveTriggers() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map)
+            .afterPut((k, previous, v) -> calls.add(k))
+            .afterRemove("b", (k, v) -> calls.add("-" + k))
+            .build();
+        triggerMap.clear();
+        assertTrue(map.isEmpty());
+
+        final TriggerMap<String, Integer> plain = TriggerMap.from(map).afterPut((k, previous, v) -> { }).build();
+        plain.put("a", 1);
+        plain.clear();
+        assertTrue(plain.isEmpty());
+    }
+
+    @Test
+    public void testEntriesWrappedOnlyForPutTriggers() {
+        final TriggerMap<String, Integer> removals = TriggerMap.from(map)
+            .afterRemove((k, v) -> calls.add("-" + k))
+            .build();
+        final Map.Entry<String, Integer> backing = map.entrySet().iterator().next();
+        assertSame(backing, removals.entrySet().iterator().next());
+
+        final TriggerMap<String, Integer> puts = TriggerMap.from(map)
+            .allowPut("a", (k, v) -> v > 0)
+            .build();
+        final Map.Entry<String, Integer> entry = puts.entrySet().iterator().next();
+        assertNotSame(backing, entry);
+        assertEquals(Integer.valueOf(1), entry.setValue(-1));
+        assertEquals(Integer.valueOf(1), map.get("a"));
+    }
+
+    @Test
+    public void testReads() {
+        final TriggerMap<String, Integer> triggerMap = TriggerMap.from(map).build();
+        final Map<String, Integer> copy = new HashMap<>(map);
+
+        assertEquals(1, triggerMap.size());
+        assertFalse(triggerMap.isEmpty());
+        assertTrue(triggerMap.containsKey("a"));
+        assertTrue(triggerMap.containsValue(1));
+        assertEquals(1, (int) triggerMap.get("a"));
+        assertEquals(copy, triggerMap);
+        assertEquals(triggerMap, triggerMap);
+        assertEquals(copy.hashCode(), triggerMap.hashCode());
+        assertEquals("{a=1}", triggerMap.toString());
+        assertTrue(triggerMap.keySet() == triggerMap.keySet());
+    }
+}
@@ -0,0 +1,114 @@
+package dev.rus4j.collect;
+
+import dev.rus4j.collect.TriggerMetrics.Operation;
+import dev.rus4j.collect.TriggerMetrics.Phase;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerMetricsTest {
+
+    @Test
+    public void testCountsAndLatencies() {
+        final TriggerList<Integer> list = TriggerList.from(new ArrayList<Integer>())
+            .allowAdd(i -> i > 0)
+            .beforeAdd(i -> { })
+            .afterAdd((i, result) -> { })
+            .allowAddEach(i -> i < 10)
+            .allowRemove(i -> true)
+            .beforeGet(i -> { })
+            .afterSet((i, index) -> { })
+            .metrics()
+            .build();
+
+        list.add(1);
+        list.add(0);
+        list.add(0, 2);
+        list.addAll(List.of(3, 30));
+        list.addAll(0, List.of(4));
+        list.get(0);
+        list.set(0, 5);
+        list.remove(0);
+        list.remove(Integer.valueOf(1));
+        list.removeIf(i -> i == 3);
+        list.retainAll(List.of());
+        list.removeAll(List.of(1));
+        list.clear();
+
+        final TriggerMetrics metrics = list.metrics();
+        assertEquals(2, metrics.invocations(Operation.ADD));
+        assertEquals(1, metrics.rejections(Operation.ADD));
+        assertEquals(5, metrics.latency(Operation.ADD, Phase.ALLOW).count());
+        assertEquals(4, metrics.latency(Operation.ADD, Phase.BEFORE).count());
+        assertEquals(4, metrics.latency(Operation.ADD, Phase.AFTER).count());
+        assertEquals(2, metrics.invocations(Operation.ADD_ALL));
+        assertEquals(1, metrics.rejections(Operation.ADD_ALL));
+        assertEquals(2, metrics.invocations(Operation.REMOVE));
+        assertEquals(4, metrics.invocations(Operation.REMOVE_ALL));
+        assertEquals(1, metrics.invocations(Operation.GET));
+        assertEquals(1, metrics.latency(Operation.GET, Phase.BEFORE).count());
+        assertEquals(1, metrics.invocations(Operation.SET));
+        assertEquals(1, metrics.latency(Operation.SET, Phase.AFTER).count());
+        assertTrue(metrics.latency(Operation.ADD, Phase.BACKING).percentile(50) >= 0);
+    }
+
+    @Test
+    public void testSlowTriggersAreRecorded() throws Exception {
+        final Path file = Files.createTempFile("triggers", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("dev.rus4j.collect.SlowTrigger");
+            recording.start();
+            final TriggerCollection<Integer> collection = TriggerCollection.from(new ArrayList<Integer>())
+                .afterAdd((i, result) -> sleep())
+                .beforeAdd(i -> { })
+                .metrics(1, TimeUnit.MILLISECONDS)
+                .build();
+            collection.add(1);
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(1, events.size());
+        assertEquals("ADD", events.get(0).getString("operation"));
+        assertEquals("AFTER", events.get(0).getString("phase"));
+    }
+
+    @Test
+    public void testSlowTriggersWithoutRecording() {
+        final TriggerCollection<Integer> collection = TriggerCollection.from(new ArrayList<Integer>())
+            .allowAdd(i -> true)
+            .metrics(0, TimeUnit.NANOSECONDS)
+            .build();
+        collection.add(1);
+        assertEquals(1, collection.metrics().invocations(Operation.ADD));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMetricsDisabled() {
+        TriggerCollection.from(new ArrayList<Integer>()).build().metrics();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        TriggerCollection.from(new ArrayList<Integer>()).metrics(-1, TimeUnit.MILLISECONDS);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
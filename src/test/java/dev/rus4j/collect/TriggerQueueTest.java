@@ -0,0 +1,59 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TriggerQueueTest {
+
+    @Test
+    public void testOfferAndPollTriggers() {
+        final Queue<Integer> backing = new ArrayDeque<>();
+        final List<String> calls = new ArrayList<>();
+        final TriggerQueue<Integer> queue = TriggerQueue.from(backing)
+            .allowAdd(e -> e > 0)
+            .beforeAdd(e -> calls.add("before add " + e))
+            .afterAdd((e, result) -> calls.add("after add " + e))
+            .afterRemove((e, result) -> calls.add("after remove " + e))
+            .afterRemoveBatch(batch -> calls.add("batch " + batch))
+            .build();
+
+        assertTrue(queue.offer(1));
+        assertFalse(queue.offer(-1));
+        assertTrue(queue.add(2));
+        assertEquals(1, (int) queue.peek());
+        assertEquals(1, (int) queue.element());
+        assertEquals(1, (int) queue.poll());
+        assertEquals(2, (int) queue.remove());
+        assertNull(queue.poll());
+        assertEquals(List.of(
+            "before add 1", "after add 1", "before add 2", "after add 2",
+            "after remove 1", "batch [1]", "after remove 2", "batch [2]"
+        ), calls);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRemoveFromEmptyQueue() {
+        TriggerQueue.from(new ArrayDeque<Integer>()).afterRemove((e, result) -> { }).build().remove();
+    }
+
+    @Test
+    public void testAggregatesFollowPolls() {
+        final TriggerQueue<Integer> queue = TriggerQueue.from(new ArrayDeque<Integer>())
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .build();
+        queue.offer(3);
+        queue.offer(4);
+        queue.poll();
+        assertEquals(4L, (long) queue.aggregate("sum"));
+    }
+}
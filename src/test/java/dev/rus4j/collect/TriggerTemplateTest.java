@@ -0,0 +1,175 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TriggerTemplateTest {
+
+    @Test
+    public void testListTemplate() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerList.TriggerListBuilder<Integer> builder = TriggerList.<Integer>from(List.of())
+            .allowAdd(e -> e > 0)
+            .afterAdd((e, result) -> calls.add("add " + e))
+            .afterSet((e, index) -> calls.add("set " + e))
+            .aggregate("sum", Aggregation.summingLong(Integer::longValue))
+            .metrics();
+        final TriggerTemplate<Integer, TriggerList<Integer>> template = builder.compile();
+        builder.afterAdd((e, result) -> calls.add("late " + e));
+
+        final List<Integer> first = new ArrayList<>();
+        final List<Integer> second = new ArrayList<>();
+        final TriggerList<Integer> firstList = template.apply(first);
+        final TriggerList<Integer> secondList = template.apply(second);
+        firstList.add(1);
+        firstList.add(-1);
+        secondList.add(2);
+        secondList.add(3);
+        secondList.set(0, 4);
+        assertEquals(List.of(1), first);
+        assertEquals(List.of(4, 3), second);
+        assertEquals(1L, (long) firstList.aggregate("sum"));
+        assertEquals(7L, (long) secondList.aggregate("sum"));
+        assertEquals(List.of("add 1", "add 2", "add 3", "set 4"), calls);
+        assertEquals(3, firstList.metrics().invocations(TriggerMetrics.Operation.ADD));
+        assertEquals(firstList.metrics(), secondList.metrics());
+    }
+
+    @Test
+    public void testEveryBuilderCompiles() {
+        final List<String> calls = new ArrayList<>();
+        final TriggerTemplate<Integer, ? extends TriggerCollection<Integer>> collectionTemplate =
+            TriggerCollection.from(Set.<Integer>of())
+                .afterAdd((e, result) -> calls.add("collection " + e))
+                .compile();
+        final TriggerCollection<Integer> collection = collectionTemplate.apply(new HashSet<>());
+        collection.add(1);
+
+        TriggerQueue.<Integer>from(new ArrayDeque<>())
+            .afterRemove((e, result) -> calls.add("queue " + e))
+            .compile()
+            .apply(new LinkedList<>(List.of(2)))
+            .poll();
+        TriggerDeque.<Integer>from(new ArrayDeque<>())
+            .afterRemove((e, result) -> calls.add("deque " + e))
+            .compile()
+            .apply(new ArrayDeque<>(List.of(3)))
+            .pollLast();
+        TriggerBlockingQueue.<Integer>from(new LinkedBlockingQueue<>())
+            .afterAdd((e, result) -> calls.add("blocking " + e))
+            .compile()
+            .apply(new LinkedBlockingQueue<>())
+            .offer(4);
+        final Set<Integer> set = ConcurrentHashMap.newKeySet();
+        final ConcurrentTriggerCollection<Integer> concurrent = ConcurrentTriggerCollection
+            .concurrent(ConcurrentHashMap.<Integer>newKeySet())
+            .stripes(1)
+            .allowAdd(e -> e < 10)
+            .afterAdd((e, result) -> calls.add("concurrent " + e))
+            .compile()
+            .apply(set);
+        concurrent.add(5);
+        concurrent.add(50);
+        assertEquals(Set.of(5), set);
+        assertEquals(List.of("collection 1", "queue 2", "deque 3", "blocking 4", "concurrent 5"), calls);
+    }
+
+    @Test
+    public void testCollectionsDoNotCloseSharedResources() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "template-async"));
+        final List<String> threads = new CopyOnWriteArrayList<>();
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> completed = new CompletableFuture<>();
+        final TriggerTemplate<Integer, TriggerList<Integer>> template = TriggerList.<Integer>from(List.of())
+            .afterAdd((e, result) -> threads.add(Thread.currentThread().getName()))
+            .async(executor, 16, OverflowPolicy.BLOCK)
+            .publishChanges()
+            .compile();
+        final TriggerList<Integer> x = template.apply(new ArrayList<>());
+        final TriggerList<Integer> y = template.apply(new ArrayList<>());
+        x.changes().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ChangeEvent<Integer> item) {
+                events.add(item.toString());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        });
+
+        x.add(1);
+        x.close();
+        y.add(2);
+        y.flush();
+        assertEquals(List.of("template-async", "template-async"), threads);
+        assertFalse(completed.isDone());
+
+        template.close();
+        completed.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("ADDED added [1] removed []", "ADDED added [2] removed []"), events);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testInvalidTemplates() {
+        final TriggerTemplate<Integer, TriggerList<Integer>> template = TriggerList.<Integer>from(List.of()).compile();
+        try {
+            template.apply(new HashSet<>());
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("The template wraps instances of java.util.List", expected.getMessage());
+        }
+        try {
+            template.apply(null);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertFalse(expected.getMessage().isEmpty());
+        }
+        try {
+            TriggerList.<String>from(List.of()).journal(Path.of("journal"), JournalCodec.strings()).compile();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("Templates do not support journals", expected.getMessage());
+        }
+        try {
+            TriggerBlockingQueue.<Integer>from(new LinkedBlockingQueue<>())
+                .aggregate("count", Aggregation.counting())
+                .compile();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().startsWith("Blocking queues"));
+        }
+    }
+}
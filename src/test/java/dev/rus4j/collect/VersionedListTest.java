@@ -0,0 +1,170 @@
+package dev.rus4j.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VersionedListTest {
+
+    @Test
+    public void testGrowAndShrink() {
+        final VersionedList<Integer> list = new VersionedList<>();
+        final List<Integer> expected = new ArrayList<>();
+        final List<List<Integer>> snapshots = new ArrayList<>();
+        final List<List<Integer>> copies = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            list.add(i);
+            expected.add(i);
+            if (i % 4999 == 0) {
+                snapshots.add(list.snapshot());
+                copies.add(new ArrayList<>(expected));
+            }
+        }
+        assertEquals(expected, list);
+        for (int i = 0; i < 40_000; i += 97) {
+            list.set(i, -i);
+            expected.set(i, -i);
+        }
+        assertEquals(expected, list);
+        while (!list.isEmpty()) {
+            assertEquals(expected.remove(expected.size() - 1), list.remove(list.size() - 1));
+            if (list.size() % 7919 == 0) assertEquals(expected, list);
+        }
+        assertEquals(copies, snapshots);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        final Random random = new Random(42);
+        final VersionedList<Integer> list = new VersionedList<>();
+        final List<Integer> expected = new ArrayList<>();
+        final List<List<Integer>> snapshots = new ArrayList<>();
+        final List<List<Integer>> copies = new ArrayList<>();
+        for (int step = 0; step < 5_000; step++) {
+            final int size = expected.size();
+            final int index = random.nextInt(size + 1);
+            switch (random.nextInt(8)) {
+                case 0:
+                    list.add(index, step);
+                    expected.add(index, step);
+                    break;
+                case 1:
+                    final List<Integer> added = List.of(step, step + 1, step + 2);
+                    list.addAll(index, added);
+                    expected.addAll(index, added);
+                    break;
+                case 2:
+                    if (index < size) assertEquals(expected.remove(index), list.remove(index));
+                    break;
+                case 3:
+                    if (index < size) assertEquals(expected.set(index, -step), list.set(index, -step));
+                    break;
+                case 4:
+                    final int to = Math.min(size, index + random.nextInt(40));
+                    list.subList(index, to).clear();
+                    expected.subList(index, to).clear();
+                    break;
+                case 5:
+                    for (int i = 0; i < 50; i++) {
+                        list.add(i);
+                        expected.add(i);
+                    }
+                    break;
+                case 6:
+                    snapshots.add(list.snapshot());
+                    copies.add(new ArrayList<>(expected));
+                    break;
+                default:
+                    assertEquals(expected.isEmpty() ? null : expected.get(0), list.isEmpty() ? null : list.get(0));
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+        assertEquals(copies, snapshots);
+
+        final List<Integer> before = list.snapshot();
+        list.sort(Comparator.naturalOrder());
+        expected.sort(Comparator.naturalOrder());
+        list.replaceAll(e -> e * 2);
+        expected.replaceAll(e -> e * 2);
+        assertEquals(expected, list);
+        assertEquals(copies.get(copies.size() - 1).size(), copies.get(copies.size() - 1).size());
+        assertFalse(before.equals(list));
+        list.clear();
+        assertEquals(List.of(), list);
+        list.addAll(List.of());
+        list.subList(0, 0).clear();
+        assertEquals(List.of(), list.snapshot());
+    }
+
+    @Test
+    public void testBulkRemovalsPublishOneVersion() {
+        final VersionedList<Integer> list = new VersionedList<>();
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        final List<Integer> before = list.snapshot();
+        final List<List<Integer>> seen = new ArrayList<>();
+        assertTrue(list.removeIf(e -> {
+            seen.add(list.snapshot());
+            return e % 3 == 0;
+        }));
+        expected.removeIf(e -> e % 3 == 0);
+        assertEquals(expected, list);
+        assertTrue(seen.stream().allMatch(before::equals));
+        assertFalse(list.removeIf(e -> e < 0));
+        assertEquals(expected, list);
+
+        assertTrue(list.removeAll(Set.of(1, 2, 19_999)));
+        assertFalse(list.removeAll(Set.of(0)));
+        assertTrue(list.retainAll(Set.of(4, 5, 7, 0)));
+        assertEquals(List.of(4, 5, 7), list);
+        assertFalse(list.retainAll(Set.of(4, 5, 7)));
+        assertTrue(list.removeIf(e -> true));
+        assertEquals(List.of(), list.snapshot());
+        assertEquals(20_000, before.size());
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        final VersionedList<String> list = new VersionedList<>();
+        list.addAll(List.of("a", "b", "c"));
+        final List<String> snapshot = list.snapshot();
+        final Iterator<String> iterator = snapshot.iterator();
+        list.remove(1);
+        list.add(0, "x");
+        assertEquals("a", iterator.next());
+        assertEquals("b", iterator.next());
+        assertEquals(List.of("a", "b", "c"), List.of(snapshot.toArray()));
+        try {
+            snapshot.add("d");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(List.of("x", "a", "c"), list);
+        }
+        try {
+            snapshot.get(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            assertEquals(3, snapshot.size());
+        }
+        try {
+            list.add(5, "y");
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            assertEquals(3, list.size());
+        }
+    }
+}